@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.netty.buffer.PoolChunk.isSubpage;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 import static java.lang.Math.max;
 
 abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
@@ -43,6 +44,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     final int directMemoryCacheAlignment;
     final int directMemoryCacheAlignmentMask;
     private final PoolSubpage<T>[] smallSubpagePools;
+    // Shared by all threads of this arena, null if disabled.
+    private final PoolMagazineCache<T> magazineCache;
 
     private final PoolChunkList<T> q050;
     private final PoolChunkList<T> q025;
@@ -73,7 +76,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize,
-          int pageShifts, int chunkSize, int cacheAlignment) {
+          int pageShifts, int chunkSize, int cacheAlignment, int magazineCacheSize) {
         super(pageSize, pageShifts, chunkSize, cacheAlignment);
         this.parent = parent;
         directMemoryCacheAlignment = cacheAlignment;
@@ -107,6 +110,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         metrics.add(q075);
         metrics.add(q100);
         chunkListMetrics = Collections.unmodifiableList(metrics);
+
+        checkPositiveOrZero(magazineCacheSize, "magazineCacheSize");
+        magazineCache = magazineCacheSize > 0 ? new PoolMagazineCache<T>(
+                this, magazineCacheSize, PooledByteBufAllocator.DEFAULT_MAX_CACHED_BUFFER_CAPACITY) : null;
     }
 
     private PoolSubpage<T> newSubpagePoolHead() {
@@ -151,6 +158,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             // was able to allocate out of the cache so move on
             return;
         }
+        if (magazineCache != null && magazineCache.allocate(buf, reqCapacity, sizeIdx, cache)) {
+            // was able to allocate out of the shared magazines without taking the lock
+            return;
+        }
 
         /**
          * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
@@ -184,6 +195,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             // was able to allocate out of the cache so move on
             return;
         }
+        if (magazineCache != null && magazineCache.allocate(buf, reqCapacity, sizeIdx, cache)) {
+            // was able to allocate out of the shared magazines without taking the lock
+            return;
+        }
         synchronized (this) {
             allocateNormal(buf, reqCapacity, sizeIdx, cache);
             ++allocationsNormal;
@@ -230,6 +245,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
                 // cached so not free it.
                 return;
             }
+            if (magazineCache != null && magazineCache.add(chunk, nioBuffer, handle, normCapacity)) {
+                // cached in the shared magazines so not free it.
+                return;
+            }
 
             freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, false);
         }
@@ -544,8 +563,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
                   int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, 0);
+        }
+
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                  int chunkSize, int directMemoryCacheAlignment, int magazineCacheSize) {
             super(parent, pageSize, pageShifts, chunkSize,
-                  directMemoryCacheAlignment);
+                  directMemoryCacheAlignment, magazineCacheSize);
         }
 
         private static byte[] newByteArray(int size) {
@@ -592,8 +616,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
         DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
                     int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, 0);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                    int chunkSize, int directMemoryCacheAlignment, int magazineCacheSize) {
             super(parent, pageSize, pageShifts, chunkSize,
-                  directMemoryCacheAlignment);
+                  directMemoryCacheAlignment, magazineCacheSize);
         }
 
         @Override
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.NettyRuntime;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.ObjectPool.Handle;
+import io.netty.util.internal.ObjectPool.ObjectCreator;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.netty.buffer.PoolChunk.isSubpage;
+
+/**
+ * Caches memory regions of a {@link PoolArena} for the small and normal size classes in bounded lock-free
+ * "magazines" which are shared by all threads that use the {@link PoolArena}.
+ * <p>
+ * The {@link PoolThreadCache} only helps threads that free the memory they allocated themselves. Memory freed by
+ * other threads, or allocated by threads without a cache, otherwise always needs to go through the synchronized
+ * paths of the {@link PoolArena}. The magazines sit in between: memory that could not be added to the
+ * {@link PoolThreadCache} is added to a magazine and allocations that could not be served by the
+ * {@link PoolThreadCache} are served by a magazine if possible, both without taking the lock of the
+ * {@link PoolArena}.
+ * <p>
+ * To reduce contention between threads the magazines are split in stripes. A thread adds memory to the stripe
+ * picked by its id and allocates from it first, but also looks into the other stripes before it falls back to the
+ * {@link PoolArena}.
+ */
+final class PoolMagazineCache<T> {
+
+    private static final int STRIPES = MathUtil.findNextPositivePowerOfTwo(
+            Math.min(8, NettyRuntime.availableProcessors()));
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    private final PoolArena<T> arena;
+    private final int size;
+    private final int numCaches;
+    // Magazines are created lazily as most size classes are usually not used.
+    private final AtomicReferenceArray<Queue<Entry<T>>> magazines;
+
+    PoolMagazineCache(PoolArena<T> arena, int size, int maxCachedBufferCapacity) {
+        this.arena = arena;
+        // The queues need a capacity of at least 2.
+        this.size = MathUtil.safeFindNextPositivePowerOfTwo(Math.max(2, size));
+        numCaches = arena.size2SizeIdx(Math.min(arena.chunkSize, maxCachedBufferCapacity)) + 1;
+        magazines = new AtomicReferenceArray<Queue<Entry<T>>>(STRIPES * numCaches);
+    }
+
+    /**
+     * Try to allocate a buffer out of the magazines. Returns {@code true} if successful {@code false} otherwise.
+     */
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
+        if (sizeIdx >= numCaches) {
+            return false;
+        }
+        int stripe = stripe();
+        for (int i = 0; i < STRIPES; i++) {
+            Queue<Entry<T>> magazine = magazines.get(index((stripe + i) & STRIPE_MASK, sizeIdx));
+            if (magazine == null) {
+                continue;
+            }
+            Entry<T> entry = magazine.poll();
+            if (entry != null) {
+                PoolChunk<T> chunk = entry.chunk;
+                ByteBuffer nioBuffer = entry.nioBuffer;
+                long handle = entry.handle;
+                entry.recycle();
+                if (isSubpage(handle)) {
+                    chunk.initBufWithSubpage(buf, nioBuffer, handle, reqCapacity, threadCache);
+                } else {
+                    chunk.initBuf(buf, nioBuffer, handle, reqCapacity, threadCache);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the {@link PoolChunk} and {@code handle} to the magazine of the current thread if there is enough room.
+     * Returns {@code true} if it fit into the magazine {@code false} otherwise.
+     */
+    boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+        int sizeIdx = arena.size2SizeIdx(normCapacity);
+        if (sizeIdx >= numCaches) {
+            return false;
+        }
+        Queue<Entry<T>> magazine = magazine(index(stripe(), sizeIdx));
+        Entry<T> entry = newEntry(chunk, nioBuffer, handle);
+        if (!magazine.offer(entry)) {
+            // If it was not possible to cache the chunk, immediately recycle the entry
+            entry.recycle();
+            return false;
+        }
+        return true;
+    }
+
+    private Queue<Entry<T>> magazine(int index) {
+        Queue<Entry<T>> magazine = magazines.get(index);
+        if (magazine == null) {
+            Queue<Entry<T>> newMagazine = PlatformDependent.newFixedMpmcQueue(size);
+            if (magazines.compareAndSet(index, null, newMagazine)) {
+                magazine = newMagazine;
+            } else {
+                magazine = magazines.get(index);
+            }
+        }
+        return magazine;
+    }
+
+    private int index(int stripe, int sizeIdx) {
+        return stripe * numCaches + sizeIdx;
+    }
+
+    private static int stripe() {
+        return (int) Thread.currentThread().getId() & STRIPE_MASK;
+    }
+
+    static final class Entry<T> {
+        final Handle<Entry<?>> recyclerHandle;
+        PoolChunk<T> chunk;
+        ByteBuffer nioBuffer;
+        long handle = -1;
+
+        Entry(Handle<Entry<?>> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        void recycle() {
+            chunk = null;
+            nioBuffer = null;
+            handle = -1;
+            recyclerHandle.recycle(this);
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static <T> Entry<T> newEntry(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle) {
+        Entry entry = RECYCLER.get();
+        entry.chunk = chunk;
+        entry.nioBuffer = nioBuffer;
+        entry.handle = handle;
+        return entry;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final ObjectPool<Entry> RECYCLER = ObjectPool.newPool(new ObjectCreator<Entry>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public Entry newObject(Handle<Entry> handle) {
+            return new Entry(handle);
+        }
+    });
+}
@@ -45,7 +45,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private static final int DEFAULT_MAX_ORDER; // 8192 << 11 = 16 MiB per chunk
     private static final int DEFAULT_SMALL_CACHE_SIZE;
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
-    private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
+    private static final int DEFAULT_MAGAZINE_CACHE_SIZE;
+    static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
@@ -113,6 +114,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_SMALL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.smallCacheSize", 256);
         DEFAULT_NORMAL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.normalCacheSize", 64);
 
+        // the size of the magazines that are shared by all threads of an arena, disabled by default
+        DEFAULT_MAGAZINE_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.magazineCacheSize", 0);
+
         // 32 kb is the default maximum capacity of the cached buffer. Similar to what is explained in
         // 'Scalable memory allocation using jemalloc'
         DEFAULT_MAX_CACHED_BUFFER_CAPACITY = SystemPropertyUtil.getInt(
@@ -166,6 +170,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
             logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
+            logger.debug("-Dio.netty.allocator.magazineCacheSize: {}", DEFAULT_MAGAZINE_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
@@ -182,6 +187,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private final PoolArena<ByteBuffer>[] directArenas;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final int magazineCacheSize;
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
@@ -262,10 +268,28 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+             smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, DEFAULT_MAGAZINE_CACHE_SIZE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param magazineCacheSize the number of buffers per size class that are cached in lock-free magazines which are
+     *                          shared by all threads of an arena, or {@code 0} to disable them. The magazines are
+     *                          used when the thread local cache can not serve an allocation or take back a freed
+     *                          buffer, which is common for threads that free buffers allocated by other threads.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  int magazineCacheSize) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        this.magazineCacheSize = checkPositiveOrZero(magazineCacheSize, "magazineCacheSize");
         chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         checkPositiveOrZero(nHeapArena, "nHeapArena");
@@ -289,7 +313,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             for (int i = 0; i < heapArenas.length; i ++) {
                 PoolArena.HeapArena arena = new PoolArena.HeapArena(this,
                         pageSize, pageShifts, chunkSize,
-                        directMemoryCacheAlignment);
+                        directMemoryCacheAlignment, magazineCacheSize);
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -304,7 +328,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment);
+                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, magazineCacheSize);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -451,6 +475,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     * Default magazine cache size - System Property: io.netty.allocator.magazineCacheSize - default 0
+     */
+    public static int defaultMagazineCacheSize() {
+        return DEFAULT_MAGAZINE_CACHE_SIZE;
+    }
+
     /**
      * Return {@code true} if direct memory cache alignment is supported, {@code false} otherwise.
      */
@@ -628,6 +659,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return normalCacheSize;
     }
 
+    /**
+     * Return the size of the magazines that are shared by all threads of an arena.
+     */
+    final int magazineCacheSize() {
+        return magazineCacheSize;
+    }
+
     /**
      * Return the chunk size for an arena.
      *
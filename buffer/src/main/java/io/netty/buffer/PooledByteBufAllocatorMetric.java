@@ -90,6 +90,13 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.normalCacheSize();
     }
 
+    /**
+     * Return the size of the magazines that are shared by all threads of an arena.
+     */
+    public int magazineCacheSize() {
+        return allocator.magazineCacheSize();
+    }
+
     /**
      * Return the chunk size for an arena.
      */
@@ -117,6 +124,7 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
                 .append("; numDirectArenas: ").append(numDirectArenas())
                 .append("; smallCacheSize: ").append(smallCacheSize())
                 .append("; normalCacheSize: ").append(normalCacheSize())
+                .append("; magazineCacheSize: ").append(magazineCacheSize())
                 .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
                 .append("; chunkSize: ").append(chunkSize()).append(')');
         return sb.toString();
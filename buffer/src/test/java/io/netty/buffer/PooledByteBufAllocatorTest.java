@@ -154,6 +154,35 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 1000, 1000, 1000, true, 64), 100, 1, 1, 0);
     }
 
+    @Test
+    public void testArenaMetricsMagazineCache() {
+        testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 0, 0, true, 0, 16), 100, 1, 1, 0);
+    }
+
+    @Test
+    public void testMagazineCacheReleaseFromOtherThread() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 1, 0, 8192, 11, 0, 0, false, 0, 16);
+        for (final int size : new int[] { 64, 16 * 1024 }) {
+            final ByteBuf buf = allocator.heapBuffer(size);
+            final int offset = buf.arrayOffset();
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    assertTrue(buf.release());
+                }
+            });
+            thread.start();
+            thread.join();
+
+            // The memory was put in the magazine of the other thread and is reused without going to the arena.
+            ByteBuf buf2 = allocator.heapBuffer(size);
+            assertEquals(offset, buf2.arrayOffset());
+            assertTrue(buf2.release());
+        }
+        assertArenaMetrics(allocator.metric().heapArenas(), 2, 2, 0);
+    }
+
     private static void testArenaMetrics0(
             PooledByteBufAllocator allocator, int num, int expectedActive, int expectedAlloc, int expectedDealloc) {
         for (int i = 0; i < num; i++) {
@@ -16,6 +16,7 @@
 package io.netty.handler.codec.haproxy;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.haproxy.HAProxyProxiedProtocol.AddressFamily;
 import io.netty.util.AbstractReferenceCounted;
 import io.netty.util.ByteProcessor;
@@ -27,6 +28,9 @@ import io.netty.util.ResourceLeakTracker;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -42,11 +46,17 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
     private final HAProxyProtocolVersion protocolVersion;
     private final HAProxyCommand command;
     private final HAProxyProxiedProtocol proxiedProtocol;
-    private final String sourceAddress;
-    private final String destinationAddress;
+    // Computed lazily from the address bytes if decoded lazily.
+    private String sourceAddress;
+    private String destinationAddress;
+    // Only set if decoded lazily.
+    private final byte[] sourceAddressBytes;
+    private final byte[] destinationAddressBytes;
     private final int sourcePort;
     private final int destinationPort;
-    private final List<HAProxyTLV> tlvs;
+    // Parsed lazily from the tlvContent if decoded lazily.
+    private List<HAProxyTLV> tlvs;
+    private final ByteBuf tlvContent;
 
     /**
      * Creates a new instance
@@ -108,9 +118,33 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
         this.proxiedProtocol = proxiedProtocol;
         this.sourceAddress = sourceAddress;
         this.destinationAddress = destinationAddress;
+        sourceAddressBytes = null;
+        destinationAddressBytes = null;
         this.sourcePort = sourcePort;
         this.destinationPort = destinationPort;
         this.tlvs = Collections.unmodifiableList(tlvs);
+        tlvContent = null;
+
+        leak = leakDetector.track(this);
+    }
+
+    /**
+     * Creates a new instance from lazily decoded values, which are valid by construction.
+     */
+    private HAProxyMessage(
+            HAProxyProxiedProtocol proxiedProtocol, byte[] sourceAddressBytes, byte[] destinationAddressBytes,
+            String sourceAddress, String destinationAddress, int sourcePort, int destinationPort,
+            ByteBuf tlvContent) {
+        protocolVersion = HAProxyProtocolVersion.V2;
+        command = HAProxyCommand.PROXY;
+        this.proxiedProtocol = proxiedProtocol;
+        this.sourceAddress = sourceAddress;
+        this.destinationAddress = destinationAddress;
+        this.sourceAddressBytes = sourceAddressBytes;
+        this.destinationAddressBytes = destinationAddressBytes;
+        this.sourcePort = sourcePort;
+        this.destinationPort = destinationPort;
+        this.tlvContent = tlvContent;
 
         leak = leakDetector.track(this);
     }
@@ -123,6 +157,19 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
      * @throws HAProxyProtocolException  if any portion of the header is invalid
      */
     static HAProxyMessage decodeHeader(ByteBuf header) {
+        return decodeHeader(header, false);
+    }
+
+    /**
+     * Decodes a version 2, binary proxy protocol header.
+     *
+     * @param header                     a version 2 proxy protocol header
+     * @param lazy                       {@code true} if IP addresses should be kept as bytes and TLVs should be
+     *                                   kept as a single slice until they are accessed
+     * @return                           {@link HAProxyMessage} instance
+     * @throws HAProxyProtocolException  if any portion of the header is invalid
+     */
+    static HAProxyMessage decodeHeader(ByteBuf header, boolean lazy) {
         ObjectUtil.checkNotNull(header, "header");
 
         if (header.readableBytes() < 16) {
@@ -170,8 +217,10 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
 
         int addressInfoLen = header.readUnsignedShort();
 
-        String srcAddress;
-        String dstAddress;
+        String srcAddress = null;
+        String dstAddress = null;
+        byte[] srcAddressBytes = null;
+        byte[] dstAddressBytes = null;
         int addressLen;
         int srcPort = 0;
         int dstPort = 0;
@@ -229,12 +278,25 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
             }
 
             // Per spec, the src address begins at the 17th byte
-            srcAddress = ipBytesToString(header, addressLen);
-            dstAddress = ipBytesToString(header, addressLen);
+            if (lazy) {
+                srcAddressBytes = new byte[addressLen];
+                dstAddressBytes = new byte[addressLen];
+                header.readBytes(srcAddressBytes).readBytes(dstAddressBytes);
+            } else {
+                srcAddress = ipBytesToString(header, addressLen);
+                dstAddress = ipBytesToString(header, addressLen);
+            }
             srcPort = header.readUnsignedShort();
             dstPort = header.readUnsignedShort();
         }
 
+        if (lazy) {
+            // We need at least 4 bytes for a TLV
+            ByteBuf tlvContent = header.readableBytes() < 4 ? null : header.readRetainedSlice(header.readableBytes());
+            return new HAProxyMessage(protAndFam, srcAddressBytes, dstAddressBytes, srcAddress, dstAddress,
+                    srcPort, dstPort, tlvContent);
+        }
+
         final List<HAProxyTLV> tlvs = readTlvs(header);
 
         return new HAProxyMessage(ver, cmd, protAndFam, srcAddress, dstAddress, srcPort, dstPort, tlvs);
@@ -504,6 +566,9 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
      * Returns the human-readable source address of this {@link HAProxyMessage}.
      */
     public String sourceAddress() {
+        if (sourceAddress == null && sourceAddressBytes != null) {
+            sourceAddress = ipBytesToString(Unpooled.wrappedBuffer(sourceAddressBytes), sourceAddressBytes.length);
+        }
         return sourceAddress;
     }
 
@@ -511,9 +576,47 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
      * Returns the human-readable destination address of this {@link HAProxyMessage}.
      */
     public String destinationAddress() {
+        if (destinationAddress == null && destinationAddressBytes != null) {
+            destinationAddress = ipBytesToString(
+                    Unpooled.wrappedBuffer(destinationAddressBytes), destinationAddressBytes.length);
+        }
         return destinationAddress;
     }
 
+    /**
+     * Returns the source address and port of this {@link HAProxyMessage}, or {@code null} if the address family is
+     * neither {@link AddressFamily#AF_IPv4} nor {@link AddressFamily#AF_IPv6}. If the message was decoded lazily the
+     * address is created from the received bytes directly, without going through its human-readable form.
+     */
+    public InetSocketAddress sourceInetSocketAddress() {
+        return inetSocketAddress(sourceAddressBytes, sourceAddress, sourcePort);
+    }
+
+    /**
+     * Returns the destination address and port of this {@link HAProxyMessage}, or {@code null} if the address
+     * family is neither {@link AddressFamily#AF_IPv4} nor {@link AddressFamily#AF_IPv6}. If the message was decoded
+     * lazily the address is created from the received bytes directly, without going through its human-readable form.
+     */
+    public InetSocketAddress destinationInetSocketAddress() {
+        return inetSocketAddress(destinationAddressBytes, destinationAddress, destinationPort);
+    }
+
+    private InetSocketAddress inetSocketAddress(byte[] addressBytes, String address, int port) {
+        AddressFamily addressFamily = proxiedProtocol.addressFamily();
+        if (addressFamily != AddressFamily.AF_IPv4 && addressFamily != AddressFamily.AF_IPv6) {
+            return null;
+        }
+        if (addressBytes == null) {
+            addressBytes = NetUtil.createByteArrayFromIpAddressString(address);
+        }
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(addressBytes), port);
+        } catch (UnknownHostException e) {
+            // Only thrown for an illegal length, which was validated already.
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Returns the UDP/TCP source port of this {@link HAProxyMessage}.
      */
@@ -531,14 +634,27 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
     /**
      * Returns a list of {@link HAProxyTLV} or an empty list if no TLVs are present.
      * <p>
-     * TLVs are only available for the Proxy Protocol V2
+     * TLVs are only available for the Proxy Protocol V2. If the message was decoded lazily the TLVs are parsed on the
+     * first call of this method, they are slices of the received header in any case.
      */
     public List<HAProxyTLV> tlvs() {
+        if (tlvs == null) {
+            if (tlvContent == null) {
+                tlvs = Collections.emptyList();
+            } else {
+                try {
+                    tlvs = Collections.unmodifiableList(readTlvs(tlvContent.duplicate()));
+                } catch (IndexOutOfBoundsException e) {
+                    throw new HAProxyProtocolException("invalid TLVs", e);
+                }
+            }
+        }
         return tlvs;
     }
 
     int tlvNumBytes() {
         int tlvNumBytes = 0;
+        List<HAProxyTLV> tlvs = tlvs();
         for (int i = 0; i < tlvs.size(); i++) {
             tlvNumBytes += tlvs.get(i).totalNumBytes();
         }
@@ -592,8 +708,13 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
     @Override
     protected void deallocate() {
         try {
-            for (HAProxyTLV tlv : tlvs) {
-                tlv.release();
+            if (tlvs != null) {
+                for (HAProxyTLV tlv : tlvs) {
+                    tlv.release();
+                }
+            }
+            if (tlvContent != null) {
+                tlvContent.release();
             }
         } finally {
             final ResourceLeakTracker<HAProxyMessage> leak = this.leak;
@@ -611,11 +732,12 @@ public final class HAProxyMessage extends AbstractReferenceCounted {
                 .append("(protocolVersion: ").append(protocolVersion)
                 .append(", command: ").append(command)
                 .append(", proxiedProtocol: ").append(proxiedProtocol)
-                .append(", sourceAddress: ").append(sourceAddress)
-                .append(", destinationAddress: ").append(destinationAddress)
+                .append(", sourceAddress: ").append(sourceAddress())
+                .append(", destinationAddress: ").append(destinationAddress())
                 .append(", sourcePort: ").append(sourcePort)
                 .append(", destinationPort: ").append(destinationPort)
                 .append(", tlvs: [");
+        List<HAProxyTLV> tlvs = tlvs();
         if (!tlvs.isEmpty()) {
             for (HAProxyTLV tlv: tlvs) {
                 sb.append(tlv).append(", ");
@@ -104,6 +104,11 @@ public class HAProxyMessageDecoder extends ByteToMessageDecoder {
      */
     private final int v2MaxHeaderSize;
 
+    /**
+     * {@code true} if v2 headers should be decoded lazily
+     */
+    private final boolean lazy;
+
     /**
      * Creates a new decoder with no additional data (TLV) restrictions, and should throw an exception as soon as
      * we exceed maxLength.
@@ -121,6 +126,7 @@ public class HAProxyMessageDecoder extends ByteToMessageDecoder {
     public HAProxyMessageDecoder(boolean failFast) {
         v2MaxHeaderSize = V2_MAX_LENGTH;
         this.failFast = failFast;
+        lazy = false;
     }
 
     /**
@@ -146,6 +152,26 @@ public class HAProxyMessageDecoder extends ByteToMessageDecoder {
      * @param failFast Whether or not to throw an exception as soon as we exceed maxLength
      */
     public HAProxyMessageDecoder(int maxTlvSize, boolean failFast) {
+        this(maxTlvSize, failFast, false);
+    }
+
+    /**
+     * Creates a new decoder with restricted additional data (TLV) size, whether or not to throw an exception as soon
+     * as we exceed maxLength and whether or not to decode v2, binary headers lazily.
+     * <p>
+     * Decoding lazily is meant for servers which accept connections at a high rate and are usually only interested
+     * in the addresses: the IPv4 and IPv6 addresses of the {@link HAProxyMessage} are kept as bytes, which are
+     * turned into {@link java.net.InetSocketAddress}es by {@link HAProxyMessage#sourceInetSocketAddress()} and
+     * {@link HAProxyMessage#destinationInetSocketAddress()} without being formatted and parsed as {@link String}s.
+     * The TLVs are kept as a single slice of the header and only parsed once {@link HAProxyMessage#tlvs()} is
+     * called, which means that invalid TLVs are only detected then.
+     * </p>
+     *
+     * @param maxTlvSize maximum number of bytes allowed for additional data (Type-Length-Value vectors) in a v2 header
+     * @param failFast Whether or not to throw an exception as soon as we exceed maxLength
+     * @param lazy Whether or not to decode v2 headers lazily
+     */
+    public HAProxyMessageDecoder(int maxTlvSize, boolean failFast, boolean lazy) {
         if (maxTlvSize < 1) {
             v2MaxHeaderSize = V2_MIN_LENGTH;
         } else if (maxTlvSize > V2_MAX_TLV) {
@@ -159,6 +185,7 @@ public class HAProxyMessageDecoder extends ByteToMessageDecoder {
             }
         }
         this.failFast = failFast;
+        this.lazy = lazy;
     }
 
     /**
@@ -254,7 +281,7 @@ public class HAProxyMessageDecoder extends ByteToMessageDecoder {
                 if (version == 1) {
                     out.add(HAProxyMessage.decodeHeader(decoded.toString(CharsetUtil.US_ASCII)));
                 } else {
-                    out.add(HAProxyMessage.decodeHeader(decoded));
+                    out.add(HAProxyMessage.decodeHeader(decoded, lazy));
                 }
             } catch (HAProxyProtocolException e) {
                 fail(ctx, null, e);
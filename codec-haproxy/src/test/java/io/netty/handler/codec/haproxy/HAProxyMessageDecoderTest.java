@@ -23,11 +23,14 @@ import io.netty.handler.codec.ProtocolDetectionState;
 import io.netty.handler.codec.haproxy.HAProxyProxiedProtocol.AddressFamily;
 import io.netty.handler.codec.haproxy.HAProxyProxiedProtocol.TransportProtocol;
 import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.List;
 
 import static io.netty.buffer.Unpooled.*;
@@ -701,6 +704,78 @@ public class HAProxyMessageDecoderTest {
         assertFalse(ch.finish());
     }
 
+    @Test
+    public void testV2WithSslTLVsLazy() throws Exception {
+        ch = new EmbeddedChannel(new HAProxyMessageDecoder(65535, true, true));
+
+        final byte[] bytes = {
+                13, 10, 13, 10, 0, 13, 10, 81, 85, 73, 84, 10, 33, 17, 0, 35, 127, 0, 0, 1, 127, 0, 0, 1,
+                -55, -90, 7, 89, 32, 0, 20, 5, 0, 0, 0, 0, 33, 0, 5, 84, 76, 83, 118, 49, 34, 0, 4, 76, 69, 65, 70
+        };
+
+        int startChannels = ch.pipeline().names().size();
+        assertTrue(ch.writeInbound(copiedBuffer(bytes)));
+        HAProxyMessage msg = ch.readInbound();
+        assertEquals(startChannels - 1, ch.pipeline().names().size());
+
+        assertEquals(HAProxyProxiedProtocol.TCP4, msg.proxiedProtocol());
+        assertEquals(new InetSocketAddress(NetUtil.LOCALHOST4, 51622), msg.sourceInetSocketAddress());
+        assertEquals(new InetSocketAddress(NetUtil.LOCALHOST4, 1881), msg.destinationInetSocketAddress());
+        assertEquals("127.0.0.1", msg.sourceAddress());
+        assertEquals("127.0.0.1", msg.destinationAddress());
+
+        final List<HAProxyTLV> tlvs = msg.tlvs();
+        assertSame(tlvs, msg.tlvs());
+        assertEquals(3, tlvs.size());
+        assertEquals(HAProxyTLV.Type.PP2_TYPE_SSL, tlvs.get(0).type());
+        assertEquals(HAProxyTLV.Type.PP2_TYPE_SSL_VERSION, tlvs.get(1).type());
+        assertEquals("TLSv1", tlvs.get(1).content().toString(CharsetUtil.US_ASCII));
+        assertEquals(HAProxyTLV.Type.PP2_TYPE_SSL_CN, tlvs.get(2).type());
+        assertEquals("LEAF", tlvs.get(2).content().toString(CharsetUtil.US_ASCII));
+
+        assertTrue(msg.release());
+        assertEquals(0, tlvs.get(0).refCnt());
+        assertEquals(0, tlvs.get(2).refCnt());
+
+        assertNull(ch.readInbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testV2IPV6DecodeLazy() throws Exception {
+        ch = new EmbeddedChannel(new HAProxyMessageDecoder(0, true, true));
+
+        final byte[] bytes = {
+                13, 10, 13, 10, 0, 13, 10, 81, 85, 73, 84, 10, 0x21, 0x21, 0, 36,
+                0x20, 0x01, 0x0d, (byte) 0xb8, (byte) 0x85, (byte) 0xa3, 0, 0, 0, 0, (byte) 0x8a, 0x2e, 0x03, 0x70,
+                0x73, 0x34,
+                0x10, 0x50, 0, 0, 0, 0, 0, 0, 0, 0x05, 0x06, 0, 0x30, 0x0c, 0x32, 0x6b,
+                (byte) 0xdc, 0x04, 0x01, (byte) 0xbb
+        };
+
+        assertTrue(ch.writeInbound(copiedBuffer(bytes)));
+        HAProxyMessage msg = ch.readInbound();
+        assertEquals(HAProxyProxiedProtocol.TCP6, msg.proxiedProtocol());
+        assertEquals("2001:db8:85a3:0:0:8a2e:370:7334", msg.sourceAddress());
+        assertEquals("1050:0:0:0:5:600:300c:326b", msg.destinationAddress());
+        assertEquals(new InetSocketAddress(InetAddress.getByName("2001:db8:85a3::8a2e:370:7334"), 56324),
+                msg.sourceInetSocketAddress());
+        assertEquals(new InetSocketAddress(InetAddress.getByName("1050::5:600:300c:326b"), 443),
+                msg.destinationInetSocketAddress());
+        assertTrue(msg.tlvs().isEmpty());
+        assertTrue(msg.release());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testInetSocketAddressOfV1() {
+        ch.writeInbound(copiedBuffer("PROXY TCP4 192.168.0.1 192.168.0.11 56324 443\r\n", CharsetUtil.US_ASCII));
+        HAProxyMessage msg = ch.readInbound();
+        assertEquals(new InetSocketAddress("192.168.0.1", 56324), msg.sourceInetSocketAddress());
+        assertEquals(new InetSocketAddress("192.168.0.11", 443), msg.destinationInetSocketAddress());
+        assertTrue(msg.release());
+    }
+
     @Test
     public void testReleaseHAProxyMessage() {
         ch = new EmbeddedChannel(new HAProxyMessageDecoder());
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A cache of compressed response bodies that can be shared by many {@link HttpContentCompressor}s, which use
+ * it to serve the same {@link FullHttpResponse} content without compressing it again.
+ * <p>
+ * Entries are identified by a key that stands for the uncompressed content, such as the path of the resource
+ * together with its strong {@code ETag}, and by the content encoding. The cache is bounded by the total number of compressed bytes it holds and evicts the
+ * least recently used entries first.
+ */
+public final class HttpContentCompressionCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, ByteBuf> entries = new LinkedHashMap<Key, ByteBuf>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxBytes the maximum number of compressed bytes to keep
+     */
+    public HttpContentCompressionCache(long maxBytes) {
+        this.maxBytes = checkPositive(maxBytes, "maxBytes");
+    }
+
+    /**
+     * Returns the compressed content for the given key and encoding, or {@code null} if it is not cached.
+     * The caller is responsible to release the returned buffer.
+     */
+    public ByteBuf get(String key, String contentEncoding) {
+        Key k = new Key(key, contentEncoding);
+        synchronized (entries) {
+            ByteBuf content = entries.get(k);
+            return content == null ? null : content.retainedDuplicate();
+        }
+    }
+
+    /**
+     * Caches the readable bytes of {@code content} as the compressed content for the given key and encoding,
+     * evicting the least recently used entries if necessary. Content larger than the maximum size of this
+     * cache is not cached. The cache does not take ownership of {@code content}, and changes to its indexes
+     * do not affect the cached entry.
+     */
+    public void put(String key, String contentEncoding, ByteBuf content) {
+        Key k = new Key(key, contentEncoding);
+        int length = content.readableBytes();
+        if (length > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            ByteBuf old = entries.put(k, content.retainedDuplicate());
+            bytes += length;
+            if (old != null) {
+                bytes -= old.readableBytes();
+                old.release();
+            }
+            Iterator<Map.Entry<Key, ByteBuf>> i = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                ByteBuf evicted = i.next().getValue();
+                i.remove();
+                bytes -= evicted.readableBytes();
+                evicted.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total number of compressed bytes held by this cache.
+     */
+    public long bytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Removes and releases all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (ByteBuf content : entries.values()) {
+                content.release();
+            }
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    private static final class Key {
+        private final String key;
+        private final String contentEncoding;
+
+        Key(String key, String contentEncoding) {
+            this.key = checkNotNull(key, "key");
+            this.contentEncoding = checkNotNull(contentEncoding, "contentEncoding");
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + contentEncoding.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return key.equals(other.key) && contentEncoding.equals(other.contentEncoding);
+        }
+    }
+}
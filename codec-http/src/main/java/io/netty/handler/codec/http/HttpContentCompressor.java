@@ -15,15 +15,26 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
 
 /**
  * Compresses an {@link HttpMessage} and an {@link HttpContent} in {@code gzip} or
  * {@code deflate} encoding while respecting the {@code "Accept-Encoding"} header.
- * If there is no matching encoding, no compression is done.  For more
+ * If there is no matching encoding, no compression is done.  When constructed with a
+ * non-zero {@code zstdCompressionLevel}, {@code zstd} encoding is used instead whenever
+ * the client prefers it at least as much as {@code gzip} and {@code deflate}.
+ * <p>
+ * If a {@link HttpContentCompressionCache} is given, the compressed content of
+ * {@link FullHttpResponse}s for which {@link #cacheKey(FullHttpResponse, String)} returns a key
+ * is stored in it and served from it for later responses with the same key.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
  */
@@ -33,6 +44,8 @@ public class HttpContentCompressor extends HttpContentEncoder {
     private final int windowBits;
     private final int memLevel;
     private final int contentSizeThreshold;
+    private final int zstdCompressionLevel;
+    private final HttpContentCompressionCache cache;
     private ChannelHandlerContext ctx;
 
     /**
@@ -103,6 +116,54 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        number. {@code 0} will enable compression for all responses.
      */
     public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold) {
+        this(compressionLevel, windowBits, memLevel, contentSizeThreshold, 0);
+    }
+
+    /**
+     * Creates a new handler with the specified compression level, window size,
+     * memory level and {@code zstd} compression level.
+     *
+     * @see #HttpContentCompressor(int, int, int, int, int, HttpContentCompressionCache)
+     */
+    public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold,
+                                 int zstdCompressionLevel) {
+        this(compressionLevel, windowBits, memLevel, contentSizeThreshold, zstdCompressionLevel, null);
+    }
+
+    /**
+     * Creates a new handler with the specified compression level, window size,
+     * memory level, {@code zstd} compression level and compression cache.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param windowBits
+     *        The base two logarithm of the size of the history buffer.  The
+     *        value should be in the range {@code 9} to {@code 15} inclusive.
+     *        Larger values result in better compression at the expense of
+     *        memory usage.  The default value is {@code 15}.
+     * @param memLevel
+     *        How much memory should be allocated for the internal compression
+     *        state.  {@code 1} uses minimum memory and {@code 9} uses maximum
+     *        memory.  Larger values result in better and faster compression
+     *        at the expense of memory usage.  The default value is {@code 8}
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param zstdCompressionLevel
+     *        The compression level used when {@code zstd} is negotiated.
+     *        {@code 1} yields the fastest compression and {@code 22} yields the
+     *        best compression.  {@code 0} means {@code zstd} is never negotiated.
+     *        Any other value requires {@link Zstd#isAvailable() zstd-jni}.
+     * @param cache
+     *        The cache of compressed {@link FullHttpResponse} contents, which may
+     *        be shared by many handlers, or {@code null} to compress every response.
+     *        See {@link #cacheKey(FullHttpResponse, String)} for which responses are cached.
+     */
+    public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold,
+                                 int zstdCompressionLevel, HttpContentCompressionCache cache) {
         if (compressionLevel < 0 || compressionLevel > 9) {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel +
@@ -120,10 +181,19 @@ public class HttpContentCompressor extends HttpContentEncoder {
             throw new IllegalArgumentException(
                     "contentSizeThreshold: " + contentSizeThreshold + " (expected: non negative number)");
         }
+        if (zstdCompressionLevel < 0 || zstdCompressionLevel > 22) {
+            throw new IllegalArgumentException(
+                    "zstdCompressionLevel: " + zstdCompressionLevel + " (expected: 0-22)");
+        }
+        if (zstdCompressionLevel > 0) {
+            Zstd.ensureAvailability();
+        }
         this.compressionLevel = compressionLevel;
         this.windowBits = windowBits;
         this.memLevel = memLevel;
         this.contentSizeThreshold = contentSizeThreshold;
+        this.zstdCompressionLevel = zstdCompressionLevel;
+        this.cache = cache;
     }
 
     @Override
@@ -147,28 +217,90 @@ public class HttpContentCompressor extends HttpContentEncoder {
             return null;
         }
 
-        ZlibWrapper wrapper = determineWrapper(acceptEncoding);
-        if (wrapper == null) {
-            return null;
+        String targetContentEncoding;
+        ZlibWrapper wrapper;
+        if (zstdCompressionLevel > 0 && preferZstd(acceptEncoding)) {
+            targetContentEncoding = HttpHeaderValues.ZSTD.toString();
+            wrapper = null;
+        } else {
+            wrapper = determineWrapper(acceptEncoding);
+            if (wrapper == null) {
+                return null;
+            }
+
+            switch (wrapper) {
+            case GZIP:
+                targetContentEncoding = "gzip";
+                break;
+            case ZLIB:
+                targetContentEncoding = "deflate";
+                break;
+            default:
+                throw new Error();
+            }
         }
 
-        String targetContentEncoding;
-        switch (wrapper) {
-        case GZIP:
-            targetContentEncoding = "gzip";
-            break;
-        case ZLIB:
-            targetContentEncoding = "deflate";
-            break;
-        default:
-            throw new Error();
-        }
-
-        return new Result(
-                targetContentEncoding,
-                new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
-                        ctx.channel().config(), ZlibCodecFactory.newZlibEncoder(
-                        wrapper, compressionLevel, windowBits, memLevel)));
+        String cacheKey = cache != null && httpResponse instanceof FullHttpResponse && !hasWeakETag(httpResponse) ?
+                cacheKey((FullHttpResponse) httpResponse, targetContentEncoding) : null;
+        if (cacheKey == null) {
+            return new Result(targetContentEncoding, newContentEncoder(wrapper));
+        }
+
+        ByteBuf encodedContent = cache.get(cacheKey, targetContentEncoding);
+        if (encodedContent == null) {
+            encodedContent = encodeFully(newContentEncoder(wrapper), ((FullHttpResponse) httpResponse).content());
+            cache.put(cacheKey, targetContentEncoding, encodedContent);
+        }
+        return new Result(targetContentEncoding, encodedContent);
+    }
+
+    /**
+     * Returns a new channel that encodes content with zlib in the given format, or with zstd if {@code wrapper}
+     * is {@code null}.
+     */
+    private EmbeddedChannel newContentEncoder(ZlibWrapper wrapper) {
+        ChannelHandler encoder = wrapper == null ? new ZstdEncoder(zstdCompressionLevel) :
+                ZlibCodecFactory.newZlibEncoder(wrapper, compressionLevel, windowBits, memLevel);
+        return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
+                ctx.channel().config(), encoder);
+    }
+
+    /**
+     * Returns the key that identifies the content of the given response in the {@link HttpContentCompressionCache}
+     * of this handler, or {@code null} if the compressed content must not be cached. The default implementation
+     * returns {@code null}, so nothing is cached unless this method is overridden.
+     * <p>
+     * Responses with the same key are served the same compressed bytes, so the key must identify the resource (for
+     * example its path) and the exact version of its content, and must take the chosen {@code contentEncoding} into
+     * account if the content depends on it. An {@code ETag} on its own is not enough, as it is only unique per
+     * resource. Responses with a weak {@code ETag} are never cached because their content may differ.
+     */
+    protected String cacheKey(FullHttpResponse httpResponse, String contentEncoding) {
+        return null;
+    }
+
+    private static boolean hasWeakETag(HttpResponse httpResponse) {
+        String etag = httpResponse.headers().get(HttpHeaderNames.ETAG);
+        return etag != null && etag.startsWith("W/");
+    }
+
+    private static ByteBuf encodeFully(EmbeddedChannel channel, ByteBuf content) {
+        channel.writeOutbound(content.retainedDuplicate());
+        channel.finish();
+        int length = 0;
+        for (Object buf : channel.outboundMessages()) {
+            length += ((ByteBuf) buf).readableBytes();
+        }
+        // Cached content lives long, so keep it out of the pooled arenas and do not waste any capacity.
+        ByteBuf encodedContent = Unpooled.directBuffer(length, length);
+        for (;;) {
+            ByteBuf buf = channel.readOutbound();
+            if (buf == null) {
+                return encodedContent;
+            }
+            encodedContent.writeBytes(buf);
+            buf.release();
+        }
     }
 
     @SuppressWarnings("FloatingPointEquality")
@@ -177,16 +309,7 @@ public class HttpContentCompressor extends HttpContentEncoder {
         float gzipQ = -1.0f;
         float deflateQ = -1.0f;
         for (String encoding : acceptEncoding.split(",")) {
-            float q = 1.0f;
-            int equalsPos = encoding.indexOf('=');
-            if (equalsPos != -1) {
-                try {
-                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
-                } catch (NumberFormatException e) {
-                    // Ignore encoding
-                    q = 0.0f;
-                }
-            }
+            float q = qValue(encoding);
             if (encoding.contains("*")) {
                 starQ = q;
             } else if (encoding.contains("gzip") && q > gzipQ) {
@@ -212,4 +335,36 @@ public class HttpContentCompressor extends HttpContentEncoder {
         }
         return null;
     }
+
+    /**
+     * Returns {@code true} if {@code zstd} is accepted with a q-value that is not lower than the ones of
+     * {@code gzip} and {@code deflate}. A wildcard never selects {@code zstd}, as many clients that send
+     * {@code "*"} predate it.
+     */
+    private static boolean preferZstd(String acceptEncoding) {
+        float zstdQ = -1.0f;
+        float zlibQ = -1.0f;
+        for (String encoding : acceptEncoding.split(",")) {
+            float q = qValue(encoding);
+            if (encoding.contains("zstd")) {
+                zstdQ = Math.max(zstdQ, q);
+            } else if (encoding.contains("gzip") || encoding.contains("deflate")) {
+                zlibQ = Math.max(zlibQ, q);
+            }
+        }
+        return zstdQ > 0.0f && zstdQ >= zlibQ;
+    }
+
+    private static float qValue(String encoding) {
+        int equalsPos = encoding.indexOf('=');
+        if (equalsPos == -1) {
+            return 1.0f;
+        }
+        try {
+            return Float.parseFloat(encoding.substring(equalsPos + 1));
+        } catch (NumberFormatException e) {
+            // Ignore encoding
+            return 0.0f;
+        }
+    }
 }
@@ -172,12 +172,27 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                     break;
                 }
 
-                encoder = result.contentEncoder();
-
                 // Encode the content and remove or replace the existing headers
                 // so that the message looks like a decoded message.
                 res.headers().set(HttpHeaderNames.CONTENT_ENCODING, result.targetContentEncoding());
 
+                ByteBuf encodedContent = result.encodedContent();
+                if (encodedContent != null) {
+                    if (!isFull) {
+                        encodedContent.release();
+                        throw new IllegalStateException(
+                                "encoded content can only be used for " + FullHttpResponse.class.getSimpleName());
+                    }
+                    HttpResponse newRes = new DefaultHttpResponse(res.protocolVersion(), res.status());
+                    newRes.headers().set(res.headers());
+                    out.add(newRes);
+
+                    writeEncodedFullResponse(newRes, encodedContent, ((LastHttpContent) res).trailingHeaders(), out);
+                    break;
+                }
+
+                encoder = result.contentEncoder();
+
                 // Output the rewritten response.
                 if (isFull) {
                     // Convert full message into unfull one.
@@ -241,6 +256,18 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         }
     }
 
+    private static void writeEncodedFullResponse(HttpResponse newRes, ByteBuf encodedContent,
+                                                 HttpHeaders trailingHeaders, List<Object> out) {
+        if (HttpUtil.isContentLengthSet(newRes)) {
+            HttpUtil.setContentLength(newRes, encodedContent.readableBytes());
+        } else {
+            newRes.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        }
+        LastHttpContent last = new DefaultLastHttpContent(encodedContent);
+        last.trailingHeaders().set(trailingHeaders);
+        out.add(last);
+    }
+
     private static boolean isPassthru(HttpVersion version, int code, CharSequence httpMethod) {
         return code < 200 || code == 204 || code == 304 ||
                (httpMethod == ZERO_LENGTH_HEAD || (httpMethod == ZERO_LENGTH_CONNECT && code == 200)) ||
@@ -361,18 +388,43 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     public static final class Result {
         private final String targetContentEncoding;
         private final EmbeddedChannel contentEncoder;
+        private final ByteBuf encodedContent;
 
         public Result(String targetContentEncoding, EmbeddedChannel contentEncoder) {
             this.targetContentEncoding = ObjectUtil.checkNotNull(targetContentEncoding, "targetContentEncoding");
             this.contentEncoder = ObjectUtil.checkNotNull(contentEncoder, "contentEncoder");
+            encodedContent = null;
+        }
+
+        /**
+         * Creates a result that replaces the content of a {@link FullHttpResponse} with {@code encodedContent},
+         * which is already encoded in {@code targetContentEncoding}, instead of running it through an encoder.
+         * The ownership of {@code encodedContent} is transferred to the {@link HttpContentEncoder}.
+         */
+        public Result(String targetContentEncoding, ByteBuf encodedContent) {
+            this.targetContentEncoding = ObjectUtil.checkNotNull(targetContentEncoding, "targetContentEncoding");
+            this.encodedContent = ObjectUtil.checkNotNull(encodedContent, "encodedContent");
+            contentEncoder = null;
         }
 
         public String targetContentEncoding() {
             return targetContentEncoding;
         }
 
+        /**
+         * Returns the {@link EmbeddedChannel} that encodes the content, or {@code null} if this result carries
+         * {@link #encodedContent() already encoded content}.
+         */
         public EmbeddedChannel contentEncoder() {
             return contentEncoder;
         }
+
+        /**
+         * Returns the already encoded content of a {@link FullHttpResponse}, or {@code null} if the content is
+         * encoded by the {@link #contentEncoder()}.
+         */
+        public ByteBuf encodedContent() {
+            return encodedContent;
+        }
     }
 }
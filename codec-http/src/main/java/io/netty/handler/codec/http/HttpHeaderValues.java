@@ -232,6 +232,10 @@ public final class HttpHeaderValues {
      * {@code "XmlHttpRequest"}
      */
     public static final AsciiString XML_HTTP_REQUEST = AsciiString.cached("XmlHttpRequest");
+    /**
+     * {@code "zstd"}
+     */
+    public static final AsciiString ZSTD = AsciiString.cached("zstd");
 
     private HttpHeaderValues() { }
 }
@@ -78,6 +78,15 @@ import java.util.regex.Pattern;
  *     The duplicated field-values will be replaced with a single valid Content-Length field.
  *     See <a href="https://tools.ietf.org/html/rfc7230#section-3.3.2">RFC 7230, Section 3.3.2</a>.</td>
  * </tr>
+ * <tr>
+ * <td>{@code rawHeaders}</td>
+ * <td>{@value #DEFAULT_RAW_HEADERS}</td>
+ * <td>When set to {@code true}, the header block of each message is copied into a single array instead of
+ *     being split into a {@link String} pair per header. The headers of the {@link HttpMessage} index the names
+ *     on first access, return {@link io.netty.util.AsciiString} views of the block and are written back by
+ *     {@link HttpObjectEncoder} with a single copy as long as they were not modified. This suits proxies and other
+ *     applications which forward most headers without looking at them.</td>
+ * </tr>
  * </table>
  *
  * <h3>Chunked Content</h3>
@@ -129,6 +138,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     public static final boolean DEFAULT_VALIDATE_HEADERS = true;
     public static final int DEFAULT_INITIAL_BUFFER_SIZE = 128;
     public static final boolean DEFAULT_ALLOW_DUPLICATE_CONTENT_LENGTHS = false;
+    public static final boolean DEFAULT_RAW_HEADERS = false;
 
     private static final String EMPTY_VALUE = "";
     private static final Pattern COMMA_PATTERN = Pattern.compile(",");
@@ -139,6 +149,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     private final boolean allowDuplicateContentLengths;
     private final HeaderParser headerParser;
     private final LineParser lineParser;
+    private final RawHeaderScanner rawHeaderScanner;
 
     private HttpMessage message;
     private long chunkSize;
@@ -213,6 +224,17 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
             boolean chunkedSupported, boolean validateHeaders, int initialBufferSize,
             boolean allowDuplicateContentLengths) {
+        this(maxInitialLineLength, maxHeaderSize, maxChunkSize, chunkedSupported, validateHeaders, initialBufferSize,
+             allowDuplicateContentLengths, DEFAULT_RAW_HEADERS);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     */
+    protected HttpObjectDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
+            boolean chunkedSupported, boolean validateHeaders, int initialBufferSize,
+            boolean allowDuplicateContentLengths, boolean rawHeaders) {
         checkPositive(maxInitialLineLength, "maxInitialLineLength");
         checkPositive(maxHeaderSize, "maxHeaderSize");
         checkPositive(maxChunkSize, "maxChunkSize");
@@ -220,6 +242,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         AppendableCharSequence seq = new AppendableCharSequence(initialBufferSize);
         lineParser = new LineParser(seq, maxInitialLineLength);
         headerParser = new HeaderParser(seq, maxHeaderSize);
+        rawHeaderScanner = rawHeaders ? new RawHeaderScanner(maxHeaderSize) : null;
         this.maxChunkSize = maxChunkSize;
         this.chunkedSupported = chunkedSupported;
         this.validateHeaders = validateHeaders;
@@ -247,7 +270,8 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
                 return;
             }
 
-            message = createMessage(initialLine);
+            message = rawHeaderScanner != null ?
+                    createMessage(initialLine, new RawHttpHeaders(validateHeaders)) : createMessage(initialLine);
             currentState = State.READ_HEADER;
             // fall-through
         } catch (Exception e) {
@@ -255,7 +279,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             return;
         }
         case READ_HEADER: try {
-            State nextState = readHeaders(buffer);
+            State nextState = rawHeaderScanner != null ? readRawHeaders(buffer) : readHeaders(buffer);
             if (nextState == null) {
                 return;
             }
@@ -545,6 +569,9 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         contentLength = Long.MIN_VALUE;
         lineParser.reset();
         headerParser.reset();
+        if (rawHeaderScanner != null) {
+            rawHeaderScanner.reset();
+        }
         trailer = null;
         if (!isDecodingRequest()) {
             HttpResponse res = (HttpResponse) message;
@@ -629,6 +656,34 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         name = null;
         value = null;
 
+        return nextState(message, headers);
+    }
+
+    private State readRawHeaders(ByteBuf buffer) {
+        final int blockEnd = rawHeaderScanner.scan(buffer);
+        if (blockEnd == -1) {
+            return null;
+        }
+        final int readerIndex = buffer.readerIndex();
+        final int blockLength = blockEnd - readerIndex;
+        final byte[] block = new byte[blockLength];
+        buffer.getBytes(readerIndex, block);
+        buffer.readerIndex(rawHeaderScanner.endIndex() + 1);
+
+        final HttpMessage message = this.message;
+        final HttpHeaders headers = message.headers();
+        if (headers instanceof RawHttpHeaders) {
+            ((RawHttpHeaders) headers).parse(block, blockLength, isDecodingRequest());
+        } else {
+            // createMessage(String[], HttpHeaders) was not overridden, so copy the headers over.
+            RawHttpHeaders rawHeaders = new RawHttpHeaders(validateHeaders);
+            rawHeaders.parse(block, blockLength, isDecodingRequest());
+            headers.add(rawHeaders);
+        }
+        return nextState(message, headers);
+    }
+
+    private State nextState(HttpMessage message, HttpHeaders headers) {
         List<String> contentLengthFields = headers.getAll(HttpHeaderNames.CONTENT_LENGTH);
 
         if (!contentLengthFields.isEmpty()) {
@@ -777,6 +832,17 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
 
     protected abstract boolean isDecodingRequest();
     protected abstract HttpMessage createMessage(String[] initialLine) throws Exception;
+
+    /**
+     * Creates the {@link HttpMessage} for the given initial line when the decoder was created with
+     * {@code rawHeaders} enabled. The message should use the given {@code headers}, which are filled once the whole
+     * header block was received. The default implementation ignores {@code headers} and calls
+     * {@link #createMessage(String[])}, in which case the decoded headers are copied into the headers of the message.
+     */
+    protected HttpMessage createMessage(String[] initialLine, HttpHeaders headers) throws Exception {
+        return createMessage(initialLine);
+    }
+
     protected abstract HttpMessage createInvalidMessage();
 
     private static int getChunkSize(String hex) {
@@ -984,6 +1050,68 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         }
     }
 
+    /**
+     * Looks for the empty line which terminates the header block, resuming where the previous invocation stopped.
+     */
+    private static final class RawHeaderScanner implements ByteProcessor {
+        private final int maxLength;
+        private int size;
+        private int scanned;
+        private int lineLength;
+        private byte last;
+        private int endIndex;
+
+        RawHeaderScanner(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Returns the index at which the empty line starts, or {@code -1} if the header block is not complete yet.
+         */
+        int scan(ByteBuf buffer) {
+            final int readerIndex = buffer.readerIndex();
+            final int readableBytes = buffer.readableBytes();
+            int i = buffer.forEachByte(readerIndex + scanned, readableBytes - scanned, this);
+            if (i == -1) {
+                scanned = readableBytes;
+                return -1;
+            }
+            endIndex = i;
+            return i - lineLength;
+        }
+
+        /**
+         * Returns the index of the {@code LF} of the empty line found by the last successful {@link #scan(ByteBuf)}.
+         */
+        int endIndex() {
+            return endIndex;
+        }
+
+        void reset() {
+            size = 0;
+            scanned = 0;
+            lineLength = 0;
+            last = 0;
+        }
+
+        @Override
+        public boolean process(byte value) throws Exception {
+            if (value == HttpConstants.LF) {
+                if (lineLength == 0 || lineLength == 1 && last == HttpConstants.CR) {
+                    return false;
+                }
+                lineLength = 0;
+                return true;
+            }
+            if (value != HttpConstants.CR && ++size > maxLength) {
+                throw new TooLongFrameException("HTTP header is larger than " + maxLength + " bytes.");
+            }
+            lineLength++;
+            last = value;
+            return true;
+        }
+    }
+
     private final class LineParser extends HeaderParser {
 
         LineParser(AppendableCharSequence seq, int maxLength) {
@@ -185,6 +185,10 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
      * Encode the {@link HttpHeaders} into a {@link ByteBuf}.
      */
     protected void encodeHeaders(HttpHeaders headers, ByteBuf buf) {
+        if (headers instanceof RawHttpHeaders && ((RawHttpHeaders) headers).encodeTo(buf)) {
+            // Unmodified headers of a message decoded with rawHeaders enabled, written back with a single copy.
+            return;
+        }
         Iterator<Entry<CharSequence, CharSequence>> iter = headers.iteratorCharSequence();
         while (iter.hasNext()) {
             Entry<CharSequence, CharSequence> header = iter.next();
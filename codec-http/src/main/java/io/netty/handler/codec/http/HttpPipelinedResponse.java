@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.ReferenceCounted;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A {@link FullHttpResponse} for the {@link HttpPipelinedRequest} with the same sequence number.
+ * {@link HttpPipeliningHandler} holds it back until the responses of all earlier requests were written.
+ */
+public final class HttpPipelinedResponse implements ReferenceCounted {
+    private final FullHttpResponse response;
+    private final int sequence;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param response the response to write
+     * @param sequence the {@link HttpPipelinedRequest#sequence()} of the request this response answers
+     */
+    public HttpPipelinedResponse(FullHttpResponse response, int sequence) {
+        this.response = checkNotNull(response, "response");
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the response.
+     */
+    public FullHttpResponse response() {
+        return response;
+    }
+
+    /**
+     * Returns the sequence number of the request this response answers.
+     */
+    public int sequence() {
+        return sequence;
+    }
+
+    @Override
+    public int refCnt() {
+        return response.refCnt();
+    }
+
+    @Override
+    public HttpPipelinedResponse retain() {
+        response.retain();
+        return this;
+    }
+
+    @Override
+    public HttpPipelinedResponse retain(int increment) {
+        response.retain(increment);
+        return this;
+    }
+
+    @Override
+    public HttpPipelinedResponse touch() {
+        response.touch();
+        return this;
+    }
+
+    @Override
+    public HttpPipelinedResponse touch(Object hint) {
+        response.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return response.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return response.release(decrement);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpPipelinedResponse [sequence=" + sequence + ", response=" + response + ']';
+    }
+}
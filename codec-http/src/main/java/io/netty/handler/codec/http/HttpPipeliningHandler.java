@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Allows the requests of a
+ * <a href="https://tools.ietf.org/html/rfc7230#section-6.3.2">pipelining</a> client to be processed concurrently
+ * while their responses are still written in the order the requests were received.
+ * <p>
+ * Every {@link FullHttpRequest} is passed on as a {@link HttpPipelinedRequest} which carries its sequence number on
+ * the connection. The response must be written as the {@link HttpPipelinedResponse} returned by
+ * {@link HttpPipelinedRequest#createResponse(FullHttpResponse)}, from any thread and in any order. A response is
+ * written as soon as the responses of all earlier requests were written, otherwise it is held back. All responses
+ * which became writable by a write are sent with the next flush, so a batch of pipelined responses costs a single
+ * flush. Any other message is passed through as it is, which allows interim responses such as
+ * {@code 100 Continue} to be written directly.
+ * <p>
+ * The held back responses are limited by {@code maxPendingResponses} and by {@code maxBufferedBytes} of content.
+ * When a limit is exceeded the write fails with an {@link EncoderException}, all held back responses are released
+ * and the connection is closed, since the client can not receive any later response anymore.
+ * <p>
+ * Responses which are written by handlers in front of this handler do not pass it and so are not ordered.
+ * {@link HttpObjectAggregator} writes its {@code 417 Expectation Failed} and {@code 413 Request Entity Too Large}
+ * responses this way, which would overtake the held back responses of earlier requests. So the connection must be
+ * closed instead: when a request with an {@code Expect} header is rejected the aggregator fires a
+ * {@link HttpExpectationFailedEvent} and this handler closes the connection if responses of earlier requests are
+ * still outstanding. A request without {@code Expect} header whose content is too large is rejected via
+ * {@link HttpObjectAggregator#handleOversizedMessage(ChannelHandlerContext, HttpMessage)}, which keeps keep-alive
+ * connections open, so override it to always close the connection when requests may be pipelined.
+ * <p>
+ * {@link HttpPipeliningHandler} expects {@link FullHttpRequest}s, so it should be added after
+ * {@link HttpObjectAggregator}: <blockquote>
+ * <pre>
+ *  {@link ChannelPipeline} p = ...;
+ *  ...
+ *  p.addLast("serverCodec", new {@link HttpServerCodec}());
+ *  p.addLast("httpKeepAlive", new {@link HttpServerKeepAliveHandler}());
+ *  p.addLast("aggregator", new {@link HttpObjectAggregator}(1048576));
+ *  p.addLast("pipelining", <b>new {@link HttpPipeliningHandler}(128, 1048576)</b>);
+ *  ...
+ *  p.addLast("handler", new HttpRequestHandler());
+ *  </pre>
+ * </blockquote>
+ */
+public class HttpPipeliningHandler extends ChannelDuplexHandler {
+    private static final Comparator<PendingResponse> SEQUENCE_ORDER = new Comparator<PendingResponse>() {
+        @Override
+        public int compare(PendingResponse o1, PendingResponse o2) {
+            // Compare the difference so the order is kept when the sequence numbers wrap around.
+            int diff = o1.response.sequence() - o2.response.sequence();
+            return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+        }
+    };
+
+    private final int maxPendingResponses;
+    private final int maxBufferedBytes;
+    private final PriorityQueue<PendingResponse> pendingResponses =
+            new PriorityQueue<PendingResponse>(8, SEQUENCE_ORDER);
+
+    private int readSequence;
+    private int writeSequence;
+    private int bufferedBytes;
+    private boolean needsFlush;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxPendingResponses the maximum number of responses which are held back until the responses of earlier
+     *                            requests were written
+     * @param maxBufferedBytes the maximum number of content bytes of all held back responses
+     */
+    public HttpPipeliningHandler(int maxPendingResponses, int maxBufferedBytes) {
+        this.maxPendingResponses = checkPositive(maxPendingResponses, "maxPendingResponses");
+        this.maxBufferedBytes = checkPositive(maxBufferedBytes, "maxBufferedBytes");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof FullHttpRequest) {
+            ctx.fireChannelRead(new HttpPipelinedRequest((FullHttpRequest) msg, readSequence++));
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof HttpPipelinedResponse)) {
+            needsFlush = true;
+            ctx.write(msg, promise);
+            return;
+        }
+
+        HttpPipelinedResponse response = (HttpPipelinedResponse) msg;
+        int sequence = response.sequence();
+        if (sequence == writeSequence) {
+            writeResponse(ctx, response, promise);
+            writePendingResponses(ctx);
+            return;
+        }
+        if (sequence - writeSequence < 0 || sequence - readSequence >= 0) {
+            ReferenceCountUtil.release(response);
+            promise.setFailure(new IllegalArgumentException("unexpected sequence: " + sequence +
+                    " (expected: " + writeSequence + '-' + (readSequence - 1) + ')'));
+            return;
+        }
+
+        int size = response.response().content().readableBytes();
+        if (pendingResponses.size() >= maxPendingResponses || size > maxBufferedBytes - bufferedBytes) {
+            ReferenceCountUtil.release(response);
+            EncoderException cause = new EncoderException("pipelined responses exceed " + maxPendingResponses +
+                    " responses or " + maxBufferedBytes + " bytes");
+            promise.setFailure(cause);
+            releasePendingResponses(cause);
+            ctx.close();
+            return;
+        }
+        bufferedBytes += size;
+        pendingResponses.add(new PendingResponse(response, promise));
+    }
+
+    private void writePendingResponses(ChannelHandlerContext ctx) {
+        PendingResponse pending;
+        while ((pending = pendingResponses.peek()) != null) {
+            int sequence = pending.response.sequence();
+            if (sequence - writeSequence > 0) {
+                break;
+            }
+            pendingResponses.remove();
+            bufferedBytes -= pending.response.response().content().readableBytes();
+            if (sequence == writeSequence) {
+                writeResponse(ctx, pending.response, pending.promise);
+            } else {
+                // A second response for a request which was answered already.
+                ReferenceCountUtil.release(pending.response);
+                pending.promise.setFailure(new IllegalArgumentException("duplicate sequence: " + sequence));
+            }
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, HttpPipelinedResponse response, ChannelPromise promise) {
+        writeSequence++;
+        needsFlush = true;
+        ctx.write(response.response(), promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        // Only flush if something was written, the response which was flushed may still be held back.
+        if (needsFlush) {
+            needsFlush = false;
+            ctx.flush();
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof HttpExpectationFailedEvent && writeSequence != readSequence) {
+            // The response for the rejected request is written by the aggregator, so it would not wait for the
+            // responses of the earlier requests.
+            ctx.close();
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        releasePendingResponses(new ClosedChannelException());
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releasePendingResponses(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        releasePendingResponses(new ClosedChannelException());
+    }
+
+    private void releasePendingResponses(Throwable cause) {
+        PendingResponse pending;
+        while ((pending = pendingResponses.poll()) != null) {
+            ReferenceCountUtil.release(pending.response);
+            pending.promise.tryFailure(cause);
+        }
+        bufferedBytes = 0;
+    }
+
+    private static final class PendingResponse {
+        final HttpPipelinedResponse response;
+        final ChannelPromise promise;
+
+        PendingResponse(HttpPipelinedResponse response, ChannelPromise promise) {
+            this.response = response;
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.handler.stream.ChunkedNioFile;
+
+import java.io.File;
+import java.io.IOException;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A static file, or one of its pre-compressed siblings, selected according to the {@code "Accept-Encoding"}
+ * header of a request.
+ * <p>
+ * A file {@code foo.js} may be accompanied by {@code foo.js.br}, {@code foo.js.zst} and {@code foo.js.gz}, which
+ * were compressed ahead of time and are served as they are with the matching {@code "Content-Encoding"}. This
+ * spends no CPU on compression and allows the use of {@link DefaultFileRegion} for zero-copy transfer, as the
+ * {@link HttpContentCompressor} leaves responses alone that already have a {@code "Content-Encoding"}.
+ * <pre>
+ * HttpPrecompressedFile file = HttpPrecompressedFile.select(
+ *         new File(root, path), request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+ * ctx.write(file.newResponse(request.protocolVersion()));
+ * ctx.write(file.newFileRegion());
+ * ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+ * </pre>
+ */
+public final class HttpPrecompressedFile {
+
+    private static final String[] SUFFIXES = { ".br", ".zst", ".gz" };
+    private static final String[] CONTENT_ENCODINGS = { "br", HttpHeaderValues.ZSTD.toString(),
+            HttpHeaderValues.GZIP.toString() };
+
+    private final File file;
+    private final String contentEncoding;
+    private final long length;
+
+    private HttpPrecompressedFile(File file, String contentEncoding) {
+        this.file = file;
+        this.contentEncoding = contentEncoding;
+        length = file.length();
+    }
+
+    /**
+     * Selects the pre-compressed sibling of {@code file} whose encoding has the highest q-value in
+     * {@code acceptEncoding}, preferring {@code br} over {@code zstd} over {@code gzip} on ties. Siblings that
+     * are older than {@code file} are ignored. If no sibling is acceptable, {@code file} itself is selected.
+     *
+     * @param file the uncompressed file
+     * @param acceptEncoding the value of the {@code "Accept-Encoding"} header, or {@code null} if there is none
+     */
+    public static HttpPrecompressedFile select(File file, String acceptEncoding) {
+        checkNotNull(file, "file");
+        if (acceptEncoding != null) {
+            File best = null;
+            String bestEncoding = null;
+            float bestQ = 0.0f;
+            long lastModified = file.lastModified();
+            for (int i = 0; i < SUFFIXES.length; i++) {
+                float q = qValue(acceptEncoding, CONTENT_ENCODINGS[i]);
+                if (q <= bestQ) {
+                    continue;
+                }
+                File sibling = new File(file.getPath() + SUFFIXES[i]);
+                if (sibling.isFile() && sibling.lastModified() >= lastModified) {
+                    best = sibling;
+                    bestEncoding = CONTENT_ENCODINGS[i];
+                    bestQ = q;
+                }
+            }
+            if (best != null) {
+                return new HttpPrecompressedFile(best, bestEncoding);
+            }
+        }
+        return new HttpPrecompressedFile(file, null);
+    }
+
+    /**
+     * Returns the q-value of {@code contentEncoding} in {@code acceptEncoding}, falling back to the q-value of
+     * {@code "*"}, or {@code 0} if neither is listed.
+     */
+    private static float qValue(String acceptEncoding, String contentEncoding) {
+        float q = -1.0f;
+        float starQ = 0.0f;
+        for (String encoding : acceptEncoding.split(",")) {
+            int semicolonPos = encoding.indexOf(';');
+            String name = (semicolonPos == -1 ? encoding : encoding.substring(0, semicolonPos)).trim();
+            float encodingQ = 1.0f;
+            int equalsPos = encoding.indexOf('=', semicolonPos + 1);
+            if (semicolonPos != -1 && equalsPos != -1) {
+                try {
+                    encodingQ = Float.parseFloat(encoding.substring(equalsPos + 1).trim());
+                } catch (NumberFormatException e) {
+                    // Ignore encoding
+                    encodingQ = 0.0f;
+                }
+            }
+            if (name.equalsIgnoreCase(contentEncoding)) {
+                q = Math.max(q, encodingQ);
+            } else if ("*".equals(name)) {
+                starQ = encodingQ;
+            }
+        }
+        return q == -1.0f ? starQ : q;
+    }
+
+    /**
+     * Returns the selected file.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the content encoding of the selected file, or {@code null} if the uncompressed file was selected.
+     */
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Returns the length of the selected file at the time it was selected.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns a new {@code 200 OK} response for the selected file. It carries the {@code "Content-Length"} and
+     * {@code "Content-Encoding"} of the selected file and a {@code "Vary: accept-encoding"} header, as other
+     * clients may be served a different file.
+     */
+    public HttpResponse newResponse(HttpVersion version) {
+        HttpResponse response = new DefaultHttpResponse(version, HttpResponseStatus.OK);
+        HttpUtil.setContentLength(response, length);
+        if (contentEncoding != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_ENCODING, contentEncoding);
+        }
+        response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        return response;
+    }
+
+    /**
+     * Returns a new {@link FileRegion} that transfers the selected file without copying it to user space. It must
+     * be followed by a {@link LastHttpContent} and cannot be used with an {@code SslHandler} in the pipeline. If
+     * the uncompressed file was selected and a {@link HttpContentCompressor} is in the pipeline, use
+     * {@link #newChunkedInput(int)} instead, so that the compressor sees the content.
+     */
+    public FileRegion newFileRegion() {
+        return new DefaultFileRegion(file, 0, length);
+    }
+
+    /**
+     * Returns a new {@link HttpChunkedInput} that reads the selected file in chunks of {@code chunkSize} bytes
+     * and ends with a {@link LastHttpContent}. It requires a {@link io.netty.handler.stream.ChunkedWriteHandler}
+     * in the pipeline.
+     */
+    public HttpChunkedInput newChunkedInput(int chunkSize) throws IOException {
+        return new HttpChunkedInput(new ChunkedNioFile(file, chunkSize));
+    }
+}
@@ -120,6 +120,13 @@ public class HttpResponseDecoder extends HttpObjectDecoder {
               initialBufferSize, allowDuplicateContentLengths);
     }
 
+    public HttpResponseDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+            int initialBufferSize, boolean allowDuplicateContentLengths, boolean rawHeaders) {
+        super(maxInitialLineLength, maxHeaderSize, maxChunkSize, DEFAULT_CHUNKED_SUPPORTED, validateHeaders,
+              initialBufferSize, allowDuplicateContentLengths, rawHeaders);
+    }
+
     @Override
     protected HttpMessage createMessage(String[] initialLine) {
         return new DefaultHttpResponse(
@@ -127,6 +134,13 @@ public class HttpResponseDecoder extends HttpObjectDecoder {
                 HttpResponseStatus.valueOf(Integer.parseInt(initialLine[1]), initialLine[2]), validateHeaders);
     }
 
+    @Override
+    protected HttpMessage createMessage(String[] initialLine, HttpHeaders headers) {
+        return new DefaultHttpResponse(
+                HttpVersion.valueOf(initialLine[0]),
+                HttpResponseStatus.valueOf(Integer.parseInt(initialLine[1]), initialLine[2]), headers);
+    }
+
     @Override
     protected HttpMessage createInvalidMessage() {
         return new DefaultFullHttpResponse(HttpVersion.HTTP_1_0, UNKNOWN_STATUS, validateHeaders);
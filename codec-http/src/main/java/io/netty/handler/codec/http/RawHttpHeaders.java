@@ -0,0 +1,713 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.netty.handler.codec.CharSequenceValueConverter.INSTANCE;
+import static io.netty.handler.codec.http.DefaultHttpHeaders.HttpNameValidator;
+import static io.netty.util.AsciiString.contentEquals;
+import static io.netty.util.AsciiString.contentEqualsIgnoreCase;
+
+/**
+ * {@link HttpHeaders} backed by the raw header block of a decoded {@link HttpMessage}.
+ * <p>
+ * The block is scanned once to record the offsets of every name and value. The name lookup index is only built on
+ * the first lookup and all names and values are exposed as {@link AsciiString} views of the block, so no
+ * {@link String} or hash table entry is created for headers that are never accessed. As long as the headers are not
+ * modified and the block was well-formed, {@link HttpObjectEncoder} writes the block back with a single copy. The
+ * first modification copies all headers into a {@link DefaultHttpHeaders} which is used from then on.
+ */
+final class RawHttpHeaders extends HttpHeaders {
+    private static final int NAME_START = 0;
+    private static final int NAME_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int FIELDS = 4;
+
+    private final boolean validate;
+    private byte[] block;
+    private int blockLength;
+    private int[] offsets;
+    private int size;
+    private boolean verbatim;
+
+    // Lazily built on the first lookup by name.
+    private int[] hashes;
+    private int[] buckets;
+    private int[] next;
+
+    // Set once the headers were modified, all operations are delegated to it from then on.
+    private HttpHeaders delegate;
+
+    RawHttpHeaders(boolean validate) {
+        this.validate = validate;
+    }
+
+    /**
+     * Parses the given header block, which consists of the header lines including their line terminators but
+     * without the empty line that terminates the block. The array is owned by this instance from now on.
+     */
+    void parse(byte[] block, int blockLength, boolean decodingRequest) {
+        assert this.block == null && delegate == null;
+        this.block = block;
+        this.blockLength = blockLength;
+        offsets = new int[FIELDS * 8];
+        verbatim = true;
+
+        int lineStart = 0;
+        while (lineStart < blockLength) {
+            int lf = lineStart;
+            while (lf < blockLength && block[lf] != HttpConstants.LF) {
+                lf++;
+            }
+            int lineEnd = lf;
+            if (lineEnd > lineStart && block[lineEnd - 1] == HttpConstants.CR) {
+                lineEnd--;
+            } else {
+                verbatim = false;
+            }
+            byte firstByte = lineEnd > lineStart ? block[lineStart] : 0;
+            if (size > 0 && (firstByte == HttpConstants.SP || firstByte == HttpConstants.HT)) {
+                fold(lineStart, lineEnd);
+            } else {
+                splitHeader(lineStart, lineEnd, decodingRequest);
+            }
+            lineStart = lf + 1;
+        }
+    }
+
+    private void splitHeader(int lineStart, int lineEnd, boolean decodingRequest) {
+        final byte[] block = this.block;
+        int nameStart = lineStart;
+        while (nameStart < lineEnd && isWhitespace(block[nameStart])) {
+            nameStart++;
+        }
+        int nameEnd;
+        for (nameEnd = nameStart; nameEnd < lineEnd; nameEnd++) {
+            byte b = block[nameEnd];
+            // Same rules as HttpObjectDecoder.splitHeader(...): no whitespace is allowed between the name and the
+            // colon of a request, while a response has the whitespace skipped.
+            if (b == ':' || !decodingRequest && isOWS(b)) {
+                break;
+            }
+        }
+        if (nameEnd == lineEnd) {
+            // There was no colon present at all.
+            throw new IllegalArgumentException("No colon found");
+        }
+        int colonEnd;
+        for (colonEnd = nameEnd; colonEnd < lineEnd; colonEnd++) {
+            if (block[colonEnd] == ':') {
+                colonEnd++;
+                break;
+            }
+        }
+        if (nameStart != lineStart || block[nameEnd] != ':') {
+            // The whitespace was dropped from the name, so the block can not be written back as it is.
+            verbatim = false;
+        }
+
+        int valueStart = findNonWhitespace(colonEnd, lineEnd);
+        int valueEnd = valueStart == lineEnd ? lineEnd : findEndOfValue(valueStart, lineEnd);
+
+        if (validate) {
+            HttpNameValidator.validateName(new AsciiString(block, nameStart, nameEnd - nameStart, false));
+            validateValue(valueStart, valueEnd);
+        }
+
+        int index = size * FIELDS;
+        if (index == offsets.length) {
+            int[] newOffsets = new int[offsets.length << 1];
+            System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+            offsets = newOffsets;
+        }
+        offsets[index + NAME_START] = nameStart;
+        offsets[index + NAME_END] = nameEnd;
+        offsets[index + VALUE_START] = valueStart;
+        offsets[index + VALUE_END] = valueEnd;
+        size++;
+    }
+
+    /**
+     * Handles an obsolete line folding by appending a single space and the trimmed continuation line to the value of
+     * the previous header, the same way {@link HttpObjectDecoder} does. The continuation is moved in place so the
+     * value stays a contiguous range of the block.
+     */
+    private void fold(int lineStart, int lineEnd) {
+        final byte[] block = this.block;
+        int start = lineStart;
+        while (start < lineEnd && (block[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        int end = lineEnd;
+        while (end > start && (block[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (validate) {
+            validateValue(start, end);
+        }
+        int valueEndIndex = (size - 1) * FIELDS + VALUE_END;
+        int valueEnd = offsets[valueEndIndex];
+        block[valueEnd++] = HttpConstants.SP;
+        System.arraycopy(block, start, block, valueEnd, end - start);
+        offsets[valueEndIndex] = valueEnd + end - start;
+        verbatim = false;
+    }
+
+    private int findNonWhitespace(int offset, int lineEnd) {
+        for (int i = offset; i < lineEnd; i++) {
+            byte b = block[i];
+            if (!isWhitespace(b)) {
+                return i;
+            }
+            if (!isOWS(b)) {
+                // Only OWS is supported for whitespace
+                throw new IllegalArgumentException("Invalid separator, only a single space or horizontal tab allowed," +
+                        " but received a '" + (char) (b & 0xFF) + "'");
+            }
+        }
+        return lineEnd;
+    }
+
+    private int findEndOfValue(int valueStart, int lineEnd) {
+        int i = lineEnd;
+        while (i > valueStart && isWhitespace(block[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    private void validateValue(int start, int end) {
+        for (int i = start; i < end; i++) {
+            switch (block[i]) {
+            case 0x00:
+            case 0x0b:
+            case '\f':
+            case '\r':
+                throw new IllegalArgumentException("a header value contains a prohibited character '" +
+                        (char) block[i] + "': " + new AsciiString(block, start, end - start, true));
+            default:
+                break;
+            }
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return Character.isWhitespace((char) (b & 0xFF));
+    }
+
+    private static boolean isOWS(byte b) {
+        return b == HttpConstants.SP || b == HttpConstants.HT;
+    }
+
+    /**
+     * Writes the header block to the given buffer if it can be written back unchanged.
+     *
+     * @return {@code true} if the block was written, {@code false} if the headers must be encoded one by one.
+     */
+    boolean encodeTo(ByteBuf buf) {
+        if (delegate != null || !verbatim) {
+            return false;
+        }
+        buf.writeBytes(block, 0, blockLength);
+        return true;
+    }
+
+    private AsciiString name(int index) {
+        int i = index * FIELDS;
+        return new AsciiString(block, offsets[i + NAME_START], offsets[i + NAME_END] - offsets[i + NAME_START],
+                false);
+    }
+
+    private AsciiString value(int index) {
+        int i = index * FIELDS;
+        int start = offsets[i + VALUE_START];
+        int end = offsets[i + VALUE_END];
+        return start == end ? AsciiString.EMPTY_STRING : new AsciiString(block, start, end - start, false);
+    }
+
+    private boolean nameEquals(int index, CharSequence name) {
+        int start = offsets[index * FIELDS + NAME_START];
+        int length = offsets[index * FIELDS + NAME_END] - start;
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = (char) (block[start + i] & 0xFF);
+            char b = name.charAt(i);
+            if (a != b && toLowerCase(a) != toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+
+    private int firstIndex(CharSequence name) {
+        if (size == 0) {
+            return -1;
+        }
+        if (buckets == null) {
+            buildIndex();
+        }
+        int nameHash = AsciiString.hashCode(name);
+        for (int i = buckets[nameHash & buckets.length - 1]; i != -1; i = next[i]) {
+            if (hashes[i] == nameHash && nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int nextIndex(int index, CharSequence name) {
+        int nameHash = hashes[index];
+        for (int i = next[index]; i != -1; i = next[i]) {
+            if (hashes[i] == nameHash && nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void buildIndex() {
+        int[] hashes = new int[size];
+        int[] buckets = new int[MathUtil.findNextPositivePowerOfTwo(Math.max(2, size << 1))];
+        int[] next = new int[size];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = -1;
+        }
+        // Insert in reverse order so every chain is ordered like the headers in the block.
+        for (int i = size - 1; i >= 0; i--) {
+            int start = offsets[i * FIELDS + NAME_START];
+            int nameHash = PlatformDependent.hashCodeAscii(block, start, offsets[i * FIELDS + NAME_END] - start);
+            int bucket = nameHash & buckets.length - 1;
+            hashes[i] = nameHash;
+            next[i] = buckets[bucket];
+            buckets[bucket] = i;
+        }
+        this.hashes = hashes;
+        this.next = next;
+        this.buckets = buckets;
+    }
+
+    private HttpHeaders materialize() {
+        HttpHeaders delegate = this.delegate;
+        if (delegate == null) {
+            delegate = new DefaultHttpHeaders(validate);
+            for (int i = 0; i < size; i++) {
+                delegate.add(name(i), value(i));
+            }
+            this.delegate = delegate;
+            block = null;
+            offsets = null;
+            hashes = null;
+            buckets = null;
+            next = null;
+            size = 0;
+        }
+        return delegate;
+    }
+
+    private CharSequence get0(CharSequence name) {
+        int index = firstIndex(name);
+        return index == -1 ? null : value(index);
+    }
+
+    @Override
+    public String get(String name) {
+        return get((CharSequence) name);
+    }
+
+    @Override
+    public String get(CharSequence name) {
+        if (delegate != null) {
+            return delegate.get(name);
+        }
+        CharSequence value = get0(name);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Integer getInt(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getInt(name);
+        }
+        CharSequence value = get0(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return INSTANCE.convertToInt(value);
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getInt(CharSequence name, int defaultValue) {
+        Integer value = getInt(name);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public Short getShort(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getShort(name);
+        }
+        CharSequence value = get0(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return INSTANCE.convertToShort(value);
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public short getShort(CharSequence name, short defaultValue) {
+        Short value = getShort(name);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public Long getTimeMillis(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getTimeMillis(name);
+        }
+        CharSequence value = get0(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return INSTANCE.convertToTimeMillis(value);
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public long getTimeMillis(CharSequence name, long defaultValue) {
+        Long value = getTimeMillis(name);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public List<String> getAll(String name) {
+        return getAll((CharSequence) name);
+    }
+
+    @Override
+    public List<String> getAll(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getAll(name);
+        }
+        int index = firstIndex(name);
+        if (index == -1) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<String>(4);
+        do {
+            values.add(value(index).toString());
+            index = nextIndex(index, name);
+        } while (index != -1);
+        return values;
+    }
+
+    @Override
+    public List<Map.Entry<String, String>> entries() {
+        if (delegate != null) {
+            return delegate.entries();
+        }
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new SimpleImmutableEntry<String, String>(name(i).toString(), value(i).toString()));
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return contains((CharSequence) name);
+    }
+
+    @Override
+    public boolean contains(CharSequence name) {
+        if (delegate != null) {
+            return delegate.contains(name);
+        }
+        return firstIndex(name) != -1;
+    }
+
+    @Override
+    public boolean contains(String name, String value, boolean ignoreCase) {
+        return contains((CharSequence) name, (CharSequence) value, ignoreCase);
+    }
+
+    @Override
+    public boolean contains(CharSequence name, CharSequence value, boolean ignoreCase) {
+        if (delegate != null) {
+            return delegate.contains(name, value, ignoreCase);
+        }
+        for (int i = firstIndex(name); i != -1; i = nextIndex(i, name)) {
+            if (ignoreCase ? contentEqualsIgnoreCase(value(i), value) : contentEquals(value(i), value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> valueStringIterator(CharSequence name) {
+        if (delegate != null) {
+            return delegate.valueStringIterator(name);
+        }
+        return getAll(name).iterator();
+    }
+
+    @Override
+    public Iterator<? extends CharSequence> valueCharSequenceIterator(CharSequence name) {
+        if (delegate != null) {
+            return delegate.valueCharSequenceIterator(name);
+        }
+        return new ValueIterator(name);
+    }
+
+    @Deprecated
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+        if (delegate != null) {
+            return delegate.iterator();
+        }
+        return entries().iterator();
+    }
+
+    @Override
+    public Iterator<Map.Entry<CharSequence, CharSequence>> iteratorCharSequence() {
+        if (delegate != null) {
+            return delegate.iteratorCharSequence();
+        }
+        return new EntryIterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate != null ? delegate.isEmpty() : size == 0;
+    }
+
+    @Override
+    public int size() {
+        return delegate != null ? delegate.size() : size;
+    }
+
+    @Override
+    public Set<String> names() {
+        if (delegate != null) {
+            return delegate.names();
+        }
+        if (size == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new LinkedHashSet<String>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(name(i).toString());
+        }
+        return names;
+    }
+
+    @Override
+    public HttpHeaders add(String name, Object value) {
+        materialize().add(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Object value) {
+        materialize().add(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(String name, Iterable<?> values) {
+        materialize().add(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Iterable<?> values) {
+        materialize().add(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addInt(CharSequence name, int value) {
+        materialize().addInt(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addShort(CharSequence name, short value) {
+        materialize().addShort(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Object value) {
+        materialize().set(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Object value) {
+        materialize().set(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Iterable<?> values) {
+        materialize().set(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Iterable<?> values) {
+        materialize().set(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders setInt(CharSequence name, int value) {
+        materialize().setInt(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders setShort(CharSequence name, short value) {
+        materialize().setShort(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders remove(String name) {
+        return remove((CharSequence) name);
+    }
+
+    @Override
+    public HttpHeaders remove(CharSequence name) {
+        // Removing a header that does not exist leaves the block untouched.
+        if (delegate != null || firstIndex(name) != -1) {
+            materialize().remove(name);
+        }
+        return this;
+    }
+
+    @Override
+    public HttpHeaders clear() {
+        if (delegate == null) {
+            size = 0;
+            materialize();
+        } else {
+            delegate.clear();
+        }
+        return this;
+    }
+
+    @Override
+    public HttpHeaders copy() {
+        if (delegate != null) {
+            return delegate.copy();
+        }
+        DefaultHttpHeaders copy = new DefaultHttpHeaders(validate);
+        for (int i = 0; i < size; i++) {
+            copy.add(name(i).toString(), value(i).toString());
+        }
+        return copy;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<CharSequence, CharSequence>> {
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public Map.Entry<CharSequence, CharSequence> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = index++;
+            return new SimpleImmutableEntry<CharSequence, CharSequence>(name(i), value(i));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+
+    private final class ValueIterator implements Iterator<CharSequence> {
+        private final CharSequence name;
+        private int index;
+
+        ValueIterator(CharSequence name) {
+            this.name = name;
+            index = firstIndex(name);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index != -1;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CharSequence value = value(index);
+            index = nextIndex(index, name);
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpConstants;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.util.CharsetUtil;
+
+import java.nio.charset.Charset;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Decodes a {@code multipart/form-data} body as it arrives and pushes every part to a {@link PartListener},
+ * instead of collecting the parts as {@link InterfaceHttpData} like {@link HttpPostMultipartRequestDecoder}.
+ * <p>
+ * The body of a part is passed on as retained slices of the {@link ByteBuf}s given to {@link #offer(HttpContent)},
+ * so the content is neither copied nor written to a temporary file by the decoder. Apart from the slices it passes
+ * on, the decoder only holds back the bytes which may be the start of the next boundary, and at most
+ * {@code maxPartHeaderSize} bytes while it reads the headers of a part. A listener which can not keep up should
+ * stop reading from the channel until it caught up. For example, to store every part in a file:
+ * <pre>
+ * public void partContent(ByteBuf content) throws Exception {
+ *     try {
+ *         while (content.isReadable()) {
+ *             position += content.readBytes(fileChannel, position, content.readableBytes());
+ *         }
+ *     } finally {
+ *         content.release();
+ *     }
+ * }
+ * </pre>
+ * The body of a part is passed on as it was received: {@code Content-Transfer-Encoding} is not applied and nested
+ * {@code multipart/mixed} bodies are not split up.
+ */
+public class HttpPostMultipartStreamDecoder {
+
+    /**
+     * Receives the parts of a multipart body, in the order in which they appear in the body.
+     */
+    public interface PartListener {
+        /**
+         * Called when the headers of a part were decoded.
+         */
+        void partStarted(HttpHeaders partHeaders) throws Exception;
+
+        /**
+         * Called for every chunk of the body of the current part. The listener is responsible for releasing
+         * {@code content}.
+         */
+        void partContent(ByteBuf content) throws Exception;
+
+        /**
+         * Called when the body of the current part is complete.
+         */
+        void partEnded() throws Exception;
+    }
+
+    public static final int DEFAULT_MAX_PART_HEADER_SIZE = 8192;
+
+    // Longest transport padding accepted between a boundary and its line break.
+    private static final int MAX_DELIMITER_PADDING = 128;
+
+    private enum State {
+        PREAMBLE, DELIMITER, HEADERS, BODY, EPILOGUE
+    }
+
+    private final PartListener listener;
+    private final Charset charset;
+    private final int maxPartHeaderSize;
+
+    /**
+     * CRLF followed by "--" and the boundary.
+     */
+    private final byte[] delimiter;
+
+    private ByteBuf buffer;
+    private State state = State.PREAMBLE;
+    private boolean atStart = true;
+    private boolean destroyed;
+
+    /**
+     * Creates a new instance which decodes the part headers with {@link HttpConstants#DEFAULT_CHARSET} unless the
+     * request specifies a charset.
+     *
+     * @throws ErrorDataDecoderException if the request is not a multipart request
+     */
+    public HttpPostMultipartStreamDecoder(HttpRequest request, PartListener listener) throws Exception {
+        this(request, listener, HttpConstants.DEFAULT_CHARSET, DEFAULT_MAX_PART_HEADER_SIZE);
+    }
+
+    /**
+     * Creates a new instance. If the request is also a {@link HttpContent}, its content is offered right away.
+     *
+     * @param request the request whose body is decoded
+     * @param listener the listener which receives the parts
+     * @param charset the charset of the part headers, unless the request specifies a charset
+     * @param maxPartHeaderSize the maximum length of the headers of a single part
+     * @throws ErrorDataDecoderException if the request is not a multipart request
+     */
+    public HttpPostMultipartStreamDecoder(HttpRequest request, PartListener listener, Charset charset,
+                                          int maxPartHeaderSize) throws Exception {
+        checkNotNull(request, "request");
+        this.listener = checkNotNull(listener, "listener");
+        this.maxPartHeaderSize = checkPositive(maxPartHeaderSize, "maxPartHeaderSize");
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        String[] dataBoundary = contentType == null ? null :
+                HttpPostRequestDecoder.getMultipartDataBoundary(contentType);
+        if (dataBoundary == null) {
+            throw new ErrorDataDecoderException("not a multipart request: " + contentType);
+        }
+        if (dataBoundary.length > 1 && dataBoundary[1] != null) {
+            charset = Charset.forName(dataBoundary[1]);
+        }
+        this.charset = checkNotNull(charset, "charset");
+        delimiter = ("\r\n" + dataBoundary[0]).getBytes(CharsetUtil.US_ASCII);
+        if (request instanceof HttpContent) {
+            offer((HttpContent) request);
+        }
+    }
+
+    /**
+     * Decodes the given chunk of the body, calling the {@link PartListener} for every part boundary and every piece
+     * of part content which is found. The content of {@code content} is neither released nor are its indexes
+     * modified by this method.
+     *
+     * @throws ErrorDataDecoderException if the body is malformed, or if the body ended before the close delimiter
+     */
+    public void offer(HttpContent content) throws Exception {
+        if (destroyed) {
+            throw new IllegalStateException("decoder destroyed");
+        }
+        ByteBuf in = content.content();
+        if (state != State.EPILOGUE && in.isReadable()) {
+            cumulate(in);
+            try {
+                decode();
+            } finally {
+                if (buffer != null && !buffer.isReadable()) {
+                    buffer.release();
+                    buffer = null;
+                }
+            }
+        }
+        if (content instanceof LastHttpContent && state != State.EPILOGUE) {
+            throw new ErrorDataDecoderException("multipart body ended before the close delimiter");
+        }
+    }
+
+    /**
+     * Returns {@code true} once the close delimiter of the body was decoded.
+     */
+    public boolean isEndOfData() {
+        return state == State.EPILOGUE;
+    }
+
+    /**
+     * Releases the bytes which were held back. The decoder can not be used anymore afterwards.
+     */
+    public void destroy() {
+        destroyed = true;
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+
+    /**
+     * Returns the value of the given parameter of the {@code Content-Disposition} header of a part, such as
+     * {@code name} or {@code filename}, or {@code null} if there is no such parameter.
+     */
+    public static String contentDispositionParameter(HttpHeaders partHeaders, String parameter) {
+        String disposition = partHeaders.get(HttpHeaderNames.CONTENT_DISPOSITION);
+        if (disposition == null) {
+            return null;
+        }
+        int length = disposition.length();
+        int start = disposition.indexOf(';');
+        while (start != -1 && start < length) {
+            // Find the end of this parameter, skipping separators inside quoted values.
+            boolean quoted = false;
+            int end = start + 1;
+            for (; end < length; end++) {
+                char c = disposition.charAt(end);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\\' && quoted) {
+                    end++;
+                } else if (c == ';' && !quoted) {
+                    break;
+                }
+            }
+            String pair = disposition.substring(start + 1, Math.min(end, length));
+            int equals = pair.indexOf('=');
+            if (equals != -1 && pair.substring(0, equals).trim().equalsIgnoreCase(parameter)) {
+                String value = pair.substring(equals + 1).trim();
+                if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+            start = end;
+        }
+        return null;
+    }
+
+    private void cumulate(ByteBuf in) {
+        if (buffer == null) {
+            buffer = in.retainedSlice();
+        } else {
+            // Only the few bytes which may start a boundary, or incomplete part headers, are left over, so copy
+            // those and avoid copying the new content.
+            ByteBuf remainder = in.alloc().buffer(buffer.readableBytes()).writeBytes(buffer);
+            buffer.release();
+            buffer = in.alloc().compositeBuffer(2).addComponents(true, remainder, in.retainedSlice());
+        }
+    }
+
+    private void decode() throws Exception {
+        for (;;) {
+            switch (state) {
+            case PREAMBLE:
+                if (!skipPreamble()) {
+                    return;
+                }
+                state = State.DELIMITER;
+                break;
+            case DELIMITER:
+                if (!readDelimiterSuffix()) {
+                    return;
+                }
+                break;
+            case HEADERS:
+                HttpHeaders partHeaders = readPartHeaders();
+                if (partHeaders == null) {
+                    return;
+                }
+                state = State.BODY;
+                listener.partStarted(partHeaders);
+                break;
+            case BODY:
+                if (!readBody()) {
+                    return;
+                }
+                state = State.DELIMITER;
+                listener.partEnded();
+                break;
+            case EPILOGUE:
+                buffer.skipBytes(buffer.readableBytes());
+                return;
+            default:
+                throw new Error("Shouldn't reach here.");
+            }
+        }
+    }
+
+    private boolean skipPreamble() {
+        final ByteBuf buffer = this.buffer;
+        if (atStart) {
+            // The first boundary does not need to be preceded by a line break.
+            int dashBoundaryLength = delimiter.length - 2;
+            int length = Math.min(buffer.readableBytes(), dashBoundaryLength);
+            if (matches(buffer.readerIndex(), 2, length)) {
+                if (length < dashBoundaryLength) {
+                    return false;
+                }
+                buffer.skipBytes(dashBoundaryLength);
+                atStart = false;
+                return true;
+            }
+            atStart = false;
+        }
+        int start = buffer.readerIndex();
+        int end = buffer.writerIndex();
+        int index = indexOfDelimiter(start, end);
+        if (index != -1) {
+            buffer.readerIndex(index + delimiter.length);
+            return true;
+        }
+        buffer.readerIndex(end - partialDelimiterLength(start, end));
+        return false;
+    }
+
+    private boolean readDelimiterSuffix() {
+        final ByteBuf buffer = this.buffer;
+        if (buffer.readableBytes() < 2) {
+            return false;
+        }
+        int start = buffer.readerIndex();
+        if (buffer.getByte(start) == '-' && buffer.getByte(start + 1) == '-') {
+            // Close delimiter, everything after it is the epilogue.
+            buffer.skipBytes(2);
+            state = State.EPILOGUE;
+            return true;
+        }
+        int lf = buffer.indexOf(start, buffer.writerIndex(), HttpConstants.LF);
+        if (lf == -1) {
+            if (buffer.readableBytes() > MAX_DELIMITER_PADDING) {
+                throw new ErrorDataDecoderException("no line break after boundary");
+            }
+            return false;
+        }
+        for (int i = start; i < lf; i++) {
+            byte b = buffer.getByte(i);
+            if (b != HttpConstants.SP && b != HttpConstants.HT && !(b == HttpConstants.CR && i == lf - 1)) {
+                throw new ErrorDataDecoderException("invalid character after boundary: " + (char) b);
+            }
+        }
+        buffer.readerIndex(lf + 1);
+        state = State.HEADERS;
+        return true;
+    }
+
+    private HttpHeaders readPartHeaders() {
+        final ByteBuf buffer = this.buffer;
+        final int start = buffer.readerIndex();
+        final int end = buffer.writerIndex();
+        HttpHeaders partHeaders = new DefaultHttpHeaders();
+        int lineStart = start;
+        for (;;) {
+            int lf = buffer.indexOf(lineStart, end, HttpConstants.LF);
+            if (lf == -1) {
+                checkPartHeaderSize(end - start);
+                return null;
+            }
+            checkPartHeaderSize(lf - start);
+            int lineEnd = lf > lineStart && buffer.getByte(lf - 1) == HttpConstants.CR ? lf - 1 : lf;
+            if (lineEnd == lineStart) {
+                buffer.readerIndex(lf + 1);
+                return partHeaders;
+            }
+            String line = buffer.toString(lineStart, lineEnd - lineStart, charset);
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ErrorDataDecoderException("invalid part header: " + line);
+            }
+            partHeaders.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            lineStart = lf + 1;
+        }
+    }
+
+    private void checkPartHeaderSize(int size) {
+        if (size > maxPartHeaderSize) {
+            throw new ErrorDataDecoderException("part headers are larger than " + maxPartHeaderSize + " bytes");
+        }
+    }
+
+    private boolean readBody() throws Exception {
+        final ByteBuf buffer = this.buffer;
+        int start = buffer.readerIndex();
+        int end = buffer.writerIndex();
+        int index = indexOfDelimiter(start, end);
+        if (index != -1) {
+            passContent(index - start);
+            buffer.skipBytes(delimiter.length);
+            return true;
+        }
+        passContent(end - partialDelimiterLength(start, end) - start);
+        return false;
+    }
+
+    private void passContent(int length) throws Exception {
+        if (length > 0) {
+            listener.partContent(buffer.readRetainedSlice(length));
+        }
+    }
+
+    private int indexOfDelimiter(int start, int end) {
+        final int last = end - delimiter.length;
+        for (int i = start; i <= last; i++) {
+            i = buffer.indexOf(i, last + 1, HttpConstants.CR);
+            if (i == -1) {
+                return -1;
+            }
+            if (matches(i, 0, delimiter.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the length of the longest suffix of the readable bytes which is a prefix of the delimiter.
+     */
+    private int partialDelimiterLength(int start, int end) {
+        for (int i = Math.max(start, end - delimiter.length + 1); i < end; i++) {
+            if (buffer.getByte(i) == HttpConstants.CR && matches(i, 0, end - i)) {
+                return end - i;
+            }
+        }
+        return 0;
+    }
+
+    private boolean matches(int index, int delimiterOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.getByte(index + i) != delimiter[delimiterOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
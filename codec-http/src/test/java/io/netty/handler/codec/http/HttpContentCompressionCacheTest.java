@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HttpContentCompressionCacheTest {
+
+    @Test
+    public void testGetReturnsIndependentDuplicate() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024);
+        ByteBuf content = Unpooled.copiedBuffer("compressed", CharsetUtil.US_ASCII);
+        cache.put("\"etag\"", "gzip", content);
+        content.skipBytes(content.readableBytes());
+        content.release();
+
+        assertNull(cache.get("\"etag\"", "deflate"));
+        for (int i = 0; i < 2; i++) {
+            ByteBuf cached = cache.get("\"etag\"", "gzip");
+            assertEquals("compressed", cached.toString(CharsetUtil.US_ASCII));
+            cached.skipBytes(cached.readableBytes());
+            cached.release();
+        }
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.bytes());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(20);
+        put(cache, "a", 8);
+        put(cache, "b", 8);
+        cache.get("a", "gzip").release();
+        put(cache, "c", 8);
+
+        assertEquals(2, cache.size());
+        assertEquals(16, cache.bytes());
+        assertNull(cache.get("b", "gzip"));
+        cache.get("a", "gzip").release();
+        cache.get("c", "gzip").release();
+
+        // Content larger than the cache is never cached.
+        put(cache, "d", 21);
+        assertNull(cache.get("d", "gzip"));
+        assertEquals(2, cache.size());
+        cache.clear();
+    }
+
+    private static void put(HttpContentCompressionCache cache, String key, int length) {
+        ByteBuf content = Unpooled.buffer(length).writeZero(length);
+        cache.put(key, "gzip", content);
+        content.release();
+    }
+}
@@ -17,6 +17,7 @@ package io.netty.handler.codec.http;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
@@ -35,6 +36,8 @@ import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdDecoder;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
 import java.util.UUID;
@@ -49,6 +52,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class HttpContentCompressorTest {
 
@@ -649,6 +653,154 @@ public class HttpContentCompressorTest {
         assertTrue(ch.finishAndReleaseAll());
     }
 
+    @Test
+    public void testZstdNegotiation() {
+        assumeTrue(Zstd.isAvailable());
+        assertContentEncoding("zstd", "gzip, deflate, zstd");
+        assertContentEncoding("zstd", "gzip;q=0.5, zstd;q=0.5");
+        assertContentEncoding("gzip", "gzip;q=1.0, zstd;q=0.8");
+        assertContentEncoding("deflate", "deflate, zstd;q=0");
+        assertContentEncoding("gzip", "*");
+        assertContentEncoding("zstd", "zstd");
+    }
+
+    @Test
+    public void testZstdContent() {
+        assumeTrue(Zstd.isAvailable());
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(6, 15, 8, 0, 3));
+        FullHttpRequest req = newRequest();
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "br, zstd, gzip");
+        assertTrue(ch.writeInbound(req));
+
+        HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        ch.writeOutbound(res);
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("Hell", CharsetUtil.US_ASCII)));
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("o, w", CharsetUtil.US_ASCII)));
+        ch.writeOutbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("orld", CharsetUtil.US_ASCII)));
+
+        HttpResponse encoded = ch.readOutbound();
+        assertThat(encoded.headers().get(HttpHeaderNames.CONTENT_ENCODING), is("zstd"));
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new ZstdDecoder());
+        HttpContent c;
+        while ((c = ch.readOutbound()) != null) {
+            decoder.writeInbound(c.content());
+        }
+        ByteBuf decoded = Unpooled.buffer();
+        ByteBuf b;
+        while ((b = decoder.readInbound()) != null) {
+            decoded.writeBytes(b);
+            b.release();
+        }
+        assertEquals("Hello, world", decoded.toString(CharsetUtil.US_ASCII));
+        decoded.release();
+        assertFalse(decoder.finish());
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testCompressionCache() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024);
+        byte[] first = null;
+        for (int i = 0; i < 3; i++) {
+            byte[] bytes = writeCacheableResponse(newCachingCompressor(cache), "\"v1\"");
+            if (first == null) {
+                first = bytes;
+            } else {
+                assertArrayEquals(first, bytes);
+            }
+        }
+        assertEquals(1, cache.size());
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new HttpContentDecompressor());
+        DefaultFullHttpResponse compressed = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(first));
+        compressed.headers().set(HttpHeaderNames.CONTENT_ENCODING, "gzip");
+        assertTrue(decoder.writeInbound(compressed));
+        HttpResponse decoded = decoder.readInbound();
+        assertThat(decoded, is(not(instanceOf(HttpContent.class))));
+        ByteBuf content = Unpooled.buffer();
+        HttpContent c;
+        while ((c = decoder.readInbound()) != null) {
+            content.writeBytes(c.content());
+            c.release();
+        }
+        assertEquals("Hello, World", content.toString(CharsetUtil.US_ASCII));
+        content.release();
+        assertFalse(decoder.finish());
+        cache.clear();
+    }
+
+    @Test
+    public void testCompressionCacheNotUsedByDefault() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024);
+        writeCacheableResponse(new HttpContentCompressor(6, 15, 8, 0, 0, cache), "\"v1\"");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCompressionCacheIgnoresWeakETag() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024);
+        writeCacheableResponse(newCachingCompressor(cache), "W/\"v1\"");
+        assertEquals(0, cache.size());
+    }
+
+    private static HttpContentCompressor newCachingCompressor(HttpContentCompressionCache cache) {
+        return new HttpContentCompressor(6, 15, 8, 0, 0, cache) {
+            @Override
+            protected String cacheKey(FullHttpResponse httpResponse, String contentEncoding) {
+                return "/hello " + httpResponse.headers().get(HttpHeaderNames.ETAG);
+            }
+        };
+    }
+
+    private static byte[] writeCacheableResponse(HttpContentCompressor compressor, String etag) {
+        EmbeddedChannel ch = new EmbeddedChannel(compressor);
+        assertTrue(ch.writeInbound(newRequest()));
+
+        FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer("Hello, World", CharsetUtil.US_ASCII));
+        res.headers().set(HttpHeaderNames.ETAG, etag);
+        HttpUtil.setContentLength(res, res.content().readableBytes());
+        assertTrue(ch.writeOutbound(res));
+
+        HttpResponse encoded = ch.readOutbound();
+        assertThat(encoded, is(not(instanceOf(HttpContent.class))));
+        assertThat(encoded.headers().get(HttpHeaderNames.CONTENT_ENCODING), is("gzip"));
+        ByteBuf content = Unpooled.buffer();
+        HttpContent c;
+        while ((c = ch.readOutbound()) != null) {
+            content.writeBytes(c.content());
+            c.release();
+        }
+        if (HttpUtil.isContentLengthSet(encoded)) {
+            // Only set if the cached content was used.
+            assertEquals(HttpUtil.getContentLength(encoded), content.readableBytes());
+        }
+        byte[] bytes = ByteBufUtil.getBytes(content);
+        content.release();
+        assertFalse(ch.finish());
+        return bytes;
+    }
+
+    private static void assertContentEncoding(String expected, String acceptEncoding) {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(6, 15, 8, 0, 3));
+        FullHttpRequest req = newRequest();
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
+        assertTrue(ch.writeInbound(req));
+
+        FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer("Hello, World", CharsetUtil.US_ASCII));
+        assertTrue(ch.writeOutbound(res));
+
+        HttpResponse encoded = ch.readOutbound();
+        assertThat(acceptEncoding, encoded.headers().get(HttpHeaderNames.CONTENT_ENCODING), is(expected));
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
     private static FullHttpRequest newRequest() {
         FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
         req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class HttpPipeliningHandlerTest {
+
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+        int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            ctx.flush();
+        }
+    }
+
+    private static HttpPipelinedRequest readRequest(EmbeddedChannel channel, String uri) {
+        assertTrue(channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri)));
+        HttpPipelinedRequest request = channel.readInbound();
+        assertEquals(uri, request.request().uri());
+        return request;
+    }
+
+    private static HttpPipelinedResponse response(HttpPipelinedRequest request, String content) {
+        HttpPipelinedResponse response = request.createResponse(new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII)));
+        request.release();
+        return response;
+    }
+
+    private static void assertResponse(EmbeddedChannel channel, String content) {
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(content, response.content().toString(CharsetUtil.US_ASCII));
+        response.release();
+    }
+
+    @Test
+    public void testResponsesWrittenInOrder() {
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(counter, new HttpPipeliningHandler(16, 1024));
+        HttpPipelinedRequest first = readRequest(channel, "/0");
+        HttpPipelinedRequest second = readRequest(channel, "/1");
+        HttpPipelinedRequest third = readRequest(channel, "/2");
+        assertEquals(0, first.sequence());
+        assertEquals(1, second.sequence());
+        assertEquals(2, third.sequence());
+
+        ChannelFuture thirdFuture = channel.writeAndFlush(response(third, "2"));
+        ChannelFuture secondFuture = channel.writeAndFlush(response(second, "1"));
+        assertFalse(thirdFuture.isDone());
+        assertFalse(secondFuture.isDone());
+        assertNull(channel.readOutbound());
+        assertEquals(0, counter.flushes);
+
+        channel.writeAndFlush(response(first, "0"));
+        assertTrue(secondFuture.isSuccess());
+        assertTrue(thirdFuture.isSuccess());
+        assertEquals(1, counter.flushes);
+        assertResponse(channel, "0");
+        assertResponse(channel, "1");
+        assertResponse(channel, "2");
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testOtherMessagesPassThrough() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpPipeliningHandler(16, 1024));
+        HttpContent content = new DefaultHttpContent(Unpooled.copiedBuffer("chunk", CharsetUtil.US_ASCII));
+        assertTrue(channel.writeInbound(content));
+        assertEquals(content, channel.readInbound());
+        content.release();
+
+        HttpPipelinedRequest request = readRequest(channel, "/");
+        FullHttpResponse interim = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
+        assertTrue(channel.writeOutbound(interim));
+        assertEquals(interim, channel.readOutbound());
+        interim.release();
+
+        assertTrue(channel.writeOutbound(response(request, "done")));
+        assertResponse(channel, "done");
+        assertFalse(channel.finish());
+    }
+
+    private static HttpRequest oversizedExpectContinueRequest(String uri) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri);
+        request.headers().set(HttpHeaderNames.EXPECT, HttpHeaderValues.CONTINUE);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 5);
+        return request;
+    }
+
+    @Test
+    public void testExpectationFailedClosesWithOutstandingResponses() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpObjectAggregator(4), new HttpPipeliningHandler(16, 1024));
+        HttpPipelinedRequest first = readRequest(channel, "/0");
+        assertFalse(channel.writeInbound(oversizedExpectContinueRequest("/1")));
+        // The 413 of the aggregator would have overtaken the response for the first request.
+        assertFalse(channel.isOpen());
+        assertNull(channel.readOutbound());
+        first.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testExpectationFailedWithoutOutstandingResponses() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpObjectAggregator(4), new HttpPipeliningHandler(16, 1024));
+        assertTrue(channel.writeOutbound(response(readRequest(channel, "/0"), "0")));
+        assertResponse(channel, "0");
+
+        assertFalse(channel.writeInbound(oversizedExpectContinueRequest("/1")));
+        assertTrue(channel.isOpen());
+        FullHttpResponse tooLarge = channel.readOutbound();
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, tooLarge.status());
+        tooLarge.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testUnexpectedSequence() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpPipeliningHandler(16, 1024));
+        HttpPipelinedRequest request = readRequest(channel, "/");
+        HttpPipelinedResponse unknown = new HttpPipelinedResponse(new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK), 1);
+        ChannelFuture future = channel.writeAndFlush(unknown);
+        assertThat(future.cause(), instanceOf(IllegalArgumentException.class));
+        assertEquals(0, unknown.refCnt());
+
+        assertTrue(channel.writeOutbound(response(request, "ok")));
+        assertResponse(channel, "ok");
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooManyPendingResponses() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpPipeliningHandler(1, 1024));
+        readRequest(channel, "/0").release();
+        HttpPipelinedRequest second = readRequest(channel, "/1");
+        HttpPipelinedRequest third = readRequest(channel, "/2");
+
+        HttpPipelinedResponse secondResponse = response(second, "1");
+        ChannelFuture secondFuture = channel.writeAndFlush(secondResponse);
+        assertFalse(secondFuture.isDone());
+        HttpPipelinedResponse thirdResponse = response(third, "2");
+        ChannelFuture thirdFuture = channel.writeAndFlush(thirdResponse);
+        assertThat(thirdFuture.cause(), instanceOf(EncoderException.class));
+        assertThat(secondFuture.cause(), instanceOf(EncoderException.class));
+        assertEquals(0, secondResponse.refCnt());
+        assertEquals(0, thirdResponse.refCnt());
+        assertFalse(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooManyBufferedBytes() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpPipeliningHandler(16, 4));
+        readRequest(channel, "/0").release();
+        HttpPipelinedResponse response = response(readRequest(channel, "/1"), "too long");
+        ChannelFuture future = channel.writeAndFlush(response);
+        assertThat(future.cause(), instanceOf(EncoderException.class));
+        assertEquals(0, response.refCnt());
+        assertFalse(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPendingResponsesReleasedOnClose() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpPipeliningHandler(16, 1024));
+        readRequest(channel, "/0").release();
+        HttpPipelinedResponse response = response(readRequest(channel, "/1"), "1");
+        ChannelFuture future = channel.writeAndFlush(response);
+        assertFalse(future.isDone());
+        assertFalse(channel.finish());
+        assertThat(future.cause(), instanceOf(ClosedChannelException.class));
+        assertEquals(0, response.refCnt());
+    }
+}
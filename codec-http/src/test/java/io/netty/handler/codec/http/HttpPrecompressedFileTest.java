@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.FileRegion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HttpPrecompressedFileTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = newFile("app.js", 100);
+        newFile("app.js.gz", 40);
+        newFile("app.js.br", 30);
+    }
+
+    @Test
+    public void testSelectByQValue() {
+        assertSelected("app.js.br", "br", "gzip, deflate, br");
+        assertSelected("app.js.gz", "gzip", "gzip;q=1.0, br;q=0.5");
+        assertSelected("app.js.br", "br", "*");
+        assertSelected("app.js.gz", "gzip", "gzip, zstd");
+        assertSelected("app.js", null, "br;q=0, gzip;q=0");
+        assertSelected("app.js", null, "deflate");
+        assertSelected("app.js", null, null);
+    }
+
+    @Test
+    public void testIgnoresStaleSibling() {
+        assertEquals(true, file.setLastModified(file.lastModified() + 60000));
+        assertSelected("app.js", null, "gzip, br");
+    }
+
+    @Test
+    public void testNewResponse() {
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(file, "gzip");
+        HttpResponse response = selected.newResponse(HttpVersion.HTTP_1_1);
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertEquals(40, HttpUtil.getContentLength(response));
+        assertEquals("gzip", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals("accept-encoding", response.headers().get(HttpHeaderNames.VARY));
+
+        FileRegion region = selected.newFileRegion();
+        assertEquals(40, region.count());
+        region.release();
+
+        response = HttpPrecompressedFile.select(file, "identity").newResponse(HttpVersion.HTTP_1_1);
+        assertEquals(100, HttpUtil.getContentLength(response));
+        assertNull(response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+    }
+
+    private void assertSelected(String name, String contentEncoding, String acceptEncoding) {
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(file, acceptEncoding);
+        assertEquals(acceptEncoding, name, selected.file().getName());
+        assertEquals(acceptEncoding, contentEncoding, selected.contentEncoding());
+        assertEquals(selected.file().length(), selected.length());
+    }
+
+    private File newFile(String name, int length) throws IOException {
+        File f = tmp.newFile(name);
+        FileOutputStream out = new FileOutputStream(f);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+}
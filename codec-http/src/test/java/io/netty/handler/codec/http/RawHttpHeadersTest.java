@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RawHttpHeadersTest {
+    private static final String REQUEST = "POST /upload HTTP/1.1\r\n" +
+            "Host: example.com\r\n" +
+            "Content-Length: 5\r\n" +
+            "X-Multi: a\r\n" +
+            "x-multi:   b  \r\n" +
+            "Accept: */*\r\n" +
+            "\r\n";
+
+    private static EmbeddedChannel newServerChannel() {
+        return new EmbeddedChannel(new HttpServerCodec(
+                HttpObjectDecoder.DEFAULT_MAX_INITIAL_LINE_LENGTH, HttpObjectDecoder.DEFAULT_MAX_HEADER_SIZE,
+                HttpObjectDecoder.DEFAULT_MAX_CHUNK_SIZE, true, HttpObjectDecoder.DEFAULT_INITIAL_BUFFER_SIZE,
+                false, true));
+    }
+
+    private static HttpRequest decodeRequest(EmbeddedChannel channel, String request) {
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(request, CharsetUtil.US_ASCII)));
+        HttpRequest req = channel.readInbound();
+        assertTrue(req.decoderResult().isSuccess());
+        return req;
+    }
+
+    @Test
+    public void testLookups() {
+        EmbeddedChannel channel = newServerChannel();
+        HttpRequest req = decodeRequest(channel, REQUEST + "hello");
+        HttpHeaders headers = req.headers();
+        assertThat(headers, instanceOf(RawHttpHeaders.class));
+        assertEquals(5, headers.size());
+        assertEquals("example.com", headers.get(HttpHeaderNames.HOST));
+        assertEquals("example.com", headers.get("HOST"));
+        assertEquals(5, (int) headers.getInt(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals(Arrays.asList("a", "b"), headers.getAll("X-MULTI"));
+        assertTrue(headers.contains("x-multi", "B", true));
+        assertFalse(headers.contains("x-multi", "B", false));
+        assertNull(headers.get("missing"));
+        assertEquals(-1, headers.getInt("missing", -1));
+
+        Iterator<Map.Entry<CharSequence, CharSequence>> entries = headers.iteratorCharSequence();
+        Map.Entry<CharSequence, CharSequence> first = entries.next();
+        assertThat(first.getKey(), instanceOf(AsciiString.class));
+        assertEquals("Host", first.getKey().toString());
+        assertEquals("example.com", first.getValue().toString());
+
+        LastHttpContent content = channel.readInbound();
+        assertEquals("hello", content.content().toString(CharsetUtil.US_ASCII));
+        content.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testHeadersWrittenVerbatim() {
+        EmbeddedChannel decoder = newServerChannel();
+        HttpRequest req = decodeRequest(decoder, REQUEST + "hello");
+        LastHttpContent content = decoder.readInbound();
+        content.release();
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new HttpRequestEncoder());
+        assertTrue(encoder.writeOutbound(req));
+        ByteBuf encoded = encoder.readOutbound();
+        // The whitespace around the value of the second X-Multi header shows the block was copied as it is.
+        assertEquals(REQUEST, encoded.toString(CharsetUtil.US_ASCII));
+        encoded.release();
+        assertFalse(decoder.finish());
+        assertFalse(encoder.finish());
+    }
+
+    @Test
+    public void testModificationCopiesHeaders() {
+        EmbeddedChannel decoder = newServerChannel();
+        HttpRequest req = decodeRequest(decoder, REQUEST + "hello");
+        LastHttpContent content = decoder.readInbound();
+        content.release();
+
+        req.headers().remove(HttpHeaderNames.ACCEPT);
+        req.headers().set(HttpHeaderNames.HOST, "other.com");
+        assertEquals("other.com", req.headers().get(HttpHeaderNames.HOST));
+        assertEquals(Arrays.asList("a", "b"), req.headers().getAll("x-multi"));
+        assertFalse(req.headers().contains(HttpHeaderNames.ACCEPT));
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new HttpRequestEncoder());
+        assertTrue(encoder.writeOutbound(req));
+        ByteBuf encoded = encoder.readOutbound();
+        assertEquals("POST /upload HTTP/1.1\r\n" +
+                "Content-Length: 5\r\n" +
+                "X-Multi: a\r\n" +
+                "x-multi: b\r\n" +
+                "host: other.com\r\n" +
+                "\r\n", encoded.toString(CharsetUtil.US_ASCII));
+        encoded.release();
+        assertFalse(decoder.finish());
+        assertFalse(encoder.finish());
+    }
+
+    @Test
+    public void testObsoleteLineFolding() {
+        EmbeddedChannel channel = newServerChannel();
+        HttpRequest req = decodeRequest(channel, "GET / HTTP/1.1\r\n" +
+                "X-Folded: first  \r\n" +
+                "\t second\r\n" +
+                "Host: example.com\n" +
+                "\r\n");
+        assertEquals("first second", req.headers().get("x-folded"));
+        assertEquals("example.com", req.headers().get(HttpHeaderNames.HOST));
+        assertEquals(LastHttpContent.EMPTY_LAST_CONTENT, channel.readInbound());
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new HttpRequestEncoder());
+        assertTrue(encoder.writeOutbound(req));
+        ByteBuf encoded = encoder.readOutbound();
+        assertEquals("GET / HTTP/1.1\r\nX-Folded: first second\r\nHost: example.com\r\n\r\n",
+                encoded.toString(CharsetUtil.US_ASCII));
+        encoded.release();
+        assertFalse(channel.finish());
+        assertFalse(encoder.finish());
+    }
+
+    @Test
+    public void testHeaderBlockSplitAcrossBuffers() {
+        EmbeddedChannel channel = newServerChannel();
+        byte[] bytes = (REQUEST + "hello").getBytes(CharsetUtil.US_ASCII);
+        for (byte b : bytes) {
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { b }));
+        }
+        HttpRequest req = channel.readInbound();
+        assertTrue(req.decoderResult().isSuccess());
+        assertEquals("example.com", req.headers().get(HttpHeaderNames.HOST));
+        for (int i = 0; i < 5; i++) {
+            HttpContent content = channel.readInbound();
+            assertEquals(1, content.content().readableBytes());
+            content.release();
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testNoHeaders() {
+        EmbeddedChannel channel = newServerChannel();
+        HttpRequest req = decodeRequest(channel, "GET / HTTP/1.0\r\n\r\n");
+        assertTrue(req.headers().isEmpty());
+        assertEquals(LastHttpContent.EMPTY_LAST_CONTENT, channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testChunkedResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseDecoder(
+                HttpObjectDecoder.DEFAULT_MAX_INITIAL_LINE_LENGTH, HttpObjectDecoder.DEFAULT_MAX_HEADER_SIZE,
+                HttpObjectDecoder.DEFAULT_MAX_CHUNK_SIZE, true, HttpObjectDecoder.DEFAULT_INITIAL_BUFFER_SIZE,
+                false, true));
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer("HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "3\r\nabc\r\n0\r\n\r\n", CharsetUtil.US_ASCII)));
+        HttpResponse res = channel.readInbound();
+        assertThat(res.headers(), instanceOf(RawHttpHeaders.class));
+        assertTrue(HttpUtil.isTransferEncodingChunked(res));
+        HttpContent content = channel.readInbound();
+        assertEquals("abc", content.content().toString(CharsetUtil.US_ASCII));
+        content.release();
+        assertThat(channel.readInbound(), instanceOf(LastHttpContent.class));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testInvalidHeaderName() {
+        EmbeddedChannel channel = newServerChannel();
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer("GET / HTTP/1.1\r\n" +
+                "Bad Name: value\r\n" +
+                "\r\n", CharsetUtil.US_ASCII)));
+        HttpRequest req = channel.readInbound();
+        assertThat(req.decoderResult().cause(), instanceOf(IllegalArgumentException.class));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testMissingColon() {
+        EmbeddedChannel channel = newServerChannel();
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer("GET / HTTP/1.1\r\n" +
+                "NoColon\r\n" +
+                "\r\n", CharsetUtil.US_ASCII)));
+        HttpRequest req = channel.readInbound();
+        assertThat(req.decoderResult().cause(), instanceOf(IllegalArgumentException.class));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooLongHeaderBlock() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(
+                HttpObjectDecoder.DEFAULT_MAX_INITIAL_LINE_LENGTH, 16, HttpObjectDecoder.DEFAULT_MAX_CHUNK_SIZE,
+                true, HttpObjectDecoder.DEFAULT_INITIAL_BUFFER_SIZE, false, true));
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer("GET / HTTP/1.1\r\n" +
+                "X-Long: 0123456789abcdef\r\n", CharsetUtil.US_ASCII)));
+        HttpRequest req = channel.readInbound();
+        assertThat(req.decoderResult().cause(), instanceOf(TooLongFrameException.class));
+        assertFalse(channel.finish());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpPostMultipartStreamDecoderTest {
+    private static final String BOUNDARY = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+    // Contains partial matches of the delimiter to make sure they are passed on as content.
+    private static final String FILE_CONTENT = "line 1\r\n--dLV9Wyq26L\r\n\r\r\n--" + BOUNDARY.substring(0, 10) +
+            "\r\nlast line";
+    private static final String BODY = "preamble\r\n" +
+            "--" + BOUNDARY + "\r\n" +
+            "Content-Disposition: form-data; name=\"field\"\r\n" +
+            "\r\n" +
+            "value\r\n" +
+            "--" + BOUNDARY + "  \r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"a;b.txt\"\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            FILE_CONTENT + "\r\n" +
+            "--" + BOUNDARY + "--\r\n" +
+            "epilogue";
+
+    private static final class Part {
+        final HttpHeaders headers;
+        final StringBuilder content = new StringBuilder();
+        boolean ended;
+
+        Part(HttpHeaders headers) {
+            this.headers = headers;
+        }
+    }
+
+    private static final class CollectingListener implements HttpPostMultipartStreamDecoder.PartListener {
+        final List<Part> parts = new ArrayList<Part>();
+
+        @Override
+        public void partStarted(HttpHeaders partHeaders) {
+            parts.add(new Part(partHeaders));
+        }
+
+        @Override
+        public void partContent(ByteBuf content) {
+            Part part = parts.get(parts.size() - 1);
+            assertFalse(part.ended);
+            part.content.append(content.toString(CharsetUtil.UTF_8));
+            content.release();
+        }
+
+        @Override
+        public void partEnded() {
+            parts.get(parts.size() - 1).ended = true;
+        }
+    }
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        return request;
+    }
+
+    private static void assertParts(CollectingListener listener) {
+        assertEquals(2, listener.parts.size());
+        Part field = listener.parts.get(0);
+        assertEquals("field", HttpPostMultipartStreamDecoder.contentDispositionParameter(field.headers, "name"));
+        assertNull(HttpPostMultipartStreamDecoder.contentDispositionParameter(field.headers, "filename"));
+        assertEquals("value", field.content.toString());
+        assertTrue(field.ended);
+
+        Part file = listener.parts.get(1);
+        assertEquals("a;b.txt", HttpPostMultipartStreamDecoder.contentDispositionParameter(file.headers, "filename"));
+        assertEquals("text/plain", file.headers.get(HttpHeaderNames.CONTENT_TYPE));
+        assertEquals(FILE_CONTENT, file.content.toString());
+        assertTrue(file.ended);
+    }
+
+    private static void testChunked(int chunkSize) throws Exception {
+        CollectingListener listener = new CollectingListener();
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(newRequest(), listener);
+        byte[] body = BODY.getBytes(CharsetUtil.US_ASCII);
+        List<ByteBuf> offered = new ArrayList<ByteBuf>();
+        for (int i = 0; i < body.length; i += chunkSize) {
+            ByteBuf chunk = Unpooled.copiedBuffer(body, i, Math.min(chunkSize, body.length - i));
+            offered.add(chunk);
+            HttpContent content = i + chunkSize >= body.length ?
+                    new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk);
+            decoder.offer(content);
+            content.release();
+        }
+        assertTrue(decoder.isEndOfData());
+        decoder.destroy();
+        assertParts(listener);
+        for (ByteBuf buf : offered) {
+            assertEquals(0, buf.refCnt());
+        }
+    }
+
+    @Test
+    public void testSingleChunk() throws Exception {
+        testChunked(BODY.length());
+    }
+
+    @Test
+    public void testOfferDoesNotModifyContent() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(newRequest(), listener);
+        byte[] body = BODY.getBytes(CharsetUtil.US_ASCII);
+        int split = body.length / 2;
+        HttpContent first = new DefaultHttpContent(Unpooled.copiedBuffer(body, 0, split));
+        HttpContent last = new DefaultLastHttpContent(Unpooled.copiedBuffer(body, split, body.length - split));
+
+        decoder.offer(first);
+        assertEquals(0, first.content().readerIndex());
+        assertEquals(split, first.content().readableBytes());
+        decoder.offer(last);
+        assertEquals(0, last.content().readerIndex());
+        assertEquals(body.length - split, last.content().readableBytes());
+
+        assertTrue(decoder.isEndOfData());
+        decoder.destroy();
+        assertParts(listener);
+        first.release();
+        last.release();
+    }
+
+    @Test
+    public void testAllChunkSizes() throws Exception {
+        for (int chunkSize = 1; chunkSize < 64; chunkSize++) {
+            testChunked(chunkSize);
+        }
+    }
+
+    @Test
+    public void testBoundaryAtStart() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(newRequest(), listener);
+        LastHttpContent content = new DefaultLastHttpContent(Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"empty\"\r\n" +
+                "\r\n" +
+                "\r\n" +
+                "--" + BOUNDARY + "--", CharsetUtil.US_ASCII));
+        decoder.offer(content);
+        content.release();
+        decoder.destroy();
+        assertEquals(1, listener.parts.size());
+        assertEquals("", listener.parts.get(0).content.toString());
+        assertTrue(listener.parts.get(0).ended);
+    }
+
+    @Test(expected = ErrorDataDecoderException.class)
+    public void testMissingCloseDelimiter() throws Exception {
+        HttpPostMultipartStreamDecoder decoder =
+                new HttpPostMultipartStreamDecoder(newRequest(), new CollectingListener());
+        LastHttpContent content = new DefaultLastHttpContent(Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\n\r\nvalue", CharsetUtil.US_ASCII));
+        try {
+            decoder.offer(content);
+        } finally {
+            content.release();
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testPartHeadersTooLarge() throws Exception {
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(
+                newRequest(), new CollectingListener(), CharsetUtil.UTF_8, 16);
+        HttpContent content = new DefaultHttpContent(Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"field\"\r\n", CharsetUtil.US_ASCII));
+        try {
+            decoder.offer(content);
+            fail();
+        } catch (ErrorDataDecoderException expected) {
+            // expected
+        } finally {
+            content.release();
+            decoder.destroy();
+        }
+    }
+
+    @Test(expected = ErrorDataDecoderException.class)
+    public void testNotMultipart() throws Exception {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/x-www-form-urlencoded");
+        new HttpPostMultipartStreamDecoder(request, new CollectingListener());
+    }
+
+    @Test
+    public void testContentDispositionParameter() {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.set(HttpHeaderNames.CONTENT_DISPOSITION, "form-data; name=field ; filename=\"x\\\";y\"");
+        assertEquals("field", HttpPostMultipartStreamDecoder.contentDispositionParameter(headers, "NAME"));
+        assertEquals("x\\\";y", HttpPostMultipartStreamDecoder.contentDispositionParameter(headers, "filename"));
+        assertNull(HttpPostMultipartStreamDecoder.contentDispositionParameter(headers, "other"));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.memcache.AbstractMemcacheObject;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default implementation of a {@link AsciiMemcacheMessage}.
+ */
+@UnstableApi
+public abstract class AbstractAsciiMemcacheMessage extends AbstractMemcacheObject implements AsciiMemcacheMessage {
+
+    private final List<String> arguments;
+    private final ByteBuf content;
+
+    /**
+     * Create a new instance with the given arguments and content.
+     *
+     * @param arguments the arguments of the line.
+     * @param content   the data block, which is empty if there is none.
+     */
+    protected AbstractAsciiMemcacheMessage(List<String> arguments, ByteBuf content) {
+        ObjectUtil.checkNotNull(arguments, "arguments");
+        this.arguments = arguments.isEmpty() ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(new ArrayList<String>(arguments));
+        this.content = ObjectUtil.checkNotNull(content, "content");
+    }
+
+    @Override
+    public List<String> arguments() {
+        return arguments;
+    }
+
+    @Override
+    public ByteBuf content() {
+        return content;
+    }
+
+    @Override
+    public AsciiMemcacheMessage copy() {
+        return replace(content.copy());
+    }
+
+    @Override
+    public AsciiMemcacheMessage duplicate() {
+        return replace(content.duplicate());
+    }
+
+    @Override
+    public AsciiMemcacheMessage retainedDuplicate() {
+        return replace(content.retainedDuplicate());
+    }
+
+    @Override
+    public AsciiMemcacheMessage retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheMessage retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheMessage touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheMessage touch(Object hint) {
+        content.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        content.release();
+    }
+
+    /**
+     * Appends the arguments, separated by a space, to the given {@link StringBuilder}.
+     */
+    void appendArguments(StringBuilder buf) {
+        for (int i = 0; i < arguments.size(); i++) {
+            buf.append(' ').append(arguments.get(i));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.channel.CombinedChannelDuplexHandler;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * The client codec that combines the {@link AsciiMemcacheResponseDecoder} and the
+ * {@link AsciiMemcacheRequestEncoder}.
+ * <p/>
+ * Use this codec if you want to implement a memcache client that speaks the text protocol. Add an
+ * {@link AsciiMemcacheGetBatcher} after it to merge concurrent single key gets into multi key gets.
+ */
+@UnstableApi
+public final class AsciiMemcacheClientCodec extends
+        CombinedChannelDuplexHandler<AsciiMemcacheResponseDecoder, AsciiMemcacheRequestEncoder> {
+
+    /**
+     * Create a new {@link AsciiMemcacheClientCodec} with the default settings applied.
+     */
+    public AsciiMemcacheClientCodec() {
+        this(AsciiMemcacheResponseDecoder.DEFAULT_MAX_LINE_LENGTH,
+                AsciiMemcacheResponseDecoder.DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Create a new {@link AsciiMemcacheClientCodec} with custom settings.
+     *
+     * @param maxLineLength  the maximum length of a response line.
+     * @param maxValueLength the maximum length of a data block.
+     */
+    public AsciiMemcacheClientCodec(int maxLineLength, int maxValueLength) {
+        init(new AsciiMemcacheResponseDecoder(maxLineLength, maxValueLength), new AsciiMemcacheRequestEncoder());
+    }
+}
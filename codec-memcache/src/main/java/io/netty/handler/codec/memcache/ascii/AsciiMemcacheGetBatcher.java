@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A client side handler which merges single key gets into multi key gets to save round trips.
+ * <p>
+ * The keys passed to {@link #get(String)} are collected until the next flush, or until the current event loop
+ * iteration ends, and are then requested with a single {@code get <key>*} request of at most
+ * {@code maxKeysPerRequest} keys. Keys which are requested more than once are only sent once. The returned
+ * {@link Future} is notified with the {@code VALUE} response of the key, or with {@code null} if the key was not
+ * found.
+ * <p>
+ * Other {@link AsciiMemcacheRequest}s can still be written to the {@link io.netty.channel.Channel}, their responses
+ * are passed on via {@link ChannelHandlerContext#fireChannelRead(Object)}. A response is considered complete with
+ * the first line which is neither {@code VALUE} nor {@code STAT}, and requests ending with {@code noreply} are not
+ * expected to get a response at all. Meta commands with the quiet flag {@code q} are not supported, as the responses
+ * can not be matched to the requests anymore if some of them are suppressed.
+ * <p>
+ * This handler must be placed after the {@link AsciiMemcacheClientCodec} in the
+ * {@link io.netty.channel.ChannelPipeline}. The {@link Future}s returned by {@link #get(String)} own the response,
+ * which must be released once it is not needed anymore.
+ */
+@UnstableApi
+public class AsciiMemcacheGetBatcher extends ChannelDuplexHandler {
+
+    public static final int DEFAULT_MAX_KEYS_PER_REQUEST = 100;
+
+    // The maximum length of a key as defined by the protocol.
+    private static final int MAX_KEY_LENGTH = 250;
+    // Marks requests which were written to the Channel directly.
+    private static final Object PASSTHROUGH = new Object();
+
+    private final int maxKeysPerRequest;
+    // Batches and PASSTHROUGH markers in the order they were written.
+    private final Queue<Object> inFlight = new ArrayDeque<Object>();
+    private Map<String, List<Promise<AsciiMemcacheResponse>>> pendingKeys =
+            new LinkedHashMap<String, List<Promise<AsciiMemcacheResponse>>>();
+    private final Runnable batchTask = new Runnable() {
+        @Override
+        public void run() {
+            batchScheduled = false;
+            if (!pendingKeys.isEmpty()) {
+                writeBatches(ctx);
+                ctx.flush();
+            }
+        }
+    };
+    private final ChannelFutureListener writeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess()) {
+                // The responses can not be matched to the requests anymore.
+                future.channel().close();
+            }
+        }
+    };
+
+    private ChannelHandlerContext ctx;
+    private boolean batchScheduled;
+    private boolean closed;
+
+    /**
+     * Creates a new instance with the default settings.
+     */
+    public AsciiMemcacheGetBatcher() {
+        this(DEFAULT_MAX_KEYS_PER_REQUEST);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxKeysPerRequest the maximum number of keys which are requested with a single {@code get}.
+     */
+    public AsciiMemcacheGetBatcher(int maxKeysPerRequest) {
+        this.maxKeysPerRequest = ObjectUtil.checkPositive(maxKeysPerRequest, "maxKeysPerRequest");
+    }
+
+    /**
+     * Gets the value of the given key. This method may be called from any thread.
+     *
+     * @param key the key.
+     * @return the {@link Future} which is notified with the {@code VALUE} response, or {@code null} if the key was
+     *         not found. The response must be released by the caller.
+     */
+    public Future<AsciiMemcacheResponse> get(final String key) {
+        ObjectUtil.checkNotNull(key, "key");
+        if (key.length() > MAX_KEY_LENGTH || !AsciiMemcacheRequestEncoder.isValidToken(key)) {
+            throw new IllegalArgumentException("invalid key: '" + key + '\'');
+        }
+        final ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        EventExecutor executor = ctx.executor();
+        final Promise<AsciiMemcacheResponse> promise = executor.newPromise();
+        if (executor.inEventLoop()) {
+            get(ctx, key, promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    get(ctx, key, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void get(ChannelHandlerContext ctx, String key, Promise<AsciiMemcacheResponse> promise) {
+        if (closed) {
+            promise.tryFailure(new ClosedChannelException());
+            return;
+        }
+        List<Promise<AsciiMemcacheResponse>> promises = pendingKeys.get(key);
+        if (promises == null) {
+            promises = new ArrayList<Promise<AsciiMemcacheResponse>>(1);
+            pendingKeys.put(key, promises);
+        }
+        promises.add(promise);
+        if (!batchScheduled) {
+            batchScheduled = true;
+            ctx.executor().execute(batchTask);
+        }
+    }
+
+    /**
+     * Returns the number of requests which were written but not completely responded to yet. Must be called from
+     * the {@link EventExecutor} of this handler.
+     */
+    public int inFlightRequests() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        failAll(new IllegalStateException("handler removed"));
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof AsciiMemcacheRequest && expectsResponse((AsciiMemcacheRequest) msg)) {
+            inFlight.add(PASSTHROUGH);
+            ctx.write(msg, promise.unvoid()).addListener(writeListener);
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        // Send the keys collected so far with this flush already.
+        writeBatches(ctx);
+        ctx.flush();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof AsciiMemcacheResponse)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        AsciiMemcacheResponse response = (AsciiMemcacheResponse) msg;
+        if (response.decoderResult().isFailure()) {
+            // The decoder discards all further input, so there will be no more responses.
+            failAll(response.decoderResult().cause());
+            ctx.fireChannelRead(response);
+            ctx.close();
+            return;
+        }
+        Object head = inFlight.peek();
+        if (head == null) {
+            // Not a response to a request which passed this handler, let the user handle it.
+            ctx.fireChannelRead(response);
+        } else if (head == PASSTHROUGH) {
+            if (isLastResponse(response)) {
+                inFlight.remove();
+            }
+            ctx.fireChannelRead(response);
+        } else {
+            Batch batch = (Batch) head;
+            if ("VALUE".equals(response.status())) {
+                batch.complete(response);
+            } else {
+                inFlight.remove();
+                if ("END".equals(response.status())) {
+                    batch.completeMissing();
+                } else {
+                    batch.fail(new DecoderException("unexpected response to get: " + response));
+                }
+                response.release();
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failAll(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    private void writeBatches(ChannelHandlerContext ctx) {
+        while (!pendingKeys.isEmpty()) {
+            Map<String, List<Promise<AsciiMemcacheResponse>>> keys;
+            if (pendingKeys.size() <= maxKeysPerRequest) {
+                keys = pendingKeys;
+                pendingKeys = new LinkedHashMap<String, List<Promise<AsciiMemcacheResponse>>>();
+            } else {
+                keys = new LinkedHashMap<String, List<Promise<AsciiMemcacheResponse>>>();
+                Iterator<Map.Entry<String, List<Promise<AsciiMemcacheResponse>>>> i =
+                        pendingKeys.entrySet().iterator();
+                while (keys.size() < maxKeysPerRequest) {
+                    Map.Entry<String, List<Promise<AsciiMemcacheResponse>>> entry = i.next();
+                    keys.put(entry.getKey(), entry.getValue());
+                    i.remove();
+                }
+            }
+            inFlight.add(new Batch(keys));
+            ctx.write(new DefaultAsciiMemcacheRequest("get", new ArrayList<String>(keys.keySet())))
+                    .addListener(writeListener);
+        }
+    }
+
+    private void failAll(Throwable cause) {
+        closed = true;
+        Object request;
+        while ((request = inFlight.poll()) != null) {
+            if (request != PASSTHROUGH) {
+                ((Batch) request).fail(cause);
+            }
+        }
+        if (!pendingKeys.isEmpty()) {
+            new Batch(pendingKeys).fail(cause);
+            pendingKeys = new LinkedHashMap<String, List<Promise<AsciiMemcacheResponse>>>();
+        }
+    }
+
+    private static boolean expectsResponse(AsciiMemcacheRequest request) {
+        List<String> arguments = request.arguments();
+        return arguments.isEmpty() || !"noreply".equals(arguments.get(arguments.size() - 1));
+    }
+
+    private static boolean isLastResponse(AsciiMemcacheResponse response) {
+        String status = response.status();
+        return !"VALUE".equals(status) && !"STAT".equals(status);
+    }
+
+    private static final class Batch {
+        // The keys which were not responded to yet.
+        private final Map<String, List<Promise<AsciiMemcacheResponse>>> keys;
+
+        Batch(Map<String, List<Promise<AsciiMemcacheResponse>>> keys) {
+            this.keys = keys;
+        }
+
+        void complete(AsciiMemcacheResponse response) {
+            List<Promise<AsciiMemcacheResponse>> promises = response.arguments().isEmpty() ? null :
+                    keys.remove(response.arguments().get(0));
+            if (promises == null) {
+                response.release();
+                return;
+            }
+            int last = promises.size() - 1;
+            for (int i = 0; i <= last; i++) {
+                // Every caller gets its own reader index.
+                AsciiMemcacheResponse value = i == last ? response : response.retainedDuplicate();
+                if (!promises.get(i).trySuccess(value)) {
+                    // The Future was cancelled.
+                    value.release();
+                }
+            }
+        }
+
+        void completeMissing() {
+            for (List<Promise<AsciiMemcacheResponse>> promises : keys.values()) {
+                for (int i = 0; i < promises.size(); i++) {
+                    promises.get(i).trySuccess(null);
+                }
+            }
+            keys.clear();
+        }
+
+        void fail(Throwable cause) {
+            for (List<Promise<AsciiMemcacheResponse>> promises : keys.values()) {
+                for (int i = 0; i < promises.size(); i++) {
+                    promises.get(i).tryFailure(cause);
+                }
+            }
+            keys.clear();
+        }
+    }
+}
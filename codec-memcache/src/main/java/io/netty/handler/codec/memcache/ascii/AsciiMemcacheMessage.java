@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.memcache.FullMemcacheMessage;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.List;
+
+/**
+ * A line of the Memcache text protocol, which is followed by a data block for some commands and responses.
+ * The {@link #content()} is the data block, or empty if there is none.
+ */
+@UnstableApi
+public interface AsciiMemcacheMessage extends FullMemcacheMessage {
+
+    /**
+     * Returns the arguments which follow the command or status of the line, for example the key.
+     */
+    List<String> arguments();
+
+    @Override
+    AsciiMemcacheMessage copy();
+
+    @Override
+    AsciiMemcacheMessage duplicate();
+
+    @Override
+    AsciiMemcacheMessage retainedDuplicate();
+
+    @Override
+    AsciiMemcacheMessage replace(ByteBuf content);
+
+    @Override
+    AsciiMemcacheMessage retain(int increment);
+
+    @Override
+    AsciiMemcacheMessage retain();
+
+    @Override
+    AsciiMemcacheMessage touch();
+
+    @Override
+    AsciiMemcacheMessage touch(Object hint);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A request of the Memcache text protocol, for example {@code get <key>*} or the meta command
+ * {@code mg <key> <flag>*}. The storage commands ({@code set}, {@code add}, {@code replace}, {@code append},
+ * {@code prepend}, {@code cas} and {@code ms}) are followed by their {@link #content()} as data block, whose length
+ * must be one of the {@link #arguments()} as required by the protocol.
+ */
+@UnstableApi
+public interface AsciiMemcacheRequest extends AsciiMemcacheMessage {
+
+    /**
+     * Returns the command, for example {@code "get"} or {@code "mg"}.
+     */
+    String command();
+
+    @Override
+    AsciiMemcacheRequest copy();
+
+    @Override
+    AsciiMemcacheRequest duplicate();
+
+    @Override
+    AsciiMemcacheRequest retainedDuplicate();
+
+    @Override
+    AsciiMemcacheRequest replace(ByteBuf content);
+
+    @Override
+    AsciiMemcacheRequest retain(int increment);
+
+    @Override
+    AsciiMemcacheRequest retain();
+
+    @Override
+    AsciiMemcacheRequest touch();
+
+    @Override
+    AsciiMemcacheRequest touch(Object hint);
+}
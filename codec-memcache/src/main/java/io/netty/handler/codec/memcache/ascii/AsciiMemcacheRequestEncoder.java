@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.List;
+
+import static io.netty.buffer.Unpooled.directBuffer;
+import static io.netty.buffer.Unpooled.unreleasableBuffer;
+
+/**
+ * Encodes {@link AsciiMemcacheRequest}s into the Memcache text protocol.
+ * <p>
+ * The request line is written as {@code <command> <argument>*\r\n}. The storage commands are followed by the
+ * {@link AsciiMemcacheRequest#content()} and {@code \r\n}, larger contents are passed on without copying them.
+ * All other commands must not have any content.
+ */
+@UnstableApi
+public class AsciiMemcacheRequestEncoder extends MessageToMessageEncoder<AsciiMemcacheRequest> {
+
+    static final short CRLF_SHORT = ('\r' << 8) | '\n';
+    private static final ByteBuf CRLF_BUF = unreleasableBuffer(directBuffer(2).writeShort(CRLF_SHORT));
+    // Contents up to this size are copied into the buffer of the request line to save writes.
+    private static final int COPY_CONTENT_THRESHOLD = 1024;
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, AsciiMemcacheRequest msg, List<Object> out) throws Exception {
+        String command = msg.command();
+        List<String> arguments = msg.arguments();
+        ByteBuf content = msg.content();
+        boolean storage = isStorageCommand(command);
+        if (!storage && content.isReadable()) {
+            throw new EncoderException("command " + command + " must not have content");
+        }
+
+        int contentLength = content.readableBytes();
+        boolean copyContent = storage && contentLength <= COPY_CONTENT_THRESHOLD;
+        validateToken(command);
+        int length = command.length() + 2;
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            validateToken(argument);
+            length += argument.length() + 1;
+        }
+        if (copyContent) {
+            length += contentLength + 2;
+        }
+
+        ByteBuf buf = ctx.alloc().buffer(length);
+        ByteBufUtil.writeAscii(buf, command);
+        for (int i = 0; i < arguments.size(); i++) {
+            ByteBufUtil.writeAscii(buf.writeByte(' '), arguments.get(i));
+        }
+        buf.writeShort(CRLF_SHORT);
+        if (copyContent) {
+            buf.writeBytes(content, content.readerIndex(), contentLength).writeShort(CRLF_SHORT);
+        }
+        out.add(buf);
+        if (storage && !copyContent) {
+            out.add(content.retain());
+            out.add(CRLF_BUF.duplicate());
+        }
+    }
+
+    private static void validateToken(String token) {
+        if (!isValidToken(token)) {
+            throw new EncoderException("invalid token: '" + token + '\'');
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given token can be sent as command, key or argument, which means it is not
+     * empty and does not contain any whitespace or control characters.
+     */
+    static boolean isValidToken(CharSequence token) {
+        int length = token.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c <= ' ' || c >= 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the given command is followed by a data block.
+     */
+    static boolean isStorageCommand(String command) {
+        return "set".equals(command) || "add".equals(command) || "replace".equals(command) ||
+                "append".equals(command) || "prepend".equals(command) || "cas".equals(command) ||
+                "ms".equals(command);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A response line of the Memcache text protocol. Responses to retrieval commands consist of one
+ * {@code VALUE} response per hit, which carries the value as {@link #content()}, followed by an {@code END}
+ * response. Meta commands are answered by a single response, for example {@code VA} with the value as
+ * {@link #content()}, {@code HD} or {@code EN}.
+ */
+@UnstableApi
+public interface AsciiMemcacheResponse extends AsciiMemcacheMessage {
+
+    /**
+     * Returns the first word of the response line, for example {@code "VALUE"}, {@code "STORED"} or {@code "VA"}.
+     * For the responses to {@code incr} and {@code decr} this is the new value.
+     */
+    String status();
+
+    @Override
+    AsciiMemcacheResponse copy();
+
+    @Override
+    AsciiMemcacheResponse duplicate();
+
+    @Override
+    AsciiMemcacheResponse retainedDuplicate();
+
+    @Override
+    AsciiMemcacheResponse replace(ByteBuf content);
+
+    @Override
+    AsciiMemcacheResponse retain(int increment);
+
+    @Override
+    AsciiMemcacheResponse retain();
+
+    @Override
+    AsciiMemcacheResponse touch();
+
+    @Override
+    AsciiMemcacheResponse touch(Object hint);
+}
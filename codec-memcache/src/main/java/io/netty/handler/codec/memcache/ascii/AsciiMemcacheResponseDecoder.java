@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.memcache.AbstractMemcacheObjectDecoder;
+import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes the responses of the Memcache text protocol into {@link AsciiMemcacheResponse}s.
+ * <p>
+ * The data blocks of {@code VALUE} and {@code VA} responses are not copied but passed on as retained slices of the
+ * received buffer, which is why the whole data block is awaited before the response is emitted. Lines longer than
+ * {@code maxLineLength} and data blocks longer than {@code maxValueLength} are rejected with a
+ * {@link TooLongFrameException}.
+ * <p>
+ * Once a response could not be decoded, a response with a failed {@link DecoderResult} is emitted and all further
+ * input is discarded, as the framing of the stream can not be recovered.
+ */
+@UnstableApi
+public class AsciiMemcacheResponseDecoder extends AbstractMemcacheObjectDecoder {
+
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 1024 * 1024;
+
+    private final int maxLineLength;
+    private final int maxValueLength;
+
+    private State state = State.READ_LINE;
+    private String status;
+    private List<String> arguments;
+    private int valueLength;
+
+    /**
+     * Create a new {@link AsciiMemcacheResponseDecoder} with default settings.
+     */
+    public AsciiMemcacheResponseDecoder() {
+        this(DEFAULT_MAX_LINE_LENGTH, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Create a new {@link AsciiMemcacheResponseDecoder} with custom settings.
+     *
+     * @param maxLineLength  the maximum length of a response line, excluding the {@code \r\n}.
+     * @param maxValueLength the maximum length of a data block.
+     */
+    public AsciiMemcacheResponseDecoder(int maxLineLength, int maxValueLength) {
+        this.maxLineLength = ObjectUtil.checkPositive(maxLineLength, "maxLineLength");
+        this.maxValueLength = ObjectUtil.checkPositiveOrZero(maxValueLength, "maxValueLength");
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        try {
+            for (;;) {
+                switch (state) {
+                    case READ_LINE:
+                        if (!readLine(in, out)) {
+                            return;
+                        }
+                        break;
+                    case READ_VALUE:
+                        if (!readValue(in, out)) {
+                            return;
+                        }
+                        break;
+                    case BAD_MESSAGE:
+                        in.skipBytes(in.readableBytes());
+                        return;
+                    default:
+                        throw new Error("Unknown state reached: " + state);
+                }
+            }
+        } catch (Exception e) {
+            in.skipBytes(in.readableBytes());
+            out.add(invalidMessage(e));
+        }
+    }
+
+    private boolean readLine(ByteBuf in, List<Object> out) {
+        int readerIndex = in.readerIndex();
+        // Search the LF of the CRLF, which may follow the line of the maximum length.
+        int searchLength = Math.min(in.readableBytes(), maxLineLength + 2);
+        int lfIndex = in.forEachByte(readerIndex, searchLength, ByteProcessor.FIND_LF);
+        if (lfIndex < 0) {
+            if (searchLength == maxLineLength + 2) {
+                throw new TooLongFrameException("response line is larger than " + maxLineLength + " bytes");
+            }
+            return false;
+        }
+        if (lfIndex == readerIndex || in.getByte(lfIndex - 1) != '\r') {
+            throw new DecoderException("response line does not end with CRLF");
+        }
+
+        List<String> tokens = tokenize(in, readerIndex, lfIndex - 1);
+        in.readerIndex(lfIndex + 1);
+        if (tokens.isEmpty()) {
+            throw new DecoderException("empty response line");
+        }
+        status = tokens.get(0);
+        arguments = tokens.size() == 1 ? Collections.<String>emptyList() : tokens.subList(1, tokens.size());
+
+        int valueLengthIndex = valueLengthIndex(status);
+        if (valueLengthIndex < 0) {
+            out.add(new DefaultAsciiMemcacheResponse(status, arguments));
+            resetDecoder();
+            return true;
+        }
+        if (arguments.size() <= valueLengthIndex) {
+            throw new DecoderException(status + " response without length of the data block");
+        }
+        valueLength = parseLength(arguments.get(valueLengthIndex));
+        if (valueLength > maxValueLength) {
+            throw new TooLongFrameException("data block is larger than " + maxValueLength + " bytes");
+        }
+        state = State.READ_VALUE;
+        return true;
+    }
+
+    private boolean readValue(ByteBuf in, List<Object> out) {
+        if (in.readableBytes() < valueLength + 2) {
+            return false;
+        }
+        if (in.getShort(in.readerIndex() + valueLength) != AsciiMemcacheRequestEncoder.CRLF_SHORT) {
+            throw new DecoderException("data block does not end with CRLF");
+        }
+        ByteBuf content = in.readRetainedSlice(valueLength);
+        in.skipBytes(2);
+        out.add(new DefaultAsciiMemcacheResponse(status, arguments, content));
+        resetDecoder();
+        return true;
+    }
+
+    private static List<String> tokenize(ByteBuf in, int start, int end) {
+        List<String> tokens = new ArrayList<String>(4);
+        int tokenStart = -1;
+        for (int i = start; i < end; i++) {
+            if (in.getByte(i) == ' ') {
+                if (tokenStart >= 0) {
+                    tokens.add(in.toString(tokenStart, i - tokenStart, CharsetUtil.US_ASCII));
+                    tokenStart = -1;
+                }
+            } else if (tokenStart < 0) {
+                tokenStart = i;
+            }
+        }
+        if (tokenStart >= 0) {
+            tokens.add(in.toString(tokenStart, end - tokenStart, CharsetUtil.US_ASCII));
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the index of the argument which holds the length of the data block that follows the response with
+     * the given status, or {@code -1} if there is no data block.
+     */
+    private static int valueLengthIndex(String status) {
+        if ("VALUE".equals(status)) {
+            // VALUE <key> <flags> <bytes> [<cas unique>]
+            return 2;
+        }
+        if ("VA".equals(status)) {
+            // VA <size> <flags>*
+            return 0;
+        }
+        return -1;
+    }
+
+    private static int parseLength(String value) {
+        int length = 0;
+        int digits = value.length();
+        if (digits == 0 || digits > 10) {
+            throw new DecoderException("invalid length of the data block: " + value);
+        }
+        for (int i = 0; i < digits; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new DecoderException("invalid length of the data block: " + value);
+            }
+            long l = length * 10L + (c - '0');
+            length = l > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) l;
+        }
+        return length;
+    }
+
+    private AsciiMemcacheResponse invalidMessage(Exception cause) {
+        resetDecoder();
+        state = State.BAD_MESSAGE;
+        AsciiMemcacheResponse message = new DefaultAsciiMemcacheResponse("", Collections.<String>emptyList(),
+                Unpooled.EMPTY_BUFFER);
+        message.setDecoderResult(DecoderResult.failure(cause));
+        return message;
+    }
+
+    /**
+     * Prepare for next decoding iteration.
+     */
+    protected void resetDecoder() {
+        state = State.READ_LINE;
+        status = null;
+        arguments = null;
+        valueLength = 0;
+    }
+
+    /**
+     * Contains all states this decoder can possibly be in.
+     */
+    enum State {
+        /**
+         * Currently reading a response line.
+         */
+        READ_LINE,
+
+        /**
+         * Currently waiting for the data block which follows the response line.
+         */
+        READ_VALUE,
+
+        /**
+         * Something went wrong while decoding a response.
+         */
+        BAD_MESSAGE
+    }
+}
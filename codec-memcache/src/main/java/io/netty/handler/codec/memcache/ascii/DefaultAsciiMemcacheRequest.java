@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The default implementation of a {@link AsciiMemcacheRequest}.
+ */
+@UnstableApi
+public class DefaultAsciiMemcacheRequest extends AbstractAsciiMemcacheMessage implements AsciiMemcacheRequest {
+
+    private final String command;
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheRequest} without content.
+     *
+     * @param command   the command, for example {@code "get"}.
+     * @param arguments the arguments which follow the command.
+     */
+    public DefaultAsciiMemcacheRequest(String command, String... arguments) {
+        this(command, Arrays.asList(ObjectUtil.checkNotNull(arguments, "arguments")), Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheRequest} without content.
+     *
+     * @param command   the command, for example {@code "get"}.
+     * @param arguments the arguments which follow the command.
+     */
+    public DefaultAsciiMemcacheRequest(String command, List<String> arguments) {
+        this(command, arguments, Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheRequest}.
+     *
+     * @param command   the command, for example {@code "get"}.
+     * @param arguments the arguments which follow the command.
+     * @param content   the data block.
+     */
+    public DefaultAsciiMemcacheRequest(String command, List<String> arguments, ByteBuf content) {
+        super(arguments, content);
+        this.command = ObjectUtil.checkNotNull(command, "command");
+    }
+
+    @Override
+    public String command() {
+        return command;
+    }
+
+    @Override
+    public AsciiMemcacheRequest copy() {
+        return (AsciiMemcacheRequest) super.copy();
+    }
+
+    @Override
+    public AsciiMemcacheRequest duplicate() {
+        return (AsciiMemcacheRequest) super.duplicate();
+    }
+
+    @Override
+    public AsciiMemcacheRequest retainedDuplicate() {
+        return (AsciiMemcacheRequest) super.retainedDuplicate();
+    }
+
+    @Override
+    public AsciiMemcacheRequest replace(ByteBuf content) {
+        DefaultAsciiMemcacheRequest newInstance = new DefaultAsciiMemcacheRequest(command, arguments(), content);
+        newInstance.setDecoderResult(decoderResult());
+        return newInstance;
+    }
+
+    @Override
+    public AsciiMemcacheRequest retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheRequest retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheRequest touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheRequest touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(StringUtil.simpleClassName(this))
+                .append('(').append(command);
+        appendArguments(buf);
+        return buf.append(", content: ").append(content().readableBytes()).append("B)").toString();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The default implementation of a {@link AsciiMemcacheResponse}.
+ */
+@UnstableApi
+public class DefaultAsciiMemcacheResponse extends AbstractAsciiMemcacheMessage implements AsciiMemcacheResponse {
+
+    private final String status;
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheResponse} without content.
+     *
+     * @param status    the first word of the response line, for example {@code "VALUE"}.
+     * @param arguments the arguments which follow the status.
+     */
+    public DefaultAsciiMemcacheResponse(String status, String... arguments) {
+        this(status, Arrays.asList(ObjectUtil.checkNotNull(arguments, "arguments")), Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheResponse} without content.
+     *
+     * @param status    the first word of the response line, for example {@code "VALUE"}.
+     * @param arguments the arguments which follow the status.
+     */
+    public DefaultAsciiMemcacheResponse(String status, List<String> arguments) {
+        this(status, arguments, Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Create a new {@link DefaultAsciiMemcacheResponse}.
+     *
+     * @param status    the first word of the response line, for example {@code "VALUE"}.
+     * @param arguments the arguments which follow the status.
+     * @param content   the data block.
+     */
+    public DefaultAsciiMemcacheResponse(String status, List<String> arguments, ByteBuf content) {
+        super(arguments, content);
+        this.status = ObjectUtil.checkNotNull(status, "status");
+    }
+
+    @Override
+    public String status() {
+        return status;
+    }
+
+    @Override
+    public AsciiMemcacheResponse copy() {
+        return (AsciiMemcacheResponse) super.copy();
+    }
+
+    @Override
+    public AsciiMemcacheResponse duplicate() {
+        return (AsciiMemcacheResponse) super.duplicate();
+    }
+
+    @Override
+    public AsciiMemcacheResponse retainedDuplicate() {
+        return (AsciiMemcacheResponse) super.retainedDuplicate();
+    }
+
+    @Override
+    public AsciiMemcacheResponse replace(ByteBuf content) {
+        DefaultAsciiMemcacheResponse newInstance = new DefaultAsciiMemcacheResponse(status, arguments(), content);
+        newInstance.setDecoderResult(decoderResult());
+        return newInstance;
+    }
+
+    @Override
+    public AsciiMemcacheResponse retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheResponse retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheResponse touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public AsciiMemcacheResponse touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(StringUtil.simpleClassName(this))
+                .append('(').append(status);
+        appendArguments(buf);
+        return buf.append(", content: ").append(content().readableBytes()).append("B)").toString();
+    }
+}
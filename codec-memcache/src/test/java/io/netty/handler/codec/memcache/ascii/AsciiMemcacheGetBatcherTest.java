@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the correct functionality of the {@link AsciiMemcacheGetBatcher}.
+ */
+public class AsciiMemcacheGetBatcherTest {
+
+    private EmbeddedChannel channel;
+    private AsciiMemcacheGetBatcher batcher;
+
+    @Before
+    public void setup() throws Exception {
+        batcher = new AsciiMemcacheGetBatcher(2);
+        channel = new EmbeddedChannel(new AsciiMemcacheClientCodec(), batcher);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void shouldMergeGets() {
+        Future<AsciiMemcacheResponse> foo1 = batcher.get("foo");
+        Future<AsciiMemcacheResponse> bar = batcher.get("bar");
+        Future<AsciiMemcacheResponse> foo2 = batcher.get("foo");
+        assertNull(channel.readOutbound());
+
+        channel.runPendingTasks();
+        assertEquals("get foo bar\r\n", readOutbound());
+        assertNull(channel.readOutbound());
+        assertEquals(1, batcher.inFlightRequests());
+
+        assertFalse(channel.writeInbound(buffer("VALUE foo 0 3\r\nabc\r\nEND\r\n")));
+        assertEquals(0, batcher.inFlightRequests());
+        assertValue(foo1, "abc");
+        assertValue(foo2, "abc");
+        assertTrue(bar.isSuccess());
+        assertNull(bar.getNow());
+    }
+
+    @Test
+    public void shouldSplitBatches() {
+        Future<AsciiMemcacheResponse> a = batcher.get("a");
+        Future<AsciiMemcacheResponse> b = batcher.get("b");
+        Future<AsciiMemcacheResponse> c = batcher.get("c");
+
+        channel.runPendingTasks();
+        assertEquals("get a b\r\n", readOutbound());
+        assertEquals("get c\r\n", readOutbound());
+        assertEquals(2, batcher.inFlightRequests());
+
+        assertFalse(channel.writeInbound(buffer("VALUE b 0 1\r\nB\r\nEND\r\nVALUE c 0 1\r\nC\r\nEND\r\n")));
+        assertNull(a.getNow());
+        assertValue(b, "B");
+        assertValue(c, "C");
+    }
+
+    @Test
+    public void shouldPassOnOtherResponses() {
+        assertTrue(channel.writeOutbound(new DefaultAsciiMemcacheRequest("delete", "foo", "noreply"),
+                new DefaultAsciiMemcacheRequest("stats")));
+        Future<AsciiMemcacheResponse> a = batcher.get("a");
+        channel.runPendingTasks();
+        assertEquals("delete foo noreply\r\n", readOutbound());
+        assertEquals("stats\r\n", readOutbound());
+        assertEquals("get a\r\n", readOutbound());
+
+        assertTrue(channel.writeInbound(buffer("STAT pid 1\r\nSTAT uptime 2\r\nEND\r\nVALUE a 0 1\r\nA\r\nEND\r\n")));
+        assertStatus("STAT");
+        assertStatus("STAT");
+        assertStatus("END");
+        assertNull(channel.readInbound());
+        assertValue(a, "A");
+    }
+
+    @Test
+    public void shouldFailOnErrorResponse() {
+        Future<AsciiMemcacheResponse> a = batcher.get("a");
+        channel.runPendingTasks();
+        assertEquals("get a\r\n", readOutbound());
+
+        assertFalse(channel.writeInbound(buffer("SERVER_ERROR busy\r\n")));
+        assertFalse(a.isSuccess());
+        assertNotNull(a.cause());
+    }
+
+    @Test
+    public void shouldFailOnClose() {
+        Future<AsciiMemcacheResponse> a = batcher.get("a");
+        channel.runPendingTasks();
+        Future<AsciiMemcacheResponse> b = batcher.get("b");
+        channel.close();
+
+        assertThat(a.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(b.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(batcher.get("c").cause(), instanceOf(ClosedChannelException.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidKey() {
+        batcher.get("a b");
+    }
+
+    private static void assertValue(Future<AsciiMemcacheResponse> future, String value) {
+        assertTrue(future.isSuccess());
+        AsciiMemcacheResponse response = future.getNow();
+        assertEquals("VALUE", response.status());
+        assertEquals(value, response.content().toString(CharsetUtil.US_ASCII));
+        response.release();
+    }
+
+    private void assertStatus(String status) {
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertEquals(status, response.status());
+        response.release();
+    }
+
+    private String readOutbound() {
+        ByteBuf buf = channel.readOutbound();
+        try {
+            return buf.toString(CharsetUtil.US_ASCII);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static ByteBuf buffer(String s) {
+        return Unpooled.copiedBuffer(s, CharsetUtil.US_ASCII);
+    }
+}
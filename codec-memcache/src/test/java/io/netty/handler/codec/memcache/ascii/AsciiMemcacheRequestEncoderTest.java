@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the correct functionality of the {@link AsciiMemcacheRequestEncoder}.
+ */
+public class AsciiMemcacheRequestEncoderTest {
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setup() throws Exception {
+        channel = new EmbeddedChannel(new AsciiMemcacheRequestEncoder());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void shouldEncodeRetrievalCommand() {
+        assertTrue(channel.writeOutbound(new DefaultAsciiMemcacheRequest("get", "foo", "bar")));
+        assertEquals("get foo bar\r\n", readOutbound());
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void shouldEncodeStorageCommand() {
+        ByteBuf content = Unpooled.copiedBuffer("value", CharsetUtil.US_ASCII);
+        assertTrue(channel.writeOutbound(
+                new DefaultAsciiMemcacheRequest("set", Arrays.asList("foo", "0", "0", "5"), content)));
+        assertEquals("set foo 0 0 5\r\nvalue\r\n", readOutbound());
+        assertNull(channel.readOutbound());
+        assertEquals(0, content.refCnt());
+    }
+
+    @Test
+    public void shouldNotCopyLargeContent() {
+        byte[] value = new byte[4096];
+        Arrays.fill(value, (byte) 'a');
+        ByteBuf content = Unpooled.wrappedBuffer(value);
+        assertTrue(channel.writeOutbound(
+                new DefaultAsciiMemcacheRequest("ms", Arrays.asList("foo", "4096", "T0"), content)));
+        assertEquals("ms foo 4096 T0\r\n", readOutbound());
+        ByteBuf written = channel.readOutbound();
+        assertSame(content, written);
+        assertEquals(4096, written.readableBytes());
+        written.release();
+        assertEquals("\r\n", readOutbound());
+        assertNull(channel.readOutbound());
+    }
+
+    @Test(expected = EncoderException.class)
+    public void shouldRejectContentOfRetrievalCommand() {
+        channel.writeOutbound(new DefaultAsciiMemcacheRequest("get", Arrays.asList("foo"),
+                Unpooled.copiedBuffer("value", CharsetUtil.US_ASCII)));
+    }
+
+    @Test(expected = EncoderException.class)
+    public void shouldRejectKeyWithWhitespace() {
+        channel.writeOutbound(new DefaultAsciiMemcacheRequest("get", "foo\r\nflush_all"));
+    }
+
+    private String readOutbound() {
+        ByteBuf buf = channel.readOutbound();
+        try {
+            return buf.toString(CharsetUtil.US_ASCII);
+        } finally {
+            buf.release();
+        }
+    }
+}
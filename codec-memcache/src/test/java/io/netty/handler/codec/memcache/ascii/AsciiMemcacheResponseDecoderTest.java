@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.memcache.ascii;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the correct functionality of the {@link AsciiMemcacheResponseDecoder}.
+ */
+public class AsciiMemcacheResponseDecoderTest {
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setup() throws Exception {
+        channel = new EmbeddedChannel(new AsciiMemcacheResponseDecoder(64, 16));
+    }
+
+    @After
+    public void teardown() throws Exception {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void shouldDecodeValuesAsSlices() {
+        ByteBuf in = buffer("VALUE foo 0 3 42\r\nbar\r\nVALUE baz 7 0\r\n\r\nEND\r\n");
+        assertTrue(channel.writeInbound(in));
+
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertEquals("VALUE", response.status());
+        assertEquals(Arrays.asList("foo", "0", "3", "42"), response.arguments());
+        assertEquals("bar", response.content().toString(CharsetUtil.US_ASCII));
+        // The content is a slice of the received buffer.
+        assertSame(in, response.content().unwrap());
+        response.release();
+
+        response = channel.readInbound();
+        assertEquals("VALUE", response.status());
+        assertEquals(Arrays.asList("baz", "7", "0"), response.arguments());
+        assertFalse(response.content().isReadable());
+        response.release();
+
+        assertStatus("END");
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void shouldDecodeFragmentedValue() {
+        String input = "VA 5 f1\r\nhello\r\nHD\r\n";
+        for (int i = 0; i < input.length(); i++) {
+            channel.writeInbound(buffer(input.substring(i, i + 1)));
+        }
+
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertEquals("VA", response.status());
+        assertEquals(Arrays.asList("5", "f1"), response.arguments());
+        assertEquals("hello", response.content().toString(CharsetUtil.US_ASCII));
+        response.release();
+
+        assertStatus("HD");
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void shouldDecodeLinesWithoutValue() {
+        assertTrue(channel.writeInbound(buffer("STORED\r\nSERVER_ERROR out of memory\r\n42\r\n")));
+        assertStatus("STORED");
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertEquals("SERVER_ERROR", response.status());
+        assertEquals(Arrays.asList("out", "of", "memory"), response.arguments());
+        response.release();
+        assertStatus("42");
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void shouldRejectTooLongValue() {
+        assertTrue(channel.writeInbound(buffer("VALUE foo 0 17\r\n")));
+        assertFailure(TooLongFrameException.class);
+
+        // All further input is discarded.
+        assertFalse(channel.writeInbound(buffer("END\r\n")));
+    }
+
+    @Test
+    public void shouldRejectTooLongLine() {
+        byte[] line = new byte[80];
+        Arrays.fill(line, (byte) 'a');
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(line)));
+        assertFailure(TooLongFrameException.class);
+    }
+
+    @Test
+    public void shouldRejectValueWithoutCrlf() {
+        assertTrue(channel.writeInbound(buffer("VALUE foo 0 3\r\nbarbaz\r\n")));
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertTrue(response.decoderResult().isFailure());
+        response.release();
+    }
+
+    private void assertStatus(String status) {
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertEquals(status, response.status());
+        assertFalse(response.content().isReadable());
+        response.release();
+    }
+
+    private void assertFailure(Class<? extends Throwable> cause) {
+        AsciiMemcacheResponse response = channel.readInbound();
+        assertTrue(response.decoderResult().isFailure());
+        assertThat(response.decoderResult().cause(), instanceOf(cause));
+        response.release();
+        assertNull(channel.readInbound());
+    }
+
+    private static ByteBuf buffer(String s) {
+        return Unpooled.copiedBuffer(s, CharsetUtil.US_ASCII);
+    }
+}
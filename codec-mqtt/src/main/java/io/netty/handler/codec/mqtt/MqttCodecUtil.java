@@ -16,7 +16,9 @@
 
 package io.netty.handler.codec.mqtt;
 
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.DecoderException;
+import io.netty.util.AttributeKey;
 
 final class MqttCodecUtil {
 
@@ -24,6 +26,21 @@ final class MqttCodecUtil {
     private static final int MIN_CLIENT_ID_LENGTH = 1;
     private static final int MAX_CLIENT_ID_LENGTH = 23;
 
+    /**
+     * The {@link MqttVersion} of the connection, which is set by the {@link MqttEncoder} or {@link MqttDecoder}
+     * once a {@link MqttConnectMessage} was processed.
+     */
+    static final AttributeKey<MqttVersion> MQTT_VERSION_KEY = AttributeKey.valueOf("NETTY_CODEC_MQTT_VERSION");
+
+    static MqttVersion getMqttVersion(ChannelHandlerContext ctx) {
+        MqttVersion mqttVersion = ctx.channel().attr(MQTT_VERSION_KEY).get();
+        return mqttVersion == null ? MqttVersion.MQTT_3_1_1 : mqttVersion;
+    }
+
+    static void setMqttVersion(ChannelHandlerContext ctx, MqttVersion mqttVersion) {
+        ctx.channel().attr(MQTT_VERSION_KEY).set(mqttVersion);
+    }
+
     static boolean isValidPublishTopicName(String topicName) {
         // publish topic name must not contain any wildcard
         for (char c : TOPIC_WILDCARDS) {
@@ -43,7 +60,7 @@ final class MqttCodecUtil {
             return clientId != null && clientId.length() >= MIN_CLIENT_ID_LENGTH &&
                 clientId.length() <= MAX_CLIENT_ID_LENGTH;
         }
-        if (mqttVersion == MqttVersion.MQTT_3_1_1) {
+        if (mqttVersion == MqttVersion.MQTT_3_1_1 || mqttVersion == MqttVersion.MQTT_5) {
             // In 3.1.3.1 Client Identifier of MQTT 3.1.1 specification, The Server MAY allow ClientId’s
             // that contain more than 23 encoded bytes. And, The Server MAY allow zero-length ClientId.
             return clientId != null;
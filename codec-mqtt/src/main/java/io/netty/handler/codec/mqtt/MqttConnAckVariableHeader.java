@@ -16,6 +16,7 @@
 
 package io.netty.handler.codec.mqtt;
 
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
 /**
@@ -26,10 +27,17 @@ public final class MqttConnAckVariableHeader {
     private final MqttConnectReturnCode connectReturnCode;
 
     private final boolean sessionPresent;
+    private final MqttProperties properties;
 
     public MqttConnAckVariableHeader(MqttConnectReturnCode connectReturnCode, boolean sessionPresent) {
+        this(connectReturnCode, sessionPresent, MqttProperties.NO_PROPERTIES);
+    }
+
+    public MqttConnAckVariableHeader(MqttConnectReturnCode connectReturnCode, boolean sessionPresent,
+                                     MqttProperties properties) {
         this.connectReturnCode = connectReturnCode;
         this.sessionPresent = sessionPresent;
+        this.properties = ObjectUtil.checkNotNull(properties, "properties");
     }
 
     public MqttConnectReturnCode connectReturnCode() {
@@ -40,12 +48,20 @@ public final class MqttConnAckVariableHeader {
         return sessionPresent;
     }
 
+    /**
+     * Returns the MQTT 5 properties, which are always empty for earlier versions.
+     */
+    public MqttProperties properties() {
+        return properties;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder(StringUtil.simpleClassName(this))
             .append('[')
             .append("connectReturnCode=").append(connectReturnCode)
             .append(", sessionPresent=").append(sessionPresent)
+            .append(", properties=").append(properties)
             .append(']')
             .toString();
     }
@@ -19,6 +19,7 @@ package io.netty.handler.codec.mqtt;
 import java.util.Arrays;
 
 import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
 /**
@@ -31,6 +32,7 @@ public final class MqttConnectPayload {
     private final byte[] willMessage;
     private final String userName;
     private final byte[] password;
+    private final MqttProperties willProperties;
 
     /**
      * @deprecated use {@link MqttConnectPayload#MqttConnectPayload(String, String, byte[], String, byte[])} instead
@@ -56,17 +58,35 @@ public final class MqttConnectPayload {
             byte[] willMessage,
             String userName,
             byte[] password) {
+        this(clientIdentifier, MqttProperties.NO_PROPERTIES, willTopic, willMessage, userName, password);
+    }
+
+    public MqttConnectPayload(
+            String clientIdentifier,
+            MqttProperties willProperties,
+            String willTopic,
+            byte[] willMessage,
+            String userName,
+            byte[] password) {
         this.clientIdentifier = clientIdentifier;
         this.willTopic = willTopic;
         this.willMessage = willMessage;
         this.userName = userName;
         this.password = password;
+        this.willProperties = ObjectUtil.checkNotNull(willProperties, "willProperties");
     }
 
     public String clientIdentifier() {
         return clientIdentifier;
     }
 
+    /**
+     * Returns the MQTT 5 will properties, which are always empty for earlier versions.
+     */
+    public MqttProperties willProperties() {
+        return willProperties;
+    }
+
     public String willTopic() {
         return willTopic;
     }
@@ -104,6 +124,7 @@ public final class MqttConnectPayload {
         return new StringBuilder(StringUtil.simpleClassName(this))
             .append('[')
             .append("clientIdentifier=").append(clientIdentifier)
+            .append(", willProperties=").append(willProperties)
             .append(", willTopic=").append(willTopic)
             .append(", willMessage=").append(Arrays.toString(willMessage))
             .append(", userName=").append(userName)
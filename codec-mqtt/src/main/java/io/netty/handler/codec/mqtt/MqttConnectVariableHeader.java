@@ -16,6 +16,7 @@
 
 package io.netty.handler.codec.mqtt;
 
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
 /**
@@ -32,6 +33,7 @@ public final class MqttConnectVariableHeader {
     private final boolean isWillFlag;
     private final boolean isCleanSession;
     private final int keepAliveTimeSeconds;
+    private final MqttProperties properties;
 
     public MqttConnectVariableHeader(
             String name,
@@ -43,6 +45,21 @@ public final class MqttConnectVariableHeader {
             boolean isWillFlag,
             boolean isCleanSession,
             int keepAliveTimeSeconds) {
+        this(name, version, hasUserName, hasPassword, isWillRetain, willQos, isWillFlag, isCleanSession,
+                keepAliveTimeSeconds, MqttProperties.NO_PROPERTIES);
+    }
+
+    public MqttConnectVariableHeader(
+            String name,
+            int version,
+            boolean hasUserName,
+            boolean hasPassword,
+            boolean isWillRetain,
+            int willQos,
+            boolean isWillFlag,
+            boolean isCleanSession,
+            int keepAliveTimeSeconds,
+            MqttProperties properties) {
         this.name = name;
         this.version = version;
         this.hasUserName = hasUserName;
@@ -52,6 +69,7 @@ public final class MqttConnectVariableHeader {
         this.isWillFlag = isWillFlag;
         this.isCleanSession = isCleanSession;
         this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+        this.properties = ObjectUtil.checkNotNull(properties, "properties");
     }
 
     public String name() {
@@ -90,6 +108,13 @@ public final class MqttConnectVariableHeader {
         return keepAliveTimeSeconds;
     }
 
+    /**
+     * Returns the MQTT 5 properties, which are always empty for earlier versions.
+     */
+    public MqttProperties properties() {
+        return properties;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder(StringUtil.simpleClassName(this))
@@ -102,6 +127,7 @@ public final class MqttConnectVariableHeader {
             .append(", isWillFlag=").append(isWillFlag)
             .append(", isCleanSession=").append(isCleanSession)
             .append(", keepAliveTimeSeconds=").append(keepAliveTimeSeconds)
+            .append(", properties=").append(properties)
             .append(']')
             .toString();
     }
@@ -18,26 +18,35 @@ package io.netty.handler.codec.mqtt;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
-import io.netty.handler.codec.ReplayingDecoder;
-import io.netty.handler.codec.mqtt.MqttDecoder.DecoderState;
 import io.netty.util.CharsetUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static io.netty.handler.codec.mqtt.MqttCodecUtil.getMqttVersion;
 import static io.netty.handler.codec.mqtt.MqttCodecUtil.isValidClientId;
 import static io.netty.handler.codec.mqtt.MqttCodecUtil.isValidMessageId;
 import static io.netty.handler.codec.mqtt.MqttCodecUtil.isValidPublishTopicName;
 import static io.netty.handler.codec.mqtt.MqttCodecUtil.resetUnusedFields;
+import static io.netty.handler.codec.mqtt.MqttCodecUtil.setMqttVersion;
 import static io.netty.handler.codec.mqtt.MqttCodecUtil.validateFixedHeader;
 
 /**
  * Decodes Mqtt messages from bytes, following
  * <a href="http://public.dhe.ibm.com/software/dw/webservices/ws-mqtt/mqtt-v3r1.html">
  *     the MQTT protocol specification v3.1</a>
+ * <p>
+ * The decoder keeps its parse state across reads and only starts to decode a part of a message once all of its
+ * bytes were received, so partially received messages are never parsed more than once. The payload of a
+ * {@link MqttPublishMessage} is a retained slice of the received bytes.
+ * <p>
+ * MQTT 5 messages are decoded once a {@link MqttConnectMessage} of that version was decoded or encoded on the
+ * {@link io.netty.channel.Channel}. Their properties are exposed as {@link MqttProperties}.
  */
-public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
+public final class MqttDecoder extends ByteToMessageDecoder {
 
     private static final int DEFAULT_MAX_BYTES_IN_MESSAGE = 8092;
 
@@ -53,53 +62,105 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         BAD_MESSAGE,
     }
 
+    private DecoderState state = DecoderState.READ_FIXED_HEADER;
     private MqttFixedHeader mqttFixedHeader;
     private Object variableHeader;
     private int bytesRemainingInVariablePart;
+    // Topic names of the MQTT 5 topic aliases received on this connection, index 0 holds topic alias 1.
+    private String[] topicAliases;
 
     private final int maxBytesInMessage;
+    private final int maxTopicAlias;
 
     public MqttDecoder() {
       this(DEFAULT_MAX_BYTES_IN_MESSAGE);
     }
 
     public MqttDecoder(int maxBytesInMessage) {
-        super(DecoderState.READ_FIXED_HEADER);
+        this(maxBytesInMessage, 0);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxBytesInMessage the maximum number of bytes of the variable header and payload of a message
+     * @param maxTopicAlias the highest MQTT 5 topic alias which is accepted and resolved to its topic name, which
+     *                      should match the Topic Alias Maximum sent to the peer. If {@code 0} topic aliases are not
+     *                      resolved and passed on as they were received.
+     */
+    public MqttDecoder(int maxBytesInMessage, int maxTopicAlias) {
+        if (maxTopicAlias < 0 || maxTopicAlias > 0xFFFF) {
+            throw new IllegalArgumentException("maxTopicAlias: " + maxTopicAlias + " (expected: 0-65535)");
+        }
         this.maxBytesInMessage = maxBytesInMessage;
+        this.maxTopicAlias = maxTopicAlias;
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-        switch (state()) {
+        switch (state) {
             case READ_FIXED_HEADER: try {
-                mqttFixedHeader = decodeFixedHeader(buffer);
+                final MqttFixedHeader decodedFixedHeader = decodeFixedHeader(buffer);
+                if (decodedFixedHeader == null) {
+                    // The remaining length was not received completely yet.
+                    return;
+                }
+                mqttFixedHeader = decodedFixedHeader;
                 bytesRemainingInVariablePart = mqttFixedHeader.remainingLength();
-                checkpoint(DecoderState.READ_VARIABLE_HEADER);
+                state = DecoderState.READ_VARIABLE_HEADER;
                 // fall through
             } catch (Exception cause) {
-                out.add(invalidMessage(cause));
+                out.add(invalidMessage(buffer, cause));
                 return;
             }
 
             case READ_VARIABLE_HEADER:  try {
-                final Result<?> decodedVariableHeader = decodeVariableHeader(buffer, mqttFixedHeader);
+                final MqttVersion mqttVersion = getMqttVersion(ctx);
+                final int variableHeaderLength = variableHeaderLength(
+                        buffer, mqttFixedHeader, mqttVersion, bytesRemainingInVariablePart);
+                if (variableHeaderLength < 0) {
+                    return;
+                }
+                if (variableHeaderLength > bytesRemainingInVariablePart) {
+                    throw new DecoderException(
+                            "variable header exceeds remaining length: " +
+                                    mqttFixedHeader.remainingLength() + " (" + mqttFixedHeader.messageType() + ')');
+                }
+                if (buffer.readableBytes() < variableHeaderLength) {
+                    if (variableHeaderLength > maxBytesInMessage) {
+                        // Don't wait for the variable header of a message which is too large anyway.
+                        throw new DecoderException("too large message: " + bytesRemainingInVariablePart + " bytes");
+                    }
+                    return;
+                }
+                final Result<?> decodedVariableHeader =
+                        decodeVariableHeader(ctx, buffer, mqttFixedHeader, mqttVersion, bytesRemainingInVariablePart);
                 variableHeader = decodedVariableHeader.value;
                 if (bytesRemainingInVariablePart > maxBytesInMessage) {
                     throw new DecoderException("too large message: " + bytesRemainingInVariablePart + " bytes");
                 }
                 bytesRemainingInVariablePart -= decodedVariableHeader.numberOfBytesConsumed;
-                checkpoint(DecoderState.READ_PAYLOAD);
+                if (variableHeader instanceof MqttPublishVariableHeader) {
+                    variableHeader = resolveTopicAlias((MqttPublishVariableHeader) variableHeader);
+                }
+                state = DecoderState.READ_PAYLOAD;
                 // fall through
             } catch (Exception cause) {
-                out.add(invalidMessage(cause));
+                out.add(invalidMessage(buffer, cause));
                 return;
             }
 
             case READ_PAYLOAD: try {
+                if (buffer.readableBytes() < bytesRemainingInVariablePart) {
+                    return;
+                }
+                // Decode from a slice so a malformed payload can not consume the bytes of the next message.
+                final ByteBuf payload = buffer.readSlice(bytesRemainingInVariablePart);
                 final Result<?> decodedPayload =
                         decodePayload(
-                                buffer,
+                                payload,
                                 mqttFixedHeader.messageType(),
+                                getMqttVersion(ctx),
                                 bytesRemainingInVariablePart,
                                 variableHeader);
                 bytesRemainingInVariablePart -= decodedPayload.numberOfBytesConsumed;
@@ -108,7 +169,7 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
                             "non-zero remaining payload bytes: " +
                                     bytesRemainingInVariablePart + " (" + mqttFixedHeader.messageType() + ')');
                 }
-                checkpoint(DecoderState.READ_FIXED_HEADER);
+                state = DecoderState.READ_FIXED_HEADER;
                 MqttMessage message = MqttMessageFactory.newMessage(
                         mqttFixedHeader, variableHeader, decodedPayload.value);
                 mqttFixedHeader = null;
@@ -116,13 +177,13 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
                 out.add(message);
                 break;
             } catch (Exception cause) {
-                out.add(invalidMessage(cause));
+                out.add(invalidMessage(buffer, cause));
                 return;
             }
 
             case BAD_MESSAGE:
                 // Keep discarding until disconnection.
-                buffer.skipBytes(actualReadableBytes());
+                buffer.skipBytes(buffer.readableBytes());
                 break;
 
             default:
@@ -131,8 +192,10 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         }
     }
 
-    private MqttMessage invalidMessage(Throwable cause) {
-      checkpoint(DecoderState.BAD_MESSAGE);
+    private MqttMessage invalidMessage(ByteBuf in, Throwable cause) {
+      state = DecoderState.BAD_MESSAGE;
+      // The rest is discarded anyway, skip it now so ByteToMessageDecoder sees that something was consumed.
+      in.skipBytes(in.readableBytes());
       return MqttMessageFactory.newInvalidMessage(mqttFixedHeader, variableHeader, cause);
     }
 
@@ -140,10 +203,13 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
      * Decodes the fixed header. It's one byte for the flags and then variable bytes for the remaining length.
      *
      * @param buffer the buffer to decode from
-     * @return the fixed header
+     * @return the fixed header or {@code null} if the remaining length could not be decoded yet, in which case no
+     *         bytes were consumed.
      */
     private static MqttFixedHeader decodeFixedHeader(ByteBuf buffer) {
-        short b1 = buffer.readUnsignedByte();
+        int index = buffer.readerIndex();
+        final int writerIndex = buffer.writerIndex();
+        short b1 = buffer.getUnsignedByte(index++);
 
         MqttMessageType messageType = MqttMessageType.valueOf(b1 >> 4);
         boolean dupFlag = (b1 & 0x08) == 0x08;
@@ -155,7 +221,10 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         short digit;
         int loops = 0;
         do {
-            digit = buffer.readUnsignedByte();
+            if (index == writerIndex) {
+                return null;
+            }
+            digit = buffer.getUnsignedByte(index++);
             remainingLength += (digit & 127) * multiplier;
             multiplier *= 128;
             loops++;
@@ -165,48 +234,160 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         if (loops == 4 && (digit & 128) != 0) {
             throw new DecoderException("remaining length exceeds 4 digits (" + messageType + ')');
         }
+        buffer.readerIndex(index);
         MqttFixedHeader decodedFixedHeader =
                 new MqttFixedHeader(messageType, dupFlag, MqttQoS.valueOf(qosLevel), retain, remainingLength);
         return validateFixedHeader(resetUnusedFields(decodedFixedHeader));
     }
 
+    /**
+     * Returns the length of the variable header (if any) without consuming any bytes.
+     *
+     * @param buffer the buffer to decode from
+     * @param mqttFixedHeader MqttFixedHeader of the same message
+     * @param mqttVersion the MQTT version of the connection
+     * @param bytesRemainingInVariablePart bytes remaining
+     * @return the length of the variable header or {@code -1} if it can not be determined yet
+     */
+    private static int variableHeaderLength(
+            ByteBuf buffer,
+            MqttFixedHeader mqttFixedHeader,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
+        final int readerIndex = buffer.readerIndex();
+        final boolean mqtt5 = mqttVersion == MqttVersion.MQTT_5;
+        switch (mqttFixedHeader.messageType()) {
+            case CONNECT: {
+                // protocol name, protocol level, connect flags and keep alive
+                final int protocolNameLength = stringLength(buffer, readerIndex);
+                if (protocolNameLength < 0 || buffer.writerIndex() <= readerIndex + protocolNameLength) {
+                    return -1;
+                }
+                // The version of the connection is only known once the protocol level was received.
+                final byte protocolLevel = buffer.getByte(readerIndex + protocolNameLength);
+                return propertiesLength(
+                        buffer, protocolNameLength + 4, protocolLevel == MqttVersion.MQTT_5.protocolLevel());
+            }
+
+            case CONNACK:
+            case SUBSCRIBE:
+            case UNSUBSCRIBE:
+            case SUBACK:
+            case UNSUBACK:
+                return propertiesLength(buffer, 2, mqtt5);
+
+            case PUBACK:
+            case PUBREC:
+            case PUBCOMP:
+            case PUBREL:
+                if (!mqtt5 || bytesRemainingInVariablePart <= 3) {
+                    // The reason code and properties are optional in MQTT 5.
+                    return mqtt5 ? Math.max(2, bytesRemainingInVariablePart) : 2;
+                }
+                return propertiesLength(buffer, 3, true);
+
+            case PUBLISH: {
+                final int topicNameLength = stringLength(buffer, readerIndex);
+                if (topicNameLength < 0) {
+                    return -1;
+                }
+                return propertiesLength(buffer,
+                        mqttFixedHeader.qosLevel().value() > 0 ? topicNameLength + 2 : topicNameLength, mqtt5);
+            }
+
+            case DISCONNECT:
+                if (!mqtt5 || bytesRemainingInVariablePart <= 1) {
+                    // The reason code and properties are optional in MQTT 5.
+                    return mqtt5 ? bytesRemainingInVariablePart : 0;
+                }
+                return propertiesLength(buffer, 1, true);
+
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns {@code length} plus the length of the properties which follow it if {@code hasProperties} is
+     * {@code true}, or {@code -1} if the length of the properties can not be determined yet.
+     */
+    private static int propertiesLength(ByteBuf buffer, int length, boolean hasProperties) {
+        if (!hasProperties) {
+            return length;
+        }
+        final int propertiesLength = MqttProperties.peekLength(buffer, buffer.readerIndex() + length);
+        return propertiesLength < 0 ? -1 : length + propertiesLength;
+    }
+
+    /**
+     * Returns the length of the string at {@code index} including its length prefix or {@code -1} if the
+     * length prefix was not received yet.
+     */
+    private static int stringLength(ByteBuf buffer, int index) {
+        if (buffer.writerIndex() - index < 2) {
+            return -1;
+        }
+        return 2 + buffer.getUnsignedShort(index);
+    }
+
     /**
      * Decodes the variable header (if any)
+     * @param ctx the context of the decoder
      * @param buffer the buffer to decode from
      * @param mqttFixedHeader MqttFixedHeader of the same message
+     * @param mqttVersion the MQTT version of the connection
+     * @param bytesRemainingInVariablePart bytes remaining
      * @return the variable header
      */
-    private static Result<?> decodeVariableHeader(ByteBuf buffer, MqttFixedHeader mqttFixedHeader) {
+    private static Result<?> decodeVariableHeader(
+            ChannelHandlerContext ctx,
+            ByteBuf buffer,
+            MqttFixedHeader mqttFixedHeader,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
         switch (mqttFixedHeader.messageType()) {
             case CONNECT:
-                return decodeConnectionVariableHeader(buffer);
+                final Result<MqttConnectVariableHeader> decodedConnectVariableHeader =
+                        decodeConnectionVariableHeader(buffer, bytesRemainingInVariablePart);
+                final MqttConnectVariableHeader connectVariableHeader = decodedConnectVariableHeader.value;
+                setMqttVersion(ctx, MqttVersion.fromProtocolNameAndLevel(
+                        connectVariableHeader.name(), (byte) connectVariableHeader.version()));
+                return decodedConnectVariableHeader;
 
             case CONNACK:
-                return decodeConnAckVariableHeader(buffer);
+                return decodeConnAckVariableHeader(buffer, mqttVersion, bytesRemainingInVariablePart);
 
             case SUBSCRIBE:
             case UNSUBSCRIBE:
             case SUBACK:
             case UNSUBACK:
+                return decodeMessageIdAndPropertiesVariableHeader(buffer, mqttVersion, bytesRemainingInVariablePart);
+
             case PUBACK:
             case PUBREC:
             case PUBCOMP:
             case PUBREL:
-                return decodeMessageIdVariableHeader(buffer);
+                return decodePubReplyMessageVariableHeader(buffer, mqttVersion, bytesRemainingInVariablePart);
 
             case PUBLISH:
-                return decodePublishVariableHeader(buffer, mqttFixedHeader);
+                return decodePublishVariableHeader(buffer, mqttFixedHeader, mqttVersion, bytesRemainingInVariablePart);
 
+            case DISCONNECT:
+                if (mqttVersion == MqttVersion.MQTT_5) {
+                    return decodeReasonCodeAndPropertiesVariableHeader(buffer, bytesRemainingInVariablePart);
+                }
+                // fall through
             case PINGREQ:
             case PINGRESP:
-            case DISCONNECT:
                 // Empty variable header
                 return new Result<Object>(null, 0);
         }
         return new Result<Object>(null, 0); //should never reach here
     }
 
-    private static Result<MqttConnectVariableHeader> decodeConnectionVariableHeader(ByteBuf buffer) {
+    private static Result<MqttConnectVariableHeader> decodeConnectionVariableHeader(
+            ByteBuf buffer,
+            int bytesRemainingInVariablePart) {
         final Result<String> protoString = decodeString(buffer);
         int numberOfBytesConsumed = protoString.numberOfBytesConsumed;
 
@@ -227,7 +408,7 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         final int willQos = (b1 & 0x18) >> 3;
         final boolean willFlag = (b1 & 0x04) == 0x04;
         final boolean cleanSession = (b1 & 0x02) == 0x02;
-        if (mqttVersion == MqttVersion.MQTT_3_1_1) {
+        if (mqttVersion != MqttVersion.MQTT_3_1) {
             final boolean zeroReservedFlag = (b1 & 0x01) == 0x0;
             if (!zeroReservedFlag) {
                 // MQTT v3.1.1: The Server MUST validate that the reserved flag in the CONNECT Control Packet is
@@ -237,6 +418,12 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
             }
         }
 
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (mqttVersion == MqttVersion.MQTT_5) {
+            properties = MqttProperties.decode(buffer, bytesRemainingInVariablePart - numberOfBytesConsumed);
+            numberOfBytesConsumed += properties.encodedLength();
+        }
+
         final MqttConnectVariableHeader mqttConnectVariableHeader = new MqttConnectVariableHeader(
                 mqttVersion.protocolName(),
                 mqttVersion.protocolLevel(),
@@ -246,29 +433,95 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
                 willQos,
                 willFlag,
                 cleanSession,
-                keepAlive.value);
+                keepAlive.value,
+                properties);
         return new Result<MqttConnectVariableHeader>(mqttConnectVariableHeader, numberOfBytesConsumed);
     }
 
-    private static Result<MqttConnAckVariableHeader> decodeConnAckVariableHeader(ByteBuf buffer) {
+    private static Result<MqttConnAckVariableHeader> decodeConnAckVariableHeader(
+            ByteBuf buffer,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
         final boolean sessionPresent = (buffer.readUnsignedByte() & 0x01) == 0x01;
         byte returnCode = buffer.readByte();
-        final int numberOfBytesConsumed = 2;
+        int numberOfBytesConsumed = 2;
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (mqttVersion == MqttVersion.MQTT_5) {
+            properties = MqttProperties.decode(buffer, bytesRemainingInVariablePart - numberOfBytesConsumed);
+            numberOfBytesConsumed += properties.encodedLength();
+        }
         final MqttConnAckVariableHeader mqttConnAckVariableHeader =
-                new MqttConnAckVariableHeader(MqttConnectReturnCode.valueOf(returnCode), sessionPresent);
+                new MqttConnAckVariableHeader(MqttConnectReturnCode.valueOf(returnCode), sessionPresent, properties);
         return new Result<MqttConnAckVariableHeader>(mqttConnAckVariableHeader, numberOfBytesConsumed);
     }
 
-    private static Result<MqttMessageIdVariableHeader> decodeMessageIdVariableHeader(ByteBuf buffer) {
+    private static Result<MqttMessageIdVariableHeader> decodeMessageIdAndPropertiesVariableHeader(
+            ByteBuf buffer,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
+        final Result<Integer> messageId = decodeMessageId(buffer);
+        if (mqttVersion != MqttVersion.MQTT_5) {
+            return new Result<MqttMessageIdVariableHeader>(
+                    MqttMessageIdVariableHeader.from(messageId.value),
+                    messageId.numberOfBytesConsumed);
+        }
+        final MqttProperties properties =
+                MqttProperties.decode(buffer, bytesRemainingInVariablePart - messageId.numberOfBytesConsumed);
+        return new Result<MqttMessageIdVariableHeader>(
+                new MqttMessageIdAndPropertiesVariableHeader(messageId.value, properties),
+                messageId.numberOfBytesConsumed + properties.encodedLength());
+    }
+
+    private static Result<MqttMessageIdVariableHeader> decodePubReplyMessageVariableHeader(
+            ByteBuf buffer,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
         final Result<Integer> messageId = decodeMessageId(buffer);
+        if (mqttVersion != MqttVersion.MQTT_5) {
+            return new Result<MqttMessageIdVariableHeader>(
+                    MqttMessageIdVariableHeader.from(messageId.value),
+                    messageId.numberOfBytesConsumed);
+        }
+        int numberOfBytesConsumed = messageId.numberOfBytesConsumed;
+        byte reasonCode = MqttPubReplyMessageVariableHeader.REASON_CODE_OK;
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (bytesRemainingInVariablePart > numberOfBytesConsumed) {
+            reasonCode = buffer.readByte();
+            numberOfBytesConsumed++;
+            if (bytesRemainingInVariablePart > numberOfBytesConsumed) {
+                properties = MqttProperties.decode(buffer, bytesRemainingInVariablePart - numberOfBytesConsumed);
+                numberOfBytesConsumed += properties.encodedLength();
+            }
+        }
         return new Result<MqttMessageIdVariableHeader>(
-                MqttMessageIdVariableHeader.from(messageId.value),
-                messageId.numberOfBytesConsumed);
+                new MqttPubReplyMessageVariableHeader(messageId.value, reasonCode, properties),
+                numberOfBytesConsumed);
+    }
+
+    private static Result<MqttReasonCodeAndPropertiesVariableHeader> decodeReasonCodeAndPropertiesVariableHeader(
+            ByteBuf buffer,
+            int bytesRemainingInVariablePart) {
+        int numberOfBytesConsumed = 0;
+        byte reasonCode = MqttReasonCodeAndPropertiesVariableHeader.REASON_CODE_OK;
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (bytesRemainingInVariablePart > 0) {
+            reasonCode = buffer.readByte();
+            numberOfBytesConsumed++;
+            if (bytesRemainingInVariablePart > 1) {
+                properties = MqttProperties.decode(buffer, bytesRemainingInVariablePart - numberOfBytesConsumed);
+                numberOfBytesConsumed += properties.encodedLength();
+            }
+        }
+        return new Result<MqttReasonCodeAndPropertiesVariableHeader>(
+                new MqttReasonCodeAndPropertiesVariableHeader(reasonCode, properties),
+                numberOfBytesConsumed);
     }
 
     private static Result<MqttPublishVariableHeader> decodePublishVariableHeader(
             ByteBuf buffer,
-            MqttFixedHeader mqttFixedHeader) {
+            MqttFixedHeader mqttFixedHeader,
+            MqttVersion mqttVersion,
+            int bytesRemainingInVariablePart) {
         final Result<String> decodedTopic = decodeString(buffer);
         if (!isValidPublishTopicName(decodedTopic.value)) {
             throw new DecoderException("invalid publish topic name: " + decodedTopic.value + " (contains wildcards)");
@@ -281,11 +534,51 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
             messageId = decodedMessageId.value;
             numberOfBytesConsumed += decodedMessageId.numberOfBytesConsumed;
         }
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (mqttVersion == MqttVersion.MQTT_5) {
+            properties = MqttProperties.decode(buffer, bytesRemainingInVariablePart - numberOfBytesConsumed);
+            numberOfBytesConsumed += properties.encodedLength();
+        }
         final MqttPublishVariableHeader mqttPublishVariableHeader =
-                new MqttPublishVariableHeader(decodedTopic.value, messageId);
+                new MqttPublishVariableHeader(decodedTopic.value, messageId, properties);
         return new Result<MqttPublishVariableHeader>(mqttPublishVariableHeader, numberOfBytesConsumed);
     }
 
+    /**
+     * Resolves the topic name of a MQTT 5 {@link MqttProperties#TOPIC_ALIAS} using the aliases which were
+     * established on this connection before, or establishes a new alias.
+     */
+    private MqttPublishVariableHeader resolveTopicAlias(MqttPublishVariableHeader variableHeader) {
+        if (maxTopicAlias == 0) {
+            return variableHeader;
+        }
+        final int topicAlias = variableHeader.properties().integerProperty(MqttProperties.TOPIC_ALIAS, -1);
+        if (topicAlias == -1) {
+            return variableHeader;
+        }
+        if (topicAlias == 0 || topicAlias > maxTopicAlias) {
+            throw new DecoderException("invalid topic alias: " + topicAlias + " (expected: 1-" + maxTopicAlias + ')');
+        }
+        final String topicName = variableHeader.topicName();
+        if (topicName.isEmpty()) {
+            final String aliasedTopicName =
+                    topicAliases != null && topicAlias <= topicAliases.length ? topicAliases[topicAlias - 1] : null;
+            if (aliasedTopicName == null) {
+                throw new DecoderException("unknown topic alias: " + topicAlias);
+            }
+            return new MqttPublishVariableHeader(
+                    aliasedTopicName, variableHeader.packetId(), variableHeader.properties());
+        }
+        if (topicAliases == null || topicAlias > topicAliases.length) {
+            // Grow the aliases on demand as most clients only use a few of them.
+            final int newLength = Math.min(maxTopicAlias, Math.max(16, Integer.highestOneBit(topicAlias) << 1));
+            topicAliases = topicAliases == null ?
+                    new String[newLength] : Arrays.copyOf(topicAliases, newLength);
+        }
+        topicAliases[topicAlias - 1] = topicName;
+        return variableHeader;
+    }
+
     private static Result<Integer> decodeMessageId(ByteBuf buffer) {
         final Result<Integer> messageId = decodeMsbLsb(buffer);
         if (!isValidMessageId(messageId.value)) {
@@ -299,6 +592,7 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
      *
      * @param buffer the buffer to decode from
      * @param messageType  type of the message being decoded
+     * @param mqttVersion the MQTT version of the connection
      * @param bytesRemainingInVariablePart bytes remaining
      * @param variableHeader variable header of the same message
      * @return the payload
@@ -306,6 +600,7 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
     private static Result<?> decodePayload(
             ByteBuf buffer,
             MqttMessageType messageType,
+            MqttVersion mqttVersion,
             int bytesRemainingInVariablePart,
             Object variableHeader) {
         switch (messageType) {
@@ -316,11 +611,17 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
                 return decodeSubscribePayload(buffer, bytesRemainingInVariablePart);
 
             case SUBACK:
-                return decodeSubackPayload(buffer, bytesRemainingInVariablePart);
+                return decodeSubackPayload(buffer, mqttVersion, bytesRemainingInVariablePart);
 
             case UNSUBSCRIBE:
                 return decodeUnsubscribePayload(buffer, bytesRemainingInVariablePart);
 
+            case UNSUBACK:
+                if (mqttVersion == MqttVersion.MQTT_5) {
+                    return decodeUnsubAckPayload(buffer, bytesRemainingInVariablePart);
+                }
+                return new Result<Object>(null, 0);
+
             case PUBLISH:
                 return decodePublishPayload(buffer, bytesRemainingInVariablePart);
 
@@ -342,9 +643,14 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         }
         int numberOfBytesConsumed = decodedClientId.numberOfBytesConsumed;
 
+        MqttProperties willProperties = MqttProperties.NO_PROPERTIES;
         Result<String> decodedWillTopic = null;
         Result<byte[]> decodedWillMessage = null;
         if (mqttConnectVariableHeader.isWillFlag()) {
+            if (mqttVersion == MqttVersion.MQTT_5) {
+                willProperties = MqttProperties.decode(buffer, buffer.readableBytes());
+                numberOfBytesConsumed += willProperties.encodedLength();
+            }
             decodedWillTopic = decodeString(buffer, 0, 32767);
             numberOfBytesConsumed += decodedWillTopic.numberOfBytesConsumed;
             decodedWillMessage = decodeByteArray(buffer);
@@ -364,6 +670,7 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
         final MqttConnectPayload mqttConnectPayload =
                 new MqttConnectPayload(
                         decodedClientId.value,
+                        willProperties,
                         decodedWillTopic != null ? decodedWillTopic.value : null,
                         decodedWillMessage != null ? decodedWillMessage.value : null,
                         decodedUserName != null ? decodedUserName.value : null,
@@ -388,12 +695,14 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
 
     private static Result<MqttSubAckPayload> decodeSubackPayload(
             ByteBuf buffer,
+            MqttVersion mqttVersion,
             int bytesRemainingInVariablePart) {
         final List<Integer> grantedQos = new ArrayList<Integer>();
         int numberOfBytesConsumed = 0;
         while (numberOfBytesConsumed < bytesRemainingInVariablePart) {
             int qos = buffer.readUnsignedByte();
-            if (qos != MqttQoS.FAILURE.value()) {
+            // MQTT 5 defines several reason codes for failures, earlier versions only one.
+            if (mqttVersion == MqttVersion.MQTT_5 ? qos < MqttQoS.FAILURE.value() : qos != MqttQoS.FAILURE.value()) {
                 qos &= 0x03;
             }
             numberOfBytesConsumed++;
@@ -417,6 +726,18 @@ public final class MqttDecoder extends ReplayingDecoder<DecoderState> {
                 numberOfBytesConsumed);
     }
 
+    private static Result<MqttUnsubAckPayload> decodeUnsubAckPayload(
+            ByteBuf buffer,
+            int bytesRemainingInVariablePart) {
+        final List<Short> reasonCodes = new ArrayList<Short>(bytesRemainingInVariablePart);
+        for (int i = 0; i < bytesRemainingInVariablePart; i++) {
+            reasonCodes.add(buffer.readUnsignedByte());
+        }
+        return new Result<MqttUnsubAckPayload>(
+                new MqttUnsubAckPayload(reasonCodes),
+                bytesRemainingInVariablePart);
+    }
+
     private static Result<ByteBuf> decodePublishPayload(ByteBuf buffer, int bytesRemainingInVariablePart) {
         ByteBuf b = buffer.readRetainedSlice(bytesRemainingInVariablePart);
         return new Result<ByteBuf>(b, bytesRemainingInVariablePart);
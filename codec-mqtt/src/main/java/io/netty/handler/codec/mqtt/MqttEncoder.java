@@ -32,6 +32,9 @@ import static io.netty.handler.codec.mqtt.MqttCodecUtil.*;
 /**
  * Encodes Mqtt messages into bytes following the protocol specification v3.1
  * as described here <a href="http://public.dhe.ibm.com/software/dw/webservices/ws-mqtt/mqtt-v3r1.html">MQTTV3.1</a>
+ * <p>
+ * Messages are encoded for MQTT 5 once a {@link MqttConnectMessage} of that version was encoded or decoded on the
+ * {@link io.netty.channel.Channel}.
  */
 @ChannelHandler.Sharable
 public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
@@ -42,48 +45,62 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, MqttMessage msg, List<Object> out) throws Exception {
-        out.add(doEncode(ctx.alloc(), msg));
+        out.add(doEncode(ctx, msg));
     }
 
     /**
      * This is the main encoding method.
      * It's only visible for testing.
      *
-     * @param byteBufAllocator Allocates ByteBuf
+     * @param ctx the context of the encoder, which provides the MQTT version of the connection
      * @param message MQTT message to encode
      * @return ByteBuf with encoded bytes
      */
-    static ByteBuf doEncode(ByteBufAllocator byteBufAllocator, MqttMessage message) {
-
+    static ByteBuf doEncode(ChannelHandlerContext ctx, MqttMessage message) {
+        final ByteBufAllocator byteBufAllocator = ctx.alloc();
         switch (message.fixedHeader().messageType()) {
             case CONNECT:
-                return encodeConnectMessage(byteBufAllocator, (MqttConnectMessage) message);
+                return encodeConnectMessage(ctx, (MqttConnectMessage) message);
 
             case CONNACK:
-                return encodeConnAckMessage(byteBufAllocator, (MqttConnAckMessage) message);
+                return encodeConnAckMessage(byteBufAllocator, getMqttVersion(ctx), (MqttConnAckMessage) message);
 
             case PUBLISH:
-                return encodePublishMessage(byteBufAllocator, (MqttPublishMessage) message);
+                return encodePublishMessage(byteBufAllocator, getMqttVersion(ctx), (MqttPublishMessage) message);
 
             case SUBSCRIBE:
-                return encodeSubscribeMessage(byteBufAllocator, (MqttSubscribeMessage) message);
+                return encodeSubscribeMessage(byteBufAllocator, getMqttVersion(ctx), (MqttSubscribeMessage) message);
 
             case UNSUBSCRIBE:
-                return encodeUnsubscribeMessage(byteBufAllocator, (MqttUnsubscribeMessage) message);
+                return encodeUnsubscribeMessage(
+                        byteBufAllocator, getMqttVersion(ctx), (MqttUnsubscribeMessage) message);
 
             case SUBACK:
-                return encodeSubAckMessage(byteBufAllocator, (MqttSubAckMessage) message);
+                return encodeSubAckMessage(byteBufAllocator, getMqttVersion(ctx), (MqttSubAckMessage) message);
 
             case UNSUBACK:
+                if (getMqttVersion(ctx) == MqttVersion.MQTT_5) {
+                    return encodeUnsubAckMessage(byteBufAllocator, (MqttUnsubAckMessage) message);
+                }
+                return encodeMessageWithOnlySingleByteFixedHeaderAndMessageId(byteBufAllocator, message);
+
             case PUBACK:
             case PUBREC:
             case PUBREL:
             case PUBCOMP:
+                if (getMqttVersion(ctx) == MqttVersion.MQTT_5) {
+                    return encodePubReplyMessage(byteBufAllocator, message);
+                }
                 return encodeMessageWithOnlySingleByteFixedHeaderAndMessageId(byteBufAllocator, message);
 
+            case DISCONNECT:
+                if (getMqttVersion(ctx) == MqttVersion.MQTT_5) {
+                    return encodeReasonCodeAndPropertiesMessage(byteBufAllocator, message);
+                }
+                return encodeMessageWithOnlySingleByteFixedHeader(byteBufAllocator, message);
+
             case PINGREQ:
             case PINGRESP:
-            case DISCONNECT:
                 return encodeMessageWithOnlySingleByteFixedHeader(byteBufAllocator, message);
 
             default:
@@ -93,7 +110,7 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
     }
 
     private static ByteBuf encodeConnectMessage(
-            ByteBufAllocator byteBufAllocator,
+            ChannelHandlerContext ctx,
             MqttConnectMessage message) {
         int payloadBufferSize = 0;
 
@@ -102,6 +119,8 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         MqttConnectPayload payload = message.payload();
         MqttVersion mqttVersion = MqttVersion.fromProtocolNameAndLevel(variableHeader.name(),
                 (byte) variableHeader.version());
+        setMqttVersion(ctx, mqttVersion);
+        final boolean mqtt5 = mqttVersion == MqttVersion.MQTT_5;
 
         // as MQTT 3.1 & 3.1.1 spec, If the User Name Flag is set to 0, the Password Flag MUST be set to 0
         if (!variableHeader.hasUserName() && variableHeader.hasPassword()) {
@@ -121,7 +140,11 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         byte[] willTopicBytes = willTopic != null ? encodeStringUtf8(willTopic) : EmptyArrays.EMPTY_BYTES;
         byte[] willMessage = payload.willMessageInBytes();
         byte[] willMessageBytes = willMessage != null ? willMessage : EmptyArrays.EMPTY_BYTES;
+        MqttProperties willProperties = mqtt5 ? payload.willProperties() : null;
         if (variableHeader.isWillFlag()) {
+            if (mqtt5) {
+                payloadBufferSize += willProperties.encodedLength();
+            }
             payloadBufferSize += 2 + willTopicBytes.length;
             payloadBufferSize += 2 + willMessageBytes.length;
         }
@@ -140,10 +163,12 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
 
         // Fixed header
         byte[] protocolNameBytes = mqttVersion.protocolNameBytes();
-        int variableHeaderBufferSize = 2 + protocolNameBytes.length + 4;
+        MqttProperties properties = mqtt5 ? variableHeader.properties() : null;
+        int variableHeaderBufferSize = 2 + protocolNameBytes.length + 4 +
+                (mqtt5 ? properties.encodedLength() : 0);
         int variablePartSize = variableHeaderBufferSize + payloadBufferSize;
         int fixedHeaderBufferSize = 1 + getVariableLengthInt(variablePartSize);
-        ByteBuf buf = byteBufAllocator.buffer(fixedHeaderBufferSize + variablePartSize);
+        ByteBuf buf = ctx.alloc().buffer(fixedHeaderBufferSize + variablePartSize);
         buf.writeByte(getFixedHeaderByte1(mqttFixedHeader));
         writeVariableLengthInt(buf, variablePartSize);
 
@@ -153,11 +178,17 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         buf.writeByte(variableHeader.version());
         buf.writeByte(getConnVariableHeaderFlag(variableHeader));
         buf.writeShort(variableHeader.keepAliveTimeSeconds());
+        if (mqtt5) {
+            properties.encode(buf);
+        }
 
         // Payload
         buf.writeShort(clientIdentifierBytes.length);
         buf.writeBytes(clientIdentifierBytes, 0, clientIdentifierBytes.length);
         if (variableHeader.isWillFlag()) {
+            if (mqtt5) {
+                willProperties.encode(buf);
+            }
             buf.writeShort(willTopicBytes.length);
             buf.writeBytes(willTopicBytes, 0, willTopicBytes.length);
             buf.writeShort(willMessageBytes.length);
@@ -197,24 +228,33 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
 
     private static ByteBuf encodeConnAckMessage(
             ByteBufAllocator byteBufAllocator,
+            MqttVersion mqttVersion,
             MqttConnAckMessage message) {
-        ByteBuf buf = byteBufAllocator.buffer(4);
+        MqttProperties properties = mqttVersion == MqttVersion.MQTT_5 ? message.variableHeader().properties() : null;
+        int variablePartSize = 2 + (properties != null ? properties.encodedLength() : 0);
+        int fixedHeaderBufferSize = 1 + getVariableLengthInt(variablePartSize);
+        ByteBuf buf = byteBufAllocator.buffer(fixedHeaderBufferSize + variablePartSize);
         buf.writeByte(getFixedHeaderByte1(message.fixedHeader()));
-        buf.writeByte(2);
+        writeVariableLengthInt(buf, variablePartSize);
         buf.writeByte(message.variableHeader().isSessionPresent() ? 0x01 : 0x00);
         buf.writeByte(message.variableHeader().connectReturnCode().byteValue());
+        if (properties != null) {
+            properties.encode(buf);
+        }
 
         return buf;
     }
 
     private static ByteBuf encodeSubscribeMessage(
             ByteBufAllocator byteBufAllocator,
+            MqttVersion mqttVersion,
             MqttSubscribeMessage message) {
-        int variableHeaderBufferSize = 2;
-        int payloadBufferSize = 0;
-
         MqttFixedHeader mqttFixedHeader = message.fixedHeader();
         MqttMessageIdVariableHeader variableHeader = message.variableHeader();
+        MqttProperties properties = mqttVersion == MqttVersion.MQTT_5 ? properties(variableHeader) : null;
+        int variableHeaderBufferSize = 2 + (properties != null ? properties.encodedLength() : 0);
+        int payloadBufferSize = 0;
+
         MqttSubscribePayload payload = message.payload();
 
         for (MqttTopicSubscription topic : payload.topicSubscriptions()) {
@@ -234,6 +274,9 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         // Variable Header
         int messageId = variableHeader.messageId();
         buf.writeShort(messageId);
+        if (properties != null) {
+            properties.encode(buf);
+        }
 
         // Payload
         for (MqttTopicSubscription topic : payload.topicSubscriptions()) {
@@ -249,12 +292,14 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
 
     private static ByteBuf encodeUnsubscribeMessage(
             ByteBufAllocator byteBufAllocator,
+            MqttVersion mqttVersion,
             MqttUnsubscribeMessage message) {
-        int variableHeaderBufferSize = 2;
-        int payloadBufferSize = 0;
-
         MqttFixedHeader mqttFixedHeader = message.fixedHeader();
         MqttMessageIdVariableHeader variableHeader = message.variableHeader();
+        MqttProperties properties = mqttVersion == MqttVersion.MQTT_5 ? properties(variableHeader) : null;
+        int variableHeaderBufferSize = 2 + (properties != null ? properties.encodedLength() : 0);
+        int payloadBufferSize = 0;
+
         MqttUnsubscribePayload payload = message.payload();
 
         for (String topicName : payload.topics()) {
@@ -272,6 +317,9 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         // Variable Header
         int messageId = variableHeader.messageId();
         buf.writeShort(messageId);
+        if (properties != null) {
+            properties.encode(buf);
+        }
 
         // Payload
         for (String topicName : payload.topics()) {
@@ -285,8 +333,11 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
 
     private static ByteBuf encodeSubAckMessage(
             ByteBufAllocator byteBufAllocator,
+            MqttVersion mqttVersion,
             MqttSubAckMessage message) {
-        int variableHeaderBufferSize = 2;
+        MqttProperties properties =
+                mqttVersion == MqttVersion.MQTT_5 ? properties(message.variableHeader()) : null;
+        int variableHeaderBufferSize = 2 + (properties != null ? properties.encodedLength() : 0);
         int payloadBufferSize = message.payload().grantedQoSLevels().size();
         int variablePartSize = variableHeaderBufferSize + payloadBufferSize;
         int fixedHeaderBufferSize = 1 + getVariableLengthInt(variablePartSize);
@@ -294,6 +345,9 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         buf.writeByte(getFixedHeaderByte1(message.fixedHeader()));
         writeVariableLengthInt(buf, variablePartSize);
         buf.writeShort(message.variableHeader().messageId());
+        if (properties != null) {
+            properties.encode(buf);
+        }
         for (int qos : message.payload().grantedQoSLevels()) {
             buf.writeByte(qos);
         }
@@ -301,8 +355,32 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         return buf;
     }
 
+    private static ByteBuf encodeUnsubAckMessage(
+            ByteBufAllocator byteBufAllocator,
+            MqttUnsubAckMessage message) {
+        MqttProperties properties = properties(message.variableHeader());
+        MqttUnsubAckPayload payload = message.payload();
+        int variableHeaderBufferSize = 2 + properties.encodedLength();
+        int payloadBufferSize = payload != null ? payload.unsubscribeReasonCodes().size() : 0;
+        int variablePartSize = variableHeaderBufferSize + payloadBufferSize;
+        int fixedHeaderBufferSize = 1 + getVariableLengthInt(variablePartSize);
+        ByteBuf buf = byteBufAllocator.buffer(fixedHeaderBufferSize + variablePartSize);
+        buf.writeByte(getFixedHeaderByte1(message.fixedHeader()));
+        writeVariableLengthInt(buf, variablePartSize);
+        buf.writeShort(message.variableHeader().messageId());
+        properties.encode(buf);
+        if (payload != null) {
+            for (Short reasonCode : payload.unsubscribeReasonCodes()) {
+                buf.writeByte(reasonCode);
+            }
+        }
+
+        return buf;
+    }
+
     private static ByteBuf encodePublishMessage(
             ByteBufAllocator byteBufAllocator,
+            MqttVersion mqttVersion,
             MqttPublishMessage message) {
         MqttFixedHeader mqttFixedHeader = message.fixedHeader();
         MqttPublishVariableHeader variableHeader = message.variableHeader();
@@ -311,8 +389,10 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         String topicName = variableHeader.topicName();
         byte[] topicNameBytes = encodeStringUtf8(topicName);
 
+        MqttProperties properties = mqttVersion == MqttVersion.MQTT_5 ? variableHeader.properties() : null;
         int variableHeaderBufferSize = 2 + topicNameBytes.length +
-                (mqttFixedHeader.qosLevel().value() > 0 ? 2 : 0);
+                (mqttFixedHeader.qosLevel().value() > 0 ? 2 : 0) +
+                (properties != null ? properties.encodedLength() : 0);
         int payloadBufferSize = payload.readableBytes();
         int variablePartSize = variableHeaderBufferSize + payloadBufferSize;
         int fixedHeaderBufferSize = 1 + getVariableLengthInt(variablePartSize);
@@ -325,6 +405,9 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         if (mqttFixedHeader.qosLevel().value() > 0) {
             buf.writeShort(variableHeader.packetId());
         }
+        if (properties != null) {
+            properties.encode(buf);
+        }
         buf.writeBytes(payload);
 
         return buf;
@@ -347,6 +430,79 @@ public final class MqttEncoder extends MessageToMessageEncoder<MqttMessage> {
         return buf;
     }
 
+    private static ByteBuf encodePubReplyMessage(
+            ByteBufAllocator byteBufAllocator,
+            MqttMessage message) {
+        MqttFixedHeader mqttFixedHeader = message.fixedHeader();
+        MqttMessageIdVariableHeader variableHeader = (MqttMessageIdVariableHeader) message.variableHeader();
+        byte reasonCode = MqttPubReplyMessageVariableHeader.REASON_CODE_OK;
+        if (variableHeader instanceof MqttPubReplyMessageVariableHeader) {
+            reasonCode = ((MqttPubReplyMessageVariableHeader) variableHeader).reasonCode();
+        }
+        MqttProperties properties = properties(variableHeader);
+
+        // The reason code may be omitted if it is 0 and there are no properties, and so may be the properties.
+        int variableHeaderBufferSize = 2;
+        if (!properties.isEmpty()) {
+            variableHeaderBufferSize += 1 + properties.encodedLength();
+        } else if (reasonCode != MqttPubReplyMessageVariableHeader.REASON_CODE_OK) {
+            variableHeaderBufferSize += 1;
+        }
+        int fixedHeaderBufferSize = 1 + getVariableLengthInt(variableHeaderBufferSize);
+        ByteBuf buf = byteBufAllocator.buffer(fixedHeaderBufferSize + variableHeaderBufferSize);
+        buf.writeByte(getFixedHeaderByte1(mqttFixedHeader));
+        writeVariableLengthInt(buf, variableHeaderBufferSize);
+        buf.writeShort(variableHeader.messageId());
+        if (variableHeaderBufferSize > 2) {
+            buf.writeByte(reasonCode);
+            if (!properties.isEmpty()) {
+                properties.encode(buf);
+            }
+        }
+
+        return buf;
+    }
+
+    private static ByteBuf encodeReasonCodeAndPropertiesMessage(
+            ByteBufAllocator byteBufAllocator,
+            MqttMessage message) {
+        byte reasonCode = MqttReasonCodeAndPropertiesVariableHeader.REASON_CODE_OK;
+        MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        if (message.variableHeader() instanceof MqttReasonCodeAndPropertiesVariableHeader) {
+            MqttReasonCodeAndPropertiesVariableHeader variableHeader =
+                    (MqttReasonCodeAndPropertiesVariableHeader) message.variableHeader();
+            reasonCode = variableHeader.reasonCode();
+            properties = variableHeader.properties();
+        }
+
+        // The reason code may be omitted if it is 0 and there are no properties, and so may be the properties.
+        int variableHeaderBufferSize = 0;
+        if (!properties.isEmpty()) {
+            variableHeaderBufferSize = 1 + properties.encodedLength();
+        } else if (reasonCode != MqttReasonCodeAndPropertiesVariableHeader.REASON_CODE_OK) {
+            variableHeaderBufferSize = 1;
+        }
+        int fixedHeaderBufferSize = 1 + getVariableLengthInt(variableHeaderBufferSize);
+        ByteBuf buf = byteBufAllocator.buffer(fixedHeaderBufferSize + variableHeaderBufferSize);
+        buf.writeByte(getFixedHeaderByte1(message.fixedHeader()));
+        writeVariableLengthInt(buf, variableHeaderBufferSize);
+        if (variableHeaderBufferSize > 0) {
+            buf.writeByte(reasonCode);
+            if (!properties.isEmpty()) {
+                properties.encode(buf);
+            }
+        }
+
+        return buf;
+    }
+
+    private static MqttProperties properties(MqttMessageIdVariableHeader variableHeader) {
+        if (variableHeader instanceof MqttMessageIdAndPropertiesVariableHeader) {
+            return ((MqttMessageIdAndPropertiesVariableHeader) variableHeader).properties();
+        }
+        return MqttProperties.NO_PROPERTIES;
+    }
+
     private static ByteBuf encodeMessageWithOnlySingleByteFixedHeader(
             ByteBufAllocator byteBufAllocator,
             MqttMessage message) {
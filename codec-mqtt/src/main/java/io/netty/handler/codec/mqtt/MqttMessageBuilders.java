@@ -30,6 +30,7 @@ public final class MqttMessageBuilders {
         private MqttQoS qos;
         private ByteBuf payload;
         private int messageId;
+        private MqttProperties properties = MqttProperties.NO_PROPERTIES;
 
         PublishBuilder() {
         }
@@ -59,9 +60,18 @@ public final class MqttMessageBuilders {
             return this;
         }
 
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public PublishBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
         public MqttPublishMessage build() {
             MqttFixedHeader mqttFixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, qos, retained, 0);
-            MqttPublishVariableHeader mqttVariableHeader = new MqttPublishVariableHeader(topic, messageId);
+            MqttPublishVariableHeader mqttVariableHeader =
+                    new MqttPublishVariableHeader(topic, messageId, properties);
             return new MqttPublishMessage(mqttFixedHeader, mqttVariableHeader, Unpooled.buffer().writeBytes(payload));
         }
     }
@@ -81,6 +91,8 @@ public final class MqttMessageBuilders {
         private byte[] willMessage;
         private String username;
         private byte[] password;
+        private MqttProperties properties = MqttProperties.NO_PROPERTIES;
+        private MqttProperties willProperties = MqttProperties.NO_PROPERTIES;
 
         ConnectBuilder() {
         }
@@ -170,6 +182,22 @@ public final class MqttMessageBuilders {
             return this;
         }
 
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public ConnectBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        /**
+         * Sets the MQTT 5 will properties, which are ignored for earlier versions.
+         */
+        public ConnectBuilder willProperties(MqttProperties willProperties) {
+            this.willProperties = willProperties;
+            return this;
+        }
+
         public MqttConnectMessage build() {
             MqttFixedHeader mqttFixedHeader =
                     new MqttFixedHeader(MqttMessageType.CONNECT, false, MqttQoS.AT_MOST_ONCE, false, 0);
@@ -183,9 +211,10 @@ public final class MqttMessageBuilders {
                             willQos.value(),
                             willFlag,
                             cleanSession,
-                            keepAliveSecs);
+                            keepAliveSecs,
+                            properties);
             MqttConnectPayload mqttConnectPayload =
-                    new MqttConnectPayload(clientId, willTopic, willMessage, username, password);
+                    new MqttConnectPayload(clientId, willProperties, willTopic, willMessage, username, password);
             return new MqttConnectMessage(mqttFixedHeader, mqttConnectVariableHeader, mqttConnectPayload);
         }
     }
@@ -194,6 +223,7 @@ public final class MqttMessageBuilders {
 
         private List<MqttTopicSubscription> subscriptions;
         private int messageId;
+        private MqttProperties properties;
 
         SubscribeBuilder() {
         }
@@ -211,10 +241,18 @@ public final class MqttMessageBuilders {
             return this;
         }
 
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public SubscribeBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
         public MqttSubscribeMessage build() {
             MqttFixedHeader mqttFixedHeader =
                     new MqttFixedHeader(MqttMessageType.SUBSCRIBE, false, MqttQoS.AT_LEAST_ONCE, false, 0);
-            MqttMessageIdVariableHeader mqttVariableHeader = MqttMessageIdVariableHeader.from(messageId);
+            MqttMessageIdVariableHeader mqttVariableHeader = messageIdVariableHeader(messageId, properties);
             MqttSubscribePayload mqttSubscribePayload = new MqttSubscribePayload(subscriptions);
             return new MqttSubscribeMessage(mqttFixedHeader, mqttVariableHeader, mqttSubscribePayload);
         }
@@ -224,6 +262,7 @@ public final class MqttMessageBuilders {
 
         private List<String> topicFilters;
         private int messageId;
+        private MqttProperties properties;
 
         UnsubscribeBuilder() {
         }
@@ -241,10 +280,18 @@ public final class MqttMessageBuilders {
             return this;
         }
 
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public UnsubscribeBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
         public MqttUnsubscribeMessage build() {
             MqttFixedHeader mqttFixedHeader =
                     new MqttFixedHeader(MqttMessageType.UNSUBSCRIBE, false, MqttQoS.AT_LEAST_ONCE, false, 0);
-            MqttMessageIdVariableHeader mqttVariableHeader = MqttMessageIdVariableHeader.from(messageId);
+            MqttMessageIdVariableHeader mqttVariableHeader = messageIdVariableHeader(messageId, properties);
             MqttUnsubscribePayload mqttSubscribePayload = new MqttUnsubscribePayload(topicFilters);
             return new MqttUnsubscribeMessage(mqttFixedHeader, mqttVariableHeader, mqttSubscribePayload);
         }
@@ -254,6 +301,7 @@ public final class MqttMessageBuilders {
 
         private MqttConnectReturnCode returnCode;
         private boolean sessionPresent;
+        private MqttProperties properties = MqttProperties.NO_PROPERTIES;
 
         ConnAckBuilder() {
         }
@@ -268,15 +316,100 @@ public final class MqttMessageBuilders {
             return this;
         }
 
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public ConnAckBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
         public MqttConnAckMessage build() {
             MqttFixedHeader mqttFixedHeader =
                     new MqttFixedHeader(MqttMessageType.CONNACK, false, MqttQoS.AT_MOST_ONCE, false, 0);
             MqttConnAckVariableHeader mqttConnAckVariableHeader =
-                    new MqttConnAckVariableHeader(returnCode, sessionPresent);
+                    new MqttConnAckVariableHeader(returnCode, sessionPresent, properties);
             return new MqttConnAckMessage(mqttFixedHeader, mqttConnAckVariableHeader);
         }
     }
 
+    public static final class PubAckBuilder {
+
+        private int packetId;
+        private byte reasonCode;
+        private MqttProperties properties = MqttProperties.NO_PROPERTIES;
+
+        PubAckBuilder() {
+        }
+
+        public PubAckBuilder packetId(int packetId) {
+            this.packetId = packetId;
+            return this;
+        }
+
+        /**
+         * Sets the MQTT 5 reason code, which is ignored for earlier versions.
+         */
+        public PubAckBuilder reasonCode(byte reasonCode) {
+            this.reasonCode = reasonCode;
+            return this;
+        }
+
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public PubAckBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        public MqttPubAckMessage build() {
+            MqttFixedHeader mqttFixedHeader =
+                    new MqttFixedHeader(MqttMessageType.PUBACK, false, MqttQoS.AT_MOST_ONCE, false, 0);
+            MqttPubReplyMessageVariableHeader mqttPubAckVariableHeader =
+                    new MqttPubReplyMessageVariableHeader(packetId, reasonCode, properties);
+            return new MqttPubAckMessage(mqttFixedHeader, mqttPubAckVariableHeader);
+        }
+    }
+
+    public static final class DisconnectBuilder {
+
+        private byte reasonCode;
+        private MqttProperties properties = MqttProperties.NO_PROPERTIES;
+
+        DisconnectBuilder() {
+        }
+
+        /**
+         * Sets the MQTT 5 reason code, which is ignored for earlier versions.
+         */
+        public DisconnectBuilder reasonCode(byte reasonCode) {
+            this.reasonCode = reasonCode;
+            return this;
+        }
+
+        /**
+         * Sets the MQTT 5 properties, which are ignored for earlier versions.
+         */
+        public DisconnectBuilder properties(MqttProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        public MqttMessage build() {
+            MqttFixedHeader mqttFixedHeader =
+                    new MqttFixedHeader(MqttMessageType.DISCONNECT, false, MqttQoS.AT_MOST_ONCE, false, 0);
+            MqttReasonCodeAndPropertiesVariableHeader mqttDisconnectVariableHeader =
+                    new MqttReasonCodeAndPropertiesVariableHeader(reasonCode, properties);
+            return new MqttMessage(mqttFixedHeader, mqttDisconnectVariableHeader);
+        }
+    }
+
+    private static MqttMessageIdVariableHeader messageIdVariableHeader(int messageId, MqttProperties properties) {
+        return properties == null ? MqttMessageIdVariableHeader.from(messageId) :
+                new MqttMessageIdAndPropertiesVariableHeader(messageId, properties);
+    }
+
     public static ConnectBuilder connect() {
         return new ConnectBuilder();
     }
@@ -297,6 +430,14 @@ public final class MqttMessageBuilders {
         return new UnsubscribeBuilder();
     }
 
+    public static PubAckBuilder pubAck() {
+        return new PubAckBuilder();
+    }
+
+    public static DisconnectBuilder disconnect() {
+        return new DisconnectBuilder();
+    }
+
     private MqttMessageBuilders() {
     }
 }
@@ -0,0 +1,616 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MQTT 5 properties of a message.
+ * <p>
+ * The properties are kept in their encoded form and are only decoded when they are accessed, so decoding a message
+ * never creates a {@link String} for a property the application is not interested in.
+ * See <a href="https://docs.oasis-open.org/mqtt/mqtt/v5.0/os/mqtt-v5.0-os.html#_Toc3901027">
+ *     the MQTT 5 specification</a> for the meaning of the properties.
+ */
+public final class MqttProperties {
+
+    public static final int PAYLOAD_FORMAT_INDICATOR = 0x01;
+    public static final int MESSAGE_EXPIRY_INTERVAL = 0x02;
+    public static final int CONTENT_TYPE = 0x03;
+    public static final int RESPONSE_TOPIC = 0x08;
+    public static final int CORRELATION_DATA = 0x09;
+    public static final int SUBSCRIPTION_IDENTIFIER = 0x0B;
+    public static final int SESSION_EXPIRY_INTERVAL = 0x11;
+    public static final int ASSIGNED_CLIENT_IDENTIFIER = 0x12;
+    public static final int SERVER_KEEP_ALIVE = 0x13;
+    public static final int AUTHENTICATION_METHOD = 0x15;
+    public static final int AUTHENTICATION_DATA = 0x16;
+    public static final int REQUEST_PROBLEM_INFORMATION = 0x17;
+    public static final int WILL_DELAY_INTERVAL = 0x18;
+    public static final int REQUEST_RESPONSE_INFORMATION = 0x19;
+    public static final int RESPONSE_INFORMATION = 0x1A;
+    public static final int SERVER_REFERENCE = 0x1C;
+    public static final int REASON_STRING = 0x1F;
+    public static final int RECEIVE_MAXIMUM = 0x21;
+    public static final int TOPIC_ALIAS_MAXIMUM = 0x22;
+    public static final int TOPIC_ALIAS = 0x23;
+    public static final int MAXIMUM_QOS = 0x24;
+    public static final int RETAIN_AVAILABLE = 0x25;
+    public static final int USER_PROPERTY = 0x26;
+    public static final int MAXIMUM_PACKET_SIZE = 0x27;
+    public static final int WILDCARD_SUBSCRIPTION_AVAILABLE = 0x28;
+    public static final int SUBSCRIPTION_IDENTIFIER_AVAILABLE = 0x29;
+    public static final int SHARED_SUBSCRIPTION_AVAILABLE = 0x2A;
+
+    public static final MqttProperties NO_PROPERTIES = new MqttProperties(EmptyArrays.EMPTY_BYTES);
+
+    private static final byte TYPE_UNKNOWN = 0;
+    private static final byte TYPE_BYTE = 1;
+    private static final byte TYPE_TWO_BYTE_INTEGER = 2;
+    private static final byte TYPE_FOUR_BYTE_INTEGER = 3;
+    private static final byte TYPE_VARIABLE_BYTE_INTEGER = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_BINARY = 6;
+    private static final byte TYPE_STRING_PAIR = 7;
+
+    private static final byte[] TYPES = new byte[SHARED_SUBSCRIPTION_AVAILABLE + 1];
+
+    static {
+        TYPES[PAYLOAD_FORMAT_INDICATOR] = TYPE_BYTE;
+        TYPES[REQUEST_PROBLEM_INFORMATION] = TYPE_BYTE;
+        TYPES[REQUEST_RESPONSE_INFORMATION] = TYPE_BYTE;
+        TYPES[MAXIMUM_QOS] = TYPE_BYTE;
+        TYPES[RETAIN_AVAILABLE] = TYPE_BYTE;
+        TYPES[WILDCARD_SUBSCRIPTION_AVAILABLE] = TYPE_BYTE;
+        TYPES[SUBSCRIPTION_IDENTIFIER_AVAILABLE] = TYPE_BYTE;
+        TYPES[SHARED_SUBSCRIPTION_AVAILABLE] = TYPE_BYTE;
+        TYPES[SERVER_KEEP_ALIVE] = TYPE_TWO_BYTE_INTEGER;
+        TYPES[RECEIVE_MAXIMUM] = TYPE_TWO_BYTE_INTEGER;
+        TYPES[TOPIC_ALIAS_MAXIMUM] = TYPE_TWO_BYTE_INTEGER;
+        TYPES[TOPIC_ALIAS] = TYPE_TWO_BYTE_INTEGER;
+        TYPES[MESSAGE_EXPIRY_INTERVAL] = TYPE_FOUR_BYTE_INTEGER;
+        TYPES[SESSION_EXPIRY_INTERVAL] = TYPE_FOUR_BYTE_INTEGER;
+        TYPES[WILL_DELAY_INTERVAL] = TYPE_FOUR_BYTE_INTEGER;
+        TYPES[MAXIMUM_PACKET_SIZE] = TYPE_FOUR_BYTE_INTEGER;
+        TYPES[SUBSCRIPTION_IDENTIFIER] = TYPE_VARIABLE_BYTE_INTEGER;
+        TYPES[CONTENT_TYPE] = TYPE_STRING;
+        TYPES[RESPONSE_TOPIC] = TYPE_STRING;
+        TYPES[ASSIGNED_CLIENT_IDENTIFIER] = TYPE_STRING;
+        TYPES[AUTHENTICATION_METHOD] = TYPE_STRING;
+        TYPES[RESPONSE_INFORMATION] = TYPE_STRING;
+        TYPES[SERVER_REFERENCE] = TYPE_STRING;
+        TYPES[REASON_STRING] = TYPE_STRING;
+        TYPES[CORRELATION_DATA] = TYPE_BINARY;
+        TYPES[AUTHENTICATION_DATA] = TYPE_BINARY;
+        TYPES[USER_PROPERTY] = TYPE_STRING_PAIR;
+    }
+
+    // The encoded properties without the leading Property Length.
+    private final byte[] encoded;
+
+    private MqttProperties(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reads the Property Length and the properties which follow it.
+     *
+     * @param buffer the buffer to read from
+     * @param maxLength the maximum number of bytes the Property Length and the properties may occupy
+     * @return the properties which were read, {@link #encodedLength()} is the number of bytes which were consumed
+     */
+    static MqttProperties decode(ByteBuf buffer, int maxLength) {
+        final int length = readVariableByteInteger(buffer);
+        if (length == 0) {
+            return NO_PROPERTIES;
+        }
+        if (length + variableByteIntegerLength(length) > maxLength) {
+            throw new DecoderException("property length exceeds remaining length: " + length);
+        }
+        final byte[] encoded = new byte[length];
+        buffer.readBytes(encoded);
+        validate(encoded);
+        return new MqttProperties(encoded);
+    }
+
+    /**
+     * Returns the number of bytes occupied by the Property Length and the properties which follow it, or {@code -1}
+     * if the Property Length could not be read from the {@code buffer} starting at {@code index} yet.
+     */
+    static int peekLength(ByteBuf buffer, int index) {
+        final int writerIndex = buffer.writerIndex();
+        int length = 0;
+        int multiplier = 1;
+        int loops = 0;
+        int digit;
+        do {
+            if (index >= writerIndex) {
+                return -1;
+            }
+            digit = buffer.getUnsignedByte(index++);
+            length += (digit & 127) * multiplier;
+            multiplier *= 128;
+            loops++;
+        } while ((digit & 128) != 0 && loops < 4);
+        if ((digit & 128) != 0) {
+            throw new DecoderException("property length exceeds 4 digits");
+        }
+        return loops + length;
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode(ByteBuf)} writes.
+     */
+    int encodedLength() {
+        return variableByteIntegerLength(encoded.length) + encoded.length;
+    }
+
+    /**
+     * Writes the Property Length followed by the properties.
+     */
+    void encode(ByteBuf buffer) {
+        writeVariableByteInteger(buffer, encoded.length);
+        buffer.writeBytes(encoded);
+    }
+
+    public boolean isEmpty() {
+        return encoded.length == 0;
+    }
+
+    /**
+     * Returns {@code true} if the property with the given identifier is present.
+     */
+    public boolean contains(int propertyId) {
+        return find(propertyId, 0) >= 0;
+    }
+
+    /**
+     * Returns the value of the integer property with the given identifier or {@code defaultValue} if it is not
+     * present. Four Byte Integers larger than {@link Integer#MAX_VALUE} are returned as negative values.
+     */
+    public int integerProperty(int propertyId, int defaultValue) {
+        checkType(propertyId, TYPE_BYTE, TYPE_TWO_BYTE_INTEGER, TYPE_FOUR_BYTE_INTEGER, TYPE_VARIABLE_BYTE_INTEGER);
+        final int index = find(propertyId, 0);
+        return index < 0 ? defaultValue : integerAt(TYPES[propertyId], index);
+    }
+
+    /**
+     * Returns the values of all integer properties with the given identifier, which is useful for properties like
+     * {@link #SUBSCRIPTION_IDENTIFIER} that may be present more than once.
+     */
+    public List<Integer> integerProperties(int propertyId) {
+        checkType(propertyId, TYPE_BYTE, TYPE_TWO_BYTE_INTEGER, TYPE_FOUR_BYTE_INTEGER, TYPE_VARIABLE_BYTE_INTEGER);
+        List<Integer> values = null;
+        for (int index = find(propertyId, 0); index >= 0; index = find(propertyId, next(index))) {
+            if (values == null) {
+                values = new ArrayList<Integer>(2);
+            }
+            values.add(integerAt(TYPES[propertyId], index));
+        }
+        return values == null ? Collections.<Integer>emptyList() : values;
+    }
+
+    /**
+     * Returns the value of the UTF-8 string property with the given identifier or {@code null} if it is not present.
+     */
+    public String stringProperty(int propertyId) {
+        checkType(propertyId, TYPE_STRING);
+        final int index = find(propertyId, 0);
+        return index < 0 ? null : stringAt(index);
+    }
+
+    /**
+     * Returns a copy of the value of the binary property with the given identifier or {@code null} if it is not
+     * present.
+     */
+    public byte[] binaryProperty(int propertyId) {
+        checkType(propertyId, TYPE_BINARY);
+        final int index = find(propertyId, 0);
+        if (index < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(encoded, index + 2, index + 2 + unsignedShortAt(index));
+    }
+
+    /**
+     * Returns all {@link #USER_PROPERTY} properties in the order in which they appear.
+     */
+    public List<UserProperty> userProperties() {
+        List<UserProperty> values = null;
+        for (int index = find(USER_PROPERTY, 0); index >= 0; index = find(USER_PROPERTY, next(index))) {
+            if (values == null) {
+                values = new ArrayList<UserProperty>(2);
+            }
+            final String name = stringAt(index);
+            values.add(new UserProperty(name, stringAt(index + 2 + unsignedShortAt(index))));
+        }
+        return values == null ? Collections.<UserProperty>emptyList() : values;
+    }
+
+    /**
+     * Returns the index of the value of the first property with the given identifier at or after {@code index}, or
+     * {@code -1} if there is none.
+     */
+    private int find(int propertyId, int index) {
+        while (index < encoded.length) {
+            // All identifiers defined by the specification fit into a single byte.
+            final int id = encoded[index];
+            if (id == propertyId) {
+                return index + 1;
+            }
+            index = next(index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the property which follows the value at {@code index}.
+     */
+    private int next(int index) {
+        switch (TYPES[encoded[index - 1]]) {
+            case TYPE_BYTE:
+                return index + 1;
+            case TYPE_TWO_BYTE_INTEGER:
+                return index + 2;
+            case TYPE_FOUR_BYTE_INTEGER:
+                return index + 4;
+            case TYPE_VARIABLE_BYTE_INTEGER:
+                while ((encoded[index++] & 128) != 0) {
+                    continue;
+                }
+                return index;
+            case TYPE_STRING:
+            case TYPE_BINARY:
+                return index + 2 + unsignedShortAt(index);
+            case TYPE_STRING_PAIR:
+                index += 2 + unsignedShortAt(index);
+                return index + 2 + unsignedShortAt(index);
+            default:
+                // Shouldn't reach here as the properties were validated.
+                throw new Error();
+        }
+    }
+
+    private int integerAt(byte type, int index) {
+        switch (type) {
+            case TYPE_BYTE:
+                return encoded[index] & 0xFF;
+            case TYPE_TWO_BYTE_INTEGER:
+                return unsignedShortAt(index);
+            case TYPE_FOUR_BYTE_INTEGER:
+                return (encoded[index] & 0xFF) << 24 | (encoded[index + 1] & 0xFF) << 16 |
+                        (encoded[index + 2] & 0xFF) << 8 | encoded[index + 3] & 0xFF;
+            default:
+                int value = 0;
+                int multiplier = 1;
+                byte digit;
+                do {
+                    digit = encoded[index++];
+                    value += (digit & 127) * multiplier;
+                    multiplier *= 128;
+                } while ((digit & 128) != 0);
+                return value;
+        }
+    }
+
+    private String stringAt(int index) {
+        return new String(encoded, index + 2, unsignedShortAt(index), CharsetUtil.UTF_8);
+    }
+
+    private int unsignedShortAt(int index) {
+        return (encoded[index] & 0xFF) << 8 | encoded[index + 1] & 0xFF;
+    }
+
+    private static void checkType(int propertyId, byte... expectedTypes) {
+        if (propertyId > 0 && propertyId < TYPES.length) {
+            for (byte type : expectedTypes) {
+                if (TYPES[propertyId] == type) {
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("unexpected property identifier: " + propertyId);
+    }
+
+    /**
+     * Checks that the encoded properties only contain known identifiers and that all values are complete, so the
+     * accessors can navigate them without any further bounds checks.
+     */
+    private static void validate(byte[] encoded) {
+        int index = 0;
+        while (index < encoded.length) {
+            final int id = encoded[index++];
+            final byte type = id > 0 && id < TYPES.length ? TYPES[id] : TYPE_UNKNOWN;
+            switch (type) {
+                case TYPE_BYTE:
+                    index += 1;
+                    break;
+                case TYPE_TWO_BYTE_INTEGER:
+                    index += 2;
+                    break;
+                case TYPE_FOUR_BYTE_INTEGER:
+                    index += 4;
+                    break;
+                case TYPE_VARIABLE_BYTE_INTEGER:
+                    int loops = 0;
+                    byte digit;
+                    do {
+                        if (index == encoded.length) {
+                            throw new DecoderException("truncated property: " + id);
+                        }
+                        digit = encoded[index++];
+                        loops++;
+                    } while ((digit & 128) != 0 && loops < 4);
+                    if ((digit & 128) != 0) {
+                        throw new DecoderException("variable byte integer exceeds 4 digits (property " + id + ')');
+                    }
+                    break;
+                case TYPE_STRING:
+                case TYPE_BINARY:
+                    index = skipLengthPrefixed(encoded, index);
+                    break;
+                case TYPE_STRING_PAIR:
+                    index = skipLengthPrefixed(encoded, skipLengthPrefixed(encoded, index));
+                    break;
+                default:
+                    throw new DecoderException("unknown property identifier: " + (id & 0xFF));
+            }
+            if (index > encoded.length) {
+                throw new DecoderException("truncated property: " + id);
+            }
+        }
+    }
+
+    private static int skipLengthPrefixed(byte[] encoded, int index) {
+        if (index + 2 > encoded.length) {
+            return Integer.MAX_VALUE;
+        }
+        return index + 2 + ((encoded[index] & 0xFF) << 8 | encoded[index + 1] & 0xFF);
+    }
+
+    private static int readVariableByteInteger(ByteBuf buffer) {
+        int value = 0;
+        int multiplier = 1;
+        short digit;
+        int loops = 0;
+        do {
+            digit = buffer.readUnsignedByte();
+            value += (digit & 127) * multiplier;
+            multiplier *= 128;
+            loops++;
+        } while ((digit & 128) != 0 && loops < 4);
+        if ((digit & 128) != 0) {
+            throw new DecoderException("property length exceeds 4 digits");
+        }
+        return value;
+    }
+
+    private static void writeVariableByteInteger(ByteBuf buffer, int value) {
+        do {
+            int digit = value % 128;
+            value /= 128;
+            if (value > 0) {
+                digit |= 0x80;
+            }
+            buffer.writeByte(digit);
+        } while (value > 0);
+    }
+
+    private static int variableByteIntegerLength(int value) {
+        int count = 0;
+        do {
+            value /= 128;
+            count++;
+        } while (value > 0);
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(StringUtil.simpleClassName(this)).append('[');
+        int index = 0;
+        while (index < encoded.length) {
+            final int id = encoded[index++];
+            if (index > 1) {
+                buf.append(", ");
+            }
+            buf.append("0x").append(Integer.toHexString(id)).append('=');
+            switch (TYPES[id]) {
+                case TYPE_STRING:
+                    buf.append(stringAt(index));
+                    break;
+                case TYPE_BINARY:
+                    buf.append(unsignedShortAt(index)).append(" bytes");
+                    break;
+                case TYPE_STRING_PAIR:
+                    buf.append(stringAt(index)).append(':').append(stringAt(index + 2 + unsignedShortAt(index)));
+                    break;
+                default:
+                    buf.append(integerAt(TYPES[id], index));
+                    break;
+            }
+            index = next(index);
+        }
+        return buf.append(']').toString();
+    }
+
+    /**
+     * A {@link #USER_PROPERTY} name-value pair.
+     */
+    public static final class UserProperty {
+
+        private final String name;
+        private final String value;
+
+        public UserProperty(String name, String value) {
+            this.name = ObjectUtil.checkNotNull(name, "name");
+            this.value = ObjectUtil.checkNotNull(value, "value");
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return name + ':' + value;
+        }
+    }
+
+    /**
+     * Builds {@link MqttProperties} by encoding each property as it is added.
+     */
+    public static final class Builder {
+
+        private byte[] encoded = new byte[32];
+        private int length;
+
+        Builder() {
+        }
+
+        /**
+         * Adds a property of type Byte, Two Byte Integer, Four Byte Integer or Variable Byte Integer.
+         */
+        public Builder integerProperty(int propertyId, int value) {
+            checkType(propertyId, TYPE_BYTE, TYPE_TWO_BYTE_INTEGER, TYPE_FOUR_BYTE_INTEGER,
+                    TYPE_VARIABLE_BYTE_INTEGER);
+            switch (TYPES[propertyId]) {
+                case TYPE_BYTE:
+                    checkRange(propertyId, value, 0xFF);
+                    ensureWritable(2);
+                    encoded[length++] = (byte) propertyId;
+                    encoded[length++] = (byte) value;
+                    break;
+                case TYPE_TWO_BYTE_INTEGER:
+                    checkRange(propertyId, value, 0xFFFF);
+                    ensureWritable(3);
+                    encoded[length++] = (byte) propertyId;
+                    writeUnsignedShort(value);
+                    break;
+                case TYPE_FOUR_BYTE_INTEGER:
+                    ensureWritable(5);
+                    encoded[length++] = (byte) propertyId;
+                    encoded[length++] = (byte) (value >>> 24);
+                    encoded[length++] = (byte) (value >>> 16);
+                    encoded[length++] = (byte) (value >>> 8);
+                    encoded[length++] = (byte) value;
+                    break;
+                default:
+                    checkRange(propertyId, value, 268435455);
+                    ensureWritable(5);
+                    encoded[length++] = (byte) propertyId;
+                    do {
+                        int digit = value % 128;
+                        value /= 128;
+                        if (value > 0) {
+                            digit |= 0x80;
+                        }
+                        encoded[length++] = (byte) digit;
+                    } while (value > 0);
+                    break;
+            }
+            return this;
+        }
+
+        /**
+         * Adds a property of type UTF-8 Encoded String.
+         */
+        public Builder stringProperty(int propertyId, String value) {
+            checkType(propertyId, TYPE_STRING);
+            ObjectUtil.checkNotNull(value, "value");
+            ensureWritable(1);
+            encoded[length++] = (byte) propertyId;
+            writeLengthPrefixed(value.getBytes(CharsetUtil.UTF_8));
+            return this;
+        }
+
+        /**
+         * Adds a property of type Binary Data.
+         */
+        public Builder binaryProperty(int propertyId, byte[] value) {
+            checkType(propertyId, TYPE_BINARY);
+            ObjectUtil.checkNotNull(value, "value");
+            ensureWritable(1);
+            encoded[length++] = (byte) propertyId;
+            writeLengthPrefixed(value);
+            return this;
+        }
+
+        /**
+         * Adds a {@link #USER_PROPERTY}.
+         */
+        public Builder userProperty(String name, String value) {
+            ObjectUtil.checkNotNull(name, "name");
+            ObjectUtil.checkNotNull(value, "value");
+            ensureWritable(1);
+            encoded[length++] = USER_PROPERTY;
+            writeLengthPrefixed(name.getBytes(CharsetUtil.UTF_8));
+            writeLengthPrefixed(value.getBytes(CharsetUtil.UTF_8));
+            return this;
+        }
+
+        public MqttProperties build() {
+            return length == 0 ? NO_PROPERTIES : new MqttProperties(Arrays.copyOf(encoded, length));
+        }
+
+        private void writeLengthPrefixed(byte[] value) {
+            if (value.length > 0xFFFF) {
+                throw new IllegalArgumentException("value too long: " + value.length + " bytes (expected: <= 65535)");
+            }
+            ensureWritable(2 + value.length);
+            writeUnsignedShort(value.length);
+            System.arraycopy(value, 0, encoded, length, value.length);
+            length += value.length;
+        }
+
+        private void writeUnsignedShort(int value) {
+            encoded[length++] = (byte) (value >>> 8);
+            encoded[length++] = (byte) value;
+        }
+
+        private void ensureWritable(int bytes) {
+            if (length + bytes > encoded.length) {
+                encoded = Arrays.copyOf(encoded, Math.max(encoded.length << 1, length + bytes));
+            }
+        }
+
+        private static void checkRange(int propertyId, int value, int max) {
+            if (value < 0 || value > max) {
+                throw new IllegalArgumentException(
+                        "value of property " + propertyId + ": " + value + " (expected: 0-" + max + ')');
+            }
+        }
+    }
+}
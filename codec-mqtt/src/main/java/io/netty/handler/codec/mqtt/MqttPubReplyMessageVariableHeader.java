@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.mqtt;
+
+import io.netty.util.internal.StringUtil;
+
+/**
+ * MQTT 5 Variable Header of the PUBACK, PUBREC, PUBREL and PUBCOMP messages, which contains a reason code and
+ * properties in addition to the Message Id.
+ */
+public final class MqttPubReplyMessageVariableHeader extends MqttMessageIdAndPropertiesVariableHeader {
+
+    public static final byte REASON_CODE_OK = 0;
+
+    private final byte reasonCode;
+
+    public MqttPubReplyMessageVariableHeader(int messageId, byte reasonCode, MqttProperties properties) {
+        super(messageId, properties);
+        this.reasonCode = reasonCode;
+    }
+
+    public byte reasonCode() {
+        return reasonCode;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+            .append('[')
+            .append("messageId=").append(messageId())
+            .append(", reasonCode=").append(reasonCode)
+            .append(", properties=").append(properties())
+            .append(']')
+            .toString();
+    }
+}
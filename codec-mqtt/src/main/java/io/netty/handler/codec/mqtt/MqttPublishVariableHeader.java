@@ -16,6 +16,7 @@
 
 package io.netty.handler.codec.mqtt;
 
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
 /**
@@ -25,10 +26,16 @@ public final class MqttPublishVariableHeader {
 
     private final String topicName;
     private final int packetId;
+    private final MqttProperties properties;
 
     public MqttPublishVariableHeader(String topicName, int packetId) {
+        this(topicName, packetId, MqttProperties.NO_PROPERTIES);
+    }
+
+    public MqttPublishVariableHeader(String topicName, int packetId, MqttProperties properties) {
         this.topicName = topicName;
         this.packetId = packetId;
+        this.properties = ObjectUtil.checkNotNull(properties, "properties");
     }
 
     public String topicName() {
@@ -47,12 +54,20 @@ public final class MqttPublishVariableHeader {
         return packetId;
     }
 
+    /**
+     * Returns the MQTT 5 properties, which are always empty for earlier versions.
+     */
+    public MqttProperties properties() {
+        return properties;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder(StringUtil.simpleClassName(this))
             .append('[')
             .append("topicName=").append(topicName)
             .append(", packetId=").append(packetId)
+            .append(", properties=").append(properties)
             .append(']')
             .toString();
     }
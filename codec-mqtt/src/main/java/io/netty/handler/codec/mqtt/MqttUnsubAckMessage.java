@@ -25,8 +25,21 @@ public final class MqttUnsubAckMessage extends MqttMessage {
         super(mqttFixedHeader, variableHeader, null);
     }
 
+    public MqttUnsubAckMessage(MqttFixedHeader mqttFixedHeader, MqttMessageIdVariableHeader variableHeader,
+                               MqttUnsubAckPayload payload) {
+        super(mqttFixedHeader, variableHeader, payload);
+    }
+
     @Override
     public MqttMessageIdVariableHeader variableHeader() {
         return (MqttMessageIdVariableHeader) super.variableHeader();
     }
+
+    /**
+     * Returns the MQTT 5 reason codes or {@code null} for earlier versions.
+     */
+    @Override
+    public MqttUnsubAckPayload payload() {
+        return (MqttUnsubAckPayload) super.payload();
+    }
 }
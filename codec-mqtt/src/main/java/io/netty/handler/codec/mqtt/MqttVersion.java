@@ -24,7 +24,8 @@ import io.netty.util.internal.ObjectUtil;
  */
 public enum MqttVersion {
     MQTT_3_1("MQIsdp", (byte) 3),
-    MQTT_3_1_1("MQTT", (byte) 4);
+    MQTT_3_1_1("MQTT", (byte) 4),
+    MQTT_5("MQTT", (byte) 5);
 
     private final String name;
     private final byte level;
@@ -47,16 +48,19 @@ public enum MqttVersion {
     }
 
     public static MqttVersion fromProtocolNameAndLevel(String protocolName, byte protocolLevel) {
+        boolean knownProtocolName = false;
         for (MqttVersion mv : values()) {
             if (mv.name.equals(protocolName)) {
                 if (mv.level == protocolLevel) {
                     return mv;
-                } else {
-                    throw new MqttUnacceptableProtocolVersionException(protocolName + " and " +
-                            protocolLevel + " are not match");
                 }
+                knownProtocolName = true;
             }
         }
+        if (knownProtocolName) {
+            throw new MqttUnacceptableProtocolVersionException(protocolName + " and " +
+                    protocolLevel + " are not match");
+        }
         throw new MqttUnacceptableProtocolVersionException(protocolName + "is unknown protocol name");
     }
 }
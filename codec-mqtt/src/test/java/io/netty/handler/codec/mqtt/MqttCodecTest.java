@@ -18,11 +18,15 @@ package io.netty.handler.codec.mqtt;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.DecoderException;
+import io.netty.util.Attribute;
 import io.netty.util.CharsetUtil;
+import io.netty.util.DefaultAttributeMap;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -50,6 +54,8 @@ public class MqttCodecTest {
 
     private static final ByteBufAllocator ALLOCATOR = new UnpooledByteBufAllocator(false);
 
+    private static final int DEFAULT_MAX_BYTES_IN_MESSAGE = 8092;
+
     @Mock
     private final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
 
@@ -63,16 +69,21 @@ public class MqttCodecTest {
      */
     private final MqttDecoder mqttDecoderLimitedMessageSize = new MqttDecoder(1);
 
+    private final Attribute<MqttVersion> mqttVersionAttribute =
+            new DefaultAttributeMap().attr(MqttCodecUtil.MQTT_VERSION_KEY);
+
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
         when(ctx.channel()).thenReturn(channel);
+        when(ctx.alloc()).thenReturn(ALLOCATOR);
+        when(channel.attr(MqttCodecUtil.MQTT_VERSION_KEY)).thenReturn(mqttVersionAttribute);
     }
 
     @Test
     public void testConnectMessageForMqtt31() throws Exception {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -89,7 +100,7 @@ public class MqttCodecTest {
     @Test
     public void testConnectMessageForMqtt311() throws Exception {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1_1);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -106,7 +117,7 @@ public class MqttCodecTest {
     @Test
     public void testConnectMessageWithNonZeroReservedFlagForMqtt311() throws Exception {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1_1);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
         try {
             // Set the reserved flag in the CONNECT Packet to 1
             byteBuf.setByte(9, byteBuf.getByte(9) | 0x1);
@@ -130,7 +141,7 @@ public class MqttCodecTest {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1_1, null, PASSWORD);
 
         try {
-            ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+            ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
         } catch (Exception cause) {
             assertTrue(cause instanceof DecoderException);
         }
@@ -139,7 +150,7 @@ public class MqttCodecTest {
     @Test
     public void testConnAckMessage() throws Exception {
         final MqttConnAckMessage message = createConnAckMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -154,7 +165,7 @@ public class MqttCodecTest {
     @Test
     public void testPublishMessage() throws Exception {
         final MqttPublishMessage message = createPublishMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -167,6 +178,321 @@ public class MqttCodecTest {
         validatePublishPayload(message.payload(), decodedMessage.payload());
     }
 
+    @Test
+    public void testPublishMessageReceivedByteByByte() throws Exception {
+        final MqttPublishMessage message = createPublishMessage();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        EmbeddedChannel channel = new EmbeddedChannel(new MqttDecoder());
+
+        while (byteBuf.readableBytes() > 1) {
+            assertFalse(channel.writeInbound(byteBuf.readRetainedSlice(1)));
+        }
+        assertTrue(channel.writeInbound(byteBuf));
+
+        final MqttPublishMessage decodedMessage = channel.readInbound();
+        try {
+            assertTrue(decodedMessage.decoderResult().isSuccess());
+            validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+            validatePublishVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+            validatePublishPayload(message.payload(), decodedMessage.payload());
+        } finally {
+            decodedMessage.release();
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testMultipleMessagesInOneBuffer() throws Exception {
+        final MqttPublishMessage message = createPublishMessage();
+        final MqttMessage pingReq = createMessageWithFixedHeader(MqttMessageType.PINGREQ);
+        ByteBuf byteBuf = ALLOCATOR.compositeBuffer().addComponents(true,
+                MqttEncoder.doEncode(ctx, pingReq),
+                MqttEncoder.doEncode(ctx, message),
+                MqttEncoder.doEncode(ctx, pingReq));
+        EmbeddedChannel channel = new EmbeddedChannel(new MqttDecoder());
+
+        // Split the buffer inside the payload of the publish message.
+        int split = byteBuf.readableBytes() - 4;
+        assertTrue(channel.writeInbound(byteBuf.readRetainedSlice(split)));
+        assertTrue(channel.writeInbound(byteBuf));
+
+        MqttMessage decodedPingReq = channel.readInbound();
+        assertEquals(MqttMessageType.PINGREQ, decodedPingReq.fixedHeader().messageType());
+        final MqttPublishMessage decodedMessage = channel.readInbound();
+        try {
+            validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+            validatePublishVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+            validatePublishPayload(message.payload(), decodedMessage.payload());
+        } finally {
+            decodedMessage.release();
+        }
+        decodedPingReq = channel.readInbound();
+        assertEquals(MqttMessageType.PINGREQ, decodedPingReq.fixedHeader().messageType());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testConnectMessageForMqtt5() throws Exception {
+        final MqttConnectMessage message = MqttMessageBuilders.connect()
+                .protocolVersion(MqttVersion.MQTT_5)
+                .clientId(CLIENT_ID)
+                .keepAlive(KEEP_ALIVE_SECONDS)
+                .willFlag(true)
+                .willTopic(WILL_TOPIC)
+                .willMessage(WILL_MESSAGE.getBytes(CharsetUtil.UTF_8))
+                .willProperties(MqttProperties.builder()
+                        .integerProperty(MqttProperties.WILL_DELAY_INTERVAL, 30)
+                        .build())
+                .username(USER_NAME)
+                .password(PASSWORD.getBytes(CharsetUtil.UTF_8))
+                .properties(MqttProperties.builder()
+                        .integerProperty(MqttProperties.SESSION_EXPIRY_INTERVAL, 3600)
+                        .integerProperty(MqttProperties.RECEIVE_MAXIMUM, 100)
+                        .userProperty("region", "eu")
+                        .build())
+                .build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        assertEquals(MqttVersion.MQTT_5, mqttVersionAttribute.get());
+        mqttVersionAttribute.set(null);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        assertEquals(MqttVersion.MQTT_5, mqttVersionAttribute.get());
+
+        final MqttConnectMessage decodedMessage = (MqttConnectMessage) out.get(0);
+        assertTrue(decodedMessage.decoderResult().isSuccess());
+        validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+        validateConnectVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+        validateConnectPayload(message.payload(), decodedMessage.payload());
+
+        MqttProperties properties = decodedMessage.variableHeader().properties();
+        assertEquals(3600, properties.integerProperty(MqttProperties.SESSION_EXPIRY_INTERVAL, -1));
+        assertEquals(100, properties.integerProperty(MqttProperties.RECEIVE_MAXIMUM, -1));
+        assertEquals(1, properties.userProperties().size());
+        assertEquals("region", properties.userProperties().get(0).name());
+        assertEquals("eu", properties.userProperties().get(0).value());
+        assertEquals(30, decodedMessage.payload().willProperties()
+                .integerProperty(MqttProperties.WILL_DELAY_INTERVAL, -1));
+    }
+
+    @Test
+    public void testConnAckMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttConnAckMessage message = MqttMessageBuilders.connAck()
+                .returnCode(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_BUSY)
+                .properties(MqttProperties.builder()
+                        .integerProperty(MqttProperties.TOPIC_ALIAS_MAXIMUM, 10)
+                        .stringProperty(MqttProperties.REASON_STRING, "busy")
+                        .build())
+                .build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+
+        final MqttConnAckMessage decodedMessage = (MqttConnAckMessage) out.get(0);
+        validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+        validateConnAckVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+        MqttProperties properties = decodedMessage.variableHeader().properties();
+        assertEquals(10, properties.integerProperty(MqttProperties.TOPIC_ALIAS_MAXIMUM, -1));
+        assertEquals("busy", properties.stringProperty(MqttProperties.REASON_STRING));
+    }
+
+    @Test
+    public void testPublishMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttPublishMessage message = createPublishMessage(MqttProperties.builder()
+                .integerProperty(MqttProperties.PAYLOAD_FORMAT_INDICATOR, 1)
+                .stringProperty(MqttProperties.CONTENT_TYPE, "text/plain")
+                .binaryProperty(MqttProperties.CORRELATION_DATA, new byte[] { 1, 2, 3 })
+                .build());
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+
+        final MqttPublishMessage decodedMessage = (MqttPublishMessage) out.get(0);
+        try {
+            validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+            validatePublishVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+            validatePublishPayload(message.payload(), decodedMessage.payload());
+            MqttProperties properties = decodedMessage.variableHeader().properties();
+            assertEquals(1, properties.integerProperty(MqttProperties.PAYLOAD_FORMAT_INDICATOR, -1));
+            assertEquals("text/plain", properties.stringProperty(MqttProperties.CONTENT_TYPE));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, properties.binaryProperty(MqttProperties.CORRELATION_DATA));
+        } finally {
+            decodedMessage.release();
+        }
+    }
+
+    @Test
+    public void testPublishMessageWithTopicAlias() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttDecoder decoder = new MqttDecoder(DEFAULT_MAX_BYTES_IN_MESSAGE, 10);
+        final MqttProperties topicAlias = MqttProperties.builder()
+                .integerProperty(MqttProperties.TOPIC_ALIAS, 3)
+                .build();
+
+        final List<Object> out = new LinkedList<Object>();
+        decoder.decode(ctx, MqttEncoder.doEncode(ctx, createPublishMessage(topicAlias)), out);
+        final MqttPublishMessage firstMessage = (MqttPublishMessage) out.remove(0);
+        firstMessage.release();
+
+        final MqttPublishMessage aliasedMessage = MqttMessageBuilders.publish()
+                .topicName("")
+                .qos(MqttQoS.AT_MOST_ONCE)
+                .payload(Unpooled.EMPTY_BUFFER)
+                .properties(topicAlias)
+                .build();
+        decoder.decode(ctx, MqttEncoder.doEncode(ctx, aliasedMessage), out);
+        final MqttPublishMessage decodedMessage = (MqttPublishMessage) out.remove(0);
+        try {
+            assertTrue(decodedMessage.decoderResult().isSuccess());
+            assertSame(firstMessage.variableHeader().topicName(), decodedMessage.variableHeader().topicName());
+        } finally {
+            decodedMessage.release();
+        }
+    }
+
+    @Test
+    public void testPublishMessageWithUnknownTopicAlias() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttDecoder decoder = new MqttDecoder(DEFAULT_MAX_BYTES_IN_MESSAGE, 10);
+        final MqttPublishMessage message = MqttMessageBuilders.publish()
+                .topicName("")
+                .qos(MqttQoS.AT_MOST_ONCE)
+                .payload(Unpooled.EMPTY_BUFFER)
+                .properties(MqttProperties.builder().integerProperty(MqttProperties.TOPIC_ALIAS, 2).build())
+                .build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        try {
+            final List<Object> out = new LinkedList<Object>();
+            decoder.decode(ctx, byteBuf, out);
+
+            assertEquals("Expected one object but got " + out.size(), 1, out.size());
+            final MqttMessage decodedMessage = (MqttMessage) out.get(0);
+            assertTrue(decodedMessage.decoderResult().isFailure());
+            assertEquals("unknown topic alias: 2", decodedMessage.decoderResult().cause().getMessage());
+        } finally {
+            byteBuf.release();
+        }
+    }
+
+    @Test
+    public void testPubAckMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttPubAckMessage message = MqttMessageBuilders.pubAck()
+                .packetId(42)
+                .reasonCode((byte) 0x10)
+                .properties(MqttProperties.builder()
+                        .stringProperty(MqttProperties.REASON_STRING, "no matching subscribers")
+                        .build())
+                .build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        final MqttPubAckMessage decodedMessage = (MqttPubAckMessage) out.get(0);
+        final MqttPubReplyMessageVariableHeader variableHeader =
+                (MqttPubReplyMessageVariableHeader) decodedMessage.variableHeader();
+        assertEquals(42, variableHeader.messageId());
+        assertEquals(0x10, variableHeader.reasonCode());
+        assertEquals("no matching subscribers",
+                variableHeader.properties().stringProperty(MqttProperties.REASON_STRING));
+    }
+
+    @Test
+    public void testPubAckMessageForMqtt5WithoutReasonCode() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttPubAckMessage message = MqttMessageBuilders.pubAck().packetId(42).build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        // The reason code and properties are omitted if the reason code is 0 and there are no properties.
+        assertEquals(4, byteBuf.readableBytes());
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        final MqttPubAckMessage decodedMessage = (MqttPubAckMessage) out.get(0);
+        final MqttPubReplyMessageVariableHeader variableHeader =
+                (MqttPubReplyMessageVariableHeader) decodedMessage.variableHeader();
+        assertEquals(42, variableHeader.messageId());
+        assertEquals(MqttPubReplyMessageVariableHeader.REASON_CODE_OK, variableHeader.reasonCode());
+        assertTrue(variableHeader.properties().isEmpty());
+    }
+
+    @Test
+    public void testSubAckMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttSubAckMessage message = new MqttSubAckMessage(
+                new MqttFixedHeader(MqttMessageType.SUBACK, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                new MqttMessageIdAndPropertiesVariableHeader(12345, MqttProperties.builder()
+                        .stringProperty(MqttProperties.REASON_STRING, "not authorized")
+                        .build()),
+                new MqttSubAckPayload(1, 0x87));
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        final MqttSubAckMessage decodedMessage = (MqttSubAckMessage) out.get(0);
+        validateMessageIdVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+        validateSubAckPayload(message.payload(), decodedMessage.payload());
+        assertEquals("not authorized", ((MqttMessageIdAndPropertiesVariableHeader) decodedMessage.variableHeader())
+                .properties().stringProperty(MqttProperties.REASON_STRING));
+    }
+
+    @Test
+    public void testUnsubAckMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttUnsubAckMessage message = new MqttUnsubAckMessage(
+                new MqttFixedHeader(MqttMessageType.UNSUBACK, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                new MqttMessageIdAndPropertiesVariableHeader(12345, MqttProperties.NO_PROPERTIES),
+                new MqttUnsubAckPayload((short) 0x00, (short) 0x11));
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        final MqttUnsubAckMessage decodedMessage = (MqttUnsubAckMessage) out.get(0);
+        validateMessageIdVariableHeader(message.variableHeader(), decodedMessage.variableHeader());
+        assertEquals(message.payload().unsubscribeReasonCodes(),
+                decodedMessage.payload().unsubscribeReasonCodes());
+    }
+
+    @Test
+    public void testDisconnectMessageForMqtt5() throws Exception {
+        mqttVersionAttribute.set(MqttVersion.MQTT_5);
+        final MqttMessage message = MqttMessageBuilders.disconnect()
+                .reasonCode((byte) 0x8E)
+                .properties(MqttProperties.builder()
+                        .stringProperty(MqttProperties.REASON_STRING, "session taken over")
+                        .build())
+                .build();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+
+        final List<Object> out = new LinkedList<Object>();
+        mqttDecoder.decode(ctx, byteBuf, out);
+
+        assertEquals("Expected one object but got " + out.size(), 1, out.size());
+        final MqttMessage decodedMessage = (MqttMessage) out.get(0);
+        validateFixedHeaders(message.fixedHeader(), decodedMessage.fixedHeader());
+        final MqttReasonCodeAndPropertiesVariableHeader variableHeader =
+                (MqttReasonCodeAndPropertiesVariableHeader) decodedMessage.variableHeader();
+        assertEquals((byte) 0x8E, variableHeader.reasonCode());
+        assertEquals("session taken over", variableHeader.properties().stringProperty(MqttProperties.REASON_STRING));
+    }
+
     @Test
     public void testPubAckMessage() throws Exception {
         testMessageWithOnlyFixedHeaderAndMessageIdVariableHeader(MqttMessageType.PUBACK);
@@ -190,7 +516,7 @@ public class MqttCodecTest {
     @Test
     public void testSubscribeMessage() throws Exception {
         final MqttSubscribeMessage message = createSubscribeMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -206,7 +532,7 @@ public class MqttCodecTest {
     @Test
     public void testSubAckMessage() throws Exception {
         final MqttSubAckMessage message = createSubAckMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -228,7 +554,7 @@ public class MqttCodecTest {
         MqttSubAckMessage message =
                 new MqttSubAckMessage(mqttFixedHeader, mqttMessageIdVariableHeader, mqttSubAckPayload);
 
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -246,7 +572,7 @@ public class MqttCodecTest {
     @Test
     public void testUnSubscribeMessage() throws Exception {
         final MqttUnsubscribeMessage message = createUnsubscribeMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -283,7 +609,7 @@ public class MqttCodecTest {
     public void testUnknownMessageType() throws Exception {
 
         final MqttMessage message = createMessageWithFixedHeader(MqttMessageType.PINGREQ);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
         try {
             // setting an invalid message type (15, reserved and forbidden by MQTT 3.1.1 spec)
             byteBuf.setByte(0, 0xF0);
@@ -302,10 +628,47 @@ public class MqttCodecTest {
         }
     }
 
+    @Test
+    public void testUnknownMessageTypeInPipeline() throws Exception {
+        final MqttMessage message = createMessageWithFixedHeader(MqttMessageType.PINGREQ);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        // setting an invalid message type (15, reserved and forbidden by MQTT 3.1.1 spec)
+        byteBuf.setByte(0, 0xF0);
+        EmbeddedChannel channel = new EmbeddedChannel(new MqttDecoder());
+
+        assertTrue(channel.writeInbound(byteBuf));
+        MqttMessage decodedMessage = channel.readInbound();
+        assertTrue(decodedMessage.decoderResult().isFailure());
+        assertEquals("unknown message type: 15", decodedMessage.decoderResult().cause().getMessage());
+
+        // Everything after the invalid message is discarded.
+        assertFalse(channel.writeInbound(MqttEncoder.doEncode(ctx, message)));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooLargeMessageInLaterDecodeCall() throws Exception {
+        final MqttPublishMessage message = createPublishMessage();
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
+        EmbeddedChannel channel = new EmbeddedChannel(new MqttDecoder(1));
+        try {
+            // The fixed header of the publish message is 2 bytes long.
+            assertFalse(channel.writeInbound(byteBuf.readRetainedSlice(2)));
+            // The variable header is still incomplete but already larger than allowed.
+            assertTrue(channel.writeInbound(byteBuf.readRetainedSlice(3)));
+            MqttMessage decodedMessage = channel.readInbound();
+            assertTrue(decodedMessage.decoderResult().isFailure());
+            assertTrue(decodedMessage.decoderResult().cause().getMessage().contains("too large message"));
+            assertFalse(channel.finish());
+        } finally {
+            byteBuf.release();
+        }
+    }
+
     @Test
     public void testConnectMessageForMqtt31TooLarge() throws Exception {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -327,7 +690,7 @@ public class MqttCodecTest {
     @Test
     public void testConnectMessageForMqtt311TooLarge() throws Exception {
         final MqttConnectMessage message = createConnectMessage(MqttVersion.MQTT_3_1_1);
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -349,7 +712,7 @@ public class MqttCodecTest {
     @Test
     public void testConnAckMessageTooLarge() throws Exception {
         final MqttConnAckMessage message = createConnAckMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -368,7 +731,7 @@ public class MqttCodecTest {
     @Test
     public void testPublishMessageTooLarge() throws Exception {
         final MqttPublishMessage message = createPublishMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -390,7 +753,7 @@ public class MqttCodecTest {
     @Test
     public void testSubscribeMessageTooLarge() throws Exception {
         final MqttSubscribeMessage message = createSubscribeMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -411,7 +774,7 @@ public class MqttCodecTest {
     @Test
     public void testSubAckMessageTooLarge() throws Exception {
         final MqttSubAckMessage message = createSubAckMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -432,7 +795,7 @@ public class MqttCodecTest {
     @Test
     public void testUnSubscribeMessageTooLarge() throws Exception {
         final MqttUnsubscribeMessage message = createUnsubscribeMessage();
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         try {
             final List<Object> out = new LinkedList<Object>();
@@ -451,7 +814,7 @@ public class MqttCodecTest {
     }
 
     private void testMessageWithOnlyFixedHeader(MqttMessage message) throws Exception {
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -466,7 +829,7 @@ public class MqttCodecTest {
             throws Exception {
         MqttMessage message = createMessageWithFixedHeaderAndMessageIdVariableHeader(messageType);
 
-        ByteBuf byteBuf = MqttEncoder.doEncode(ALLOCATOR, message);
+        ByteBuf byteBuf = MqttEncoder.doEncode(ctx, message);
 
         final List<Object> out = new LinkedList<Object>();
         mqttDecoder.decode(ctx, byteBuf, out);
@@ -527,9 +890,14 @@ public class MqttCodecTest {
     }
 
     private static MqttPublishMessage createPublishMessage() {
+        return createPublishMessage(MqttProperties.NO_PROPERTIES);
+    }
+
+    private static MqttPublishMessage createPublishMessage(MqttProperties properties) {
         MqttFixedHeader mqttFixedHeader =
                 new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, true, 0);
-        MqttPublishVariableHeader mqttPublishVariableHeader = new MqttPublishVariableHeader("/abc", 1234);
+        MqttPublishVariableHeader mqttPublishVariableHeader =
+                new MqttPublishVariableHeader("/abc", 1234, properties);
         ByteBuf payload = ALLOCATOR.buffer();
         payload.writeBytes("whatever".getBytes(CharsetUtil.UTF_8));
         return new MqttPublishMessage(mqttFixedHeader, mqttPublishVariableHeader, payload);
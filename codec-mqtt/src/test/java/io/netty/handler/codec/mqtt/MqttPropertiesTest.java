@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MqttPropertiesTest {
+
+    @Test
+    public void testEncodeDecode() {
+        MqttProperties properties = MqttProperties.builder()
+                .integerProperty(MqttProperties.PAYLOAD_FORMAT_INDICATOR, 1)
+                .integerProperty(MqttProperties.RECEIVE_MAXIMUM, 65535)
+                .integerProperty(MqttProperties.MESSAGE_EXPIRY_INTERVAL, 123456789)
+                .integerProperty(MqttProperties.SUBSCRIPTION_IDENTIFIER, 268435455)
+                .integerProperty(MqttProperties.SUBSCRIPTION_IDENTIFIER, 7)
+                .stringProperty(MqttProperties.RESPONSE_TOPIC, "response/topic")
+                .binaryProperty(MqttProperties.CORRELATION_DATA, new byte[] { 4, 5, 6 })
+                .userProperty("a", "1")
+                .userProperty("b", "2")
+                .build();
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            properties.encode(buffer);
+            assertEquals(properties.encodedLength(), buffer.readableBytes());
+            assertEquals(properties.encodedLength(), MqttProperties.peekLength(buffer, buffer.readerIndex()));
+
+            MqttProperties decoded = MqttProperties.decode(buffer, buffer.readableBytes());
+            assertFalse(buffer.isReadable());
+            assertEquals(1, decoded.integerProperty(MqttProperties.PAYLOAD_FORMAT_INDICATOR, -1));
+            assertEquals(65535, decoded.integerProperty(MqttProperties.RECEIVE_MAXIMUM, -1));
+            assertEquals(123456789, decoded.integerProperty(MqttProperties.MESSAGE_EXPIRY_INTERVAL, -1));
+            assertEquals(Arrays.asList(268435455, 7),
+                    decoded.integerProperties(MqttProperties.SUBSCRIPTION_IDENTIFIER));
+            assertEquals("response/topic", decoded.stringProperty(MqttProperties.RESPONSE_TOPIC));
+            assertArrayEquals(new byte[] { 4, 5, 6 }, decoded.binaryProperty(MqttProperties.CORRELATION_DATA));
+
+            List<MqttProperties.UserProperty> userProperties = decoded.userProperties();
+            assertEquals(2, userProperties.size());
+            assertEquals("a", userProperties.get(0).name());
+            assertEquals("1", userProperties.get(0).value());
+            assertEquals("b", userProperties.get(1).name());
+            assertEquals("2", userProperties.get(1).value());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testMissingProperties() {
+        MqttProperties properties = MqttProperties.builder()
+                .stringProperty(MqttProperties.REASON_STRING, "reason")
+                .build();
+        assertTrue(properties.contains(MqttProperties.REASON_STRING));
+        assertFalse(properties.contains(MqttProperties.TOPIC_ALIAS));
+        assertEquals(-1, properties.integerProperty(MqttProperties.TOPIC_ALIAS, -1));
+        assertTrue(properties.integerProperties(MqttProperties.SUBSCRIPTION_IDENTIFIER).isEmpty());
+        assertNull(properties.stringProperty(MqttProperties.CONTENT_TYPE));
+        assertNull(properties.binaryProperty(MqttProperties.CORRELATION_DATA));
+        assertTrue(properties.userProperties().isEmpty());
+    }
+
+    @Test
+    public void testEmptyProperties() {
+        assertSame(MqttProperties.NO_PROPERTIES, MqttProperties.builder().build());
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] { 0 });
+        try {
+            assertSame(MqttProperties.NO_PROPERTIES, MqttProperties.decode(buffer, 1));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testPeekIncompleteLength() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] { (byte) 0x80 });
+        try {
+            assertEquals(-1, MqttProperties.peekLength(buffer, 0));
+            assertEquals(-1, MqttProperties.peekLength(buffer, 1));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderRejectsWrongType() {
+        MqttProperties.builder().integerProperty(MqttProperties.REASON_STRING, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderRejectsValueOutOfRange() {
+        MqttProperties.builder().integerProperty(MqttProperties.TOPIC_ALIAS, 65536);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testDecodeRejectsUnknownIdentifier() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] { 2, 0x7F, 0 });
+        try {
+            MqttProperties.decode(buffer, 3);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testDecodeRejectsTruncatedProperty() {
+        // Receive Maximum is a Two Byte Integer but only one byte follows.
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] { 2, MqttProperties.RECEIVE_MAXIMUM, 0 });
+        try {
+            MqttProperties.decode(buffer, 3);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testDecodeRejectsLengthExceedingRemainingLength() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] { 2, MqttProperties.TOPIC_ALIAS, 0, 1 });
+        try {
+            MqttProperties.decode(buffer, 2);
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Header of an aggregate type which was added by
+ * <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>. The header is followed by the
+ * elements of the aggregate, which allows to process large aggregates as a stream instead of materializing them
+ * like {@link RedisArrayAggregator} does.
+ */
+@UnstableApi
+public abstract class AggregatedHeaderRedisMessage implements RedisMessage {
+
+    private final long length;
+
+    AggregatedHeaderRedisMessage(long length) {
+        this.length = ObjectUtil.checkPositiveOrZero(length, "length");
+    }
+
+    /**
+     * Get length of this aggregate, which is the number of entries for maps and attributes and the number of
+     * elements otherwise.
+     */
+    public final long length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of {@link RedisMessage}s which follow this header.
+     */
+    public long elements() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("length=")
+                .append(length)
+                .append(']').toString();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Map;
+
+/**
+ * Attributes of <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>. Attributes carry
+ * auxiliary data and are sent by the server right before the reply they belong to.
+ */
+@UnstableApi
+public final class AttributeRedisMessage extends MapRedisMessage {
+
+    /**
+     * Creates a {@link AttributeRedisMessage} for the given {@code content}.
+     *
+     * @param children the children.
+     */
+    public AttributeRedisMessage(Map<RedisMessage, RedisMessage> children) {
+        super(children);
+    }
+
+    @Override
+    public AttributeRedisMessage touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.math.BigInteger;
+
+/**
+ * Big numbers of <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
+ */
+@UnstableApi
+public final class BigNumberRedisMessage implements RedisMessage {
+
+    private final BigInteger value;
+
+    /**
+     * Creates a {@link BigNumberRedisMessage} for the given {@code content}.
+     *
+     * @param value the message content, must not be {@code null}.
+     */
+    public BigNumberRedisMessage(BigInteger value) {
+        this.value = ObjectUtil.checkNotNull(value, "value");
+    }
+
+    /**
+     * Get value of this {@link BigNumberRedisMessage}.
+     *
+     * @return {@link BigInteger} value
+     */
+    public BigInteger value() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("value=")
+                .append(value)
+                .append(']').toString();
+    }
+}
@@ -65,6 +65,19 @@ public final class FixedRedisMessagePool implements RedisMessagePool {
     // cached integer size cannot larger than `int` range because of Collection.
     private static final int SIZE_CACHED_INTEGER_NUMBER = (int) (MAX_CACHED_INTEGER_NUMBER - MIN_CACHED_INTEGER_NUMBER);
 
+    // RESP3 doubles which are integral are sent without a fraction, for example scores of sorted sets. We cache the
+    // same range as for integers plus the special values.
+    private static final String[] DEFAULT_SPECIAL_DOUBLES = {
+            RedisConstants.POSITIVE_INFINITY,
+            RedisConstants.NEGATIVE_INFINITY,
+            RedisConstants.NAN,
+    };
+    private static final double[] DEFAULT_SPECIAL_DOUBLE_VALUES = {
+            Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY,
+            Double.NaN,
+    };
+
     /**
      * A shared object for {@link FixedRedisMessagePool}.
      */
@@ -78,6 +91,10 @@ public final class FixedRedisMessagePool implements RedisMessagePool {
     private final Map<ByteBuf, IntegerRedisMessage> byteBufToIntegers;
     private final LongObjectMap<IntegerRedisMessage> longToIntegers;
     private final LongObjectMap<byte[]> longToByteBufs;
+    private final Map<ByteBuf, DoubleRedisMessage> byteBufToDoubles;
+    private final DoubleRedisMessage[] integralDoubles;
+    private final DoubleRedisMessage[] specialDoubles;
+    private final byte[][] specialDoubleBytes;
 
     /**
      * Creates a {@link FixedRedisMessagePool} instance.
@@ -115,6 +132,29 @@ public final class FixedRedisMessagePool implements RedisMessagePool {
             longToIntegers.put(value, cached);
             longToByteBufs.put(value, keyBytes);
         }
+
+        byteBufToDoubles = new HashMap<ByteBuf, DoubleRedisMessage>(
+                SIZE_CACHED_INTEGER_NUMBER + DEFAULT_SPECIAL_DOUBLES.length, 1.0f);
+        integralDoubles = new DoubleRedisMessage[SIZE_CACHED_INTEGER_NUMBER];
+        for (int i = 0; i < integralDoubles.length; i++) {
+            long value = MIN_CACHED_INTEGER_NUMBER + i;
+            ByteBuf keyByteBuf = Unpooled.unmodifiableBuffer(Unpooled.unreleasableBuffer(
+                    Unpooled.wrappedBuffer(longToByteBufs.get(value))));
+            DoubleRedisMessage cached = new DoubleRedisMessage(value);
+            byteBufToDoubles.put(keyByteBuf, cached);
+            integralDoubles[i] = cached;
+        }
+        specialDoubles = new DoubleRedisMessage[DEFAULT_SPECIAL_DOUBLES.length];
+        specialDoubleBytes = new byte[DEFAULT_SPECIAL_DOUBLES.length][];
+        for (int i = 0; i < DEFAULT_SPECIAL_DOUBLES.length; i++) {
+            byte[] keyBytes = DEFAULT_SPECIAL_DOUBLES[i].getBytes(CharsetUtil.US_ASCII);
+            ByteBuf keyByteBuf = Unpooled.unmodifiableBuffer(Unpooled.unreleasableBuffer(
+                    Unpooled.wrappedBuffer(keyBytes)));
+            DoubleRedisMessage cached = new DoubleRedisMessage(DEFAULT_SPECIAL_DOUBLE_VALUES[i]);
+            byteBufToDoubles.put(keyByteBuf, cached);
+            specialDoubles[i] = cached;
+            specialDoubleBytes[i] = keyBytes;
+        }
     }
 
     @Override
@@ -151,4 +191,46 @@ public final class FixedRedisMessagePool implements RedisMessagePool {
     public byte[] getByteBufOfInteger(long value) {
         return longToByteBufs.get(value);
     }
+
+    @Override
+    public DoubleRedisMessage getDouble(double value) {
+        if (isCachedIntegralDouble(value)) {
+            return integralDoubles[(int) ((long) value - MIN_CACHED_INTEGER_NUMBER)];
+        }
+        int index = specialDoubleIndex(value);
+        return index < 0 ? null : specialDoubles[index];
+    }
+
+    @Override
+    public DoubleRedisMessage getDouble(ByteBuf content) {
+        return byteBufToDoubles.get(content);
+    }
+
+    @Override
+    public byte[] getByteBufOfDouble(double value) {
+        if (isCachedIntegralDouble(value)) {
+            return longToByteBufs.get((long) value);
+        }
+        int index = specialDoubleIndex(value);
+        return index < 0 ? null : specialDoubleBytes[index];
+    }
+
+    private static boolean isCachedIntegralDouble(double value) {
+        // -0.0 is excluded as it would be cached as 0.0
+        return value >= MIN_CACHED_INTEGER_NUMBER && value < MAX_CACHED_INTEGER_NUMBER && value == (long) value &&
+               (value != 0 || Double.doubleToRawLongBits(value) == 0);
+    }
+
+    private static int specialDoubleIndex(double value) {
+        if (value == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return 1;
+        }
+        if (Double.isNaN(value)) {
+            return 2;
+        }
+        return -1;
+    }
 }
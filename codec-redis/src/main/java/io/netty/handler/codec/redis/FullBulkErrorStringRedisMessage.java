@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Bulk errors of <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
+ */
+@UnstableApi
+public class FullBulkErrorStringRedisMessage extends DefaultByteBufHolder implements RedisMessage {
+
+    /**
+     * Creates a {@link FullBulkErrorStringRedisMessage} for the given {@code content}.
+     *
+     * @param content the content, must not be {@code null}.
+     */
+    public FullBulkErrorStringRedisMessage(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("content=")
+                .append(content())
+                .append(']').toString();
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage copy() {
+        return (FullBulkErrorStringRedisMessage) super.copy();
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage duplicate() {
+        return (FullBulkErrorStringRedisMessage) super.duplicate();
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage retainedDuplicate() {
+        return (FullBulkErrorStringRedisMessage) super.retainedDuplicate();
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage replace(ByteBuf content) {
+        return new FullBulkErrorStringRedisMessage(content);
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public FullBulkErrorStringRedisMessage touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
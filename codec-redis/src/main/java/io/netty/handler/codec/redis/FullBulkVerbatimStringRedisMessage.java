@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Verbatim strings of <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>. The
+ * {@link #content()} does not include the format prefix.
+ */
+@UnstableApi
+public class FullBulkVerbatimStringRedisMessage extends FullBulkStringRedisMessage {
+
+    private final String format;
+
+    /**
+     * Creates a {@link FullBulkVerbatimStringRedisMessage} for the given {@code format} and {@code content}.
+     *
+     * @param format the format of the content, must consist of three characters, for example {@code "txt"}
+     *               or {@code "mkd"}.
+     * @param content the content, must not be {@code null}.
+     */
+    public FullBulkVerbatimStringRedisMessage(String format, ByteBuf content) {
+        super(content);
+        ObjectUtil.checkNotNull(format, "format");
+        if (format.length() != RedisConstants.VERBATIM_FORMAT_LENGTH) {
+            throw new IllegalArgumentException("format: " + format + " (expected: " +
+                                               RedisConstants.VERBATIM_FORMAT_LENGTH + " characters)");
+        }
+        this.format = format;
+    }
+
+    /**
+     * Returns the format of the content, for example {@code "txt"} or {@code "mkd"}.
+     */
+    public String format() {
+        return format;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("format=")
+                .append(format)
+                .append(", content=")
+                .append(content())
+                .append(']').toString();
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage copy() {
+        return (FullBulkVerbatimStringRedisMessage) super.copy();
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage duplicate() {
+        return (FullBulkVerbatimStringRedisMessage) super.duplicate();
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage retainedDuplicate() {
+        return (FullBulkVerbatimStringRedisMessage) super.retainedDuplicate();
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage replace(ByteBuf content) {
+        return new FullBulkVerbatimStringRedisMessage(format, content);
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public FullBulkVerbatimStringRedisMessage touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
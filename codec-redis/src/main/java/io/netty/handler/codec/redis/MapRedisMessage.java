@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Map;
+
+/**
+ * Maps of <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
+ */
+@UnstableApi
+public class MapRedisMessage extends AbstractReferenceCounted implements RedisMessage {
+
+    private final Map<RedisMessage, RedisMessage> children;
+
+    /**
+     * Creates a {@link MapRedisMessage} for the given {@code content}.
+     *
+     * @param children the children.
+     */
+    public MapRedisMessage(Map<RedisMessage, RedisMessage> children) {
+        // do not retain here. children are already retained when created.
+        this.children = ObjectUtil.checkNotNull(children, "children");
+    }
+
+    /**
+     * Get children of this Map. It can be empty.
+     *
+     * @return map of {@link RedisMessage}s.
+     */
+    public final Map<RedisMessage, RedisMessage> children() {
+        return children;
+    }
+
+    @Override
+    protected void deallocate() {
+        for (Map.Entry<RedisMessage, RedisMessage> entry : children.entrySet()) {
+            ReferenceCountUtil.release(entry.getKey());
+            ReferenceCountUtil.release(entry.getValue());
+        }
+    }
+
+    @Override
+    public MapRedisMessage touch(Object hint) {
+        for (Map.Entry<RedisMessage, RedisMessage> entry : children.entrySet()) {
+            ReferenceCountUtil.touch(entry.getKey());
+            ReferenceCountUtil.touch(entry.getValue());
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("children=")
+                .append(children.size())
+                .append(']').toString();
+    }
+}
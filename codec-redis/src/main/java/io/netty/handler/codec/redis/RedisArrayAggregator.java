@@ -24,11 +24,17 @@ import io.netty.util.internal.UnstableApi;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Aggregates {@link RedisMessage} parts into {@link ArrayRedisMessage}. This decoder
- * should be used together with {@link RedisDecoder}.
+ * Aggregates {@link RedisMessage} parts into {@link ArrayRedisMessage}, and the RESP3 aggregates into
+ * {@link MapRedisMessage}, {@link SetRedisMessage}, {@link AttributeRedisMessage} and {@link PushRedisMessage}.
+ * {@link AttributeRedisMessage}s inside an aggregate are passed on before it and are not counted as one of its
+ * elements. This decoder should be used together with {@link RedisDecoder}.
  */
 @UnstableApi
 public final class RedisArrayAggregator extends MessageToMessageDecoder<RedisMessage> {
@@ -42,17 +48,27 @@ public final class RedisArrayAggregator extends MessageToMessageDecoder<RedisMes
             if (msg == null) {
                 return;
             }
+        } else if (msg instanceof AggregatedHeaderRedisMessage) {
+            msg = decodeAggregatedHeader((AggregatedHeaderRedisMessage) msg);
+            if (msg == null) {
+                return;
+            }
         } else {
             ReferenceCountUtil.retain(msg);
         }
 
         while (!depths.isEmpty()) {
+            if (msg instanceof AttributeRedisMessage) {
+                // attributes are out-of-band, so pass them on directly instead of counting them as an element.
+                out.add(msg);
+                return;
+            }
             AggregateState current = depths.peek();
             current.children.add(msg);
 
             // if current aggregation completed, go to parent aggregation.
             if (current.children.size() == current.length) {
-                msg = new ArrayRedisMessage(current.children);
+                msg = current.aggregate();
                 depths.pop();
             } else {
                 // not aggregated yet. try next time.
@@ -75,19 +91,68 @@ public final class RedisArrayAggregator extends MessageToMessageDecoder<RedisMes
             }
 
             // start aggregating array
-            depths.push(new AggregateState((int) header.length()));
+            depths.push(new AggregateState(null, (int) header.length()));
             return null;
         } else {
             throw new CodecException("bad length: " + header.length());
         }
     }
 
+    private RedisMessage decodeAggregatedHeader(AggregatedHeaderRedisMessage header) {
+        // Currently, this codec doesn't support `long` length for aggregates because Java's List.size() is int.
+        if (header.elements() > Integer.MAX_VALUE) {
+            throw new CodecException("this codec doesn't support longer length than " + Integer.MAX_VALUE);
+        }
+        AggregateState state = new AggregateState(header, (int) header.elements());
+        if (state.length == 0) {
+            return state.aggregate();
+        }
+        // start aggregating
+        depths.push(state);
+        return null;
+    }
+
     private static final class AggregateState {
+        // null for arrays
+        private final AggregatedHeaderRedisMessage header;
         private final int length;
         private final List<RedisMessage> children;
-        AggregateState(int length) {
+        AggregateState(AggregatedHeaderRedisMessage header, int length) {
+            this.header = header;
             this.length = length;
             this.children = new ArrayList<RedisMessage>(length);
         }
+
+        RedisMessage aggregate() {
+            if (header == null) {
+                return new ArrayRedisMessage(children);
+            }
+            if (header instanceof PushHeaderRedisMessage) {
+                return new PushRedisMessage(children);
+            }
+            if (header instanceof SetHeaderRedisMessage) {
+                Set<RedisMessage> set = new LinkedHashSet<RedisMessage>(children.size() * 4 / 3 + 1);
+                for (RedisMessage child : children) {
+                    if (!set.add(child)) {
+                        // duplicated element, only the first one is kept.
+                        ReferenceCountUtil.release(child);
+                    }
+                }
+                return new SetRedisMessage(set);
+            }
+            Map<RedisMessage, RedisMessage> map =
+                    new LinkedHashMap<RedisMessage, RedisMessage>(children.size() * 2 / 3 + 1);
+            for (int i = 0; i < children.size(); i += 2) {
+                RedisMessage key = children.get(i);
+                RedisMessage previous = map.put(key, children.get(i + 1));
+                if (previous != null) {
+                    // duplicated key, the map keeps the first key and the last value.
+                    ReferenceCountUtil.release(key);
+                    ReferenceCountUtil.release(previous);
+                }
+            }
+            return header instanceof AttributeHeaderRedisMessage ?
+                    new AttributeRedisMessage(map) : new MapRedisMessage(map);
+        }
     }
 }
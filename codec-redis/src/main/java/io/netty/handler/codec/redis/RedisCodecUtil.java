@@ -30,6 +30,45 @@ final class RedisCodecUtil {
         return Long.toString(value).getBytes(CharsetUtil.US_ASCII);
     }
 
+    /**
+     * Returns the RESP3 representation of a {@code double} value. Integral values are written without a fraction.
+     */
+    static byte[] doubleToAsciiBytes(double value) {
+        final String s;
+        if (value == Double.POSITIVE_INFINITY) {
+            s = RedisConstants.POSITIVE_INFINITY;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            s = RedisConstants.NEGATIVE_INFINITY;
+        } else if (Double.isNaN(value)) {
+            s = RedisConstants.NAN;
+        } else if (value == (long) value && (value != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            s = Long.toString((long) value);
+        } else {
+            s = Double.toString(value);
+        }
+        return s.getBytes(CharsetUtil.US_ASCII);
+    }
+
+    /**
+     * Parses the RESP3 representation of a {@code double} value.
+     */
+    static double parseDouble(String value) {
+        if (RedisConstants.POSITIVE_INFINITY.equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (RedisConstants.NEGATIVE_INFINITY.equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (RedisConstants.NAN.equals(value)) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RedisCodecException("bad double: " + value);
+        }
+    }
+
     /**
      * Returns a {@code short} value using endian order.
      */
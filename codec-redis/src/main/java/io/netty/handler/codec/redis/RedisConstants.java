@@ -40,6 +40,16 @@ final class RedisConstants {
 
     static final int LONG_MAX_LENGTH = POSITIVE_LONG_MAX_LENGTH + 1; // +1 is sign
 
+    static final int VERBATIM_FORMAT_LENGTH = 3;
+
+    static final int VERBATIM_PREFIX_LENGTH = VERBATIM_FORMAT_LENGTH + 1; // +1 is ':'
+
+    static final String POSITIVE_INFINITY = "inf";
+
+    static final String NEGATIVE_INFINITY = "-inf";
+
+    static final String NAN = "nan";
+
     static final short NULL_SHORT = RedisCodecUtil.makeShort('-', '1');
 
     static final short EOL_SHORT = RedisCodecUtil.makeShort('\r', '\n');
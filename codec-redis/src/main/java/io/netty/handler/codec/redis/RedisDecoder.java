@@ -22,14 +22,20 @@ import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.UnstableApi;
 
+import java.math.BigInteger;
 import java.util.List;
 
 /**
  * Decodes the Redis protocol into {@link RedisMessage} objects following
- * <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>.
+ * <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>, including the types
+ * added by <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
  *
  * {@link RedisMessage} parts can be aggregated to {@link RedisMessage} using
  * {@link RedisArrayAggregator} or processed directly.
+ *
+ * Bulk errors and verbatim strings of RESP3 are only emitted once they were received completely, while all
+ * aggregates are emitted as a header like {@link ArrayHeaderRedisMessage} or {@link AggregatedHeaderRedisMessage}
+ * followed by their elements.
  */
 @UnstableApi
 public final class RedisDecoder extends ByteToMessageDecoder {
@@ -47,10 +53,11 @@ public final class RedisDecoder extends ByteToMessageDecoder {
 
     private enum State {
         DECODE_TYPE,
-        DECODE_INLINE, // SIMPLE_STRING, ERROR, INTEGER
-        DECODE_LENGTH, // BULK_STRING, ARRAY_HEADER
+        DECODE_INLINE, // SIMPLE_STRING, ERROR, INTEGER, NULL, BOOLEAN, DOUBLE, BIG_NUMBER
+        DECODE_LENGTH, // BULK_STRING, ARRAY_HEADER, BULK_ERROR_STRING, VERBATIM_STRING, *_HEADER
         DECODE_BULK_STRING_EOL,
         DECODE_BULK_STRING_CONTENT,
+        DECODE_FULL_BULK_STRING, // BULK_ERROR_STRING, VERBATIM_STRING
     }
 
     /**
@@ -124,6 +131,11 @@ public final class RedisDecoder extends ByteToMessageDecoder {
                         return;
                     }
                     break;
+                case DECODE_FULL_BULK_STRING:
+                    if (!decodeFullBulkString(in, out)) {
+                        return;
+                    }
+                    break;
                 default:
                     throw new RedisCodecException("Unknown state: " + state);
                 }
@@ -187,6 +199,25 @@ public final class RedisDecoder extends ByteToMessageDecoder {
             }
             remainingBulkLength = (int) length; // range(int) is already checked.
             return decodeBulkString(in, out);
+        case BULK_ERROR_STRING:
+        case VERBATIM_STRING:
+            if (length < 0 || length > RedisConstants.REDIS_MESSAGE_MAX_LENGTH) {
+                throw new RedisCodecException("length: " + length + " (expected: 0-" +
+                                              RedisConstants.REDIS_MESSAGE_MAX_LENGTH + ")");
+            }
+            remainingBulkLength = (int) length; // range(int) is already checked.
+            state = State.DECODE_FULL_BULK_STRING;
+            return decodeFullBulkString(in, out);
+        case MAP_HEADER:
+        case SET_HEADER:
+        case ATTRIBUTE_HEADER:
+        case PUSH_HEADER:
+            if (length < 0) {
+                throw new RedisCodecException("length: " + length + " (expected: >= 0)");
+            }
+            out.add(newAggregatedHeaderRedisMessage(type, length));
+            resetDecoder();
+            return true;
         default:
             throw new RedisCodecException("bad type: " + type);
         }
@@ -243,6 +274,30 @@ public final class RedisDecoder extends ByteToMessageDecoder {
         return true;
     }
 
+    // !{remainingBulkLength}\r\n <here> {data...}\r\n
+    private boolean decodeFullBulkString(ByteBuf in, List<Object> out) throws Exception {
+        if (in.readableBytes() < remainingBulkLength + RedisConstants.EOL_LENGTH) {
+            return false;
+        }
+        ByteBuf content = in.readSlice(remainingBulkLength);
+        readEndOfLine(in);
+        if (type == RedisMessageType.VERBATIM_STRING) {
+            if (remainingBulkLength < RedisConstants.VERBATIM_PREFIX_LENGTH ||
+                content.getByte(content.readerIndex() + RedisConstants.VERBATIM_FORMAT_LENGTH) != ':') {
+                throw new RedisCodecException("verbatim string without format: " +
+                                              content.toString(CharsetUtil.UTF_8));
+            }
+            String format = content.readSlice(RedisConstants.VERBATIM_FORMAT_LENGTH).toString(CharsetUtil.US_ASCII);
+            content.skipBytes(1);
+            // Only call retain after readEndOfLine(...) as the method may throw an exception.
+            out.add(new FullBulkVerbatimStringRedisMessage(format, content.retain()));
+        } else {
+            out.add(new FullBulkErrorStringRedisMessage(content.retain()));
+        }
+        resetDecoder();
+        return true;
+    }
+
     private static void readEndOfLine(final ByteBuf in) {
         final short delim = in.readShort();
         if (RedisConstants.EOL_SHORT == delim) {
@@ -268,11 +323,63 @@ public final class RedisDecoder extends ByteToMessageDecoder {
             IntegerRedisMessage cached = messagePool.getInteger(content);
             return cached != null ? cached : new IntegerRedisMessage(parseRedisNumber(content));
         }
+        case NULL:
+            if (content.isReadable()) {
+                throw new RedisCodecException("bad null: " + content.toString(CharsetUtil.US_ASCII));
+            }
+            return NullRedisMessage.INSTANCE;
+        case BOOLEAN:
+            return parseRedisBoolean(content);
+        case DOUBLE: {
+            DoubleRedisMessage cached = messagePool.getDouble(content);
+            return cached != null ? cached :
+                    new DoubleRedisMessage(RedisCodecUtil.parseDouble(content.toString(CharsetUtil.US_ASCII)));
+        }
+        case BIG_NUMBER:
+            return new BigNumberRedisMessage(parseRedisBigNumber(content));
+        default:
+            throw new RedisCodecException("bad type: " + messageType);
+        }
+    }
+
+    private static RedisMessage newAggregatedHeaderRedisMessage(RedisMessageType messageType, long length) {
+        switch (messageType) {
+        case MAP_HEADER:
+            return new MapHeaderRedisMessage(length);
+        case SET_HEADER:
+            return new SetHeaderRedisMessage(length);
+        case ATTRIBUTE_HEADER:
+            return new AttributeHeaderRedisMessage(length);
+        case PUSH_HEADER:
+            return new PushHeaderRedisMessage(length);
         default:
             throw new RedisCodecException("bad type: " + messageType);
         }
     }
 
+    private static BooleanRedisMessage parseRedisBoolean(ByteBuf byteBuf) {
+        if (byteBuf.readableBytes() == 1) {
+            switch (byteBuf.getByte(byteBuf.readerIndex())) {
+            case 't':
+                return BooleanRedisMessage.TRUE;
+            case 'f':
+                return BooleanRedisMessage.FALSE;
+            default:
+                break;
+            }
+        }
+        throw new RedisCodecException("bad boolean: " + byteBuf.toString(CharsetUtil.US_ASCII));
+    }
+
+    private static BigInteger parseRedisBigNumber(ByteBuf byteBuf) {
+        String value = byteBuf.toString(CharsetUtil.US_ASCII);
+        try {
+            return new BigInteger(value);
+        } catch (NumberFormatException e) {
+            throw new RedisCodecException("bad big number: " + value);
+        }
+    }
+
     private static ByteBuf readLine(ByteBuf in) {
         if (!in.isReadable(RedisConstants.EOL_LENGTH)) {
             return null;
@@ -25,10 +25,12 @@ import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.UnstableApi;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Encodes {@link RedisMessage} into bytes following
- * <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>.
+ * <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>, including the types
+ * added by <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
  */
 @UnstableApi
 public class RedisEncoder extends MessageToMessageEncoder<RedisMessage> {
@@ -70,6 +72,8 @@ public class RedisEncoder extends MessageToMessageEncoder<RedisMessage> {
             writeErrorMessage(allocator, (ErrorRedisMessage) msg, out);
         } else if (msg instanceof IntegerRedisMessage) {
             writeIntegerMessage(allocator, (IntegerRedisMessage) msg, out);
+        } else if (msg instanceof FullBulkVerbatimStringRedisMessage) {
+            writeFullBulkVerbatimStringMessage(allocator, (FullBulkVerbatimStringRedisMessage) msg, out);
         } else if (msg instanceof FullBulkStringRedisMessage) {
             writeFullBulkStringMessage(allocator, (FullBulkStringRedisMessage) msg, out);
         } else if (msg instanceof BulkStringRedisContent) {
@@ -80,6 +84,24 @@ public class RedisEncoder extends MessageToMessageEncoder<RedisMessage> {
             writeArrayHeader(allocator, (ArrayHeaderRedisMessage) msg, out);
         } else if (msg instanceof ArrayRedisMessage) {
             writeArrayMessage(allocator, (ArrayRedisMessage) msg, out);
+        } else if (msg instanceof NullRedisMessage) {
+            writeNullMessage(allocator, out);
+        } else if (msg instanceof BooleanRedisMessage) {
+            writeBooleanMessage(allocator, (BooleanRedisMessage) msg, out);
+        } else if (msg instanceof DoubleRedisMessage) {
+            writeDoubleMessage(allocator, (DoubleRedisMessage) msg, out);
+        } else if (msg instanceof BigNumberRedisMessage) {
+            writeBigNumberMessage(allocator, (BigNumberRedisMessage) msg, out);
+        } else if (msg instanceof FullBulkErrorStringRedisMessage) {
+            writeFullBulkErrorStringMessage(allocator, (FullBulkErrorStringRedisMessage) msg, out);
+        } else if (msg instanceof AggregatedHeaderRedisMessage) {
+            writeAggregatedHeader(allocator, (AggregatedHeaderRedisMessage) msg, out);
+        } else if (msg instanceof MapRedisMessage) {
+            writeMapMessage(allocator, (MapRedisMessage) msg, out);
+        } else if (msg instanceof SetRedisMessage) {
+            writeSetMessage(allocator, (SetRedisMessage) msg, out);
+        } else if (msg instanceof PushRedisMessage) {
+            writePushMessage(allocator, (PushRedisMessage) msg, out);
         } else {
             throw new CodecException("unknown message type: " + msg);
         }
@@ -200,6 +222,123 @@ public class RedisEncoder extends MessageToMessageEncoder<RedisMessage> {
         }
     }
 
+    private static void writeNullMessage(ByteBufAllocator allocator, List<Object> out) {
+        ByteBuf buf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + RedisConstants.EOL_LENGTH);
+        RedisMessageType.NULL.writeTo(buf);
+        buf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(buf);
+    }
+
+    private static void writeBooleanMessage(ByteBufAllocator allocator, BooleanRedisMessage msg, List<Object> out) {
+        ByteBuf buf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + 1 + RedisConstants.EOL_LENGTH);
+        RedisMessageType.BOOLEAN.writeTo(buf);
+        buf.writeByte(msg.value() ? 't' : 'f');
+        buf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(buf);
+    }
+
+    private void writeDoubleMessage(ByteBufAllocator allocator, DoubleRedisMessage msg, List<Object> out) {
+        byte[] bytes = messagePool.getByteBufOfDouble(msg.value());
+        if (bytes == null) {
+            bytes = RedisCodecUtil.doubleToAsciiBytes(msg.value());
+        }
+        ByteBuf buf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + bytes.length + RedisConstants.EOL_LENGTH);
+        RedisMessageType.DOUBLE.writeTo(buf);
+        buf.writeBytes(bytes);
+        buf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(buf);
+    }
+
+    private static void writeBigNumberMessage(ByteBufAllocator allocator, BigNumberRedisMessage msg,
+                                              List<Object> out) {
+        String value = msg.value().toString();
+        ByteBuf buf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + value.length() + RedisConstants.EOL_LENGTH);
+        RedisMessageType.BIG_NUMBER.writeTo(buf);
+        ByteBufUtil.writeAscii(buf, value);
+        buf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(buf);
+    }
+
+    private void writeFullBulkErrorStringMessage(ByteBufAllocator allocator, FullBulkErrorStringRedisMessage msg,
+                                                 List<Object> out) {
+        ByteBuf headerBuf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + RedisConstants.LONG_MAX_LENGTH +
+                                               RedisConstants.EOL_LENGTH);
+        RedisMessageType.BULK_ERROR_STRING.writeTo(headerBuf);
+        headerBuf.writeBytes(numberToBytes(msg.content().readableBytes()));
+        headerBuf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(headerBuf);
+        out.add(msg.content().retain());
+        out.add(allocator.ioBuffer(RedisConstants.EOL_LENGTH).writeShort(RedisConstants.EOL_SHORT));
+    }
+
+    private void writeFullBulkVerbatimStringMessage(ByteBufAllocator allocator,
+                                                    FullBulkVerbatimStringRedisMessage msg, List<Object> out) {
+        ByteBuf headerBuf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + RedisConstants.LONG_MAX_LENGTH +
+                                               RedisConstants.EOL_LENGTH + RedisConstants.VERBATIM_PREFIX_LENGTH);
+        RedisMessageType.VERBATIM_STRING.writeTo(headerBuf);
+        headerBuf.writeBytes(numberToBytes(RedisConstants.VERBATIM_PREFIX_LENGTH + msg.content().readableBytes()));
+        headerBuf.writeShort(RedisConstants.EOL_SHORT);
+        ByteBufUtil.writeAscii(headerBuf, msg.format());
+        headerBuf.writeByte(':');
+        out.add(headerBuf);
+        out.add(msg.content().retain());
+        out.add(allocator.ioBuffer(RedisConstants.EOL_LENGTH).writeShort(RedisConstants.EOL_SHORT));
+    }
+
+    /**
+     * Write the header of a RESP3 aggregate only without body. Use this if you want to write aggregates as
+     * streaming.
+     */
+    private void writeAggregatedHeader(ByteBufAllocator allocator, AggregatedHeaderRedisMessage msg,
+                                       List<Object> out) {
+        final RedisMessageType type;
+        if (msg instanceof MapHeaderRedisMessage) {
+            type = RedisMessageType.MAP_HEADER;
+        } else if (msg instanceof SetHeaderRedisMessage) {
+            type = RedisMessageType.SET_HEADER;
+        } else if (msg instanceof AttributeHeaderRedisMessage) {
+            type = RedisMessageType.ATTRIBUTE_HEADER;
+        } else if (msg instanceof PushHeaderRedisMessage) {
+            type = RedisMessageType.PUSH_HEADER;
+        } else {
+            throw new CodecException("unknown message type: " + msg);
+        }
+        writeAggregatedHeader(allocator, type, msg.length(), out);
+    }
+
+    private void writeMapMessage(ByteBufAllocator allocator, MapRedisMessage msg, List<Object> out) {
+        writeAggregatedHeader(allocator, msg instanceof AttributeRedisMessage ?
+                RedisMessageType.ATTRIBUTE_HEADER : RedisMessageType.MAP_HEADER, msg.children().size(), out);
+        for (Map.Entry<RedisMessage, RedisMessage> entry : msg.children().entrySet()) {
+            writeRedisMessage(allocator, entry.getKey(), out);
+            writeRedisMessage(allocator, entry.getValue(), out);
+        }
+    }
+
+    private void writeSetMessage(ByteBufAllocator allocator, SetRedisMessage msg, List<Object> out) {
+        writeAggregatedHeader(allocator, RedisMessageType.SET_HEADER, msg.children().size(), out);
+        for (RedisMessage child : msg.children()) {
+            writeRedisMessage(allocator, child, out);
+        }
+    }
+
+    private void writePushMessage(ByteBufAllocator allocator, PushRedisMessage msg, List<Object> out) {
+        writeAggregatedHeader(allocator, RedisMessageType.PUSH_HEADER, msg.children().size(), out);
+        for (RedisMessage child : msg.children()) {
+            writeRedisMessage(allocator, child, out);
+        }
+    }
+
+    private void writeAggregatedHeader(ByteBufAllocator allocator, RedisMessageType type, long length,
+                                       List<Object> out) {
+        final ByteBuf buf = allocator.ioBuffer(RedisConstants.TYPE_LENGTH + RedisConstants.LONG_MAX_LENGTH +
+                                               RedisConstants.EOL_LENGTH);
+        type.writeTo(buf);
+        buf.writeBytes(numberToBytes(length));
+        buf.writeShort(RedisConstants.EOL_SHORT);
+        out.add(buf);
+    }
+
     private byte[] numberToBytes(long value) {
         byte[] bytes = messagePool.getByteBufOfInteger(value);
         return bytes != null ? bytes : RedisCodecUtil.longToAsciiBytes(value);
@@ -59,4 +59,19 @@ public interface RedisMessagePool {
      * Returns {@code byte[]} for given {@code msg}. Returns {@code null} it does not exist.
      */
     byte[] getByteBufOfInteger(long value);
+
+    /**
+     * Returns {@link DoubleRedisMessage} for given {@code value}. Returns {@code null} it does not exist.
+     */
+    DoubleRedisMessage getDouble(double value);
+
+    /**
+     * Returns {@link DoubleRedisMessage} for given {@code content}. Returns {@code null} it does not exist.
+     */
+    DoubleRedisMessage getDouble(ByteBuf content);
+
+    /**
+     * Returns {@code byte[]} for given {@code value}. Returns {@code null} it does not exist.
+     */
+    byte[] getByteBufOfDouble(double value);
 }
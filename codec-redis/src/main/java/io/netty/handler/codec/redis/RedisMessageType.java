@@ -19,7 +19,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.internal.UnstableApi;
 
 /**
- * Type of <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>.
+ * Type of <a href="http://redis.io/topics/protocol">RESP (REdis Serialization Protocol)</a>, including the types
+ * added by <a href="https://github.com/antirez/RESP3/blob/master/spec.md">RESP3</a>.
  */
 @UnstableApi
 public enum RedisMessageType {
@@ -29,7 +30,18 @@ public enum RedisMessageType {
     ERROR((byte) '-', true),
     INTEGER((byte) ':', true),
     BULK_STRING((byte) '$', false),
-    ARRAY_HEADER((byte) '*', false);
+    ARRAY_HEADER((byte) '*', false),
+    // RESP3
+    NULL((byte) '_', true),
+    BOOLEAN((byte) '#', true),
+    DOUBLE((byte) ',', true),
+    BIG_NUMBER((byte) '(', true),
+    BULK_ERROR_STRING((byte) '!', false),
+    VERBATIM_STRING((byte) '=', false),
+    MAP_HEADER((byte) '%', false),
+    SET_HEADER((byte) '~', false),
+    ATTRIBUTE_HEADER((byte) '|', false),
+    PUSH_HEADER((byte) '>', false);
 
     private final Byte value;
     private final boolean inline;
@@ -92,6 +104,26 @@ public enum RedisMessageType {
             return BULK_STRING;
         case '*':
             return ARRAY_HEADER;
+        case '_':
+            return NULL;
+        case '#':
+            return BOOLEAN;
+        case ',':
+            return DOUBLE;
+        case '(':
+            return BIG_NUMBER;
+        case '!':
+            return BULK_ERROR_STRING;
+        case '=':
+            return VERBATIM_STRING;
+        case '%':
+            return MAP_HEADER;
+        case '~':
+            return SET_HEADER;
+        case '|':
+            return ATTRIBUTE_HEADER;
+        case '>':
+            return PUSH_HEADER;
         default:
             return INLINE_COMMAND;
         }
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.netty.handler.codec.redis;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A client side handler which pipelines Redis commands and correlates them with their replies.
+ * <p>
+ * Commands are either passed to {@link #send(RedisMessage)}, which returns a {@link Future} that is notified with
+ * the reply, or written to the {@link io.netty.channel.Channel} as usual, in which case the reply is passed on
+ * via {@link ChannelHandlerContext#fireChannelRead(Object)}. Replies are matched to the commands in the order the
+ * commands were written, as Redis replies in order. {@link PushRedisMessage}s and {@link AttributeRedisMessage}s
+ * are not replies and are always passed on via {@link ChannelHandlerContext#fireChannelRead(Object)}.
+ * <p>
+ * Flushes are consolidated: all commands which are written during the same read loop or event loop iteration
+ * are flushed together, which reduces the number of syscalls considerably when many commands are sent.
+ * <p>
+ * The number of commands which were written but not replied to yet can be bounded. Commands beyond that limit are
+ * queued in this handler and written once replies arrive. {@link #pendingCommands()} can be used to apply
+ * backpressure on the producer of commands.
+ * <p>
+ * Any exception closes the connection, as the replies can not be matched to the commands reliably anymore.
+ * <p>
+ * This handler must be placed after {@link RedisEncoder}, {@link RedisDecoder}, {@link RedisBulkStringAggregator}
+ * and {@link RedisArrayAggregator} in the {@link io.netty.channel.ChannelPipeline} as it expects aggregated
+ * replies. The {@link Future}s returned by {@link #send(RedisMessage)} own the reply, which must be released once
+ * it is not needed anymore.
+ */
+@UnstableApi
+public class RedisPipeliningClientHandler extends ChannelDuplexHandler {
+
+    private final int maxInFlightCommands;
+    private final Queue<Command> inFlight = new ArrayDeque<Command>();
+    private final Queue<Command> pending = new ArrayDeque<Command>();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            if (flushScheduled && !readInProgress) {
+                flushScheduled = false;
+                ctx.flush();
+            } // else we'll flush when the read completes
+        }
+    };
+    private final ChannelFutureListener writeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess()) {
+                // The reply which belongs to the command can not be identified anymore.
+                future.channel().close();
+            }
+        }
+    };
+
+    private ChannelHandlerContext ctx;
+    private boolean flushScheduled;
+    private boolean readInProgress;
+    private boolean closed;
+
+    /**
+     * Creates a new instance which does not bound the number of commands waiting for a reply.
+     */
+    public RedisPipeliningClientHandler() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxInFlightCommands the maximum number of commands which are written but not replied to yet.
+     */
+    public RedisPipeliningClientHandler(int maxInFlightCommands) {
+        this.maxInFlightCommands = ObjectUtil.checkPositive(maxInFlightCommands, "maxInFlightCommands");
+    }
+
+    /**
+     * Sends the given command. This method may be called from any thread.
+     *
+     * @param command the command, usually an {@link ArrayRedisMessage} of {@link FullBulkStringRedisMessage}s.
+     * @return the {@link Future} which is notified with the reply. The reply must be released by the caller.
+     */
+    public Future<RedisMessage> send(final RedisMessage command) {
+        ObjectUtil.checkNotNull(command, "command");
+        final ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            ReferenceCountUtil.release(command);
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        final Promise<RedisMessage> reply = ctx.executor().newPromise();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            send(ctx, command, reply);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(ctx, command, reply);
+                }
+            });
+        }
+        return reply;
+    }
+
+    private void send(ChannelHandlerContext ctx, RedisMessage command, Promise<RedisMessage> reply) {
+        enqueue(ctx, new Command(command, reply, ctx.newPromise()));
+        scheduleFlush(ctx);
+    }
+
+    /**
+     * Returns the number of commands which were written but not replied to yet. Must be called from the
+     * {@link EventExecutor} of this handler.
+     */
+    public int inFlightCommands() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the number of commands which are queued because {@code maxInFlightCommands} commands are waiting for a
+     * reply already. Must be called from the {@link EventExecutor} of this handler.
+     */
+    public int pendingCommands() {
+        return pending.size();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        failAll(new IllegalStateException("handler removed"));
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof RedisMessage) {
+            enqueue(ctx, new Command((RedisMessage) msg, null, promise));
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        scheduleFlush(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        if (msg instanceof PushRedisMessage || msg instanceof AttributeRedisMessage) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        Command command = inFlight.poll();
+        if (command == null) {
+            // Not a reply to a command which passed this handler, let the user handle it.
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (command.reply == null) {
+            ctx.fireChannelRead(msg);
+        } else if (!command.reply.trySuccess((RedisMessage) msg)) {
+            // The Future was cancelled.
+            ReferenceCountUtil.release(msg);
+        }
+        writePending(ctx);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        if (flushScheduled) {
+            flushScheduled = false;
+            ctx.flush();
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failAll(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        // The replies can not be matched to the commands reliably anymore, so give up on the connection.
+        failAll(cause);
+        ctx.fireExceptionCaught(cause);
+        ctx.close();
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, Command command) {
+        if (closed) {
+            command.fail(new ClosedChannelException());
+        } else if (inFlight.size() < maxInFlightCommands) {
+            writeCommand(ctx, command);
+        } else {
+            pending.add(command);
+        }
+    }
+
+    private void writePending(ChannelHandlerContext ctx) {
+        boolean written = false;
+        while (inFlight.size() < maxInFlightCommands) {
+            Command command = pending.poll();
+            if (command == null) {
+                break;
+            }
+            writeCommand(ctx, command);
+            written = true;
+        }
+        if (written) {
+            scheduleFlush(ctx);
+        }
+    }
+
+    private void writeCommand(ChannelHandlerContext ctx, Command command) {
+        RedisMessage message = command.message;
+        command.message = null;
+        inFlight.add(command);
+        ctx.write(message, command.writePromise.unvoid()).addListener(writeListener);
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            if (!readInProgress) {
+                ctx.executor().execute(flushTask);
+            }
+        }
+    }
+
+    private void failAll(Throwable cause) {
+        closed = true;
+        Command command;
+        while ((command = inFlight.poll()) != null) {
+            command.fail(cause);
+        }
+        while ((command = pending.poll()) != null) {
+            command.fail(cause);
+        }
+    }
+
+    private static final class Command {
+        // null once written
+        RedisMessage message;
+        // null if the reply is passed on via fireChannelRead(...)
+        final Promise<RedisMessage> reply;
+        final ChannelPromise writePromise;
+
+        Command(RedisMessage message, Promise<RedisMessage> reply, ChannelPromise writePromise) {
+            this.message = message;
+            this.reply = reply;
+            this.writePromise = writePromise;
+        }
+
+        void fail(Throwable cause) {
+            if (message != null) {
+                ReferenceCountUtil.release(message);
+                message = null;
+                writePromise.tryFailure(cause);
+            }
+            if (reply != null) {
+                reply.tryFailure(cause);
+            }
+        }
+    }
+}
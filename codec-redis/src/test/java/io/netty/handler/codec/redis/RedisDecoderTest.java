@@ -26,7 +26,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static io.netty.handler.codec.redis.RedisCodecTestUtil.*;
 import static org.hamcrest.CoreMatchers.*;
@@ -307,6 +310,194 @@ public class RedisDecoderTest {
         ReferenceCountUtil.release(childBuf);
     }
 
+    @Test
+    public void shouldDecodeNull() {
+        assertFalse(channel.writeInbound(byteBufOf("_")));
+        assertTrue(channel.writeInbound(byteBufOf("\r\n")));
+
+        RedisMessage msg = channel.readInbound();
+        assertThat(msg, is(sameInstance((RedisMessage) NullRedisMessage.INSTANCE)));
+    }
+
+    @Test
+    public void shouldDecodeBoolean() {
+        assertTrue(channel.writeInbound(byteBufOf("#t\r\n#f\r\n")));
+
+        BooleanRedisMessage msg1 = channel.readInbound();
+        assertThat(msg1.value(), is(true));
+        BooleanRedisMessage msg2 = channel.readInbound();
+        assertThat(msg2.value(), is(false));
+    }
+
+    @Test(expected = DecoderException.class)
+    public void shouldNotDecodeBadBoolean() {
+        channel.writeInbound(byteBufOf("#x\r\n"));
+    }
+
+    @Test
+    public void shouldDecodeDouble() {
+        assertFalse(channel.writeInbound(byteBufOf(",3.")));
+        assertTrue(channel.writeInbound(byteBufOf("14\r\n,1.5e3\r\n,-inf\r\n,nan\r\n,5\r\n")));
+
+        DoubleRedisMessage msg1 = channel.readInbound();
+        assertThat(msg1.value(), is(3.14));
+        DoubleRedisMessage msg2 = channel.readInbound();
+        assertThat(msg2.value(), is(1500.0));
+        DoubleRedisMessage msg3 = channel.readInbound();
+        assertThat(msg3.value(), is(Double.NEGATIVE_INFINITY));
+        DoubleRedisMessage msg4 = channel.readInbound();
+        assertTrue(Double.isNaN(msg4.value()));
+        DoubleRedisMessage msg5 = channel.readInbound();
+        assertThat(msg5, is(sameInstance(FixedRedisMessagePool.INSTANCE.getDouble(5))));
+    }
+
+    @Test
+    public void shouldDecodeBigNumber() {
+        String value = "3492890328409238509324850943850943825024385";
+        assertFalse(channel.writeInbound(byteBufOf("(" + value)));
+        assertTrue(channel.writeInbound(byteBufOf("\r\n")));
+
+        BigNumberRedisMessage msg = channel.readInbound();
+        assertThat(msg.value(), is(new BigInteger(value)));
+    }
+
+    @Test
+    public void shouldDecodeBulkErrorString() {
+        assertFalse(channel.writeInbound(byteBufOf("!21\r\nSYNTAX inv")));
+        assertFalse(channel.writeInbound(byteBufOf("alid syntax\r")));
+        assertTrue(channel.writeInbound(byteBufOf("\n")));
+
+        FullBulkErrorStringRedisMessage msg = channel.readInbound();
+        assertThat(stringOf(msg.content()), is("SYNTAX invalid syntax"));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodeVerbatimString() {
+        assertFalse(channel.writeInbound(byteBufOf("=15\r\ntxt:Some")));
+        assertTrue(channel.writeInbound(byteBufOf(" string\r\n")));
+
+        FullBulkVerbatimStringRedisMessage msg = channel.readInbound();
+        assertThat(msg.format(), is("txt"));
+        assertThat(stringOf(msg.content()), is("Some string"));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void shouldNotDecodeVerbatimStringWithoutFormat() {
+        channel.writeInbound(byteBufOf("=3\r\ntxt\r\n"));
+    }
+
+    @Test
+    public void shouldDecodeMap() {
+        assertFalse(channel.writeInbound(byteBufOf("%2\r\n$5\r\nfirst\r\n:1\r\n")));
+        assertTrue(channel.writeInbound(byteBufOf("$6\r\nsecond\r\n#t\r\n")));
+
+        MapRedisMessage msg = channel.readInbound();
+        assertThat(msg.children().size(), is(2));
+        IntegerRedisMessage first = (IntegerRedisMessage) msg.children().get(
+                new FullBulkStringRedisMessage(byteBufOf("first")));
+        assertThat(first.value(), is(1L));
+        assertThat(msg.children().get(new FullBulkStringRedisMessage(byteBufOf("second"))),
+                is(sameInstance((RedisMessage) BooleanRedisMessage.TRUE)));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodeEmptyMap() {
+        assertTrue(channel.writeInbound(byteBufOf("%0\r\n")));
+
+        MapRedisMessage msg = channel.readInbound();
+        assertThat(msg.children().isEmpty(), is(true));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodeSetWithNestedAggregates() {
+        assertTrue(channel.writeInbound(byteBufOf("~3\r\n$3\r\nfoo\r\n%1\r\n+a\r\n_\r\n*1\r\n:1\r\n")));
+
+        SetRedisMessage msg = channel.readInbound();
+        assertThat(msg.children().size(), is(3));
+        Iterator<RedisMessage> children = msg.children().iterator();
+        assertThat(stringOf(((FullBulkStringRedisMessage) children.next()).content()), is("foo"));
+        MapRedisMessage map = (MapRedisMessage) children.next();
+        assertThat(map.children().size(), is(1));
+        ArrayRedisMessage array = (ArrayRedisMessage) children.next();
+        assertThat(((IntegerRedisMessage) array.children().get(0)).value(), is(1L));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodeSetWithDuplicatedElements() {
+        assertTrue(channel.writeInbound(byteBufOf("~2\r\n$3\r\nfoo\r\n$3\r\nfoo\r\n")));
+
+        SetRedisMessage msg = channel.readInbound();
+        assertThat(msg.children().size(), is(1));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodePush() {
+        assertTrue(channel.writeInbound(byteBufOf(">3\r\n$7\r\nmessage\r\n$7\r\nchannel\r\n$5\r\nhello\r\n")));
+
+        PushRedisMessage msg = channel.readInbound();
+        assertThat(msg.children().size(), is(3));
+        assertThat(stringOf(((FullBulkStringRedisMessage) msg.children().get(0)).content()), is("message"));
+        assertThat(stringOf(((FullBulkStringRedisMessage) msg.children().get(2)).content()), is("hello"));
+        ReferenceCountUtil.release(msg);
+    }
+
+    @Test
+    public void shouldDecodeAttributeBeforeReply() {
+        assertTrue(channel.writeInbound(byteBufOf("|1\r\n+key-popularity\r\n%1\r\n$1\r\na\r\n,0.25\r\n:5\r\n")));
+
+        AttributeRedisMessage attribute = channel.readInbound();
+        assertThat(attribute.children().size(), is(1));
+        MapRedisMessage popularity = (MapRedisMessage) attribute.children().values().iterator().next();
+        DoubleRedisMessage value = (DoubleRedisMessage) popularity.children().get(
+                new FullBulkStringRedisMessage(byteBufOf("a")));
+        assertThat(value.value(), is(0.25));
+        ReferenceCountUtil.release(attribute);
+
+        IntegerRedisMessage reply = channel.readInbound();
+        assertThat(reply.value(), is(5L));
+    }
+
+    @Test
+    public void shouldNotCountAttributeAsArrayElement() {
+        assertTrue(channel.writeInbound(byteBufOf("*2\r\n:1\r\n|1\r\n+ttl\r\n:3600\r\n:2\r\n+OK\r\n")));
+
+        AttributeRedisMessage attribute = channel.readInbound();
+        assertThat(attribute.children().size(), is(1));
+        Map.Entry<RedisMessage, RedisMessage> ttl = attribute.children().entrySet().iterator().next();
+        assertThat(((SimpleStringRedisMessage) ttl.getKey()).content(), is("ttl"));
+        assertThat(((IntegerRedisMessage) ttl.getValue()).value(), is(3600L));
+        ReferenceCountUtil.release(attribute);
+
+        ArrayRedisMessage array = channel.readInbound();
+        assertThat(array.children().size(), is(2));
+        assertThat(((IntegerRedisMessage) array.children().get(0)).value(), is(1L));
+        assertThat(((IntegerRedisMessage) array.children().get(1)).value(), is(2L));
+        ReferenceCountUtil.release(array);
+
+        SimpleStringRedisMessage next = channel.readInbound();
+        assertThat(next.content(), is("OK"));
+    }
+
+    @Test
+    public void shouldDecodeAggregatedHeadersWithoutAggregator() {
+        channel = new EmbeddedChannel(new RedisDecoder());
+        assertTrue(channel.writeInbound(byteBufOf("%1\r\n+a\r\n:1\r\n")));
+
+        MapHeaderRedisMessage header = channel.readInbound();
+        assertThat(header.length(), is(1L));
+        assertThat(header.elements(), is(2L));
+        SimpleStringRedisMessage key = channel.readInbound();
+        assertThat(key.content(), is("a"));
+        IntegerRedisMessage value = channel.readInbound();
+        assertThat(value.value(), is(1L));
+    }
+
     @Test
     public void testPredefinedMessagesNotEqual() {
         // both EMPTY_INSTANCE and NULL_INSTANCE have EMPTY_BUFFER as their 'data',
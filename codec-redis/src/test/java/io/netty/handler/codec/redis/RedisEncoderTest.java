@@ -23,8 +23,13 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -182,6 +187,113 @@ public class RedisEncoderTest {
         written.release();
     }
 
+    @Test
+    public void shouldEncodeNull() {
+        assertThat(channel.writeOutbound(NullRedisMessage.INSTANCE), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("_\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeBoolean() {
+        assertThat(channel.writeOutbound(BooleanRedisMessage.TRUE, BooleanRedisMessage.FALSE), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("#t\r\n#f\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeDouble() {
+        assertThat(channel.writeOutbound(new DoubleRedisMessage(3.14), new DoubleRedisMessage(5),
+                new DoubleRedisMessage(1e20), new DoubleRedisMessage(Double.POSITIVE_INFINITY),
+                new DoubleRedisMessage(Double.NaN)), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(stringOf(written), is(equalTo(",3.14\r\n,5\r\n,1.0E20\r\n,inf\r\n,nan\r\n")));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeBigNumber() {
+        String value = "-3492890328409238509324850943850943825024385";
+        assertThat(channel.writeOutbound(new BigNumberRedisMessage(new BigInteger(value))), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("(" + value + "\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeBulkErrorString() {
+        RedisMessage msg = new FullBulkErrorStringRedisMessage(byteBufOf("SYNTAX invalid syntax"));
+        assertThat(channel.writeOutbound(msg), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("!21\r\nSYNTAX invalid syntax\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeVerbatimString() {
+        RedisMessage msg = new FullBulkVerbatimStringRedisMessage("txt", byteBufOf("Some string"));
+        assertThat(channel.writeOutbound(msg), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("=15\r\ntxt:Some string\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeMap() {
+        Map<RedisMessage, RedisMessage> children = new LinkedHashMap<RedisMessage, RedisMessage>();
+        children.put(new SimpleStringRedisMessage("first"), new IntegerRedisMessage(1));
+        children.put(new SimpleStringRedisMessage("second"), BooleanRedisMessage.FALSE);
+        assertThat(channel.writeOutbound(new MapRedisMessage(children)), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("%2\r\n+first\r\n:1\r\n+second\r\n#f\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeAttribute() {
+        Map<RedisMessage, RedisMessage> children = new LinkedHashMap<RedisMessage, RedisMessage>();
+        children.put(new SimpleStringRedisMessage("ttl"), new IntegerRedisMessage(3600));
+        assertThat(channel.writeOutbound(new AttributeRedisMessage(children)), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("|1\r\n+ttl\r\n:3600\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeSetAndPush() {
+        Set<RedisMessage> setChildren = new LinkedHashSet<RedisMessage>();
+        setChildren.add(new FullBulkStringRedisMessage(byteBufOf("foo")));
+        setChildren.add(NullRedisMessage.INSTANCE);
+        List<RedisMessage> pushChildren = new ArrayList<RedisMessage>();
+        pushChildren.add(new FullBulkStringRedisMessage(byteBufOf("invalidate")));
+        pushChildren.add(new SetRedisMessage(setChildren));
+        assertThat(channel.writeOutbound(new PushRedisMessage(pushChildren)), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf(">2\r\n$10\r\ninvalidate\r\n~2\r\n$3\r\nfoo\r\n_\r\n"))));
+        written.release();
+    }
+
+    @Test
+    public void shouldEncodeAggregatedHeaders() {
+        assertThat(channel.writeOutbound(new MapHeaderRedisMessage(3), new SetHeaderRedisMessage(0),
+                new AttributeHeaderRedisMessage(1), new PushHeaderRedisMessage(2)), is(true));
+
+        ByteBuf written = readAll(channel);
+        assertThat(bytesOf(written), is(equalTo(bytesOf("%3\r\n~0\r\n|1\r\n>2\r\n"))));
+        written.release();
+    }
+
     private static ByteBuf readAll(EmbeddedChannel channel) {
         ByteBuf buf = Unpooled.buffer();
         ByteBuf read;
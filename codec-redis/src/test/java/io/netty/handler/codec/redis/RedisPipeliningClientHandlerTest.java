@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.redis;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.netty.handler.codec.redis.RedisCodecTestUtil.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the correct functionality of the {@link RedisPipeliningClientHandler}.
+ */
+public class RedisPipeliningClientHandlerTest {
+
+    private RedisPipeliningClientHandler handler;
+    private EmbeddedChannel channel;
+    private int flushes;
+
+    @Before
+    public void setup() throws Exception {
+        newChannel(Integer.MAX_VALUE);
+    }
+
+    private void newChannel(int maxInFlightCommands) {
+        handler = new RedisPipeliningClientHandler(maxInFlightCommands);
+        channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) {
+                flushes++;
+                ctx.flush();
+            }
+        }, handler);
+    }
+
+    private static RedisMessage command(String... args) {
+        List<RedisMessage> children = new ArrayList<RedisMessage>(args.length);
+        for (String arg : args) {
+            children.add(new FullBulkStringRedisMessage(byteBufOf(arg)));
+        }
+        return new ArrayRedisMessage(children);
+    }
+
+    private List<RedisMessage> readOutbound() {
+        List<RedisMessage> messages = new ArrayList<RedisMessage>();
+        RedisMessage msg;
+        while ((msg = channel.readOutbound()) != null) {
+            messages.add(msg);
+        }
+        return messages;
+    }
+
+    @Test
+    public void shouldMatchRepliesInOrder() {
+        Future<RedisMessage> get = handler.send(command("GET", "foo"));
+        Future<RedisMessage> incr = handler.send(command("INCR", "bar"));
+
+        assertThat(handler.inFlightCommands(), is(2));
+        channel.runPendingTasks();
+        List<RedisMessage> written = readOutbound();
+        assertThat(written.size(), is(2));
+        ReferenceCountUtil.release(written.get(0));
+        ReferenceCountUtil.release(written.get(1));
+
+        assertFalse(channel.writeInbound(new FullBulkStringRedisMessage(byteBufOf("value")),
+                new IntegerRedisMessage(42)));
+
+        assertThat(get.isSuccess(), is(true));
+        assertThat(stringOf(((FullBulkStringRedisMessage) get.getNow()).content()), is("value"));
+        ReferenceCountUtil.release(get.getNow());
+        assertThat(incr.isSuccess(), is(true));
+        assertThat(((IntegerRedisMessage) incr.getNow()).value(), is(42L));
+        assertThat(handler.inFlightCommands(), is(0));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldFlushOnceAfterReadLoop() {
+        newChannel(2);
+        List<Future<RedisMessage>> replies = new ArrayList<Future<RedisMessage>>();
+        for (int i = 0; i < 4; i++) {
+            replies.add(handler.send(command("INCR", "counter")));
+        }
+        channel.runPendingTasks();
+        for (RedisMessage written : readOutbound()) {
+            ReferenceCountUtil.release(written);
+        }
+        assertThat(handler.pendingCommands(), is(2));
+
+        // Both replies are read in the same read loop, the two commands they release are flushed together.
+        int flushesBefore = flushes;
+        assertFalse(channel.writeInbound(new IntegerRedisMessage(1), new IntegerRedisMessage(2)));
+        assertThat(flushes - flushesBefore, is(1));
+        List<RedisMessage> written = readOutbound();
+        assertThat(written.size(), is(2));
+        for (RedisMessage msg : written) {
+            ReferenceCountUtil.release(msg);
+        }
+        assertThat(handler.inFlightCommands(), is(2));
+        assertThat(handler.pendingCommands(), is(0));
+
+        assertFalse(channel.writeInbound(new IntegerRedisMessage(3), new IntegerRedisMessage(4)));
+        for (int i = 0; i < 4; i++) {
+            assertThat(((IntegerRedisMessage) replies.get(i).getNow()).value(), is(i + 1L));
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldPassOnPushMessagesAndAttributes() {
+        Future<RedisMessage> ping = handler.send(command("PING"));
+        channel.runPendingTasks();
+        ReferenceCountUtil.release(channel.readOutbound());
+
+        PushRedisMessage push = new PushRedisMessage(Collections.<RedisMessage>singletonList(
+                new SimpleStringRedisMessage("invalidate")));
+        AttributeRedisMessage attribute = new AttributeRedisMessage(Collections.<RedisMessage, RedisMessage>emptyMap());
+        assertTrue(channel.writeInbound(push, attribute, new SimpleStringRedisMessage("PONG")));
+
+        assertThat(channel.readInbound(), is(sameInstance((Object) push)));
+        assertThat(channel.readInbound(), is(sameInstance((Object) attribute)));
+        assertThat(((SimpleStringRedisMessage) ping.getNow()).content(), is("PONG"));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldPassOnRepliesOfWrittenCommands() {
+        // The flush is consolidated and happens once the event loop runs its tasks.
+        assertFalse(channel.writeOutbound(command("PING")));
+        channel.runPendingTasks();
+        ReferenceCountUtil.release(channel.readOutbound());
+        assertThat(handler.inFlightCommands(), is(1));
+
+        SimpleStringRedisMessage pong = new SimpleStringRedisMessage("PONG");
+        assertTrue(channel.writeInbound(pong));
+        assertThat(channel.readInbound(), is(sameInstance((Object) pong)));
+        assertThat(handler.inFlightCommands(), is(0));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldBoundInFlightCommands() {
+        newChannel(1);
+        Future<RedisMessage> first = handler.send(command("GET", "a"));
+        Future<RedisMessage> second = handler.send(command("GET", "b"));
+        channel.runPendingTasks();
+
+        assertThat(handler.inFlightCommands(), is(1));
+        assertThat(handler.pendingCommands(), is(1));
+        List<RedisMessage> written = readOutbound();
+        assertThat(written.size(), is(1));
+        ReferenceCountUtil.release(written.get(0));
+
+        // The reply to the first command allows to write the second one, which is flushed when the read completes.
+        assertFalse(channel.writeInbound(FullBulkStringRedisMessage.NULL_INSTANCE));
+        assertThat(first.getNow(), is(sameInstance((RedisMessage) FullBulkStringRedisMessage.NULL_INSTANCE)));
+        assertThat(handler.inFlightCommands(), is(1));
+        assertThat(handler.pendingCommands(), is(0));
+        written = readOutbound();
+        assertThat(written.size(), is(1));
+        ReferenceCountUtil.release(written.get(0));
+
+        assertFalse(channel.writeInbound(FullBulkStringRedisMessage.EMPTY_INSTANCE));
+        assertThat(second.getNow(), is(sameInstance((RedisMessage) FullBulkStringRedisMessage.EMPTY_INSTANCE)));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldFailCommandsOnClose() {
+        newChannel(1);
+        Future<RedisMessage> first = handler.send(command("GET", "a"));
+        Future<RedisMessage> second = handler.send(command("GET", "b"));
+        channel.runPendingTasks();
+        ReferenceCountUtil.release(channel.readOutbound());
+
+        channel.close();
+        assertThat(first.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(second.cause(), instanceOf(ClosedChannelException.class));
+
+        Future<RedisMessage> third = handler.send(command("GET", "c"));
+        assertThat(third.cause(), instanceOf(ClosedChannelException.class));
+        assertFalse(channel.finish());
+    }
+}
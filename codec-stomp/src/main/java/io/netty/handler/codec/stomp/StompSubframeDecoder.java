@@ -18,14 +18,13 @@ package io.netty.handler.codec.stomp;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.DecoderResult;
-import io.netty.handler.codec.ReplayingDecoder;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.handler.codec.stomp.StompSubframeDecoder.State;
+import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
-import io.netty.util.internal.AppendableCharSequence;
-import io.netty.util.internal.StringUtil;
+import io.netty.util.CharsetUtil;
 
 import java.util.List;
 
@@ -49,12 +48,26 @@ import static io.netty.util.internal.ObjectUtil.*;
  * 'chunked', this decoder generates multiple {@link StompContentSubframe} instances to avoid excessive memory
  * consumption. Note, that every message, even with no content decodes with {@link LastStompContentSubframe} at the end
  * to simplify upstream message parsing.
+ *
+ * <h3>Incremental decoding</h3>
+ * <p>
+ * Every complete command and header line is consumed as soon as it was received, so a frame which spans several
+ * reads is never parsed again from its start. Header names and values which only consist of US-ASCII characters are
+ * decoded into {@link AsciiString}s, all others into {@link String}s.
  */
-public class StompSubframeDecoder extends ReplayingDecoder<State> {
+public class StompSubframeDecoder extends ByteToMessageDecoder {
 
     private static final int DEFAULT_CHUNK_SIZE = 8132;
     private static final int DEFAULT_MAX_LINE_LENGTH = 1024;
 
+    private static final ByteProcessor FIND_COLON = new ByteProcessor.IndexOfProcessor(StompConstants.COLON);
+    private static final ByteProcessor FIND_NON_ASCII = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value >= 0;
+        }
+    };
+
     enum State {
         SKIP_CONTROL_CHARACTERS,
         READ_HEADERS,
@@ -64,9 +77,14 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
         INVALID_CHUNK
     }
 
-    private final Utf8LineParser commandParser;
-    private final HeaderParser headerParser;
+    private final int maxLineLength;
     private final int maxChunkSize;
+    private final boolean validateHeaders;
+    private State state = State.SKIP_CONTROL_CHARACTERS;
+    // The frame whose headers are being read, null until its command was read.
+    private StompHeadersSubframe headersSubframe;
+    // The number of bytes of the current line which were searched for the LF already.
+    private int lineSearchedBytes;
     private int alreadyReadChunkSize;
     private LastStompContentSubframe lastContent;
     private long contentLength = -1;
@@ -84,45 +102,59 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
     }
 
     public StompSubframeDecoder(int maxLineLength, int maxChunkSize, boolean validateHeaders) {
-        super(State.SKIP_CONTROL_CHARACTERS);
         checkPositive(maxLineLength, "maxLineLength");
         checkPositive(maxChunkSize, "maxChunkSize");
+        this.maxLineLength = maxLineLength;
         this.maxChunkSize = maxChunkSize;
-        commandParser = new Utf8LineParser(new AppendableCharSequence(16), maxLineLength);
-        headerParser = new HeaderParser(new AppendableCharSequence(128), maxLineLength, validateHeaders);
+        this.validateHeaders = validateHeaders;
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        switch (state()) {
+        switch (state) {
             case SKIP_CONTROL_CHARACTERS:
-                skipControlCharacters(in);
-                checkpoint(State.READ_HEADERS);
+                if (!skipControlCharacters(in)) {
+                    return;
+                }
+                state = State.READ_HEADERS;
                 // Fall through.
             case READ_HEADERS:
-                StompCommand command = StompCommand.UNKNOWN;
-                StompHeadersSubframe frame = null;
                 try {
-                    command = readCommand(in);
-                    frame = new DefaultStompHeadersSubframe(command);
-                    checkpoint(readHeaders(in, frame.headers()));
-                    out.add(frame);
+                    if (headersSubframe == null) {
+                        int lfIndex = findEndOfLine(in);
+                        if (lfIndex < 0) {
+                            return;
+                        }
+                        headersSubframe = new DefaultStompHeadersSubframe(readCommand(in, lfIndex));
+                    }
+                    State nextState = readHeaders(in, headersSubframe.headers());
+                    if (nextState == null) {
+                        return;
+                    }
+                    state = nextState;
+                    out.add(headersSubframe);
+                    headersSubframe = null;
                 } catch (Exception e) {
+                    StompHeadersSubframe frame = headersSubframe;
                     if (frame == null) {
-                        frame = new DefaultStompHeadersSubframe(command);
+                        frame = new DefaultStompHeadersSubframe(StompCommand.UNKNOWN);
                     }
+                    headersSubframe = null;
+                    lineSearchedBytes = 0;
+                    // The rest of the frame can not be decoded anymore.
+                    in.skipBytes(in.readableBytes());
                     frame.setDecoderResult(DecoderResult.failure(e));
                     out.add(frame);
-                    checkpoint(State.BAD_FRAME);
+                    state = State.BAD_FRAME;
                     return;
                 }
                 break;
             case BAD_FRAME:
-                in.skipBytes(actualReadableBytes());
+                in.skipBytes(in.readableBytes());
                 return;
         }
         try {
-            switch (state()) {
+            switch (state) {
                 case READ_CONTENT:
                     int toRead = in.readableBytes();
                     if (toRead == 0) {
@@ -139,26 +171,24 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
                         ByteBuf chunkBuffer = readBytes(ctx.alloc(), in, toRead);
                         if ((alreadyReadChunkSize += toRead) >= contentLength) {
                             lastContent = new DefaultLastStompContentSubframe(chunkBuffer);
-                            checkpoint(State.FINALIZE_FRAME_READ);
+                            state = State.FINALIZE_FRAME_READ;
                         } else {
                             out.add(new DefaultStompContentSubframe(chunkBuffer));
                             return;
                         }
                     } else {
-                        int nulIndex = indexOf(in, in.readerIndex(), in.writerIndex(), StompConstants.NUL);
+                        int nulIndex = in.forEachByte(in.readerIndex(), toRead, ByteProcessor.FIND_NUL);
                         if (nulIndex == in.readerIndex()) {
-                            checkpoint(State.FINALIZE_FRAME_READ);
+                            state = State.FINALIZE_FRAME_READ;
                         } else {
                             if (nulIndex > 0) {
                                 toRead = nulIndex - in.readerIndex();
-                            } else {
-                                toRead = in.writerIndex() - in.readerIndex();
                             }
                             ByteBuf chunkBuffer = readBytes(ctx.alloc(), in, toRead);
                             alreadyReadChunkSize += toRead;
                             if (nulIndex > 0) {
                                 lastContent = new DefaultLastStompContentSubframe(chunkBuffer);
-                                checkpoint(State.FINALIZE_FRAME_READ);
+                                state = State.FINALIZE_FRAME_READ;
                             } else {
                                 out.add(new DefaultStompContentSubframe(chunkBuffer));
                                 return;
@@ -167,6 +197,9 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
                     }
                     // Fall through.
                 case FINALIZE_FRAME_READ:
+                    if (!in.isReadable()) {
+                        return;
+                    }
                     skipNullCharacter(in);
                     if (lastContent == null) {
                         lastContent = LastStompContentSubframe.EMPTY_LAST_CONTENT;
@@ -175,19 +208,65 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
                     resetDecoder();
             }
         } catch (Exception e) {
+            if (lastContent != null) {
+                lastContent.release();
+                lastContent = null;
+            }
             StompContentSubframe errorContent = new DefaultLastStompContentSubframe(Unpooled.EMPTY_BUFFER);
             errorContent.setDecoderResult(DecoderResult.failure(e));
             out.add(errorContent);
-            checkpoint(State.BAD_FRAME);
+            state = State.BAD_FRAME;
         }
     }
 
-    private StompCommand readCommand(ByteBuf in) {
-        CharSequence commandSequence = commandParser.parse(in);
-        if (commandSequence == null) {
-            throw new DecoderException("Failed to read command from channel");
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (lastContent != null) {
+            lastContent.release();
+            lastContent = null;
+        }
+    }
+
+    /**
+     * Returns the index of the LF which terminates the line at the reader index, or {@code -1} if it was not
+     * received yet. The bytes which were searched already are remembered, so they are not searched again once more
+     * bytes were received.
+     */
+    private int findEndOfLine(ByteBuf in) {
+        int readerIndex = in.readerIndex();
+        int searchIndex = readerIndex + lineSearchedBytes;
+        int lfIndex = in.writerIndex() > searchIndex ?
+                in.forEachByte(searchIndex, in.writerIndex() - searchIndex, ByteProcessor.FIND_LF) : -1;
+        if (lfIndex < 0) {
+            lineSearchedBytes = in.readableBytes();
+            // The line may still be terminated by CRLF.
+            if (lineSearchedBytes > maxLineLength + 1) {
+                throw tooLongLine();
+            }
+            return -1;
+        }
+        lineSearchedBytes = 0;
+        if (lineEnd(in, readerIndex, lfIndex) - readerIndex > maxLineLength) {
+            throw tooLongLine();
         }
-        String commandStr = commandSequence.toString();
+        return lfIndex;
+    }
+
+    private TooLongFrameException tooLongLine() {
+        return new TooLongFrameException("An STOMP line is larger than " + maxLineLength + " bytes.");
+    }
+
+    /**
+     * Returns the end of the line which is terminated by the LF at the given index, excluding an optional CR.
+     */
+    private static int lineEnd(ByteBuf in, int start, int lfIndex) {
+        return lfIndex > start && in.getByte(lfIndex - 1) == StompConstants.CR ? lfIndex - 1 : lfIndex;
+    }
+
+    private static StompCommand readCommand(ByteBuf in, int lfIndex) {
+        int start = in.readerIndex();
+        String commandStr = in.toString(start, lineEnd(in, start, lfIndex) - start, CharsetUtil.UTF_8);
+        in.readerIndex(lfIndex + 1);
         try {
             return StompCommand.valueOf(commandStr);
         } catch (IllegalArgumentException iae) {
@@ -195,10 +274,20 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
         }
     }
 
-    private State readHeaders(ByteBuf buffer, StompHeaders headers) {
+    /**
+     * Reads all header lines which were received completely. Returns the next {@link State} once the empty line
+     * which terminates the headers was read, or {@code null} if more bytes are needed.
+     */
+    private State readHeaders(ByteBuf in, StompHeaders headers) {
         for (;;) {
-            boolean headerRead = headerParser.parseHeader(headers, buffer);
-            if (!headerRead) {
+            int lfIndex = findEndOfLine(in);
+            if (lfIndex < 0) {
+                return null;
+            }
+            int start = in.readerIndex();
+            int end = lineEnd(in, start, lfIndex);
+            in.readerIndex(lfIndex + 1);
+            if (start == end) {
                 if (headers.contains(StompHeaders.CONTENT_LENGTH)) {
                     contentLength = getContentLength(headers);
                     if (contentLength == 0) {
@@ -207,9 +296,42 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
                 }
                 return State.READ_CONTENT;
             }
+            readHeader(in, start, end, headers);
+        }
+    }
+
+    private void readHeader(ByteBuf in, int start, int end, StompHeaders headers) {
+        int colonIndex = in.forEachByte(start, end - start, FIND_COLON);
+        if (colonIndex > start &&
+            (colonIndex + 1 == end || in.forEachByte(colonIndex + 1, end - colonIndex - 1, FIND_COLON) < 0)) {
+            headers.add(decodeHeaderToken(in, start, colonIndex), decodeHeaderToken(in, colonIndex + 1, end));
+        } else if (validateHeaders) {
+            String line = in.toString(start, end - start, CharsetUtil.UTF_8);
+            if (colonIndex <= start) {
+                throw new IllegalArgumentException("received an invalid header line '" + line + '\'');
+            }
+            throw new IllegalArgumentException("a header value or name contains a prohibited character ':'"
+                                               + ", " + line);
         }
     }
 
+    /**
+     * Decodes the bytes between {@code start} and {@code end} without the overhead of UTF-8 decoding if all of them
+     * are US-ASCII characters.
+     */
+    private static CharSequence decodeHeaderToken(ByteBuf in, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return AsciiString.EMPTY_STRING;
+        }
+        if (in.forEachByte(start, length, FIND_NON_ASCII) >= 0) {
+            return in.toString(start, length, CharsetUtil.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        in.getBytes(start, bytes);
+        return new AsciiString(bytes, false);
+    }
+
     private static long getContentLength(StompHeaders headers) {
         long contentLength = headers.getLong(StompHeaders.CONTENT_LENGTH, 0L);
         if (contentLength < 0) {
@@ -225,158 +347,24 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
         }
     }
 
-    private static void skipControlCharacters(ByteBuf buffer) {
-        byte b;
-        for (;;) {
-            b = buffer.readByte();
-            if (b != StompConstants.CR && b != StompConstants.LF) {
-                buffer.readerIndex(buffer.readerIndex() - 1);
-                break;
-            }
+    /**
+     * Skips the CR and LF characters between frames. Returns {@code true} if the next frame starts at the reader
+     * index and {@code false} if more bytes are needed.
+     */
+    private static boolean skipControlCharacters(ByteBuf buffer) {
+        int index = buffer.forEachByte(ByteProcessor.FIND_NON_CRLF);
+        if (index < 0) {
+            buffer.skipBytes(buffer.readableBytes());
+            return false;
         }
+        buffer.readerIndex(index);
+        return true;
     }
 
     private void resetDecoder() {
-        checkpoint(State.SKIP_CONTROL_CHARACTERS);
+        state = State.SKIP_CONTROL_CHARACTERS;
         contentLength = -1;
         alreadyReadChunkSize = 0;
         lastContent = null;
     }
-
-    private static class Utf8LineParser implements ByteProcessor {
-
-        private final AppendableCharSequence charSeq;
-        private final int maxLineLength;
-
-        private int lineLength;
-        private char interim;
-        private boolean nextRead;
-
-        Utf8LineParser(AppendableCharSequence charSeq, int maxLineLength) {
-            this.charSeq = checkNotNull(charSeq, "charSeq");
-            this.maxLineLength = maxLineLength;
-        }
-
-        AppendableCharSequence parse(ByteBuf byteBuf) {
-            reset();
-            int offset = byteBuf.forEachByte(this);
-            if (offset == -1) {
-                return null;
-            }
-
-            byteBuf.readerIndex(offset + 1);
-            return charSeq;
-        }
-
-        AppendableCharSequence charSequence() {
-            return charSeq;
-        }
-
-        @Override
-        public boolean process(byte nextByte) throws Exception {
-            if (nextByte == StompConstants.CR) {
-                ++lineLength;
-                return true;
-            }
-
-            if (nextByte == StompConstants.LF) {
-                return false;
-            }
-
-            if (++lineLength > maxLineLength) {
-                throw new TooLongFrameException("An STOMP line is larger than " + maxLineLength + " bytes.");
-            }
-
-            // 1 byte   -   0xxxxxxx                    -  7 bits
-            // 2 byte   -   110xxxxx 10xxxxxx           -  11 bits
-            // 3 byte   -   1110xxxx 10xxxxxx 10xxxxxx  -  16 bits
-            if (nextRead) {
-                interim |= (nextByte & 0x3F) << 6;
-                nextRead = false;
-            } else if (interim != 0) { // flush 2 or 3 byte
-                charSeq.append((char) (interim | (nextByte & 0x3F)));
-                interim = 0;
-            } else if (nextByte >= 0) { // INITIAL BRANCH
-                // The first 128 characters (US-ASCII) need one byte.
-                charSeq.append((char) nextByte);
-            } else if ((nextByte & 0xE0) == 0xC0) {
-                // The next 1920 characters need two bytes and we can define
-                // a first byte by mask 110xxxxx.
-                interim = (char) ((nextByte & 0x1F) << 6);
-            } else {
-                // The rest of characters need three bytes.
-                interim = (char) ((nextByte & 0x0F) << 12);
-                nextRead = true;
-            }
-
-            return true;
-        }
-
-        protected void reset() {
-            charSeq.reset();
-            lineLength = 0;
-            interim = 0;
-            nextRead = false;
-        }
-    }
-
-    private static final class HeaderParser extends Utf8LineParser {
-
-        private final boolean validateHeaders;
-
-        private String name;
-        private boolean valid;
-
-        HeaderParser(AppendableCharSequence charSeq, int maxLineLength, boolean validateHeaders) {
-            super(charSeq, maxLineLength);
-            this.validateHeaders = validateHeaders;
-        }
-
-        boolean parseHeader(StompHeaders headers, ByteBuf buf) {
-            AppendableCharSequence value = super.parse(buf);
-            if (value == null || (name == null && value.length() == 0)) {
-                return false;
-            }
-
-            if (valid) {
-                headers.add(name, value.toString());
-            } else if (validateHeaders) {
-                if (StringUtil.isNullOrEmpty(name)) {
-                    throw new IllegalArgumentException("received an invalid header line '" + value.toString() + '\'');
-                }
-                String line = name + ':' + value.toString();
-                throw new IllegalArgumentException("a header value or name contains a prohibited character ':'"
-                                                   + ", " + line);
-            }
-            return true;
-        }
-
-        @Override
-        public boolean process(byte nextByte) throws Exception {
-            if (nextByte == StompConstants.COLON) {
-                if (name == null) {
-                    AppendableCharSequence charSeq = charSequence();
-                    if (charSeq.length() != 0) {
-                        name = charSeq.substring(0, charSeq.length());
-                        charSeq.reset();
-                        valid = true;
-                        return true;
-                    } else {
-                        name = StringUtil.EMPTY_STRING;
-                    }
-                } else {
-                    valid = false;
-                }
-            }
-
-            return super.process(nextByte);
-        }
-
-        @Override
-        protected void reset() {
-            name = null;
-            valid = false;
-            super.reset();
-        }
-    }
 }
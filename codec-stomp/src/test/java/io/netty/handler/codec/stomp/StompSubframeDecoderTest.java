@@ -18,6 +18,8 @@ package io.netty.handler.codec.stomp;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -221,4 +223,57 @@ public class StompSubframeDecoderTest {
         assertEquals("body", contentSubFrame.content().toString(UTF_8));
         assertTrue(contentSubFrame.release());
     }
+
+    @Test
+    public void testFrameDecodingByteByByte() {
+        byte[] bytes = SEND_FRAME_2.replace("\n", "\r\n").getBytes(UTF_8);
+        for (byte b : bytes) {
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { b }));
+        }
+
+        StompHeadersSubframe frame = channel.readInbound();
+        assertNotNull(frame);
+        assertFalse(frame.decoderResult().isFailure());
+        assertEquals(StompCommand.SEND, frame.command());
+        assertEquals("/queue/a", frame.headers().getAsString("destination"));
+        assertEquals(17L, frame.headers().getLong(StompHeaders.CONTENT_LENGTH).longValue());
+
+        StringBuilder body = new StringBuilder();
+        for (;;) {
+            StompContentSubframe content = channel.readInbound();
+            body.append(content.content().toString(UTF_8));
+            content.release();
+            if (content instanceof LastStompContentSubframe) {
+                break;
+            }
+        }
+        assertEquals("hello, queue a!!!", body.toString());
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testAsciiHeadersDecodedAsAsciiString() {
+        channel.writeInbound(Unpooled.wrappedBuffer(SEND_FRAME_UTF8.getBytes(UTF_8)));
+
+        StompHeadersSubframe frame = channel.readInbound();
+        assertTrue(frame.headers().get("content-type") instanceof AsciiString);
+        assertTrue(frame.headers().get("destination") instanceof String);
+        assertEquals("/queue/№11±♛нетти♕", frame.headers().getAsString("destination"));
+
+        StompContentSubframe content = channel.readInbound();
+        content.release();
+    }
+
+    @Test
+    public void testTooLongLineInFragments() {
+        channel = new EmbeddedChannel(new StompSubframeDecoder(16, 1024));
+        assertFalse(channel.writeInbound(Unpooled.copiedBuffer("SEND\ndestination:", UTF_8)));
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer("/queue/a", UTF_8)));
+
+        StompHeadersSubframe frame = channel.readInbound();
+        assertTrue(frame.decoderResult().isFailure());
+        assertTrue(frame.decoderResult().cause() instanceof TooLongFrameException);
+        assertEquals(StompCommand.SEND, frame.command());
+        assertNull(channel.readInbound());
+    }
 }
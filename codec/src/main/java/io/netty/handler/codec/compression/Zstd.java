@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Utility that detects whether the optional <a href="https://github.com/luben/zstd-jni">zstd-jni</a>
+ * library, and with it {@link ZstdEncoder} and {@link ZstdDecoder}, can be used.
+ */
+public final class Zstd {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Zstd.class);
+    private static final Throwable cause;
+
+    static {
+        Throwable t = null;
+        try {
+            com.github.luben.zstd.util.Native.load();
+        } catch (Throwable e) {
+            // Either zstd-jni is not on the classpath or its native library could not be loaded.
+            t = e;
+            logger.debug("zstd-jni could not be loaded; Zstd support will be unavailable.", t);
+        }
+        cause = t;
+    }
+
+    /**
+     * Returns {@code true} if and only if zstd-jni and its native library are available.
+     */
+    public static boolean isAvailable() {
+        return cause == null;
+    }
+
+    /**
+     * Ensure that zstd-jni and its native library are available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (cause != null) {
+            throw (Error) new UnsatisfiedLinkError("failed to load zstd-jni").initCause(cause);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability, or {@code null} if zstd-jni is available.
+     */
+    public static Throwable unavailabilityCause() {
+        return cause;
+    }
+
+    private Zstd() {
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+final class ZstdConstants {
+
+    /**
+     * Default compression level, the same as the one used by the {@code zstd} command line tool.
+     */
+    static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    /**
+     * Highest compression level supported by zstd.
+     */
+    static final int MAX_COMPRESSION_LEVEL = 22;
+
+    /**
+     * Default size of the direct buffers used to stage heap input and to hold decompressed output.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Maximum block size accepted by the encoder and the decoder.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 25;
+
+    private ZstdConstants() {
+    }
+}
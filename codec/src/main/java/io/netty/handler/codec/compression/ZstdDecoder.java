@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_BLOCK_SIZE;
+import static io.netty.handler.codec.compression.ZstdConstants.MAX_BLOCK_SIZE;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the <a href="https://tools.ietf.org/html/rfc8478">Zstandard</a>
+ * format, such as the output of {@link ZstdEncoder} or the {@code zstd} command line tool.
+ * <p>
+ * The input may consist of several concatenated frames. Decompressed data is emitted in buffers of at most
+ * {@code blockSize} bytes as soon as zstd produces it, so no frame is ever held in memory completely.
+ * <p>
+ * This decoder requires the optional <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library,
+ * see {@link Zstd#isAvailable()}.
+ */
+public final class ZstdDecoder extends ByteToMessageDecoder {
+
+    private final int blockSize;
+    private ZstdDecompressCtx decompressCtx;
+    private boolean corrupted;
+
+    /**
+     * Creates a new Zstd decoder that emits decompressed data in buffers of at most {@code 65536} bytes.
+     */
+    public ZstdDecoder() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new Zstd decoder.
+     *
+     * @param blockSize
+     *        the maximum size of the buffers holding decompressed data.
+     */
+    public ZstdDecoder(int blockSize) {
+        Zstd.ensureAvailability();
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(
+                    "blockSize: " + blockSize + " (expected: 1-" + MAX_BLOCK_SIZE + ')');
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (corrupted) {
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+        if (decompressCtx == null) {
+            decompressCtx = new ZstdDecompressCtx();
+        }
+
+        // zstd-jni only operates on direct memory.
+        final int length = in.readableBytes();
+        final ByteBuf direct;
+        if (in.isDirect() && in.nioBufferCount() == 1) {
+            direct = null;
+        } else {
+            direct = ctx.alloc().directBuffer(length);
+            direct.writeBytes(in, in.readerIndex(), length);
+        }
+
+        try {
+            ByteBuffer src = direct == null ? in.nioBuffer(in.readerIndex(), length) : direct.nioBuffer(0, length);
+            int srcStart = src.position();
+            for (;;) {
+                ByteBuf uncompressed = ctx.alloc().directBuffer(blockSize, blockSize);
+                ByteBuffer dst = uncompressed.nioBuffer(0, blockSize);
+                int consumed = src.position();
+                try {
+                    decompressCtx.decompressDirectByteBufferStream(dst, src);
+                } catch (ZstdException e) {
+                    uncompressed.release();
+                    corrupted = true;
+                    throw new DecompressionException("invalid zstd stream", e);
+                }
+                consumed = src.position() - consumed;
+
+                int produced = dst.position();
+                if (produced > 0) {
+                    uncompressed.writerIndex(produced);
+                    out.add(uncompressed);
+                } else {
+                    uncompressed.release();
+                }
+
+                // A full output buffer means zstd may hold more data for us; otherwise keep going only while
+                // there is input left that zstd is still making progress on, e.g. the start of the next frame.
+                if (dst.hasRemaining() && (!src.hasRemaining() || consumed == 0 && produced == 0)) {
+                    break;
+                }
+            }
+            in.skipBytes(src.position() - srcStart);
+        } finally {
+            if (direct != null) {
+                direct.release();
+            }
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (decompressCtx != null) {
+            decompressCtx.close();
+            decompressCtx = null;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.EndDirective;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.nio.ByteBuffer;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_BLOCK_SIZE;
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_COMPRESSION_LEVEL;
+import static io.netty.handler.codec.compression.ZstdConstants.MAX_BLOCK_SIZE;
+import static io.netty.handler.codec.compression.ZstdConstants.MAX_COMPRESSION_LEVEL;
+
+/**
+ * Compresses a {@link ByteBuf} using the <a href="https://tools.ietf.org/html/rfc8478">Zstandard</a> format.
+ * <p>
+ * All data written to this encoder until it is closed forms a single zstd frame, so the compression
+ * context is shared by all messages. Data is handed to the output as soon as the channel is flushed, which
+ * makes this encoder suitable for streaming content such as chunked HTTP responses.
+ * <p>
+ * This encoder requires the optional <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library,
+ * see {@link Zstd#isAvailable()}.
+ */
+public final class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    private final int compressionLevel;
+    private final int blockSize;
+    private ZstdCompressCtx compressCtx;
+    private ByteBuf stagingBuffer;
+    private boolean finished;
+
+    /**
+     * Creates a new Zstd encoder with the default compression level ({@code 3}).
+     */
+    public ZstdEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new Zstd encoder with the specified compression level.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 22} yields the best compression.
+     */
+    public ZstdEncoder(int compressionLevel) {
+        this(compressionLevel, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new Zstd encoder with the specified compression level and block size.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 22} yields the best compression.
+     * @param blockSize
+     *        the size of the direct buffer used to pass heap input to zstd, and the amount of output
+     *        space that is reserved per chunk of input.
+     */
+    public ZstdEncoder(int compressionLevel, int blockSize) {
+        super(true);
+        Zstd.ensureAvailability();
+        if (compressionLevel < 1 || compressionLevel > MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 1-" + MAX_COMPRESSION_LEVEL + ')');
+        }
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(
+                    "blockSize: " + blockSize + " (expected: 1-" + MAX_BLOCK_SIZE + ')');
+        }
+        this.compressionLevel = compressionLevel;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // zstd-jni only operates on direct memory.
+        return ctx.alloc().directBuffer(outputSize(Math.min(msg.readableBytes(), blockSize)));
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        ZstdCompressCtx compressCtx = compressCtx();
+        if (in.isDirect() && in.nioBufferCount() == 1) {
+            int length = in.readableBytes();
+            compress(compressCtx, in.nioBuffer(in.readerIndex(), length), out, EndDirective.CONTINUE);
+            in.skipBytes(length);
+            return;
+        }
+
+        ByteBuf staging = stagingBuffer;
+        if (staging == null) {
+            stagingBuffer = staging = ctx.alloc().directBuffer(blockSize, blockSize);
+        }
+        while (in.isReadable()) {
+            int length = Math.min(in.readableBytes(), blockSize);
+            staging.clear();
+            in.readBytes(staging, length);
+            compress(compressCtx, staging.nioBuffer(0, length), out, EndDirective.CONTINUE);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (compressCtx != null && !finished) {
+            ByteBuf out = ctx.alloc().directBuffer(outputSize(0));
+            try {
+                compress(compressCtx, out.nioBuffer(0, 0), out, EndDirective.FLUSH);
+            } catch (Throwable cause) {
+                out.release();
+                throw new EncoderException(cause);
+            }
+            if (out.isReadable()) {
+                ctx.write(out);
+            } else {
+                out.release();
+            }
+        }
+        ctx.flush();
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (!finished) {
+            finished = true;
+            ByteBuf out = ctx.alloc().directBuffer(outputSize(0));
+            try {
+                // Always write a complete frame, even when no data was written at all.
+                compress(compressCtx(), out.nioBuffer(0, 0), out, EndDirective.END);
+            } catch (Throwable cause) {
+                out.release();
+                throw new EncoderException(cause);
+            }
+            ctx.writeAndFlush(out);
+        }
+        ctx.close(promise);
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream has been written.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (stagingBuffer != null) {
+            stagingBuffer.release();
+            stagingBuffer = null;
+        }
+        if (compressCtx != null) {
+            compressCtx.close();
+            compressCtx = null;
+        }
+        super.handlerRemoved(ctx);
+    }
+
+    private ZstdCompressCtx compressCtx() {
+        ZstdCompressCtx compressCtx = this.compressCtx;
+        if (compressCtx == null) {
+            this.compressCtx = compressCtx = new ZstdCompressCtx();
+            compressCtx.setLevel(compressionLevel);
+        }
+        return compressCtx;
+    }
+
+    private static int outputSize(int inputLength) {
+        // Large enough to hold the compressed input plus the block and frame headers that a flush or
+        // the end of the frame may add.
+        return (int) com.github.luben.zstd.Zstd.compressBound(inputLength) + 64;
+    }
+
+    /**
+     * Feeds {@code src} to zstd until it has been consumed and, for {@link EndDirective#FLUSH} and
+     * {@link EndDirective#END}, until all the data buffered by zstd has been written to {@code out}.
+     */
+    private void compress(ZstdCompressCtx compressCtx, ByteBuffer src, ByteBuf out, EndDirective directive) {
+        for (;;) {
+            out.ensureWritable(outputSize(Math.min(src.remaining(), blockSize)));
+            int writerIndex = out.writerIndex();
+            ByteBuffer dst = out.nioBuffer(writerIndex, out.writableBytes());
+            int start = dst.position();
+            boolean done;
+            try {
+                done = compressCtx.compressDirectByteBufferStream(dst, src, directive);
+            } catch (ZstdException e) {
+                throw new CompressionException(e);
+            }
+            out.writerIndex(writerIndex + dst.position() - start);
+            if (src.hasRemaining()) {
+                continue;
+            }
+            if (directive == EndDirective.CONTINUE || done) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ZstdDecoderTest extends AbstractDecoderTest {
+
+    public ZstdDecoderTest() throws Exception {
+    }
+
+    @Override
+    public void initChannel() {
+        assumeTrue(Zstd.isAvailable());
+        channel = new EmbeddedChannel(new ZstdDecoder());
+    }
+
+    @Test
+    public void testInvalidFrame() throws Exception {
+        expected.expect(DecompressionException.class);
+
+        ByteBuf in = Unpooled.buffer();
+        in.writeInt(0x12345678);  // not the zstd magic number
+        in.writeLong(0);
+
+        channel.writeInbound(in);
+    }
+
+    @Test
+    public void testConcatenatedFrames() throws Exception {
+        ByteBuf in = Unpooled.buffer();
+        in.writeBytes(compressedBytesSmall);
+        in.writeBytes(compressedBytesLarge);
+        assertTrue(channel.writeInbound(in));
+
+        ByteBuf expected = Unpooled.wrappedBuffer(BYTES_SMALL, BYTES_LARGE);
+        ByteBuf actual = Unpooled.buffer();
+        ByteBuf msg;
+        while ((msg = channel.readInbound()) != null) {
+            actual.writeBytes(msg);
+            msg.release();
+        }
+        assertEquals(expected, actual);
+        actual.release();
+    }
+
+    @Override
+    protected byte[] compress(byte[] data) throws Exception {
+        return com.github.luben.zstd.Zstd.compress(data);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import static org.junit.Assume.assumeTrue;
+
+public class ZstdEncoderTest extends AbstractEncoderTest {
+
+    @Override
+    public void initChannel() {
+        assumeTrue(Zstd.isAvailable());
+        channel = new EmbeddedChannel(new ZstdEncoder());
+    }
+
+    @Override
+    protected ByteBuf decompress(ByteBuf compressed, int originalLength) throws Exception {
+        byte[] compressedArray = new byte[compressed.readableBytes()];
+        compressed.readBytes(compressedArray);
+        compressed.release();
+
+        byte[] decompressed = com.github.luben.zstd.Zstd.decompress(compressedArray, originalLength);
+        return Unpooled.wrappedBuffer(decompressed);
+    }
+}
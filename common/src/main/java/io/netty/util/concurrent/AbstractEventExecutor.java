@@ -15,6 +15,7 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -181,6 +182,22 @@ public abstract class AbstractEventExecutor extends AbstractExecutorService impl
         execute(task);
     }
 
+    /**
+     * Executes all the given {@link Runnable}s in the order returned by the {@link Collection}'s iterator.
+     *
+     * Implementations may add all the tasks to their task queue at once which is cheaper than calling
+     * {@link #execute(Runnable)} for each of them, especially if many threads submit tasks concurrently.
+     *
+     * The default implementation just calls {@link #execute(Runnable)} for each task.
+     */
+    @UnstableApi
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        ObjectUtil.checkNotNull(tasks, "tasks");
+        for (Runnable task : tasks) {
+            execute(task);
+        }
+    }
+
     /**
      * Marker interface for {@link Runnable} to indicate that it should be queued for execution
      * but does not need to run immediately.
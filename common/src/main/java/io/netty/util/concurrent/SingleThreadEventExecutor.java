@@ -22,6 +22,7 @@ import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.jctools.queues.MessagePassingQueue;
 
 import java.lang.Thread.State;
 import java.util.ArrayList;
@@ -68,6 +69,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     };
 
+    private static final Runnable[] EMPTY_RUNNABLES = new Runnable[0];
+
+    // The maximum number of tasks that are drained from the task queue at once before checking the deadline.
+    private static final int MAX_TASKS_PER_DRAIN = 64;
+
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "state");
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
@@ -75,6 +81,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
 
     private final Queue<Runnable> taskQueue;
+    private final TaskRunner taskRunner = new TaskRunner();
 
     private volatile Thread thread;
     @SuppressWarnings("unused")
@@ -355,6 +362,48 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.offer(task);
     }
 
+    /**
+     * Add all tasks to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
+     * before. If the task queue is a {@link MessagePassingQueue} the tasks are added in batches, which only needs
+     * a single atomic update of the queue per batch.
+     */
+    @UnstableApi
+    protected void addTasks(Runnable[] tasks) {
+        int added = offerTasks(ObjectUtil.checkNotNull(tasks, "tasks"));
+        for (int i = added; i < tasks.length; i++) {
+            reject(tasks[i]);
+        }
+    }
+
+    /**
+     * Adds as many of the tasks to the task queue as fit, in order, and returns how many were added. Throws a
+     * {@link RejectedExecutionException} if this instance was shutdown before.
+     */
+    @UnstableApi
+    protected int offerTasks(Runnable[] tasks) {
+        if (isShutdown()) {
+            reject();
+        }
+        int added = 0;
+        if (taskQueue instanceof MessagePassingQueue) {
+            @SuppressWarnings("unchecked")
+            MessagePassingQueue<Runnable> queue = (MessagePassingQueue<Runnable>) taskQueue;
+            TaskSupplier supplier = new TaskSupplier(tasks);
+            while (added < tasks.length) {
+                int filled = queue.fill(supplier, tasks.length - added);
+                if (filled == 0) {
+                    break;
+                }
+                added += filled;
+            }
+        } else {
+            while (added < tasks.length && taskQueue.offer(tasks[added])) {
+                added++;
+            }
+        }
+        return added;
+    }
+
     /**
      * @see Queue#remove(Object)
      */
@@ -420,6 +469,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @return {@code true} if at least one task was executed.
      */
     protected final boolean runAllTasksFrom(Queue<Runnable> taskQueue) {
+        if (taskQueue instanceof MessagePassingQueue) {
+            @SuppressWarnings("unchecked")
+            MessagePassingQueue<Runnable> queue = (MessagePassingQueue<Runnable>) taskQueue;
+            return drainTasksFrom(queue, false, 0);
+        }
         Runnable task = pollTaskFrom(taskQueue);
         if (task == null) {
             return false;
@@ -433,6 +487,29 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    /**
+     * Drains the passed {@link MessagePassingQueue} in batches of {@link #MAX_TASKS_PER_DRAIN} and runs the tasks
+     * until it is empty or, if {@code checkDeadline} is {@code true}, the {@code deadline} is reached.
+     *
+     * @return {@code true} if at least one task was run.
+     */
+    private boolean drainTasksFrom(MessagePassingQueue<Runnable> taskQueue, boolean checkDeadline, long deadline) {
+        final TaskRunner taskRunner = this.taskRunner;
+        // Compare the counter as a task may call this method again.
+        final long ranTasks = taskRunner.ranTasks;
+        for (;;) {
+            if (taskQueue.drain(taskRunner, MAX_TASKS_PER_DRAIN) < MAX_TASKS_PER_DRAIN) {
+                // The queue is empty.
+                break;
+            }
+            // Check timeout after each batch because nanoTime() is relatively expensive.
+            if (checkDeadline && ScheduledFutureTask.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return taskRunner.ranTasks != ranTasks;
+    }
+
     /**
      * What ever tasks are present in {@code taskQueue} when this method is invoked will be {@link Runnable#run()}.
      * @param taskQueue the task queue to drain.
@@ -459,6 +536,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected boolean runAllTasks(long timeoutNanos) {
         fetchFromScheduledTaskQueue();
+        if (taskQueue instanceof MessagePassingQueue) {
+            @SuppressWarnings("unchecked")
+            MessagePassingQueue<Runnable> queue = (MessagePassingQueue<Runnable>) taskQueue;
+            return drainAllTasks(queue, timeoutNanos);
+        }
         Runnable task = pollTask();
         if (task == null) {
             afterRunningAllTasks();
@@ -494,6 +576,21 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return true;
     }
 
+    private boolean drainAllTasks(MessagePassingQueue<Runnable> taskQueue, long timeoutNanos) {
+        assert inEventLoop();
+        if (taskQueue.isEmpty()) {
+            afterRunningAllTasks();
+            return false;
+        }
+        final long deadline = timeoutNanos > 0 ? ScheduledFutureTask.nanoTime() + timeoutNanos : 0;
+        boolean ranAtLeastOne = drainTasksFrom(taskQueue, true, deadline);
+        if (ranAtLeastOne) {
+            lastExecutionTime = ScheduledFutureTask.nanoTime();
+        }
+        afterRunningAllTasks();
+        return ranAtLeastOne;
+    }
+
     /**
      * Invoked before returning from {@link #runAllTasks()} and {@link #runAllTasks(long)}.
      */
@@ -823,6 +920,64 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         execute(ObjectUtil.checkNotNull(task, "task"), false);
     }
 
+    /**
+     * Executes all the given {@link Runnable}s. All tasks are added to the task queue at once and the executor thread
+     * is only woken up once, which is cheaper than calling {@link #execute(Runnable)} for each of them.
+     */
+    @UnstableApi
+    @Override
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        Runnable[] array = ObjectUtil.checkNotNull(tasks, "tasks").toArray(EMPTY_RUNNABLES);
+        boolean immediate = false;
+        for (Runnable task : array) {
+            ObjectUtil.checkNotNull(task, "task");
+            if (!immediate) {
+                immediate = !(task instanceof LazyRunnable) && wakesUpForTask(task);
+            }
+        }
+        if (array.length == 0) {
+            return;
+        }
+
+        boolean inEventLoop = inEventLoop();
+        int added = offerTasks(array);
+        if (added > 0) {
+            executeAdded(array, added, immediate, inEventLoop);
+        }
+        // Only reject the tasks that did not fit into the queue after the thread was started and woken up, so the
+        // tasks that were added are not stranded in the queue.
+        for (int i = added; i < array.length; i++) {
+            reject(array[i]);
+        }
+    }
+
+    private void executeAdded(Runnable[] tasks, int added, boolean immediate, boolean inEventLoop) {
+        if (!inEventLoop) {
+            startThread();
+            if (isShutdown()) {
+                boolean reject = false;
+                try {
+                    for (int i = 0; i < added; i++) {
+                        if (removeTask(tasks[i])) {
+                            reject = true;
+                        }
+                    }
+                } catch (UnsupportedOperationException e) {
+                    // The task queue does not support removal so the best thing we can do is to just move on and
+                    // hope we will be able to pick-up the tasks before its completely terminated.
+                    // In worst case we will log on termination.
+                }
+                if (reject) {
+                    reject();
+                }
+            }
+        }
+
+        if (!addTaskWakesUp && immediate) {
+            wakeup(inEventLoop);
+        }
+    }
+
     private void execute(Runnable task, boolean immediate) {
         boolean inEventLoop = inEventLoop();
         addTask(task);
@@ -1119,4 +1274,37 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return t.isAlive();
         }
     }
+
+    /**
+     * Runs the tasks that are drained from a {@link MessagePassingQueue}. Only used by the executor thread.
+     */
+    private static final class TaskRunner implements MessagePassingQueue.Consumer<Runnable> {
+        long ranTasks;
+
+        @Override
+        public void accept(Runnable task) {
+            // WAKEUP_TASK should be just discarded as these are added internally.
+            if (task != WAKEUP_TASK) {
+                ranTasks++;
+                safeExecute(task);
+            }
+        }
+    }
+
+    /**
+     * Supplies the tasks of an array to {@link MessagePassingQueue#fill(MessagePassingQueue.Supplier, int)}.
+     */
+    private static final class TaskSupplier implements MessagePassingQueue.Supplier<Runnable> {
+        private final Runnable[] tasks;
+        private int index;
+
+        TaskSupplier(Runnable[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public Runnable get() {
+            return tasks[index++];
+        }
+    }
 }
@@ -18,10 +18,12 @@ package io.netty.util.internal;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.jctools.queues.MpmcArrayQueue;
 import org.jctools.queues.MpscArrayQueue;
 import org.jctools.queues.MpscChunkedArrayQueue;
 import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.jctools.queues.SpscLinkedQueue;
+import org.jctools.queues.atomic.MpmcAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscChunkedAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
@@ -511,6 +513,10 @@ public final class PlatformDependent {
         return PlatformDependent0.getInt(address);
     }
 
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static long getLong(long address) {
         return PlatformDependent0.getLong(address);
     }
@@ -651,6 +657,10 @@ public final class PlatformDependent {
         PlatformDependent0.putInt(address, value);
     }
 
+    public static void putIntOrdered(long address, int newValue) {
+        PlatformDependent0.putIntOrdered(address, newValue);
+    }
+
     public static void putLong(long address, long value) {
         PlatformDependent0.putLong(address, value);
     }
@@ -969,6 +979,14 @@ public final class PlatformDependent {
         return hasUnsafe() ? new MpscArrayQueue<T>(capacity) : new MpscAtomicArrayQueue<T>(capacity);
     }
 
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and multiple
+     * consumers (different threads) with the given fixes {@code capacity}.
+     */
+    public static <T> Queue<T> newFixedMpmcQueue(int capacity) {
+        return hasUnsafe() ? new MpmcArrayQueue<T>(capacity) : new MpmcAtomicArrayQueue<T>(capacity);
+    }
+
     /**
      * Return the {@link ClassLoader} for the given {@link Class}.
      */
@@ -538,6 +538,10 @@ final class PlatformDependent0 {
         return UNSAFE.getInt(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static long getLong(long address) {
         return UNSAFE.getLong(address);
     }
@@ -582,6 +586,10 @@ final class PlatformDependent0 {
         UNSAFE.putInt(address, value);
     }
 
+    static void putIntOrdered(long address, int newValue) {
+        UNSAFE.putOrderedInt(null, address, newValue);
+    }
+
     static void putLong(long address, long value) {
         UNSAFE.putLong(address, value);
     }
@@ -19,8 +19,12 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import io.netty.util.concurrent.AbstractEventExecutor.LazyRunnable;
+import io.netty.util.internal.PlatformDependent;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -404,6 +408,128 @@ public class SingleThreadEventExecutorTest {
         }
     }
 
+    @Test(timeout = 5000)
+    public void testExecuteAll() throws Exception {
+        final SingleThreadEventExecutor executor = newWaitingExecutor(PlatformDependent.<Runnable>newMpscQueue());
+        try {
+            final List<Integer> executed = new ArrayList<Integer>();
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for (int i = 0; i < 1000; i++) {
+                final int index = i;
+                tasks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        executed.add(index);
+                    }
+                });
+            }
+            LatchTask latch = new LatchTask();
+            tasks.add(latch);
+
+            executor.executeAll(tasks);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(1000, executed.size());
+            for (int i = 0; i < executed.size(); i++) {
+                assertEquals(i, (int) executed.get(i));
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testExecuteAllRejectsWhenFull() throws Exception {
+        final SingleThreadEventExecutor executor =
+                newWaitingExecutor(PlatformDependent.<Runnable>newFixedMpscQueue(16));
+        final CountDownLatch block = new CountDownLatch(1);
+        try {
+            LatchTask started = new LatchTask();
+            executor.execute(started);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        block.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<LatchTask> tasks = new ArrayList<LatchTask>();
+            for (int i = 0; i < 32; i++) {
+                tasks.add(new LatchTask());
+            }
+            try {
+                executor.executeAll(tasks);
+                fail();
+            } catch (RejectedExecutionException expected) {
+                // expected
+            }
+            block.countDown();
+            // The tasks that fit into the queue are still executed.
+            assertTrue(tasks.get(0).await(5, TimeUnit.SECONDS));
+            assertEquals(1, tasks.get(tasks.size() - 1).getCount());
+        } finally {
+            block.countDown();
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testExecuteAllRejectsWhenFullBeforeStarted() throws Exception {
+        final SingleThreadEventExecutor executor =
+                newWaitingExecutor(PlatformDependent.<Runnable>newFixedMpscQueue(16));
+        try {
+            List<LatchTask> tasks = new ArrayList<LatchTask>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(new LatchTask());
+            }
+            try {
+                executor.executeAll(tasks);
+                fail();
+            } catch (RejectedExecutionException expected) {
+                // expected
+            }
+            // The executor thread was started for the tasks that fit into the queue, even though some were rejected.
+            assertTrue(tasks.get(0).await(5, TimeUnit.SECONDS));
+            assertEquals(1, tasks.get(tasks.size() - 1).getCount());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static SingleThreadEventExecutor newWaitingExecutor(Queue<Runnable> taskQueue) {
+        return new SingleThreadEventExecutor(null, Executors.newSingleThreadExecutor(), false,
+                taskQueue, RejectedExecutionHandlers.reject()) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    try {
+                        synchronized (this) {
+                            if (!hasTasks()) {
+                                wait(100);
+                            }
+                        }
+                        runAllTasks(TimeUnit.MILLISECONDS.toNanos(10));
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                }
+            }
+
+            @Override
+            protected void wakeup(boolean inEventLoop) {
+                if (!inEventLoop) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        };
+    }
+
     private static final class TestRunnable implements Runnable {
         final AtomicBoolean ran = new AtomicBoolean();
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.KernelTlsTxOffload;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.util.Arrays;
+
+/**
+ * Derives the {@link KernelTlsTxOffload} for an established TLS 1.2 session so the record encryption can be done by
+ * the kernel.
+ */
+final class KernelTls {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(KernelTls.class);
+
+    private static final byte[] KEY_EXPANSION_LABEL = "key expansion".getBytes(CharsetUtil.US_ASCII);
+    private static final int FIXED_IV_LENGTH = 4;
+    private static final int SEQUENCE_LENGTH = 8;
+
+    private KernelTls() { }
+
+    /**
+     * Returns the sequence number of the next record once the records in {@code buf} from {@code offset} to
+     * {@code offset + length} were written, if {@code writeSequence} was the one before or {@code -1} if it was not
+     * known. A {@code ChangeCipherSpec} record starts the sequence at {@code 0} again, as all following records are
+     * protected by new keys.
+     */
+    static long nextWriteSequence(ByteBuf buf, int offset, int length, long writeSequence) {
+        int end = offset + length;
+        while (offset < end) {
+            if (end - offset < SslUtils.SSL_RECORD_HEADER_LENGTH) {
+                // Only whole records are produced by the SSLEngine, so we can not tell how many were written.
+                return -1;
+            }
+            if (buf.getUnsignedByte(offset) == SslUtils.SSL_CONTENT_TYPE_CHANGE_CIPHER_SPEC) {
+                writeSequence = 0;
+            } else if (writeSequence >= 0) {
+                writeSequence++;
+            }
+            offset += SslUtils.SSL_RECORD_HEADER_LENGTH + buf.getUnsignedShort(offset + 3);
+        }
+        return offset == end ? writeSequence : -1;
+    }
+
+    /**
+     * Returns the {@link KernelTlsTxOffload} for the session of the given {@link SSLEngine} or {@code null} if the
+     * {@link SSLEngine}, protocol or cipher suite is not supported or the sequence number is not known.
+     * <p>
+     * {@code writeSequence} is the sequence number of the next record the {@link SSLEngine} would write with the
+     * current keys, or {@code -1} if it is not known. OpenSSL does not expose it, so the caller needs to count the
+     * records the {@link SSLEngine} wrote since its last {@code ChangeCipherSpec}.
+     */
+    static KernelTlsTxOffload newTxOffload(SSLEngine engine, long writeSequence) {
+        if (writeSequence < 0) {
+            // Using a wrong sequence number would make the peer fail to decrypt all following records.
+            return null;
+        }
+        if (!(engine instanceof ReferenceCountedOpenSslEngine)) {
+            // We need access to the master secret and the randoms of the session.
+            return null;
+        }
+        SSLSession session = engine.getSession();
+        if (!SslUtils.PROTOCOL_TLS_V1_2.equals(session.getProtocol())) {
+            return null;
+        }
+        String cipherSuite = session.getCipherSuite();
+        final KernelTlsTxOffload.Cipher cipher;
+        final String macAlgorithm;
+        if (cipherSuite.endsWith("_WITH_AES_128_GCM_SHA256")) {
+            cipher = KernelTlsTxOffload.Cipher.AES_128_GCM;
+            macAlgorithm = "HmacSha256";
+        } else if (cipherSuite.endsWith("_WITH_AES_256_GCM_SHA384")) {
+            cipher = KernelTlsTxOffload.Cipher.AES_256_GCM;
+            macAlgorithm = "HmacSha384";
+        } else {
+            return null;
+        }
+
+        ReferenceCountedOpenSslEngine openSslEngine = (ReferenceCountedOpenSslEngine) engine;
+        SecretKeySpec masterKey = openSslEngine.masterKey();
+        byte[] clientRandom = openSslEngine.clientRandom();
+        byte[] serverRandom = openSslEngine.serverRandom();
+        if (masterKey == null || clientRandom == null || serverRandom == null) {
+            return null;
+        }
+
+        byte[] seed = new byte[serverRandom.length + clientRandom.length];
+        System.arraycopy(serverRandom, 0, seed, 0, serverRandom.length);
+        System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+
+        // For AEAD ciphers the key block is:
+        // client_write_key | server_write_key | client_write_IV | server_write_IV
+        int keyLength = cipher.keyLength();
+        byte[] keyBlock;
+        try {
+            keyBlock = PseudoRandomFunction.hash(masterKey.getEncoded(), KEY_EXPANSION_LABEL, seed,
+                    2 * keyLength + 2 * FIXED_IV_LENGTH, macAlgorithm);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Unable to derive the key block for kernel TLS", e);
+            return null;
+        }
+        boolean client = engine.getUseClientMode();
+        int keyOffset = client ? 0 : keyLength;
+        int ivOffset = 2 * keyLength + (client ? 0 : FIXED_IV_LENGTH);
+
+        // The explicit nonce only needs to be unique so we just use the sequence number as well, which is also what
+        // the kernel does when advancing it.
+        byte[] sequence = new byte[SEQUENCE_LENGTH];
+        for (int i = SEQUENCE_LENGTH - 1; i >= 0; i--) {
+            sequence[i] = (byte) writeSequence;
+            writeSequence >>>= 8;
+        }
+        try {
+            return new KernelTlsTxOffload(KernelTlsTxOffload.TLS_1_2, cipher,
+                    Arrays.copyOfRange(keyBlock, keyOffset, keyOffset + keyLength),
+                    Arrays.copyOfRange(keyBlock, ivOffset, ivOffset + FIXED_IV_LENGTH),
+                    sequence, sequence);
+        } finally {
+            Arrays.fill(keyBlock, (byte) 0);
+        }
+    }
+}
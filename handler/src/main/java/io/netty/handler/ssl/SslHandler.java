@@ -32,6 +32,8 @@ import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.channel.socket.KernelTlsCloseNotify;
+import io.netty.channel.socket.KernelTlsTxOffload;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
@@ -180,6 +182,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      */
     private static final int MAX_PLAINTEXT_LENGTH = 16 * 1024;
 
+    private static final int KERNEL_TLS_NONE = 0;
+    private static final int KERNEL_TLS_PENDING = 1;
+    private static final int KERNEL_TLS_ACTIVE = 2;
+    private static final int KERNEL_TLS_UNSUPPORTED = 3;
+
     private enum SslEngineType {
         TCNATIVE(true, COMPOSITE_CUMULATOR) {
             @Override
@@ -409,6 +416,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     private volatile long closeNotifyFlushTimeoutMillis = 3000;
     private volatile long closeNotifyReadTimeoutMillis;
     volatile int wrapDataSize = MAX_PLAINTEXT_LENGTH;
+    private volatile boolean kernelTlsEnabled;
+    private volatile int kernelTlsState = KERNEL_TLS_NONE;
+    // The sequence number of the next record the SSLEngine writes with its current keys or -1 if not known yet.
+    private long kernelTlsWriteSequence = -1;
 
     /**
      * Creates a new instance which runs all delegated tasks directly on the {@link EventExecutor}.
@@ -583,6 +594,47 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         this.closeNotifyReadTimeoutMillis = closeNotifyReadTimeoutMillis;
     }
 
+    /**
+     * Returns {@code true} if the encryption of outbound data should be offloaded to the kernel (kTLS) once the
+     * handshake completed.
+     */
+    @UnstableApi
+    public final boolean isKernelTlsEnabled() {
+        return kernelTlsEnabled;
+    }
+
+    /**
+     * Sets if the encryption of outbound data should be offloaded to the kernel (kTLS) once the handshake completed.
+     * This must be called before the handshake started.
+     * <p>
+     * The offload is only done if the {@link Channel} supports it (which is currently only the case for the
+     * {@code EpollSocketChannel}), the {@link SSLEngine} is provided by {@link SslProvider#OPENSSL} or
+     * {@link SslProvider#OPENSSL_REFCNT} and a TLS 1.2 session with an AES-GCM cipher suite was negotiated. In all
+     * other cases the {@link SSLEngine} continues to encrypt the data. Inbound data is always decrypted by the
+     * {@link SSLEngine}.
+     * <p>
+     * Once the offload is {@link #isKernelTlsActive() active}:
+     * <ul>
+     * <li>{@code FileRegion}s can be written as well.</li>
+     * <li>The {@code close_notify} is sent by the kernel when the {@link Channel} is closed.</li>
+     * <li>Renegotiation is not supported anymore and will fail the {@link Channel}.</li>
+     * </ul>
+     */
+    @UnstableApi
+    public final void setKernelTlsEnabled(boolean kernelTlsEnabled) {
+        this.kernelTlsEnabled = kernelTlsEnabled;
+    }
+
+    /**
+     * Returns {@code true} if the encryption of outbound data was offloaded to the kernel.
+     *
+     * @see #setKernelTlsEnabled(boolean)
+     */
+    @UnstableApi
+    public final boolean isKernelTlsActive() {
+        return kernelTlsState == KERNEL_TLS_ACTIVE;
+    }
+
     /**
      * Returns the {@link SSLEngine} which is used by this handler.
      */
@@ -758,7 +810,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     public void write(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        if (!(msg instanceof ByteBuf)) {
+        if (kernelTlsState == KERNEL_TLS_ACTIVE) {
+            // The kernel encrypts the data so we can just pass it through.
+            ctx.write(msg, promise);
+        } else if (!(msg instanceof ByteBuf)) {
             UnsupportedMessageTypeException exception = new UnsupportedMessageTypeException(msg, ByteBuf.class);
             ReferenceCountUtil.safeRelease(msg);
             promise.setFailure(exception);
@@ -818,6 +873,15 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     // This method will not call setHandshakeFailure(...) !
     private void wrap(ChannelHandlerContext ctx, boolean inUnwrap) throws SSLException {
+        if (kernelTlsState == KERNEL_TLS_ACTIVE) {
+            // The kernel encrypts the data so we can just pass it through.
+            pendingUnencryptedWrites.writeAndRemoveAll(ctx);
+            return;
+        }
+        if (kernelTlsState == KERNEL_TLS_PENDING) {
+            // Hold back all writes until we know who will encrypt these. See startKernelTls().
+            return;
+        }
         ByteBuf out = null;
         ChannelPromise promise = null;
         ByteBufAllocator alloc = ctx.alloc();
@@ -828,6 +892,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             // Only continue to loop if the handler was not removed in the meantime.
             // See https://github.com/netty/netty/issues/5860
             outer: while (!ctx.isRemoved()) {
+                if (kernelTlsState == KERNEL_TLS_PENDING) {
+                    // The handshake completed and we are offloading the encryption to the kernel.
+                    break;
+                }
                 promise = ctx.newPromise();
                 buf = wrapDataSize > 0 ?
                         pendingUnencryptedWrites.remove(alloc, wrapDataSize, promise) :
@@ -955,6 +1023,15 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      * @return {@code true} if this method ends on {@link SSLEngineResult.HandshakeStatus#NOT_HANDSHAKING}.
      */
     private boolean wrapNonAppData(final ChannelHandlerContext ctx, boolean inUnwrap) throws SSLException {
+        if (kernelTlsState == KERNEL_TLS_PENDING || kernelTlsState == KERNEL_TLS_ACTIVE) {
+            // The SSLEngine must not produce any records anymore as its sequence number would be out of sync with
+            // the kernel. Closing is fine as the close_notify is sent by the kernel, see closeOutboundAndChannel(...).
+            if (!outboundClosed && !engine.isInboundDone() &&
+                    engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING) {
+                throw new SSLException("renegotiation is not supported when using kernel TLS");
+            }
+            return true;
+        }
         ByteBuf out = null;
         ByteBufAllocator alloc = ctx.alloc();
         try {
@@ -1079,6 +1156,13 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                 SSLEngineResult result = engine.wrap(in0, out0);
                 in.skipBytes(result.bytesConsumed());
                 out.writerIndex(out.writerIndex() + result.bytesProduced());
+                if (kernelTlsEnabled && kernelTlsState == KERNEL_TLS_NONE && result.bytesProduced() > 0) {
+                    // The kernel needs to continue with the sequence number of the SSLEngine, which OpenSSL does not
+                    // expose. Count the records it writes so we know it.
+                    kernelTlsWriteSequence = KernelTls.nextWriteSequence(out,
+                            out.writerIndex() - result.bytesProduced(), result.bytesProduced(),
+                            kernelTlsWriteSequence);
+                }
 
                 switch (result.getStatus()) {
                 case BUFFER_OVERFLOW:
@@ -1793,6 +1877,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      * Notify all the handshake futures about the successfully handshake
      */
     private void setHandshakeSuccess() {
+        if (kernelTlsEnabled && kernelTlsState == KERNEL_TLS_NONE) {
+            startKernelTls();
+        }
         handshakePromise.trySuccess(ctx.channel());
 
         if (logger.isDebugEnabled()) {
@@ -1811,6 +1898,55 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         }
     }
 
+    private void startKernelTls() {
+        // Only socket based Channels may support the offload, others would just pass the plaintext through.
+        final KernelTlsTxOffload offload = ctx.channel() instanceof io.netty.channel.socket.SocketChannel ?
+                KernelTls.newTxOffload(engine, kernelTlsWriteSequence) : null;
+        if (offload == null) {
+            kernelTlsState = KERNEL_TLS_UNSUPPORTED;
+            return;
+        }
+        // From now on the SSLEngine must not wrap anything anymore until we know if the offload worked.
+        kernelTlsState = KERNEL_TLS_PENDING;
+
+        // We may be in the middle of wrap(...) which will still write the records of the handshake. As these are
+        // encrypted already they must be written to the socket before the offload so we delay the offload request.
+        final ChannelHandlerContext ctx = this.ctx;
+        ctx.executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (ctx.isRemoved()) {
+                    return;
+                }
+                ctx.writeAndFlush(offload).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        kernelTlsDone(ctx, future.cause());
+                    }
+                });
+            }
+        });
+    }
+
+    private void kernelTlsDone(ChannelHandlerContext ctx, Throwable cause) {
+        if (cause == null) {
+            kernelTlsState = KERNEL_TLS_ACTIVE;
+        } else {
+            // The Channel or kernel does not support it, fall back to the SSLEngine.
+            kernelTlsState = KERNEL_TLS_UNSUPPORTED;
+            logger.debug("{} Unable to offload TLS to the kernel", ctx.channel(), cause);
+        }
+        if (pendingUnencryptedWrites == null || pendingUnencryptedWrites.isEmpty()) {
+            return;
+        }
+        // Write everything that was held back in the meantime.
+        try {
+            wrapAndFlush(ctx);
+        } catch (Throwable t) {
+            setHandshakeFailure(ctx, t);
+        }
+    }
+
     /**
      * Notify all the handshake futures about the failure during the handshake.
      */
@@ -1904,7 +2040,13 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
         ChannelPromise closeNotifyPromise = ctx.newPromise();
         try {
-            flush(ctx, closeNotifyPromise);
+            if (kernelTlsState == KERNEL_TLS_ACTIVE) {
+                // The SSLEngine can not produce any records anymore, so let the kernel send the close_notify.
+                flush(ctx);
+                ctx.writeAndFlush(KernelTlsCloseNotify.INSTANCE, closeNotifyPromise);
+            } else {
+                flush(ctx, closeNotifyPromise);
+            }
         } finally {
             if (!closeNotify) {
                 closeNotify = true;
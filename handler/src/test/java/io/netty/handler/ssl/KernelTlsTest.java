@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.socket.KernelTlsTxOffload;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+public class KernelTlsTest {
+
+    private static final byte[] DATA = "Hello kernel TLS".getBytes(CharsetUtil.US_ASCII);
+    private static SelfSignedCertificate ssc;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        assumeTrue(OpenSsl.isAvailable());
+        ssc = new SelfSignedCertificate();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (ssc != null) {
+            ssc.delete();
+        }
+    }
+
+    @Test
+    public void testAes128Gcm() throws Exception {
+        testOffload("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", KernelTlsTxOffload.Cipher.AES_128_GCM);
+    }
+
+    @Test
+    public void testAes256Gcm() throws Exception {
+        testOffload("TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384", KernelTlsTxOffload.Cipher.AES_256_GCM);
+    }
+
+    @Test
+    public void testUnsupportedCipherSuite() throws Exception {
+        SslContext serverCtx = serverContext("TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA");
+        SslContext clientCtx = clientContext("TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA");
+        SSLEngine server = serverCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        SSLEngine client = clientCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        try {
+            long[] writeSequences = handshake(client, server);
+            assertNull(KernelTls.newTxOffload(client, writeSequences[0]));
+            assertNull(KernelTls.newTxOffload(server, writeSequences[1]));
+        } finally {
+            cleanup(client, clientCtx);
+            cleanup(server, serverCtx);
+        }
+    }
+
+    @Test
+    public void testUnknownWriteSequence() throws Exception {
+        String cipherSuite = "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+        SslContext serverCtx = serverContext(cipherSuite);
+        SslContext clientCtx = clientContext(cipherSuite);
+        SSLEngine server = serverCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        SSLEngine client = clientCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        try {
+            handshake(client, server);
+            assertNull(KernelTls.newTxOffload(server, -1));
+            assertNull(KernelTls.newTxOffload(client, -1));
+        } finally {
+            cleanup(client, clientCtx);
+            cleanup(server, serverCtx);
+        }
+    }
+
+    @Test
+    public void testNextWriteSequence() {
+        ByteBuf records = Unpooled.buffer();
+        // Handshake record, ChangeCipherSpec record and two encrypted records.
+        records.writeByte(22).writeShort(KernelTlsTxOffload.TLS_1_2).writeShort(3).writeZero(3);
+        records.writeByte(20).writeShort(KernelTlsTxOffload.TLS_1_2).writeShort(1).writeByte(1);
+        records.writeByte(22).writeShort(KernelTlsTxOffload.TLS_1_2).writeShort(4).writeZero(4);
+        records.writeByte(23).writeShort(KernelTlsTxOffload.TLS_1_2).writeShort(2).writeZero(2);
+        try {
+            assertEquals(-1, KernelTls.nextWriteSequence(records, 0, 8, -1));
+            assertEquals(2, KernelTls.nextWriteSequence(records, 0, records.readableBytes(), -1));
+            assertEquals(7, KernelTls.nextWriteSequence(records, 23, 7, 6));
+            // Incomplete records.
+            assertEquals(-1, KernelTls.nextWriteSequence(records, 0, records.readableBytes() - 1, -1));
+            assertEquals(-1, KernelTls.nextWriteSequence(records, 23, 3, 6));
+        } finally {
+            records.release();
+        }
+    }
+
+    private static void testOffload(String cipherSuite, KernelTlsTxOffload.Cipher cipher) throws Exception {
+        SslContext serverCtx = serverContext(cipherSuite);
+        SslContext clientCtx = clientContext(cipherSuite);
+        SSLEngine server = serverCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        SSLEngine client = clientCtx.newEngine(UnpooledByteBufAllocator.DEFAULT);
+        try {
+            long[] writeSequences = handshake(client, server);
+            // The Finished message was the first record protected by the new keys.
+            assertEquals(1, writeSequences[0]);
+            assertEquals(1, writeSequences[1]);
+
+            KernelTlsTxOffload serverOffload = KernelTls.newTxOffload(server, writeSequences[1]);
+            assertNotNull(serverOffload);
+            assertEquals(cipher, serverOffload.cipher());
+            assertEquals(KernelTlsTxOffload.TLS_1_2, serverOffload.version());
+            assertDecrypt(server, serverOffload);
+
+            KernelTlsTxOffload clientOffload = KernelTls.newTxOffload(client, writeSequences[0]);
+            assertNotNull(clientOffload);
+            assertDecrypt(client, clientOffload);
+        } finally {
+            cleanup(client, clientCtx);
+            cleanup(server, serverCtx);
+        }
+    }
+
+    /**
+     * Decrypts the first application data record that is produced by the {@link SSLEngine} with the key material of
+     * the {@link KernelTlsTxOffload}. This only works if the key, salt and record sequence number are correct.
+     */
+    private static void assertDecrypt(SSLEngine engine, KernelTlsTxOffload offload) throws Exception {
+        ByteBuffer record = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        engine.wrap(ByteBuffer.wrap(DATA), record);
+        record.flip();
+
+        // Record header: content type (1), version (2), length (2)
+        byte contentType = record.get();
+        short version = record.getShort();
+        record.getShort();
+        assertEquals(23, contentType);
+        assertEquals(offload.version(), version);
+
+        byte[] explicitNonce = new byte[8];
+        record.get(explicitNonce);
+        byte[] ciphertext = new byte[record.remaining()];
+        record.get(ciphertext);
+
+        byte[] nonce = new byte[12];
+        System.arraycopy(offload.salt(), 0, nonce, 0, 4);
+        System.arraycopy(explicitNonce, 0, nonce, 4, 8);
+
+        ByteBuffer aad = ByteBuffer.allocate(13);
+        aad.put(offload.recordSequence());
+        aad.put(contentType);
+        aad.putShort(version);
+        aad.putShort((short) DATA.length);
+
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.DECRYPT_MODE, new SecretKeySpec(offload.key(), "AES"), new GCMParameterSpec(128, nonce));
+        gcm.updateAAD(aad.array());
+        assertArrayEquals(DATA, gcm.doFinal(ciphertext));
+    }
+
+    private static SslContext serverContext(String cipherSuite) throws SSLException {
+        return SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey())
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols(SslUtils.PROTOCOL_TLS_V1_2)
+                .ciphers(Collections.singletonList(cipherSuite))
+                .build();
+    }
+
+    private static SslContext clientContext(String cipherSuite) throws SSLException {
+        return SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols(SslUtils.PROTOCOL_TLS_V1_2)
+                .ciphers(Collections.singletonList(cipherSuite))
+                .build();
+    }
+
+    /**
+     * Does the handshake and returns the sequence numbers of the next record of the client and the server.
+     */
+    private static long[] handshake(SSLEngine client, SSLEngine server) throws SSLException {
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer cTOs = ByteBuffer.allocate(client.getSession().getPacketBufferSize());
+        ByteBuffer sTOc = ByteBuffer.allocate(server.getSession().getPacketBufferSize());
+        ByteBuffer app = ByteBuffer.allocate(Math.max(client.getSession().getApplicationBufferSize(),
+                server.getSession().getApplicationBufferSize()));
+
+        long clientSequence = -1;
+        long serverSequence = -1;
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int i = 0; i < 100 && (isHandshaking(client) || isHandshaking(server)); i++) {
+            int position = cTOs.position();
+            client.wrap(empty, cTOs);
+            clientSequence = KernelTls.nextWriteSequence(
+                    Unpooled.wrappedBuffer(cTOs.array()), position, cTOs.position() - position, clientSequence);
+            runDelegatedTasks(client);
+            position = sTOc.position();
+            server.wrap(empty, sTOc);
+            serverSequence = KernelTls.nextWriteSequence(
+                    Unpooled.wrappedBuffer(sTOc.array()), position, sTOc.position() - position, serverSequence);
+            runDelegatedTasks(server);
+
+            cTOs.flip();
+            sTOc.flip();
+            client.unwrap(sTOc, app);
+            runDelegatedTasks(client);
+            server.unwrap(cTOs, app);
+            runDelegatedTasks(server);
+            cTOs.compact();
+            sTOc.compact();
+            app.clear();
+        }
+        assertEquals(HandshakeStatus.NOT_HANDSHAKING, client.getHandshakeStatus());
+        assertEquals(HandshakeStatus.NOT_HANDSHAKING, server.getHandshakeStatus());
+        assertEquals(0, cTOs.position());
+        assertEquals(0, sTOc.position());
+        return new long[] { clientSequence, serverSequence };
+    }
+
+    private static boolean isHandshaking(SSLEngine engine) {
+        return engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private static void cleanup(SSLEngine engine, SslContext ctx) {
+        ReferenceCountUtil.release(engine);
+        ReferenceCountUtil.release(ctx);
+    }
+}
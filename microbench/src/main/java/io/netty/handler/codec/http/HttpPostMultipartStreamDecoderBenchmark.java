@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpPostMultipartRequestDecoder;
+import io.netty.handler.codec.http.multipart.HttpPostMultipartStreamDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a multipart upload of a single large file, once with {@link HttpPostMultipartStreamDecoder} passing the
+ * content to a listener which discards it and once with {@link HttpPostMultipartRequestDecoder} storing it in a
+ * temporary file.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HttpPostMultipartStreamDecoderBenchmark extends AbstractMicrobenchmark {
+    private static final String BOUNDARY = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Param({ "64", "1024", "4096" })
+    public int uploadSizeMb;
+
+    private HttpRequest request;
+    private ByteBuf head;
+    private ByteBuf chunk;
+    private ByteBuf tail;
+
+    @Setup
+    public void setup() {
+        request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        head = Unpooled.directBuffer().writeBytes(("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"upload.bin\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "\r\n").getBytes(CharsetUtil.US_ASCII));
+        chunk = Unpooled.directBuffer(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            // Carriage returns make the decoders check for the boundary.
+            chunk.writeByte(i % 97 == 0 ? '\r' : 'a' + i % 26);
+        }
+        tail = Unpooled.directBuffer().writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(CharsetUtil.US_ASCII));
+    }
+
+    @TearDown
+    public void tearDown() {
+        head.release();
+        chunk.release();
+        tail.release();
+    }
+
+    private long chunks() {
+        return uploadSizeMb * 1024L * 1024L / CHUNK_SIZE;
+    }
+
+    @Benchmark
+    public long streamDecoder() throws Exception {
+        final long[] received = new long[1];
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(request,
+                new HttpPostMultipartStreamDecoder.PartListener() {
+                    @Override
+                    public void partStarted(HttpHeaders partHeaders) {
+                    }
+
+                    @Override
+                    public void partContent(ByteBuf content) {
+                        received[0] += content.readableBytes();
+                        content.release();
+                    }
+
+                    @Override
+                    public void partEnded() {
+                    }
+                });
+        try {
+            offer(decoder, new DefaultHttpContent(head.retainedDuplicate()));
+            for (long i = chunks(); i > 0; i--) {
+                offer(decoder, new DefaultHttpContent(chunk.retainedDuplicate()));
+            }
+            offer(decoder, new DefaultLastHttpContent(tail.retainedDuplicate()));
+        } finally {
+            decoder.destroy();
+        }
+        return received[0];
+    }
+
+    private static void offer(HttpPostMultipartStreamDecoder decoder, HttpContent content) throws Exception {
+        try {
+            decoder.offer(content);
+        } finally {
+            content.release();
+        }
+    }
+
+    @Benchmark
+    public int multipartRequestDecoder() {
+        HttpPostMultipartRequestDecoder decoder = new HttpPostMultipartRequestDecoder(
+                new DefaultHttpDataFactory(DefaultHttpDataFactory.MINSIZE), request);
+        try {
+            offer(decoder, new DefaultHttpContent(head.retainedDuplicate()));
+            for (long i = chunks(); i > 0; i--) {
+                offer(decoder, new DefaultHttpContent(chunk.retainedDuplicate()));
+            }
+            offer(decoder, new DefaultLastHttpContent(tail.retainedDuplicate()));
+            return decoder.getBodyHttpDatas().size();
+        } finally {
+            decoder.destroy();
+        }
+    }
+
+    private static void offer(HttpPostMultipartRequestDecoder decoder, HttpContent content) {
+        try {
+            decoder.offer(content);
+        } finally {
+            content.release();
+        }
+    }
+}
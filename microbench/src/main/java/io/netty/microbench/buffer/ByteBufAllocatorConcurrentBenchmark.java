@@ -16,12 +16,14 @@
 package io.netty.microbench.buffer;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
@@ -33,12 +35,42 @@ import org.openjdk.jmh.annotations.Warmup;
 public class ByteBufAllocatorConcurrentBenchmark  extends AbstractMicrobenchmark {
 
     private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true, true);
+    // The benchmark threads are no FastThreadLocalThreads, so without useCacheForAllThreads they have no thread
+    // local caches, like the threads of a ForkJoinPool in an application.
+    private static final ByteBufAllocator pooledAllocator = newPooledAllocator(0);
+    private static final ByteBufAllocator pooledMagazineAllocator =
+            newPooledAllocator(PooledByteBufAllocator.defaultSmallCacheSize());
 
     @Param({ "00064", "00256", "01024", "04096" })
     public int size;
 
+    @Param({ "unpooled", "pooled", "pooledMagazine" })
+    public String allocatorType;
+
+    private ByteBufAllocator allocator;
+
+    @Setup
+    public void setup() {
+        if ("unpooled".equals(allocatorType)) {
+            allocator = unpooledAllocator;
+        } else if ("pooled".equals(allocatorType)) {
+            allocator = pooledAllocator;
+        } else if ("pooledMagazine".equals(allocatorType)) {
+            allocator = pooledMagazineAllocator;
+        } else {
+            throw new IllegalArgumentException("Unknown allocatorType: " + allocatorType);
+        }
+    }
+
     @Benchmark
     public boolean allocateRelease() {
-        return unpooledAllocator.directBuffer(size).release();
+        return allocator.directBuffer(size).release();
+    }
+
+    private static ByteBufAllocator newPooledAllocator(int magazineCacheSize) {
+        return new PooledByteBufAllocator(true, PooledByteBufAllocator.defaultNumHeapArena(),
+                PooledByteBufAllocator.defaultNumDirectArena(), PooledByteBufAllocator.defaultPageSize(),
+                PooledByteBufAllocator.defaultMaxOrder(), PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(), false, 0, magazineCacheSize);
     }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.uring.IOUringEventLoopGroup;
+import io.netty.channel.uring.IOUringServerSocketChannel;
+import io.netty.channel.uring.IOUringSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link IOUringSocketChannel} with the {@link EpollSocketChannel} by echoing data over the loopback
+ * interface. {@code burst} controls how many writes are done per flush and so how many operations can be batched
+ * into a single {@code io_uring_enter} call.
+ */
+public class IOUringSocketChannelBenchmark extends AbstractMicrobenchmark {
+
+    public enum Transport {
+        EPOLL, IO_URING
+    }
+
+    @Param
+    public Transport transport;
+
+    @Param({ "1", "16" })
+    public int burst;
+
+    @Param({ "1", "1024" })
+    public int size;
+
+    private EventLoopGroup group;
+    private Channel serverChan;
+    private Channel chan;
+    private ByteBuf data;
+
+    @Setup
+    public void setup() throws Exception {
+        final Class<? extends ServerChannel> serverChannelClass;
+        final Class<? extends Channel> channelClass;
+        switch (transport) {
+            case EPOLL:
+                group = new EpollEventLoopGroup(1);
+                serverChannelClass = EpollServerSocketChannel.class;
+                channelClass = EpollSocketChannel.class;
+                break;
+            case IO_URING:
+                group = new IOUringEventLoopGroup(1);
+                serverChannelClass = IOUringServerSocketChannel.class;
+                channelClass = IOUringSocketChannel.class;
+                break;
+            default:
+                throw new IllegalStateException("Unknown transport: " + transport);
+        }
+
+        serverChan = new ServerBootstrap()
+            .channel(serverChannelClass)
+            .group(group)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.write(msg, ctx.voidPromise());
+                        }
+
+                        @Override
+                        public void channelReadComplete(ChannelHandlerContext ctx) {
+                            ctx.flush();
+                        }
+                    });
+                }
+            })
+            .bind(0)
+            .sync()
+            .channel();
+        chan = new Bootstrap()
+            .channel(channelClass)
+            .handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+                        private ChannelPromise lastWritePromise;
+                        private int pendingBytes;
+
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ByteBuf buf = (ByteBuf) msg;
+                            try {
+                                pendingBytes -= buf.readableBytes();
+                                if (pendingBytes == 0) {
+                                    ChannelPromise promise = lastWritePromise;
+                                    lastWritePromise = null;
+                                    promise.trySuccess();
+                                } else if (pendingBytes < 0) {
+                                    throw new AssertionError();
+                                }
+                            } finally {
+                                buf.release();
+                            }
+                        }
+
+                        @Override
+                        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+                                throws Exception {
+                            pendingBytes += ((ByteBuf) msg).readableBytes();
+                            if (!promise.isVoid()) {
+                                if (lastWritePromise != null) {
+                                    throw new IllegalStateException();
+                                }
+                                lastWritePromise = promise;
+                            }
+                            super.write(ctx, msg, ctx.voidPromise());
+                        }
+                    });
+                }
+            })
+            .group(group)
+            .connect(serverChan.localAddress())
+            .sync()
+            .channel();
+
+        data = chan.alloc().directBuffer(size);
+        data.writerIndex(size);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        data.release();
+    }
+
+    @Benchmark
+    public Object pingPong() throws Exception {
+        // The write and flush are done on the EventLoop so all writes of the burst are submitted together.
+        final ChannelPromise promise = chan.newPromise();
+        chan.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i < burst; i++) {
+                    chan.write(data.retainedSlice(), chan.voidPromise());
+                }
+                chan.writeAndFlush(data.retainedSlice(), promise);
+            }
+        });
+        return promise.sync();
+    }
+}
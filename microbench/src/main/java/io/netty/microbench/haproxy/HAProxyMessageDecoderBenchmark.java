@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.haproxy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.haproxy.HAProxyMessage;
+import io.netty.handler.codec.haproxy.HAProxyMessageDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes the proxy protocol header of a new connection with a fresh {@link HAProxyMessageDecoder}, which removes
+ * itself afterwards, and reads the addresses like a server which accepts many connections would.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class HAProxyMessageDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final byte[] V1_HEADER =
+            "PROXY TCP4 192.168.0.1 192.168.0.11 56324 443\r\n".getBytes(CharsetUtil.US_ASCII);
+
+    // TCP over IPv4 with an SSL TLV which encapsulates a version and a common name TLV.
+    private static final byte[] V2_HEADER = {
+            13, 10, 13, 10, 0, 13, 10, 81, 85, 73, 84, 10, 33, 17, 0, 35, 127, 0, 0, 1, 127, 0, 0, 1,
+            -55, -90, 7, 89, 32, 0, 20, 5, 0, 0, 0, 0, 33, 0, 5, 84, 76, 83, 118, 49, 34, 0, 4, 76, 69, 65, 70
+    };
+
+    @Param({ "V1", "V2" })
+    public String version;
+
+    @Param({ "false", "true" })
+    public boolean lazy;
+
+    private ByteBuf header;
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = "V1".equals(version) ? V1_HEADER : V2_HEADER;
+        header = Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes).asReadOnly());
+        channel = new EmbeddedChannel();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void decodeAddresses(Blackhole bh) {
+        channel.pipeline().addLast(new HAProxyMessageDecoder(65535, true, lazy));
+        channel.writeInbound(header.duplicate());
+        HAProxyMessage message = channel.readInbound();
+        bh.consume(message.sourceInetSocketAddress());
+        bh.consume(message.destinationInetSocketAddress());
+        message.release();
+    }
+
+    @Benchmark
+    public void decodeAll(Blackhole bh) {
+        channel.pipeline().addLast(new HAProxyMessageDecoder(65535, true, lazy));
+        channel.writeInbound(header.duplicate());
+        HAProxyMessage message = channel.readInbound();
+        bh.consume(message.sourceAddress());
+        bh.consume(message.destinationAddress());
+        bh.consume(message.tlvs());
+        message.release();
+    }
+}
@@ -15,9 +15,12 @@
  */
 package io.netty.microbench.http;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectDecoder;
 import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpRequestEncoder;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.CharsetUtil;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -36,11 +39,15 @@ import org.openjdk.jmh.annotations.Warmup;
 public class HttpRequestDecoderBenchmark extends AbstractMicrobenchmark {
 
     private static final byte[] CONTENT_MIXED_DELIMITERS = createContent("\r\n", "\n");
+    private static final byte[] CONTENT_CRLF_DELIMITERS = createContent("\r\n");
     private static final int CONTENT_LENGTH = 120;
 
     @Param({ "2", "4", "8", "16", "32" })
     public int step;
 
+    @Param({ "false", "true" })
+    public boolean rawHeaders;
+
     private static byte[] createContent(String... lineDelimiters) {
         String lineDelimiter;
         String lineDelimiter2;
@@ -83,11 +90,36 @@ public class HttpRequestDecoderBenchmark extends AbstractMicrobenchmark {
 
     @Benchmark
     public void testDecodeWholeRequestInMultipleStepsMixedDelimiters() {
-        testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, step);
+        testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, step, rawHeaders);
+    }
+
+    /**
+     * Decodes the request and encodes it again, like a proxy that forwards requests without changing the headers.
+     */
+    @Benchmark
+    public void testDecodeAndEncodeWholeRequest() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestEncoder(), newDecoder(rawHeaders));
+        channel.writeInbound(Unpooled.wrappedBuffer(CONTENT_CRLF_DELIMITERS).asReadOnly());
+        Object msg;
+        while ((msg = channel.readInbound()) != null) {
+            channel.write(msg);
+        }
+        channel.flush();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            buf.release();
+        }
+    }
+
+    private static HttpRequestDecoder newDecoder(boolean rawHeaders) {
+        return new HttpRequestDecoder(HttpObjectDecoder.DEFAULT_MAX_INITIAL_LINE_LENGTH,
+                HttpObjectDecoder.DEFAULT_MAX_HEADER_SIZE, HttpObjectDecoder.DEFAULT_MAX_CHUNK_SIZE,
+                HttpObjectDecoder.DEFAULT_VALIDATE_HEADERS, HttpObjectDecoder.DEFAULT_INITIAL_BUFFER_SIZE,
+                HttpObjectDecoder.DEFAULT_ALLOW_DUPLICATE_CONTENT_LENGTHS, rawHeaders);
     }
 
-    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize) {
-        final EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize, boolean rawHeaders) {
+        final EmbeddedChannel channel = new EmbeddedChannel(newDecoder(rawHeaders));
 
         final int headerLength = content.length - CONTENT_LENGTH;
 
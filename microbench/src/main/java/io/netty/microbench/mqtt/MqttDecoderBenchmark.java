@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes {@code PUBLISH} messages which are received in fragments of {@link #step} bytes, like on a slow link.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class MqttDecoderBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "64", "1024", "4096" })
+    public int payloadSize;
+
+    @Param({ "16", "256", "65536" })
+    public int step;
+
+    private ByteBuf publish;
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EmbeddedChannel encoder = new EmbeddedChannel(MqttEncoder.INSTANCE);
+        encoder.writeOutbound(MqttMessageBuilders.publish()
+                .topicName("/devices/sensor-4711/temperature")
+                .qos(MqttQoS.AT_LEAST_ONCE)
+                .messageId(1)
+                .payload(Unpooled.wrappedBuffer(new byte[payloadSize]))
+                .build());
+        ByteBuf encoded = encoder.readOutbound();
+        publish = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(encoded).asReadOnly());
+        encoded.release();
+        encoder.finishAndReleaseAll();
+        channel = new EmbeddedChannel(new MqttDecoder(Integer.MAX_VALUE));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void decodePublish(Blackhole bh) {
+        final int length = publish.readableBytes();
+        for (int i = 0; i < length; i += step) {
+            channel.writeInbound(publish.retainedSlice(i, Math.min(step, length - i)));
+        }
+        MqttMessage message = channel.readInbound();
+        bh.consume(message.fixedHeader());
+        ReferenceCountUtil.release(message);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.redis;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.redis.RedisArrayAggregator;
+import io.netty.handler.codec.redis.RedisBulkStringAggregator;
+import io.netty.handler.codec.redis.RedisDecoder;
+import io.netty.handler.codec.redis.RedisMessage;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes a RESP3 map reply like {@code ZRANGE key 0 -1 WITHSCORES} returns, either aggregated into a single
+ * {@link io.netty.handler.codec.redis.MapRedisMessage} or streamed as header and elements.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RedisDecoderBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "50", "200", "1000" })
+    public int mapSize;
+
+    private ByteBuf reply;
+    private EmbeddedChannel aggregatingChannel;
+    private EmbeddedChannel streamingChannel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder().append('%').append(mapSize).append("\r\n");
+        for (int i = 0; i < mapSize; i++) {
+            String member = "member:" + i;
+            sb.append('$').append(member.length()).append("\r\n").append(member).append("\r\n");
+            sb.append(',').append(i).append(".5\r\n");
+        }
+        reply = Unpooled.unreleasableBuffer(
+                Unpooled.copiedBuffer(sb, CharsetUtil.US_ASCII).asReadOnly());
+        aggregatingChannel = new EmbeddedChannel(
+                new RedisDecoder(), new RedisBulkStringAggregator(), new RedisArrayAggregator());
+        streamingChannel = new EmbeddedChannel(new RedisDecoder(), new RedisBulkStringAggregator());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        aggregatingChannel.finishAndReleaseAll();
+        streamingChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void decodeMapAggregated(Blackhole bh) {
+        aggregatingChannel.writeInbound(reply.retainedDuplicate());
+        RedisMessage message = aggregatingChannel.readInbound();
+        bh.consume(message);
+        ReferenceCountUtil.release(message);
+    }
+
+    @Benchmark
+    public void decodeMapStreaming(Blackhole bh) {
+        streamingChannel.writeInbound(reply.retainedDuplicate());
+        RedisMessage message;
+        while ((message = streamingChannel.readInbound()) != null) {
+            bh.consume(message);
+            ReferenceCountUtil.release(message);
+        }
+    }
+}
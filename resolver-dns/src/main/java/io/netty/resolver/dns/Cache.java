@@ -18,6 +18,7 @@ package io.netty.resolver.dns;
 import io.netty.channel.EventLoop;
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -28,6 +29,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
@@ -41,6 +43,8 @@ import static java.util.Collections.singletonList;
 abstract class Cache<E> {
     private static final AtomicReferenceFieldUpdater<Cache.Entries, ScheduledFuture> FUTURE_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(Cache.Entries.class, ScheduledFuture.class, "expirationFuture");
+    private static final AtomicIntegerFieldUpdater<Cache.Entries> PREFETCH_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Cache.Entries.class, "prefetch");
 
     private static final ScheduledFuture<?> CANCELLED = new ScheduledFuture<Object>() {
 
@@ -133,6 +137,44 @@ abstract class Cache<E> {
         entries.add(value, ttl, loop);
     }
 
+    /**
+     * Replace all entries for the given hostname with the given values, which will automatically expire once the
+     * TTL is reached. In contrast to {@link #cache(String, Object, int, EventLoop)} this also extends the lifetime
+     * of the entries.
+     */
+    final void replace(String hostname, List<? extends E> values, int ttl, EventLoop loop) {
+        Entries entries = new Entries(hostname);
+        Entries oldEntries = resolveCache.put(hostname, entries);
+        if (oldEntries != null) {
+            oldEntries.clearAndCancel();
+        }
+        for (int i = 0; i < values.size(); i++) {
+            entries.add(values.get(i), ttl, loop);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the entries for the given hostname expire within the last {@code thresholdPercent}
+     * of their TTL and so should be refreshed. This only returns {@code true} once for the same entries, so
+     * concurrent callers do not refresh them more than once.
+     */
+    final boolean startPrefetch(String hostname, int thresholdPercent) {
+        Entries entries = resolveCache.get(hostname);
+        if (entries == null) {
+            return false;
+        }
+        ScheduledFuture<?> expirationFuture = entries.expirationFuture;
+        int ttl = entries.ttl;
+        if (expirationFuture == null || ttl <= 0) {
+            return false;
+        }
+        long remainingMillis = expirationFuture.getDelay(TimeUnit.MILLISECONDS);
+        if (remainingMillis <= 0 || remainingMillis * 100 > TimeUnit.SECONDS.toMillis(ttl) * thresholdPercent) {
+            return false;
+        }
+        return PREFETCH_UPDATER.compareAndSet(entries, 0, 1);
+    }
+
     /**
      * Return the number of hostames for which we have cached something.
      */
@@ -140,11 +182,45 @@ abstract class Cache<E> {
         return resolveCache.size();
     }
 
+    /**
+     * Passes all cached entries of each hostname to the given {@link EntriesVisitor}, together with the number of
+     * seconds until they expire.
+     */
+    final void forEach(EntriesVisitor<? super E> visitor) throws IOException {
+        for (Entries entries : resolveCache.values()) {
+            List<E> cached = entries.get();
+            ScheduledFuture<?> expirationFuture = entries.expirationFuture;
+            if (cached.isEmpty() || expirationFuture == null) {
+                continue;
+            }
+            long ttl = expirationFuture.getDelay(TimeUnit.SECONDS);
+            if (ttl > 0) {
+                visitor.visit(entries.hostname, cached, (int) Math.min(ttl, MAX_SUPPORTED_TTL_SECS));
+            }
+        }
+    }
+
+    /**
+     * Visits the cached entries of a hostname.
+     */
+    interface EntriesVisitor<E> {
+        void visit(String hostname, List<? extends E> entries, int ttl) throws IOException;
+    }
+
     /**
      * Returns {@code true} if this entry should replace all other entries that are already cached for the hostname.
      */
     protected abstract boolean shouldReplaceAll(E entry);
 
+    /**
+     * Called once the entries for a {@code hostname} expired and were removed from the cache.
+     */
+    protected void expired(
+            @SuppressWarnings("unused") String hostname, @SuppressWarnings("unused") List<E> entries,
+            @SuppressWarnings("unused") EventLoop loop) {
+        // NOOP.
+    }
+
     /**
      * Sort the {@link List} for a {@code hostname} before caching these.
      */
@@ -164,6 +240,11 @@ abstract class Cache<E> {
         private final String hostname;
         // Needs to be package-private to be able to access it via the AtomicReferenceFieldUpdater
         volatile ScheduledFuture<?> expirationFuture;
+        // Needs to be package-private to be able to access it via the AtomicIntegerFieldUpdater
+        volatile int prefetch;
+        // The TTL of the scheduled expiration and the EventLoop it was scheduled on.
+        private volatile int ttl;
+        private volatile EventLoop loop;
 
         Entries(String hostname) {
             super(Collections.<E>emptyList());
@@ -237,6 +318,9 @@ abstract class Cache<E> {
                 // we can reconsider.
                 ScheduledFuture<?> oldFuture = FUTURE_UPDATER.get(this);
                 if (oldFuture == null || oldFuture.getDelay(TimeUnit.SECONDS) > ttl) {
+                    // Set before scheduling so both are visible when the expiration runs.
+                    this.ttl = ttl;
+                    this.loop = loop;
                     ScheduledFuture<?> newFuture = loop.schedule(this, ttl, TimeUnit.SECONDS);
                     // It is possible that
                     // 1. task will fire in between this line, or
@@ -286,7 +370,10 @@ abstract class Cache<E> {
             // See https://github.com/netty/netty/issues/7329
             resolveCache.remove(hostname, this);
 
-            clearAndCancel();
+            List<E> entries = get();
+            if (clearAndCancel()) {
+                expired(hostname, entries, loop);
+            }
         }
     }
 }
@@ -18,6 +18,10 @@ package io.netty.resolver.dns;
 import io.netty.channel.EventLoop;
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.Comparator;
@@ -118,6 +122,63 @@ public class DefaultAuthoritativeDnsServerCache implements AuthoritativeDnsServe
         return resolveCache.clear(checkNotNull(hostname, "hostname"));
     }
 
+    /**
+     * Writes the cached name servers and their remaining TTLs to the given {@link DataOutput}.
+     */
+    final void writeSnapshot(final DataOutput out) throws IOException {
+        resolveCache.forEach(new Cache.EntriesVisitor<InetSocketAddress>() {
+            @Override
+            public void visit(String hostname, List<? extends InetSocketAddress> entries, int ttl)
+                    throws IOException {
+                out.writeBoolean(true);
+                out.writeUTF(hostname);
+                out.writeInt(ttl);
+                out.writeInt(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    InetSocketAddress entry = entries.get(i);
+                    out.writeUTF(PlatformDependent.javaVersion() >= 7 ? entry.getHostString() : entry.getHostName());
+                    out.writeShort(entry.getPort());
+                    if (entry.isUnresolved()) {
+                        out.writeByte(0);
+                    } else {
+                        byte[] address = entry.getAddress().getAddress();
+                        out.writeByte(address.length);
+                        out.write(address);
+                    }
+                }
+            }
+        });
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Caches the name servers written by {@link #writeSnapshot(DataOutput)}, which expire {@code elapsedSecs}
+     * earlier than they would have when the snapshot was taken.
+     */
+    final void readSnapshot(DataInput in, int elapsedSecs, EventLoop loop) throws IOException {
+        while (in.readBoolean()) {
+            String hostname = in.readUTF();
+            int ttl = Math.min(maxTtl, in.readInt() - elapsedSecs);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String hostString = in.readUTF();
+                int port = in.readUnsignedShort();
+                int addressLength = in.readUnsignedByte();
+                InetSocketAddress address;
+                if (addressLength == 0) {
+                    address = InetSocketAddress.createUnresolved(hostString, port);
+                } else {
+                    byte[] bytes = new byte[addressLength];
+                    in.readFully(bytes);
+                    address = new InetSocketAddress(InetAddress.getByAddress(hostString, bytes), port);
+                }
+                if (ttl > 0) {
+                    resolveCache.cache(hostname, address, ttl, loop);
+                }
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "DefaultAuthoritativeDnsServerCache(minTtl=" + minTtl + ", maxTtl=" + maxTtl + ", cached nameservers=" +
@@ -17,9 +17,15 @@ package io.netty.resolver.dns;
 
 import io.netty.channel.EventLoop;
 import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
@@ -30,31 +36,37 @@ import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 /**
  * Default implementation of {@link DnsCache}, backed by a {@link ConcurrentMap}.
  * If any additional {@link DnsRecord} is used, no caching takes place.
+ * <p>
+ * Optionally entries are refreshed by the {@link DnsNameResolver} in the background when they are accessed shortly
+ * before they expire (see {@link #prefetchThreshold()}), and expired addresses are kept for a while to be used when
+ * resolving the hostname again fails (see {@link #staleTtl()}).
  */
 public class DefaultDnsCache implements DnsCache {
 
-    private final Cache<DefaultDnsCacheEntry> resolveCache = new Cache<DefaultDnsCacheEntry>() {
-
-        @Override
-        protected boolean shouldReplaceAll(DefaultDnsCacheEntry entry) {
-            return entry.cause() != null;
-        }
-
+    private final Cache<DefaultDnsCacheEntry> resolveCache = new EntryCache() {
         @Override
-        protected boolean equals(DefaultDnsCacheEntry entry, DefaultDnsCacheEntry otherEntry) {
-            if (entry.address() != null) {
-                return entry.address().equals(otherEntry.address());
+        protected void expired(String hostname, List<DefaultDnsCacheEntry> entries, EventLoop loop) {
+            if (staleTtl == 0 || loop == null || entries.get(0).cause() != null) {
+                return;
             }
-            if (otherEntry.address() != null) {
-                return false;
+            staleCache.clear(hostname);
+            for (int i = 0; i < entries.size(); i++) {
+                staleCache.cache(hostname, entries.get(i), staleTtl, loop);
             }
-            return entry.cause().equals(otherEntry.cause());
         }
     };
+    private final Cache<DefaultDnsCacheEntry> staleCache = new EntryCache();
 
     private final int minTtl;
     private final int maxTtl;
     private final int negativeTtl;
+    private final int prefetchThreshold;
+    private final int staleTtl;
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter prefetches = PlatformDependent.newLongCounter();
+    private final LongCounter staleHits = PlatformDependent.newLongCounter();
 
     /**
      * Create a cache that respects the TTL returned by the DNS server
@@ -71,6 +83,20 @@ public class DefaultDnsCache implements DnsCache {
      * @param negativeTtl the TTL for failed queries
      */
     public DefaultDnsCache(int minTtl, int maxTtl, int negativeTtl) {
+        this(minTtl, maxTtl, negativeTtl, 0, 0);
+    }
+
+    /**
+     * Create a cache.
+     * @param minTtl the minimum TTL
+     * @param maxTtl the maximum TTL
+     * @param negativeTtl the TTL for failed queries
+     * @param prefetchThreshold the percentage of the TTL before the expiration of an entry in which an access
+     *                          refreshes the entry in the background, {@code 0} disables prefetching
+     * @param staleTtl the time (in seconds) expired addresses are kept to be used if resolving the hostname again
+     *                 fails, {@code 0} disables serving stale addresses
+     */
+    public DefaultDnsCache(int minTtl, int maxTtl, int negativeTtl, int prefetchThreshold, int staleTtl) {
         this.minTtl = Math.min(Cache.MAX_SUPPORTED_TTL_SECS, checkPositiveOrZero(minTtl, "minTtl"));
         this.maxTtl = Math.min(Cache.MAX_SUPPORTED_TTL_SECS, checkPositiveOrZero(maxTtl, "maxTtl"));
         if (minTtl > maxTtl) {
@@ -78,6 +104,12 @@ public class DefaultDnsCache implements DnsCache {
                     "minTtl: " + minTtl + ", maxTtl: " + maxTtl + " (expected: 0 <= minTtl <= maxTtl)");
         }
         this.negativeTtl = checkPositiveOrZero(negativeTtl, "negativeTtl");
+        if (prefetchThreshold < 0 || prefetchThreshold > 100) {
+            throw new IllegalArgumentException(
+                    "prefetchThreshold: " + prefetchThreshold + " (expected: 0 <= prefetchThreshold <= 100)");
+        }
+        this.prefetchThreshold = prefetchThreshold;
+        this.staleTtl = Math.min(Cache.MAX_SUPPORTED_TTL_SECS, checkPositiveOrZero(staleTtl, "staleTtl"));
     }
 
     /**
@@ -106,15 +138,62 @@ public class DefaultDnsCache implements DnsCache {
         return negativeTtl;
     }
 
+    /**
+     * Returns the percentage of the TTL before the expiration of an entry in which an access refreshes the entry in
+     * the background. The default value is {@code 0}, which disables prefetching.
+     */
+    public int prefetchThreshold() {
+        return prefetchThreshold;
+    }
+
+    /**
+     * Returns the time (in seconds) expired addresses are kept to be used when resolving the hostname again fails.
+     * The default value is {@code 0}, which disables serving stale addresses.
+     */
+    public int staleTtl() {
+        return staleTtl;
+    }
+
+    /**
+     * Returns the number of lookups that were answered by this cache.
+     */
+    public long numHits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of lookups that could not be answered by this cache.
+     */
+    public long numMisses() {
+        return misses.value();
+    }
+
+    /**
+     * Returns the number of entries that were refreshed in the background before they expired.
+     */
+    public long numPrefetches() {
+        return prefetches.value();
+    }
+
+    /**
+     * Returns the number of times expired addresses were used because resolving the hostname failed.
+     */
+    public long numStaleHits() {
+        return staleHits.value();
+    }
+
     @Override
     public void clear() {
         resolveCache.clear();
+        staleCache.clear();
     }
 
     @Override
     public boolean clear(String hostname) {
         checkNotNull(hostname, "hostname");
-        return resolveCache.clear(appendDot(hostname));
+        String hostnameWithDot = appendDot(hostname);
+        staleCache.clear(hostnameWithDot);
+        return resolveCache.clear(hostnameWithDot);
     }
 
     private static boolean emptyAdditionals(DnsRecord[] additionals) {
@@ -128,7 +207,47 @@ public class DefaultDnsCache implements DnsCache {
             return Collections.<DnsCacheEntry>emptyList();
         }
 
-        return resolveCache.get(appendDot(hostname));
+        List<? extends DnsCacheEntry> entries = resolveCache.get(appendDot(hostname));
+        if (entries == null || entries.isEmpty()) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the expired addresses for the given hostname that may be used because resolving it again failed, or
+     * {@code null} if there are none.
+     */
+    final List<? extends DnsCacheEntry> getStale(String hostname) {
+        if (staleTtl == 0) {
+            return null;
+        }
+        List<? extends DnsCacheEntry> entries = staleCache.get(appendDot(hostname));
+        if (entries == null || entries.isEmpty()) {
+            return null;
+        }
+        staleHits.increment();
+        return entries;
+    }
+
+    /**
+     * Returns a {@link Refresh} if the addresses cached for the given hostname should be refreshed in the background,
+     * or {@code null} otherwise. Only the first caller gets a {@link Refresh} for the same entries.
+     */
+    final Refresh startPrefetch(String hostname) {
+        if (prefetchThreshold == 0) {
+            return null;
+        }
+        String hostnameWithDot = appendDot(hostname);
+        List<? extends DefaultDnsCacheEntry> entries = resolveCache.get(hostnameWithDot);
+        if (entries == null || entries.isEmpty() || entries.get(0).cause() != null ||
+                !resolveCache.startPrefetch(hostnameWithDot, prefetchThreshold)) {
+            return null;
+        }
+        prefetches.increment();
+        return new Refresh(hostnameWithDot);
     }
 
     @Override
@@ -160,17 +279,150 @@ public class DefaultDnsCache implements DnsCache {
         return e;
     }
 
+    /**
+     * Writes the cached addresses and their remaining TTLs to the given {@link DataOutput}. Cached failures are
+     * skipped, their cause can not be restored.
+     */
+    final void writeSnapshot(final DataOutput out) throws IOException {
+        resolveCache.forEach(new Cache.EntriesVisitor<DefaultDnsCacheEntry>() {
+            @Override
+            public void visit(String hostname, List<? extends DefaultDnsCacheEntry> entries, int ttl)
+                    throws IOException {
+                if (entries.get(0).cause() != null) {
+                    // A failure always replaces all other entries.
+                    return;
+                }
+                out.writeBoolean(true);
+                out.writeUTF(hostname);
+                out.writeInt(ttl);
+                out.writeInt(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    DefaultDnsCacheEntry entry = entries.get(i);
+                    byte[] address = entry.address().getAddress();
+                    out.writeUTF(entry.hostname());
+                    out.writeByte(address.length);
+                    out.write(address);
+                }
+            }
+        });
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Caches the addresses written by {@link #writeSnapshot(DataOutput)}, which expire {@code elapsedSecs} earlier
+     * than they would have when the snapshot was taken.
+     */
+    final void readSnapshot(DataInput in, int elapsedSecs, EventLoop loop) throws IOException {
+        while (in.readBoolean()) {
+            String hostname = in.readUTF();
+            int ttl = Math.min(maxTtl, in.readInt() - elapsedSecs);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String entryHostname = in.readUTF();
+                byte[] address = new byte[in.readUnsignedByte()];
+                in.readFully(address);
+                if (ttl > 0) {
+                    resolveCache.cache(hostname, new DefaultDnsCacheEntry(
+                            entryHostname, InetAddress.getByAddress(entryHostname, address)), ttl, loop);
+                }
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return new StringBuilder()
                 .append("DefaultDnsCache(minTtl=")
                 .append(minTtl).append(", maxTtl=")
                 .append(maxTtl).append(", negativeTtl=")
-                .append(negativeTtl).append(", cached resolved hostname=")
+                .append(negativeTtl).append(", prefetchThreshold=")
+                .append(prefetchThreshold).append(", staleTtl=")
+                .append(staleTtl).append(", cached resolved hostname=")
                 .append(resolveCache.size()).append(')')
                 .toString();
     }
 
+    /**
+     * {@link DnsCache} used while refreshing the addresses of a hostname. The new addresses of the hostname are
+     * collected and replace the cached ones on {@link #complete()}, everything else goes to the
+     * {@link DefaultDnsCache} directly. A failure to refresh the hostname is not cached, so the cached addresses
+     * stay valid until they expire.
+     */
+    final class Refresh implements DnsCache {
+        private final String hostname;
+        private final List<DefaultDnsCacheEntry> entries = new ArrayList<DefaultDnsCacheEntry>(4);
+        private long ttl = Long.MAX_VALUE;
+        private EventLoop loop;
+
+        Refresh(String hostname) {
+            this.hostname = hostname;
+        }
+
+        @Override
+        public void clear() {
+            DefaultDnsCache.this.clear();
+        }
+
+        @Override
+        public boolean clear(String hostname) {
+            return DefaultDnsCache.this.clear(hostname);
+        }
+
+        @Override
+        public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+            return DefaultDnsCache.this.get(hostname, additionals);
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl,
+                                   EventLoop loop) {
+            if (!emptyAdditionals(additionals) || !this.hostname.equals(appendDot(hostname))) {
+                return DefaultDnsCache.this.cache(hostname, additionals, address, originalTtl, loop);
+            }
+            DefaultDnsCacheEntry e = new DefaultDnsCacheEntry(hostname, checkNotNull(address, "address"));
+            entries.add(e);
+            ttl = Math.min(ttl, originalTtl);
+            this.loop = checkNotNull(loop, "loop");
+            return e;
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+            if (!emptyAdditionals(additionals) || !this.hostname.equals(appendDot(hostname))) {
+                return DefaultDnsCache.this.cache(hostname, additionals, cause, loop);
+            }
+            return new DefaultDnsCacheEntry(hostname, checkNotNull(cause, "cause"));
+        }
+
+        /**
+         * Replaces the cached addresses of the hostname with the refreshed ones, if any.
+         */
+        void complete() {
+            if (!entries.isEmpty()) {
+                resolveCache.replace(hostname, entries, Math.max(minTtl, (int) Math.min(maxTtl, ttl)), loop);
+            }
+        }
+    }
+
+    private static class EntryCache extends Cache<DefaultDnsCacheEntry> {
+
+        @Override
+        protected boolean shouldReplaceAll(DefaultDnsCacheEntry entry) {
+            return entry.cause() != null;
+        }
+
+        @Override
+        protected boolean equals(DefaultDnsCacheEntry entry, DefaultDnsCacheEntry otherEntry) {
+            if (entry.address() != null) {
+                return entry.address().equals(otherEntry.address());
+            }
+            if (otherEntry.address() != null) {
+                return false;
+            }
+            return entry.cause().equals(otherEntry.cause());
+        }
+    }
+
     private static final class DefaultDnsCacheEntry implements DnsCacheEntry {
         private final String hostname;
         private final InetAddress address;
@@ -18,6 +18,9 @@ package io.netty.resolver.dns;
 import io.netty.channel.EventLoop;
 import io.netty.util.AsciiString;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 
 import static io.netty.util.internal.ObjectUtil.*;
@@ -92,4 +95,35 @@ public final class DefaultDnsCnameCache implements DnsCnameCache {
     public boolean clear(String hostname) {
         return cache.clear(checkNotNull(hostname, "hostname"));
     }
+
+    /**
+     * Writes the cached mappings and their remaining TTLs to the given {@link DataOutput}.
+     */
+    void writeSnapshot(final DataOutput out) throws IOException {
+        cache.forEach(new Cache.EntriesVisitor<String>() {
+            @Override
+            public void visit(String hostname, List<? extends String> entries, int ttl) throws IOException {
+                out.writeBoolean(true);
+                out.writeUTF(hostname);
+                out.writeInt(ttl);
+                out.writeUTF(entries.get(0));
+            }
+        });
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Caches the mappings written by {@link #writeSnapshot(DataOutput)}, which expire {@code elapsedSecs} earlier
+     * than they would have when the snapshot was taken.
+     */
+    void readSnapshot(DataInput in, int elapsedSecs, EventLoop loop) throws IOException {
+        while (in.readBoolean()) {
+            String hostname = in.readUTF();
+            int ttl = Math.min(maxTtl, in.readInt() - elapsedSecs);
+            String cname = in.readUTF();
+            if (ttl > 0) {
+                cache.cache(hostname, cname, ttl, loop);
+            }
+        }
+    }
 }
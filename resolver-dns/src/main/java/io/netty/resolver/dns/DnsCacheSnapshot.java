@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.channel.EventLoop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the content of the {@link DefaultDnsCache}, {@link DefaultDnsCnameCache} and
+ * {@link DefaultAuthoritativeDnsServerCache} of a {@link DnsNameResolver}, so a new {@link DnsNameResolver} can
+ * start with warm caches. Every entry is stored with its remaining TTL, the time that passed between writing and
+ * reading the snapshot is subtracted again when the entries are restored.
+ */
+final class DnsCacheSnapshot {
+
+    private static final int MAGIC = 0x4e444e53; // 'NDNS'
+    private static final int VERSION = 1;
+
+    private static final int SECTION_END = 0;
+    private static final int SECTION_ADDRESSES = 1;
+    private static final int SECTION_CNAMES = 2;
+    private static final int SECTION_AUTHORITATIVE = 3;
+
+    // Sections have no length prefix, so sections for other cache implementations are consumed by reading them
+    // into these caches as if all their entries had already expired. Nothing is ever added to them.
+    private static final int SKIP_ELAPSED_SECS = Integer.MAX_VALUE;
+    private static final DefaultDnsCache SKIP_ADDRESSES = new DefaultDnsCache();
+    private static final DefaultDnsCnameCache SKIP_CNAMES = new DefaultDnsCnameCache();
+    private static final DefaultAuthoritativeDnsServerCache SKIP_AUTHORITATIVE =
+            new DefaultAuthoritativeDnsServerCache();
+
+    private DnsCacheSnapshot() { }
+
+    /**
+     * Writes the given caches to {@code file}. Caches which are not one of the default implementations are skipped.
+     * The snapshot is written to a temporary file first, so a concurrent reader never sees a partial snapshot.
+     */
+    static void write(File file, DnsCache resolveCache, DnsCnameCache cnameCache,
+                      AuthoritativeDnsServerCache authoritativeDnsServerCache) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        boolean success = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                if (resolveCache instanceof DefaultDnsCache) {
+                    out.writeByte(SECTION_ADDRESSES);
+                    ((DefaultDnsCache) resolveCache).writeSnapshot(out);
+                }
+                if (cnameCache instanceof DefaultDnsCnameCache) {
+                    out.writeByte(SECTION_CNAMES);
+                    ((DefaultDnsCnameCache) cnameCache).writeSnapshot(out);
+                }
+                if (authoritativeDnsServerCache instanceof DefaultAuthoritativeDnsServerCache) {
+                    out.writeByte(SECTION_AUTHORITATIVE);
+                    ((DefaultAuthoritativeDnsServerCache) authoritativeDnsServerCache).writeSnapshot(out);
+                }
+                out.writeByte(SECTION_END);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                // Some platforms can not rename to an existing file.
+                if (!file.delete() || !tmp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + tmp + " to " + file);
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Restores the entries stored in {@code file} into the given caches. Entries which expired in the meantime
+     * are dropped. Sections for caches which are not one of the default implementations are skipped.
+     *
+     * @throws IOException if the file could not be read or is not a valid snapshot.
+     */
+    static void read(File file, EventLoop loop, DnsCache resolveCache, DnsCnameCache cnameCache,
+                     AuthoritativeDnsServerCache authoritativeDnsServerCache) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a DNS cache snapshot: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported DNS cache snapshot version: " + version);
+            }
+            long elapsedMillis = Math.max(0, System.currentTimeMillis() - in.readLong());
+            int elapsedSecs = (int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(elapsedMillis));
+
+            for (;;) {
+                int section = in.readUnsignedByte();
+                switch (section) {
+                    case SECTION_END:
+                        return;
+                    case SECTION_ADDRESSES:
+                        if (resolveCache instanceof DefaultDnsCache) {
+                            ((DefaultDnsCache) resolveCache).readSnapshot(in, elapsedSecs, loop);
+                        } else {
+                            SKIP_ADDRESSES.readSnapshot(in, SKIP_ELAPSED_SECS, loop);
+                        }
+                        break;
+                    case SECTION_CNAMES:
+                        if (cnameCache instanceof DefaultDnsCnameCache) {
+                            ((DefaultDnsCnameCache) cnameCache).readSnapshot(in, elapsedSecs, loop);
+                        } else {
+                            SKIP_CNAMES.readSnapshot(in, SKIP_ELAPSED_SECS, loop);
+                        }
+                        break;
+                    case SECTION_AUTHORITATIVE:
+                        if (authoritativeDnsServerCache instanceof DefaultAuthoritativeDnsServerCache) {
+                            ((DefaultAuthoritativeDnsServerCache) authoritativeDnsServerCache)
+                                    .readSnapshot(in, elapsedSecs, loop);
+                        } else {
+                            SKIP_AUTHORITATIVE.readSnapshot(in, SKIP_ELAPSED_SECS, loop);
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown DNS cache snapshot section: " + section);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
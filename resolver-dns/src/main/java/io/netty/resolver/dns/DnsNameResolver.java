@@ -44,8 +44,6 @@ import io.netty.handler.codec.dns.DnsRawRecord;
 import io.netty.handler.codec.dns.DnsRecord;
 import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.handler.codec.dns.DnsResponse;
-import io.netty.handler.codec.dns.TcpDnsQueryEncoder;
-import io.netty.handler.codec.dns.TcpDnsResponseDecoder;
 import io.netty.resolver.HostsFileEntries;
 import io.netty.resolver.HostsFileEntriesResolver;
 import io.netty.resolver.InetNameResolver;
@@ -62,6 +60,8 @@ import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.IDN;
 import java.net.Inet4Address;
@@ -83,6 +83,7 @@ import java.util.concurrent.TimeUnit;
 import static io.netty.resolver.dns.DefaultDnsServerAddressStreamProvider.DNS_PORT;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 /**
  * A DNS-based {@link InetNameResolver}.
@@ -93,6 +94,7 @@ public class DnsNameResolver extends InetNameResolver {
     private static final String LOCALHOST = "localhost";
     private static final InetAddress LOCALHOST_ADDRESS;
     private static final DnsRecord[] EMPTY_ADDITIONALS = new DnsRecord[0];
+    private static final DnsRecordType[] EMPTY_RECORD_TYPES = new DnsRecordType[0];
     private static final DnsRecordType[] IPV4_ONLY_RESOLVED_RECORD_TYPES =
             {DnsRecordType.A};
     private static final InternetProtocolFamily[] IPV4_ONLY_RESOLVED_PROTOCOL_FAMILIES =
@@ -212,7 +214,6 @@ public class DnsNameResolver extends InetNameResolver {
         }
     };
     private static final DatagramDnsQueryEncoder DATAGRAM_ENCODER = new DatagramDnsQueryEncoder();
-    private static final TcpDnsQueryEncoder TCP_ENCODER = new TcpDnsQueryEncoder();
 
     final Future<Channel> channelFuture;
     final Channel ch;
@@ -257,7 +258,8 @@ public class DnsNameResolver extends InetNameResolver {
     private final boolean decodeIdn;
     private final DnsQueryLifecycleObserverFactory dnsQueryLifecycleObserverFactory;
     private final boolean completeOncePreferredResolved;
-    private final ChannelFactory<? extends SocketChannel> socketChannelFactory;
+    private final TcpDnsChannelPool tcpChannelPool;
+    private final DnsRecordType[] tcpFirstRecordTypes;
 
     /**
      * Creates a new DNS-based name resolver that communicates with the specified list of DNS servers.
@@ -383,6 +385,39 @@ public class DnsNameResolver extends InetNameResolver {
             int ndots,
             boolean decodeIdn,
             boolean completeOncePreferredResolved) {
+        this(eventLoop, channelFactory, socketChannelFactory, resolveCache, cnameCache, authoritativeDnsServerCache,
+             dnsQueryLifecycleObserverFactory, queryTimeoutMillis, resolvedAddressTypes, recursionDesired,
+             maxQueriesPerResolve, traceEnabled, maxPayloadSize, optResourceEnabled, hostsFileEntriesResolver,
+             dnsServerAddressStreamProvider, searchDomains, ndots, decodeIdn, completeOncePreferredResolved,
+             TcpDnsChannelPool.DEFAULT_MAX_CONNECTIONS_PER_NAME_SERVER,
+             TcpDnsChannelPool.DEFAULT_MAX_QUERIES_PER_CONNECTION, 0, EMPTY_RECORD_TYPES);
+    }
+
+    DnsNameResolver(
+            EventLoop eventLoop,
+            ChannelFactory<? extends DatagramChannel> channelFactory,
+            ChannelFactory<? extends SocketChannel> socketChannelFactory,
+            final DnsCache resolveCache,
+            final DnsCnameCache cnameCache,
+            final AuthoritativeDnsServerCache authoritativeDnsServerCache,
+            DnsQueryLifecycleObserverFactory dnsQueryLifecycleObserverFactory,
+            long queryTimeoutMillis,
+            ResolvedAddressTypes resolvedAddressTypes,
+            boolean recursionDesired,
+            int maxQueriesPerResolve,
+            boolean traceEnabled,
+            int maxPayloadSize,
+            boolean optResourceEnabled,
+            HostsFileEntriesResolver hostsFileEntriesResolver,
+            DnsServerAddressStreamProvider dnsServerAddressStreamProvider,
+            String[] searchDomains,
+            int ndots,
+            boolean decodeIdn,
+            boolean completeOncePreferredResolved,
+            int maxTcpConnectionsPerNameServer,
+            int maxTcpQueriesPerConnection,
+            long tcpIdleTimeoutMillis,
+            DnsRecordType[] tcpFirstRecordTypes) {
         super(eventLoop);
         this.queryTimeoutMillis = queryTimeoutMillis > 0
             ? queryTimeoutMillis
@@ -407,7 +442,19 @@ public class DnsNameResolver extends InetNameResolver {
         this.ndots = ndots >= 0 ? ndots : DEFAULT_OPTIONS.ndots();
         this.decodeIdn = decodeIdn;
         this.completeOncePreferredResolved = completeOncePreferredResolved;
-        this.socketChannelFactory = socketChannelFactory;
+        checkPositive(maxTcpConnectionsPerNameServer, "maxTcpConnectionsPerNameServer");
+        checkPositive(maxTcpQueriesPerConnection, "maxTcpQueriesPerConnection");
+        checkPositiveOrZero(tcpIdleTimeoutMillis, "tcpIdleTimeoutMillis");
+        this.tcpFirstRecordTypes = checkNotNull(tcpFirstRecordTypes, "tcpFirstRecordTypes").clone();
+        if (socketChannelFactory == null) {
+            if (tcpFirstRecordTypes.length != 0) {
+                throw new IllegalArgumentException("tcpFirstRecordTypes requires a socketChannelFactory");
+            }
+            tcpChannelPool = null;
+        } else {
+            tcpChannelPool = new TcpDnsChannelPool(this, socketChannelFactory, maxTcpConnectionsPerNameServer,
+                                                   maxTcpQueriesPerConnection, tcpIdleTimeoutMillis);
+        }
         switch (this.resolvedAddressTypes) {
             case IPV4_ONLY:
                 supportsAAAARecords = false;
@@ -473,6 +520,9 @@ public class DnsNameResolver extends InetNameResolver {
                 resolveCache.clear();
                 cnameCache.clear();
                 authoritativeDnsServerCache.clear();
+                if (tcpChannelPool != null) {
+                    tcpChannelPool.close();
+                }
             }
         });
     }
@@ -543,6 +593,17 @@ public class DnsNameResolver extends InetNameResolver {
         return authoritativeDnsServerCache;
     }
 
+    /**
+     * Writes a snapshot of the caches of this resolver to the given {@link File}, which can be used to warm up the
+     * caches of a new resolver via {@link DnsNameResolverBuilder#cacheSnapshot(File)}. Only the default cache
+     * implementations are included and cached failures are not written.
+     * <p>
+     * The caches are cleared when this resolver is closed, so this needs to be called before {@link #close()}.
+     */
+    public void writeCacheSnapshot(File file) throws IOException {
+        DnsCacheSnapshot.write(checkNotNull(file, "file"), resolveCache, cnameCache, authoritativeDnsServerCache);
+    }
+
     /**
      * Returns the timeout of each DNS query performed by this resolver (in milliseconds).
      * The default value is 5 seconds.
@@ -886,7 +947,9 @@ public class DnsNameResolver extends InetNameResolver {
             return;
         }
 
-        if (!doResolveCached(hostname, additionals, promise, resolveCache)) {
+        if (doResolveCached(hostname, additionals, promise, resolveCache)) {
+            prefetchIfNeeded(hostname, additionals, resolveCache);
+        } else {
             doResolveUncached(hostname, additionals, promise, resolveCache, true);
         }
     }
@@ -902,24 +965,58 @@ public class DnsNameResolver extends InetNameResolver {
 
         Throwable cause = cachedEntries.get(0).cause();
         if (cause == null) {
-            final int numEntries = cachedEntries.size();
-            // Find the first entry with the preferred address type.
-            for (InternetProtocolFamily f : resolvedInternetProtocolFamilies) {
-                for (int i = 0; i < numEntries; i++) {
-                    final DnsCacheEntry e = cachedEntries.get(i);
-                    if (f.addressType().isInstance(e.address())) {
-                        trySuccess(promise, e.address());
-                        return true;
-                    }
-                }
-            }
-            return false;
+            return trySuccessCached(cachedEntries, promise);
         } else {
-            tryFailure(promise, cause);
+            // Prefer expired addresses over the cached failure if there are any.
+            List<? extends DnsCacheEntry> staleEntries = staleEntries(hostname, resolveCache);
+            if (staleEntries == null || !trySuccessCached(staleEntries, promise)) {
+                tryFailure(promise, cause);
+            }
             return true;
         }
     }
 
+    private boolean trySuccessCached(List<? extends DnsCacheEntry> cachedEntries, Promise<InetAddress> promise) {
+        final int numEntries = cachedEntries.size();
+        // Find the first entry with the preferred address type.
+        for (InternetProtocolFamily f : resolvedInternetProtocolFamilies) {
+            for (int i = 0; i < numEntries; i++) {
+                final DnsCacheEntry e = cachedEntries.get(i);
+                if (f.addressType().isInstance(e.address())) {
+                    trySuccess(promise, e.address());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<? extends DnsCacheEntry> staleEntries(String hostname, DnsCache resolveCache) {
+        return resolveCache instanceof DefaultDnsCache ? ((DefaultDnsCache) resolveCache).getStale(hostname) : null;
+    }
+
+    /**
+     * Refreshes the cached addresses of the given hostname in the background if they expire soon, so they are
+     * still cached when the hostname is used the next time.
+     */
+    private void prefetchIfNeeded(String hostname, DnsRecord[] additionals, DnsCache resolveCache) {
+        if (!(resolveCache instanceof DefaultDnsCache)) {
+            return;
+        }
+        final DefaultDnsCache.Refresh refresh = ((DefaultDnsCache) resolveCache).startPrefetch(hostname);
+        if (refresh == null) {
+            return;
+        }
+        final Promise<List<InetAddress>> promise = executor().newPromise();
+        promise.addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) {
+                refresh.complete();
+            }
+        });
+        doResolveAllUncached(hostname, additionals, promise, promise, refresh, false);
+    }
+
     static <T> boolean trySuccess(Promise<T> promise, T result) {
         final boolean notifiedRecords = promise.trySuccess(result);
         if (!notifiedRecords) {
@@ -991,7 +1088,9 @@ public class DnsNameResolver extends InetNameResolver {
             return;
         }
 
-        if (!doResolveAllCached(hostname, additionals, promise, resolveCache, resolvedInternetProtocolFamilies)) {
+        if (doResolveAllCached(hostname, additionals, promise, resolveCache, resolvedInternetProtocolFamilies)) {
+            prefetchIfNeeded(hostname, additionals, resolveCache);
+        } else {
             doResolveAllUncached(hostname, additionals, promise, promise,
                                  resolveCache, completeOncePreferredResolved);
         }
@@ -1009,36 +1108,50 @@ public class DnsNameResolver extends InetNameResolver {
 
         Throwable cause = cachedEntries.get(0).cause();
         if (cause == null) {
-            List<InetAddress> result = null;
-            final int numEntries = cachedEntries.size();
-            for (InternetProtocolFamily f : resolvedInternetProtocolFamilies) {
-                for (int i = 0; i < numEntries; i++) {
-                    final DnsCacheEntry e = cachedEntries.get(i);
-                    if (f.addressType().isInstance(e.address())) {
-                        if (result == null) {
-                            result = new ArrayList<InetAddress>(numEntries);
-                        }
-                        result.add(e.address());
+            return trySuccessAllCached(cachedEntries, promise, resolvedInternetProtocolFamilies);
+        } else {
+            // Prefer expired addresses over the cached failure if there are any.
+            List<? extends DnsCacheEntry> staleEntries = staleEntries(hostname, resolveCache);
+            if (staleEntries == null ||
+                    !trySuccessAllCached(staleEntries, promise, resolvedInternetProtocolFamilies)) {
+                tryFailure(promise, cause);
+            }
+            return true;
+        }
+    }
+
+    private static boolean trySuccessAllCached(List<? extends DnsCacheEntry> cachedEntries,
+                                               Promise<List<InetAddress>> promise,
+                                               InternetProtocolFamily[] resolvedInternetProtocolFamilies) {
+        List<InetAddress> result = null;
+        final int numEntries = cachedEntries.size();
+        for (InternetProtocolFamily f : resolvedInternetProtocolFamilies) {
+            for (int i = 0; i < numEntries; i++) {
+                final DnsCacheEntry e = cachedEntries.get(i);
+                if (f.addressType().isInstance(e.address())) {
+                    if (result == null) {
+                        result = new ArrayList<InetAddress>(numEntries);
                     }
+                    result.add(e.address());
                 }
             }
-            if (result != null) {
-                trySuccess(promise, result);
-                return true;
-            }
-            return false;
-        } else {
-            tryFailure(promise, cause);
+        }
+        if (result != null) {
+            trySuccess(promise, result);
             return true;
         }
+        return false;
     }
 
     private void doResolveAllUncached(final String hostname,
                                       final DnsRecord[] additionals,
                                       final Promise<?> originalPromise,
-                                      final Promise<List<InetAddress>> promise,
+                                      Promise<List<InetAddress>> promise,
                                       final DnsCache resolveCache,
                                       final boolean completeEarlyIfPossible) {
+        if (resolveCache instanceof DefaultDnsCache && ((DefaultDnsCache) resolveCache).staleTtl() > 0) {
+            promise = serveStaleOnFailure(hostname, promise, (DefaultDnsCache) resolveCache);
+        }
         // Call doResolveUncached0(...) in the EventLoop as we may need to submit multiple queries which would need
         // to submit multiple Runnable at the end if we are not already on the EventLoop.
         EventExecutor executor = executor();
@@ -1046,16 +1159,42 @@ public class DnsNameResolver extends InetNameResolver {
             doResolveAllUncached0(hostname, additionals, originalPromise,
                                   promise, resolveCache, completeEarlyIfPossible);
         } else {
+            final Promise<List<InetAddress>> finalPromise = promise;
             executor.execute(new Runnable() {
                 @Override
                 public void run() {
                     doResolveAllUncached0(hostname, additionals, originalPromise,
-                                          promise, resolveCache, completeEarlyIfPossible);
+                                          finalPromise, resolveCache, completeEarlyIfPossible);
                 }
             });
         }
     }
 
+    /**
+     * Returns a new {@link Promise} which completes the given {@link Promise} with the expired addresses of the
+     * hostname if it fails and there are any.
+     */
+    private Promise<List<InetAddress>> serveStaleOnFailure(final String hostname,
+                                                           final Promise<List<InetAddress>> promise,
+                                                           final DefaultDnsCache resolveCache) {
+        final Promise<List<InetAddress>> stalePromise = executor().newPromise();
+        stalePromise.addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) {
+                if (future.isSuccess()) {
+                    trySuccess(promise, future.getNow());
+                    return;
+                }
+                List<? extends DnsCacheEntry> staleEntries = resolveCache.getStale(hostname);
+                if (staleEntries == null ||
+                        !trySuccessAllCached(staleEntries, promise, resolvedInternetProtocolFamilies)) {
+                    tryFailure(promise, future.cause());
+                }
+            }
+        });
+        return stalePromise;
+    }
+
     private void doResolveAllUncached0(String hostname,
                                        DnsRecord[] additionals,
                                        Promise<?> originalPromise,
@@ -1182,14 +1321,27 @@ public class DnsNameResolver extends InetNameResolver {
         final Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> castPromise = cast(
                 checkNotNull(promise, "promise"));
         try {
-            new DatagramDnsQueryContext(this, nameServerAddr, question, additionals, castPromise)
-                    .query(flush, writePromise);
+            if (tcpChannelPool != null && isTcpFirst(question.type())) {
+                tcpChannelPool.query(nameServerAddr, question, additionals, writePromise, castPromise);
+            } else {
+                new DatagramDnsQueryContext(this, nameServerAddr, question, additionals, castPromise)
+                        .query(flush, writePromise);
+            }
             return castPromise;
         } catch (Exception e) {
             return castPromise.setFailure(e);
         }
     }
 
+    private boolean isTcpFirst(DnsRecordType type) {
+        for (DnsRecordType tcpFirstRecordType : tcpFirstRecordTypes) {
+            if (tcpFirstRecordType.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @SuppressWarnings("unchecked")
     private static Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> cast(Promise<?> promise) {
         return (Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>>) promise;
@@ -1224,92 +1376,29 @@ public class DnsNameResolver extends InetNameResolver {
             }
 
             // Check if the response was truncated and if we can fallback to TCP to retry.
-            if (!res.isTruncated() || socketChannelFactory == null) {
+            if (!res.isTruncated() || tcpChannelPool == null) {
                 qCtx.finish(res);
                 return;
             }
 
-            Bootstrap bs = new Bootstrap();
-            bs.option(ChannelOption.SO_REUSEADDR, true)
-            .group(executor())
-            .channelFactory(socketChannelFactory)
-            .handler(TCP_ENCODER);
-            bs.connect(res.sender()).addListener(new ChannelFutureListener() {
+            Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise = executor().newPromise();
+            promise.addListener(new FutureListener<AddressedEnvelope<DnsResponse, InetSocketAddress>>() {
                 @Override
-                public void operationComplete(ChannelFuture future) {
-                    if (!future.isSuccess()) {
+                public void operationComplete(Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> future) {
+                    if (future.isSuccess()) {
+                        qCtx.finish(future.getNow());
+                        res.release();
+                    } else {
                         if (logger.isDebugEnabled()) {
                             logger.debug("Unable to fallback to TCP [{}]", queryId, future.cause());
                         }
 
                         // TCP fallback failed, just use the truncated response.
                         qCtx.finish(res);
-                        return;
                     }
-                    final Channel channel = future.channel();
-
-                    Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise =
-                            channel.eventLoop().newPromise();
-                    final TcpDnsQueryContext tcpCtx = new TcpDnsQueryContext(DnsNameResolver.this, channel,
-                            (InetSocketAddress) channel.remoteAddress(), qCtx.question(),
-                            EMPTY_ADDITIONALS, promise);
-
-                    channel.pipeline().addLast(new TcpDnsResponseDecoder());
-                    channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
-                        @Override
-                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
-                            Channel channel = ctx.channel();
-                            DnsResponse response = (DnsResponse) msg;
-                            int queryId = response.id();
-
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("{} RECEIVED: TCP [{}: {}], {}", channel, queryId,
-                                        channel.remoteAddress(), response);
-                            }
-
-                            DnsQueryContext foundCtx = queryContextManager.get(res.sender(), queryId);
-                            if (foundCtx == tcpCtx) {
-                                tcpCtx.finish(new AddressedEnvelopeAdapter(
-                                        (InetSocketAddress) ctx.channel().remoteAddress(),
-                                        (InetSocketAddress) ctx.channel().localAddress(),
-                                        response));
-                            } else {
-                                response.release();
-                                tcpCtx.tryFailure("Received TCP DNS response with unexpected ID", null, false);
-                                logger.debug("Received a DNS response with an unexpected ID: TCP [{}: {}]",
-                                        channel, queryId);
-                            }
-                        }
-
-                        @Override
-                        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-                            if (tcpCtx.tryFailure("TCP fallback error", cause, false) && logger.isDebugEnabled()) {
-                                logger.debug("{} Error during processing response: TCP [{}: {}]",
-                                        ctx.channel(), queryId,
-                                        ctx.channel().remoteAddress(), cause);
-                            }
-                        }
-                    });
-
-                    promise.addListener(
-                            new FutureListener<AddressedEnvelope<DnsResponse, InetSocketAddress>>() {
-                        @Override
-                        public void operationComplete(
-                                Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> future) {
-                            channel.close();
-
-                            if (future.isSuccess()) {
-                                qCtx.finish(future.getNow());
-                                res.release();
-                            } else {
-                                // TCP fallback failed, just use the truncated response.
-                                qCtx.finish(res);
-                            }
-                        }
-                    });
-                    tcpCtx.query(true, future.channel().newPromise());
                 }
             });
+            tcpChannelPool.query(res.sender(), qCtx.question(), EMPTY_ADDITIONALS, ch.newPromise(), promise);
         }
 
         @Override
@@ -1328,7 +1417,7 @@ public class DnsNameResolver extends InetNameResolver {
         }
     }
 
-    private static final class AddressedEnvelopeAdapter implements AddressedEnvelope<DnsResponse, InetSocketAddress> {
+    static final class AddressedEnvelopeAdapter implements AddressedEnvelope<DnsResponse, InetSocketAddress> {
         private final InetSocketAddress sender;
         private final InetSocketAddress recipient;
         private final DnsResponse response;
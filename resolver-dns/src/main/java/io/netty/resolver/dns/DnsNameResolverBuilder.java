@@ -21,9 +21,15 @@ import io.netty.channel.ReflectiveChannelFactory;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.resolver.HostsFileEntriesResolver;
 import io.netty.resolver.ResolvedAddressTypes;
 import io.netty.util.concurrent.Future;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,6 +42,8 @@ import static io.netty.util.internal.ObjectUtil.intValue;
  * A {@link DnsNameResolver} builder.
  */
 public final class DnsNameResolverBuilder {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DnsNameResolverBuilder.class);
+
     private EventLoop eventLoop;
     private ChannelFactory<? extends DatagramChannel> channelFactory;
     private ChannelFactory<? extends SocketChannel> socketChannelFactory;
@@ -45,6 +53,8 @@ public final class DnsNameResolverBuilder {
     private Integer minTtl;
     private Integer maxTtl;
     private Integer negativeTtl;
+    private Integer prefetchThreshold;
+    private Integer staleTtl;
     private long queryTimeoutMillis = -1;
     private ResolvedAddressTypes resolvedAddressTypes = DnsNameResolver.DEFAULT_RESOLVE_ADDRESS_TYPES;
     private boolean completeOncePreferredResolved;
@@ -61,6 +71,11 @@ public final class DnsNameResolverBuilder {
     private String[] searchDomains;
     private int ndots = -1;
     private boolean decodeIdn = true;
+    private File cacheSnapshot;
+    private int maxTcpConnectionsPerNameServer = TcpDnsChannelPool.DEFAULT_MAX_CONNECTIONS_PER_NAME_SERVER;
+    private int maxTcpQueriesPerConnection = TcpDnsChannelPool.DEFAULT_MAX_QUERIES_PER_CONNECTION;
+    private long tcpIdleTimeoutMillis;
+    private DnsRecordType[] tcpFirstRecordTypes = new DnsRecordType[0];
 
     /**
      * Creates a new builder.
@@ -144,6 +159,54 @@ public final class DnsNameResolverBuilder {
         return socketChannelFactory(new ReflectiveChannelFactory<SocketChannel>(channelType));
     }
 
+    /**
+     * Sets the maximum number of TCP connections that are opened to a single name server. Queries that find all
+     * connections busy wait until one of them can take another query. The default value is {@code 4}.
+     *
+     * @param maxTcpConnectionsPerNameServer the maximum number of connections per name server
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder maxTcpConnectionsPerNameServer(int maxTcpConnectionsPerNameServer) {
+        this.maxTcpConnectionsPerNameServer = maxTcpConnectionsPerNameServer;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of queries that are in progress on a single TCP connection at the same time.
+     * The default value is {@code 32}.
+     *
+     * @param maxTcpQueriesPerConnection the maximum number of pipelined queries per connection
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder maxTcpQueriesPerConnection(int maxTcpQueriesPerConnection) {
+        this.maxTcpQueriesPerConnection = maxTcpQueriesPerConnection;
+        return this;
+    }
+
+    /**
+     * Sets the time (in milliseconds) a TCP connection without any queries in progress is kept open to be reused.
+     * The default value is {@code 0}, which closes a connection as soon as it is idle.
+     *
+     * @param tcpIdleTimeoutMillis the idle timeout of TCP connections
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder tcpIdleTimeoutMillis(long tcpIdleTimeoutMillis) {
+        this.tcpIdleTimeoutMillis = tcpIdleTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the record types which are queried via TCP directly instead of using UDP first, like types which are
+     * known to produce responses too large for UDP. This requires a {@link #socketChannelFactory(ChannelFactory)}.
+     *
+     * @param tcpFirstRecordTypes the record types to query via TCP
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder tcpFirstRecordTypes(DnsRecordType... tcpFirstRecordTypes) {
+        this.tcpFirstRecordTypes = checkNotNull(tcpFirstRecordTypes, "tcpFirstRecordTypes").clone();
+        return this;
+    }
+
     /**
      * Sets the cache for resolution results.
      *
@@ -230,6 +293,29 @@ public final class DnsNameResolverBuilder {
         return this;
     }
 
+    /**
+     * Sets the percentage of the TTL before the expiration of a cached entry in which an access refreshes the entry
+     * in the background, so frequently used hostnames do not have to be resolved again once they expire.
+     *
+     * @param prefetchThreshold the threshold in percent of the TTL, {@code 0} disables prefetching
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder prefetchThreshold(int prefetchThreshold) {
+        this.prefetchThreshold = prefetchThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the time (in seconds) expired addresses are kept to be used when resolving the hostname again fails.
+     *
+     * @param staleTtl the time to keep expired addresses, {@code 0} disables serving stale addresses
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder staleTtl(int staleTtl) {
+        this.staleTtl = staleTtl;
+        return this;
+    }
+
     /**
      * Sets the timeout of each DNS query performed by this resolver (in milliseconds).
      *
@@ -420,7 +506,8 @@ public final class DnsNameResolverBuilder {
     }
 
     private DnsCache newCache() {
-        return new DefaultDnsCache(intValue(minTtl, 0), intValue(maxTtl, Integer.MAX_VALUE), intValue(negativeTtl, 0));
+        return new DefaultDnsCache(intValue(minTtl, 0), intValue(maxTtl, Integer.MAX_VALUE), intValue(negativeTtl, 0),
+                intValue(prefetchThreshold, 0), intValue(staleTtl, 0));
     }
 
     private AuthoritativeDnsServerCache newAuthoritativeDnsServerCache() {
@@ -448,6 +535,19 @@ public final class DnsNameResolverBuilder {
         return this;
     }
 
+    /**
+     * Set the file of a snapshot written by {@link DnsNameResolver#writeCacheSnapshot(File)} which is used to warm
+     * up the caches of the built {@link DnsNameResolver}. Entries that expired since the snapshot was written are
+     * dropped. A missing or invalid snapshot is ignored.
+     *
+     * @param cacheSnapshot the snapshot file or {@code null} to start with empty caches
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder cacheSnapshot(File cacheSnapshot) {
+        this.cacheSnapshot = cacheSnapshot;
+        return this;
+    }
+
     /**
      * Returns a new {@link DnsNameResolver} instance.
      *
@@ -462,6 +562,10 @@ public final class DnsNameResolverBuilder {
             throw new IllegalStateException("resolveCache and TTLs are mutually exclusive");
         }
 
+        if (resolveCache != null && (prefetchThreshold != null || staleTtl != null)) {
+            throw new IllegalStateException("resolveCache and prefetchThreshold / staleTtl are mutually exclusive");
+        }
+
         if (authoritativeDnsServerCache != null && (minTtl != null || maxTtl != null || negativeTtl != null)) {
             throw new IllegalStateException("authoritativeDnsServerCache and TTLs are mutually exclusive");
         }
@@ -470,6 +574,9 @@ public final class DnsNameResolverBuilder {
         DnsCnameCache cnameCache = this.cnameCache != null ? this.cnameCache : newCnameCache();
         AuthoritativeDnsServerCache authoritativeDnsServerCache = this.authoritativeDnsServerCache != null ?
                 this.authoritativeDnsServerCache : newAuthoritativeDnsServerCache();
+        if (cacheSnapshot != null) {
+            restoreCacheSnapshot(resolveCache, cnameCache, authoritativeDnsServerCache);
+        }
         return new DnsNameResolver(
                 eventLoop,
                 channelFactory,
@@ -490,7 +597,25 @@ public final class DnsNameResolverBuilder {
                 searchDomains,
                 ndots,
                 decodeIdn,
-                completeOncePreferredResolved);
+                completeOncePreferredResolved,
+                maxTcpConnectionsPerNameServer,
+                maxTcpQueriesPerConnection,
+                tcpIdleTimeoutMillis,
+                tcpFirstRecordTypes);
+    }
+
+    private void restoreCacheSnapshot(DnsCache resolveCache, DnsCnameCache cnameCache,
+                                      AuthoritativeDnsServerCache authoritativeDnsServerCache) {
+        if (!cacheSnapshot.isFile()) {
+            logger.debug("DNS cache snapshot {} does not exist, starting with empty caches", cacheSnapshot);
+            return;
+        }
+        try {
+            DnsCacheSnapshot.read(cacheSnapshot, eventLoop, resolveCache, cnameCache, authoritativeDnsServerCache);
+        } catch (IOException e) {
+            // Entries restored before the failure are kept, they are valid on their own.
+            logger.warn("Unable to restore DNS cache snapshot {}", cacheSnapshot, e);
+        }
     }
 
     /**
@@ -528,6 +653,14 @@ public final class DnsNameResolverBuilder {
             copiedBuilder.negativeTtl(negativeTtl);
         }
 
+        if (prefetchThreshold != null) {
+            copiedBuilder.prefetchThreshold(prefetchThreshold);
+        }
+
+        if (staleTtl != null) {
+            copiedBuilder.staleTtl(staleTtl);
+        }
+
         if (authoritativeDnsServerCache != null) {
             copiedBuilder.authoritativeDnsServerCache(authoritativeDnsServerCache);
         }
@@ -556,6 +689,11 @@ public final class DnsNameResolverBuilder {
         copiedBuilder.ndots(ndots);
         copiedBuilder.decodeIdn(decodeIdn);
         copiedBuilder.completeOncePreferredResolved(completeOncePreferredResolved);
+        copiedBuilder.cacheSnapshot(cacheSnapshot);
+        copiedBuilder.maxTcpConnectionsPerNameServer(maxTcpConnectionsPerNameServer);
+        copiedBuilder.maxTcpQueriesPerConnection(maxTcpQueriesPerConnection);
+        copiedBuilder.tcpIdleTimeoutMillis(tcpIdleTimeoutMillis);
+        copiedBuilder.tcpFirstRecordTypes(tcpFirstRecordTypes);
 
         return copiedBuilder;
     }
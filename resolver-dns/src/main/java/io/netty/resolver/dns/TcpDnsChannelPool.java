@@ -0,0 +1,415 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.TcpDnsQueryEncoder;
+import io.netty.handler.codec.dns.TcpDnsResponseDecoder;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of TCP connections to name servers, used for queries whose UDP response was truncated and for queries that
+ * are sent via TCP directly. Each connection is used for multiple queries at the same time, the responses are
+ * matched to the queries by their ID as described in
+ * <a href="https://tools.ietf.org/html/rfc7766#section-6.2.1">RFC7766</a>. Queries that find all connections to a
+ * name server busy wait until one of them completed.
+ * <p>
+ * All state is only accessed from the {@link EventLoop} of the {@link DnsNameResolver}.
+ */
+final class TcpDnsChannelPool {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(TcpDnsChannelPool.class);
+
+    static final int DEFAULT_MAX_CONNECTIONS_PER_NAME_SERVER = 4;
+    static final int DEFAULT_MAX_QUERIES_PER_CONNECTION = 32;
+
+    private static final TcpDnsQueryEncoder TCP_ENCODER = new TcpDnsQueryEncoder();
+
+    private final DnsNameResolver parent;
+    private final EventLoop loop;
+    private final Bootstrap bootstrap;
+    private final int maxConnectionsPerNameServer;
+    private final int maxQueriesPerConnection;
+    private final long idleTimeoutMillis;
+    private final Map<InetSocketAddress, NameServer> nameServers = new HashMap<InetSocketAddress, NameServer>();
+    private boolean closed;
+
+    TcpDnsChannelPool(DnsNameResolver parent, ChannelFactory<? extends SocketChannel> channelFactory,
+                      int maxConnectionsPerNameServer, int maxQueriesPerConnection, long idleTimeoutMillis) {
+        this.parent = parent;
+        loop = parent.executor();
+        bootstrap = new Bootstrap()
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .group(loop)
+                .channelFactory(channelFactory)
+                .handler(TCP_ENCODER);
+        this.maxConnectionsPerNameServer = maxConnectionsPerNameServer;
+        this.maxQueriesPerConnection = maxQueriesPerConnection;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Sends the query to the given name server via one of the pooled connections, which is opened if needed.
+     */
+    void query(InetSocketAddress nameServerAddr, DnsQuestion question, DnsRecord[] additionals,
+               ChannelPromise writePromise, Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise) {
+        final TcpQuery query = new TcpQuery(nameServerAddr, question, additionals, writePromise, promise);
+        if (loop.inEventLoop()) {
+            dispatch(query);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(query);
+                }
+            });
+        }
+    }
+
+    /**
+     * Closes all connections and fails the queries that wait for one.
+     */
+    void close() {
+        assert loop.inEventLoop();
+        closed = true;
+        for (NameServer nameServer : new ArrayList<NameServer>(nameServers.values())) {
+            for (;;) {
+                TcpQuery query = nameServer.waiters.poll();
+                if (query == null) {
+                    break;
+                }
+                query.fail("resolver closed", null);
+            }
+            for (Connection connection : new ArrayList<Connection>(nameServer.connections)) {
+                connection.close();
+            }
+        }
+    }
+
+    private void dispatch(TcpQuery query) {
+        if (query.promise.isDone()) {
+            // Cancelled while waiting.
+            return;
+        }
+        if (closed) {
+            query.fail("resolver closed", null);
+            return;
+        }
+        NameServer nameServer = nameServers.get(query.nameServerAddr);
+        if (nameServer == null) {
+            nameServer = new NameServer(query.nameServerAddr);
+            nameServers.put(query.nameServerAddr, nameServer);
+        }
+        Connection connection = nameServer.acquire();
+        if (connection == null) {
+            nameServer.waiters.add(query);
+        } else {
+            connection.send(query);
+        }
+    }
+
+    private static final class TcpQuery {
+        final InetSocketAddress nameServerAddr;
+        final DnsQuestion question;
+        final DnsRecord[] additionals;
+        final ChannelPromise writePromise;
+        final Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise;
+
+        TcpQuery(InetSocketAddress nameServerAddr, DnsQuestion question, DnsRecord[] additionals,
+                 ChannelPromise writePromise, Promise<AddressedEnvelope<DnsResponse, InetSocketAddress>> promise) {
+            this.nameServerAddr = nameServerAddr;
+            this.question = question;
+            this.additionals = additionals;
+            this.writePromise = writePromise;
+            this.promise = promise;
+        }
+
+        void fail(String message, Throwable cause) {
+            DnsNameResolverException e = new DnsNameResolverException(
+                    nameServerAddr, question, '[' + nameServerAddr.toString() + "] " + message, cause);
+            writePromise.tryFailure(e);
+            promise.tryFailure(e);
+        }
+    }
+
+    private final class NameServer {
+        final InetSocketAddress address;
+        final List<Connection> connections = new ArrayList<Connection>(maxConnectionsPerNameServer);
+        final Queue<TcpQuery> waiters = new ArrayDeque<TcpQuery>();
+
+        NameServer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Returns a connection that can take another query, which is opened if needed and allowed, or {@code null}.
+         */
+        Connection acquire() {
+            for (int i = 0; i < connections.size(); i++) {
+                Connection connection = connections.get(i);
+                if (!connection.closing && connection.queries < maxQueriesPerConnection) {
+                    return connection;
+                }
+            }
+            if (connections.size() < maxConnectionsPerNameServer) {
+                Connection connection = new Connection(this);
+                connections.add(connection);
+                connection.connect();
+                return connection;
+            }
+            return null;
+        }
+
+        void removed(Connection connection) {
+            connections.remove(connection);
+            // Try to serve the queries that waited for a connection, which may open new ones.
+            while (!closed) {
+                TcpQuery query = waiters.peek();
+                if (query == null) {
+                    break;
+                }
+                if (query.promise.isDone()) {
+                    waiters.poll();
+                    continue;
+                }
+                Connection newConnection = acquire();
+                if (newConnection == null) {
+                    break;
+                }
+                waiters.poll();
+                newConnection.send(query);
+            }
+            if (connections.isEmpty() && waiters.isEmpty()) {
+                nameServers.remove(address);
+            }
+        }
+    }
+
+    private final class Connection implements ChannelFutureListener, Runnable {
+        private final NameServer nameServer;
+        private ChannelFuture connectFuture;
+        private Channel channel;
+        private final Set<DnsQueryContext> inflight = new HashSet<DnsQueryContext>();
+        private ScheduledFuture<?> idleFuture;
+        // Number of queries that use this connection, including those that wait for it to be connected.
+        int queries;
+        boolean closing;
+
+        Connection(NameServer nameServer) {
+            this.nameServer = nameServer;
+        }
+
+        void connect() {
+            connectFuture = bootstrap.connect(nameServer.address);
+            channel = connectFuture.channel();
+            channel.pipeline().addLast(new TcpDnsResponseDecoder(), new TcpDnsResponseHandler(this));
+            channel.closeFuture().addListener(this);
+        }
+
+        void send(final TcpQuery query) {
+            queries++;
+            if (idleFuture != null) {
+                idleFuture.cancel(false);
+                idleFuture = null;
+            }
+            if (connectFuture.isDone()) {
+                send0(query);
+            } else {
+                connectFuture.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        send0(query);
+                    }
+                });
+            }
+        }
+
+        private void send0(final TcpQuery query) {
+            if (!connectFuture.isSuccess()) {
+                query.fail("failed to connect via TCP", connectFuture.cause());
+                release();
+                return;
+            }
+            if (query.promise.isDone()) {
+                release();
+                return;
+            }
+
+            final TcpDnsQueryContext queryContext;
+            try {
+                queryContext = new TcpDnsQueryContext(parent, channel, nameServer.address, query.question,
+                                                      query.additionals, query.promise);
+            } catch (IllegalStateException e) {
+                // The query ID space is exhausted.
+                query.fail("failed to send a query via TCP", e);
+                release();
+                return;
+            }
+            inflight.add(queryContext);
+            query.promise.addListener(new FutureListener<AddressedEnvelope<DnsResponse, InetSocketAddress>>() {
+                @Override
+                public void operationComplete(Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> future) {
+                    inflight.remove(queryContext);
+                    release();
+                }
+            });
+
+            ChannelPromise writePromise = channel.newPromise();
+            writePromise.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (future.isSuccess()) {
+                        query.writePromise.trySuccess();
+                    } else {
+                        query.writePromise.tryFailure(future.cause());
+                    }
+                }
+            });
+            queryContext.query(true, writePromise);
+        }
+
+        private void release() {
+            queries--;
+            if (closing) {
+                return;
+            }
+            for (;;) {
+                TcpQuery query = nameServer.waiters.poll();
+                if (query == null) {
+                    break;
+                }
+                if (!query.promise.isDone()) {
+                    send(query);
+                    return;
+                }
+            }
+            if (queries == 0) {
+                if (idleTimeoutMillis == 0) {
+                    close();
+                } else {
+                    idleFuture = loop.schedule(this, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        /**
+         * Called once the connection was idle for the configured time.
+         */
+        @Override
+        public void run() {
+            idleFuture = null;
+            if (queries == 0) {
+                close();
+            }
+        }
+
+        void close() {
+            closing = true;
+            channel.close();
+        }
+
+        boolean isInflight(DnsQueryContext queryContext) {
+            return inflight.contains(queryContext);
+        }
+
+        /**
+         * Called once the {@link Channel} is closed.
+         */
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            closing = true;
+            if (idleFuture != null) {
+                idleFuture.cancel(false);
+                idleFuture = null;
+            }
+            if (!inflight.isEmpty()) {
+                for (DnsQueryContext queryContext : new ArrayList<DnsQueryContext>(inflight)) {
+                    queryContext.tryFailure("TCP connection closed", null, false);
+                }
+            }
+            nameServer.removed(this);
+        }
+    }
+
+    private final class TcpDnsResponseHandler extends ChannelInboundHandlerAdapter {
+        private final Connection connection;
+
+        TcpDnsResponseHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            Channel channel = ctx.channel();
+            DnsResponse response = (DnsResponse) msg;
+            int queryId = response.id();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} RECEIVED: TCP [{}: {}], {}", channel, queryId, channel.remoteAddress(), response);
+            }
+
+            DnsQueryContext queryContext = parent.queryContextManager.get(connection.nameServer.address, queryId);
+            if (queryContext != null && connection.isInflight(queryContext)) {
+                queryContext.finish(new DnsNameResolver.AddressedEnvelopeAdapter(
+                        (InetSocketAddress) channel.remoteAddress(), (InetSocketAddress) channel.localAddress(),
+                        response));
+            } else {
+                response.release();
+                logger.debug("Received a DNS response with an unknown ID: TCP [{}: {}]", channel, queryId);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} Error during processing response: TCP [{}]",
+                        ctx.channel(), ctx.channel().remoteAddress(), cause);
+            }
+            // The stream can not be trusted anymore, the pending queries are failed once the channel is closed.
+            connection.close();
+        }
+    }
+}
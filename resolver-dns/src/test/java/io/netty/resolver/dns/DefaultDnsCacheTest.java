@@ -198,4 +198,88 @@ public class DefaultDnsCacheTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test
+    public void testServeStale() throws Throwable {
+        final InetAddress addr1 = InetAddress.getByAddress(new byte[] { 10, 0, 0, 1 });
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+
+        try {
+            EventLoop loop = group.next();
+            final DefaultDnsCache cache = new DefaultDnsCache(0, 100, 0, 0, 100);
+            cache.cache("netty.io", null, addr1, 1, loop);
+            assertNull(cache.getStale("netty.io"));
+            assertEquals(1, cache.get("netty.io", null).size());
+
+            Throwable error = loop.schedule(new Callable<Throwable>() {
+                @Override
+                public Throwable call() {
+                    try {
+                        assertNull(cache.get("netty.io", null));
+                        List<? extends DnsCacheEntry> entries = cache.getStale("netty.io.");
+                        assertEquals(1, entries.size());
+                        assertEntry(entries.get(0), addr1);
+                        assertEquals(1, cache.numHits());
+                        assertEquals(1, cache.numMisses());
+                        assertEquals(1, cache.numStaleHits());
+
+                        cache.clear("netty.io");
+                        assertNull(cache.getStale("netty.io"));
+                        return null;
+                    } catch (Throwable cause) {
+                        return cause;
+                    }
+                }
+            }, 1, TimeUnit.SECONDS).get();
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        InetAddress addr1 = InetAddress.getByAddress(new byte[] { 10, 0, 0, 1 });
+        InetAddress addr2 = InetAddress.getByAddress(new byte[] { 10, 0, 0, 2 });
+        InetAddress addr3 = InetAddress.getByAddress(new byte[] { 10, 0, 0, 3 });
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+
+        try {
+            EventLoop loop = group.next();
+            DefaultDnsCache cache = new DefaultDnsCache(0, 100, 0, 50, 0);
+            assertNull(cache.startPrefetch("netty.io"));
+            cache.cache("netty.io", null, addr1, 10000, loop);
+
+            // The entry is only refreshed within the last half of its TTL.
+            assertNull(cache.startPrefetch("netty.io"));
+            assertEquals(0, cache.numPrefetches());
+
+            cache = new DefaultDnsCache(0, 100, 0, 100, 0);
+            cache.cache("netty.io", null, addr1, 100, loop);
+            DefaultDnsCache.Refresh refresh = cache.startPrefetch("netty.io");
+            assertNotNull(refresh);
+            assertNull(cache.startPrefetch("netty.io."));
+            assertEquals(1, cache.numPrefetches());
+
+            refresh.cache("netty.io.", null, addr2, 100, loop);
+            refresh.cache("ns.netty.io", null, addr3, 100, loop);
+            refresh.cache("netty.io", null, new Exception(), loop);
+            // Nothing changes until the refresh completes, except for other hostnames.
+            assertEntry(cache.get("netty.io", null).get(0), addr1);
+            assertEntry(cache.get("ns.netty.io", null).get(0), addr3);
+
+            refresh.complete();
+            List<? extends DnsCacheEntry> entries = cache.get("netty.io", null);
+            assertEquals(1, entries.size());
+            assertEntry(entries.get(0), addr2);
+
+            // The refreshed entry can be refreshed again.
+            assertNotNull(cache.startPrefetch("netty.io"));
+            assertEquals(2, cache.numPrefetches());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
 }
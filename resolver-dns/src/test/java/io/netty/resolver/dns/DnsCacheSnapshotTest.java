@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DnsCacheSnapshotTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private EventLoopGroup group;
+    private EventLoop loop;
+
+    @Before
+    public void setUp() {
+        group = new DefaultEventLoopGroup(1);
+        loop = group.next();
+    }
+
+    @After
+    public void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        InetAddress addr1 = InetAddress.getByAddress("netty.io", new byte[] { 10, 0, 0, 1 });
+        InetAddress addr2 = InetAddress.getByAddress("netty.io", new byte[] { 0, 0, 0, 0, 0, 0, 0, 0,
+                                                                              0, 0, 0, 0, 0, 0, 0, 1 });
+        InetSocketAddress ns1 = new InetSocketAddress(
+                InetAddress.getByAddress("ns1.netty.io", new byte[] { 10, 0, 0, 53 }), 53);
+        InetSocketAddress ns2 = InetSocketAddress.createUnresolved("ns2.netty.io", 5353);
+
+        DefaultDnsCache resolveCache = new DefaultDnsCache(0, Integer.MAX_VALUE, 1000);
+        resolveCache.cache("netty.io", null, addr1, 1000, loop);
+        resolveCache.cache("netty.io", null, addr2, 1000, loop);
+        resolveCache.cache("failed.netty.io", null, new UnknownHostException("failed.netty.io"), loop);
+        DefaultDnsCnameCache cnameCache = new DefaultDnsCnameCache();
+        cnameCache.cache("www.netty.io.", "netty.io.", 1000, loop);
+        DefaultAuthoritativeDnsServerCache authoritativeDnsServerCache = new DefaultAuthoritativeDnsServerCache();
+        authoritativeDnsServerCache.cache("io.", ns1, 1000, loop);
+        authoritativeDnsServerCache.cache("io.", ns2, 1000, loop);
+
+        File file = new File(tmp.getRoot(), "dns.snapshot");
+        DnsCacheSnapshot.write(file, resolveCache, cnameCache, authoritativeDnsServerCache);
+        assertEquals(1, tmp.getRoot().list().length);
+
+        DefaultDnsCache restoredResolveCache = new DefaultDnsCache();
+        DefaultDnsCnameCache restoredCnameCache = new DefaultDnsCnameCache();
+        DefaultAuthoritativeDnsServerCache restoredAuthoritativeDnsServerCache =
+                new DefaultAuthoritativeDnsServerCache();
+        DnsCacheSnapshot.read(file, loop, restoredResolveCache, restoredCnameCache,
+                              restoredAuthoritativeDnsServerCache);
+
+        List<? extends DnsCacheEntry> entries = restoredResolveCache.get("netty.io", null);
+        assertEquals(2, entries.size());
+        assertEquals(addr1, entries.get(0).address());
+        assertEquals("netty.io", entries.get(0).address().getHostName());
+        assertEquals(addr2, entries.get(1).address());
+        assertNull(restoredResolveCache.get("failed.netty.io", null));
+
+        assertEquals("netty.io.", restoredCnameCache.get("www.netty.io."));
+
+        DnsServerAddressStream stream = restoredAuthoritativeDnsServerCache.get("io.");
+        assertEquals(2, stream.size());
+        InetSocketAddress restoredNs1 = stream.next();
+        assertEquals(ns1, restoredNs1);
+        assertEquals("ns1.netty.io", restoredNs1.getAddress().getHostName());
+        InetSocketAddress restoredNs2 = stream.next();
+        assertTrue(restoredNs2.isUnresolved());
+        assertEquals(ns2, restoredNs2);
+    }
+
+    @Test
+    public void testRespectsMaxTtlAndSkipsOtherCaches() throws Exception {
+        DefaultDnsCache resolveCache = new DefaultDnsCache();
+        resolveCache.cache("netty.io", null, InetAddress.getByAddress(new byte[] { 10, 0, 0, 1 }), 1000, loop);
+        DefaultDnsCnameCache cnameCache = new DefaultDnsCnameCache();
+        cnameCache.cache("www.netty.io.", "netty.io.", 1000, loop);
+
+        File file = new File(tmp.getRoot(), "dns.snapshot");
+        DnsCacheSnapshot.write(file, resolveCache, cnameCache, NoopAuthoritativeDnsServerCache.INSTANCE);
+
+        // Caching is disabled for the addresses but the cnames section after it must still be restored.
+        DefaultDnsCache restoredResolveCache = new DefaultDnsCache(0, 0, 0);
+        DefaultDnsCnameCache restoredCnameCache = new DefaultDnsCnameCache();
+        DnsCacheSnapshot.read(file, loop, restoredResolveCache, restoredCnameCache,
+                              new DefaultAuthoritativeDnsServerCache());
+        assertNull(restoredResolveCache.get("netty.io", null));
+        assertEquals("netty.io.", restoredCnameCache.get("www.netty.io."));
+
+        restoredCnameCache = new DefaultDnsCnameCache();
+        DnsCacheSnapshot.read(file, loop, NoopDnsCache.INSTANCE, restoredCnameCache,
+                              new DefaultAuthoritativeDnsServerCache());
+        assertEquals("netty.io.", restoredCnameCache.get("www.netty.io."));
+    }
+
+    @Test
+    public void testInvalidSnapshot() throws Exception {
+        File file = tmp.newFile();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        } finally {
+            out.close();
+        }
+        try {
+            DnsCacheSnapshot.read(file, loop, new DefaultDnsCache(), new DefaultDnsCnameCache(),
+                                  new DefaultAuthoritativeDnsServerCache());
+            fail();
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -52,9 +52,11 @@ import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.apache.directory.server.dns.DnsException;
+import org.apache.directory.server.dns.io.decoder.DnsMessageDecoder;
 import org.apache.directory.server.dns.io.encoder.DnsMessageEncoder;
 import org.apache.directory.server.dns.messages.DnsMessage;
 import org.apache.directory.server.dns.messages.DnsMessageModifier;
+import org.apache.directory.server.dns.messages.MessageType;
 import org.apache.directory.server.dns.messages.QuestionRecord;
 import org.apache.directory.server.dns.messages.RecordClass;
 import org.apache.directory.server.dns.messages.RecordType;
@@ -71,8 +73,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -498,6 +502,32 @@ public class DnsNameResolverTest {
         }
     }
 
+    @Test(timeout = DEFAULT_TEST_TIMEOUT_MS)
+    public void testPrefetch() throws Exception {
+        DnsNameResolver resolver = newResolver(ResolvedAddressTypes.IPV4_ONLY).prefetchThreshold(100).build();
+        try {
+            DefaultDnsCache cache = (DefaultDnsCache) resolver.resolveCache();
+            String hostname = DOMAINS.iterator().next();
+            InetAddress address = resolver.resolve(hostname).syncUninterruptibly().getNow();
+            assertEquals(0, cache.numPrefetches());
+
+            // Every access within the TTL triggers a refresh, but only once for the same entries.
+            assertEquals(address, resolver.resolve(hostname).syncUninterruptibly().getNow());
+            assertEquals(1, cache.numPrefetches());
+
+            // Once the refresh replaced the entries they are refreshed again on the next access. The test server
+            // answers with random addresses, so the resolved address may change.
+            while (cache.numPrefetches() == 1) {
+                resolver.resolve(hostname).syncUninterruptibly();
+                Thread.sleep(10);
+            }
+            assertEquals(2, cache.numPrefetches());
+            assertEquals(1, cache.numMisses());
+        } finally {
+            resolver.close();
+        }
+    }
+
     @Test
     public void testNonCachedResolve() throws Exception {
         DnsNameResolver resolver = newNonCachedResolver(ResolvedAddressTypes.IPV4_ONLY).build();
@@ -2935,6 +2965,88 @@ public class DnsNameResolverTest {
         }
     }
 
+    @Test(timeout = DEFAULT_TEST_TIMEOUT_MS)
+    public void testTcpFirstQueriesArePipelined() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 50, NetUtil.LOCALHOST4);
+        DnsNameResolver resolver = newResolver()
+                .socketChannelType(NioSocketChannel.class)
+                .tcpFirstRecordTypes(DnsRecordType.TXT)
+                .maxTcpConnectionsPerNameServer(1)
+                .tcpIdleTimeoutMillis(10000)
+                .nameServerProvider(new SingletonDnsServerAddressStreamProvider(
+                        (InetSocketAddress) serverSocket.getLocalSocketAddress()))
+                .build();
+        Socket socket = null;
+        try {
+            Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> first = resolver.query(
+                    new DefaultDnsQuestion("first.netty.io", DnsRecordType.TXT));
+            Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> second = resolver.query(
+                    new DefaultDnsQuestion("second.netty.io", DnsRecordType.TXT));
+
+            socket = serverSocket.accept();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            DnsMessage firstQuery = readTcpMessage(in);
+            DnsMessage secondQuery = readTcpMessage(in);
+
+            // Answer in reverse order, the responses are matched to the queries by their ID.
+            writeTxtResponse(out, secondQuery);
+            writeTxtResponse(out, firstQuery);
+            assertTxtResponse(first, "first.netty.io");
+            assertTxtResponse(second, "second.netty.io");
+
+            // The idle connection is reused for the next query.
+            Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> third = resolver.query(
+                    new DefaultDnsQuestion("third.netty.io", DnsRecordType.TXT));
+            writeTxtResponse(out, readTcpMessage(in));
+            assertTxtResponse(third, "third.netty.io");
+        } finally {
+            resolver.close();
+            if (socket != null) {
+                socket.close();
+            }
+            serverSocket.close();
+        }
+    }
+
+    private static DnsMessage readTcpMessage(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new DnsMessageDecoder().decode(IoBuffer.wrap(bytes));
+    }
+
+    private static void writeTxtResponse(OutputStream out, DnsMessage query) throws IOException {
+        String name = query.getQuestionRecords().get(0).getDomainName();
+        DnsMessageModifier modifier = modifierFrom(query);
+        modifier.setMessageType(MessageType.RESPONSE);
+        modifier.setAnswerRecords(Collections.<ResourceRecord>singletonList(
+                new TestDnsServer.TestResourceRecord(name, RecordType.TXT,
+                        Collections.<String, Object>singletonMap(
+                                DnsAttribute.CHARACTER_STRING.toLowerCase(), name))));
+
+        IoBuffer ioBuffer = IoBuffer.allocate(1024);
+        new DnsMessageEncoder().encode(ioBuffer, modifier.getDnsMessage());
+        ioBuffer.flip();
+        byte[] bytes = new byte[ioBuffer.remaining()];
+        ioBuffer.get(bytes);
+        out.write(bytes.length >> 8);
+        out.write(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static void assertTxtResponse(Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> future,
+                                          String name) {
+        AddressedEnvelope<DnsResponse, InetSocketAddress> envelope = future.syncUninterruptibly().getNow();
+        try {
+            DnsResponse response = envelope.content();
+            assertEquals(1, response.count(DnsSection.ANSWER));
+            assertEquals(Collections.singletonList(name), decodeTxt(response.recordAt(DnsSection.ANSWER, 0)));
+        } finally {
+            envelope.release();
+        }
+    }
+
     @Test
     public void testCancelPromise() throws Exception {
         final EventLoop eventLoop = group.next();
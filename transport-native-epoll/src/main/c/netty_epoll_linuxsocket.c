@@ -25,7 +25,9 @@
 #include <string.h>
 #include <errno.h>
 #include <netinet/in.h>
+#include <fcntl.h>
 #include <sys/sendfile.h>
+#include <linux/errqueue.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
 
 #include "netty_epoll_linuxsocket.h"
@@ -55,6 +57,88 @@
 #define SO_BUSY_POLL 46
 #endif
 
+// SO_INCOMING_CPU is defined in linux 3.19. We define this here so older kernels can compile.
+#ifndef SO_INCOMING_CPU
+#define SO_INCOMING_CPU 49
+#endif
+
+// SO_INCOMING_NAPI_ID is defined in linux 4.12. We define this here so older kernels can compile.
+#ifndef SO_INCOMING_NAPI_ID
+#define SO_INCOMING_NAPI_ID 56
+#endif
+
+// SO_PREFER_BUSY_POLL is defined in linux 5.11. We define this here so older kernels can compile.
+#ifndef SO_PREFER_BUSY_POLL
+#define SO_PREFER_BUSY_POLL 69
+#endif
+
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+// UDP_SEGMENT is defined in linux 4.18. We define this here so older kernels can compile.
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// SO_ZEROCOPY and MSG_ZEROCOPY are defined in linux 4.14. We define this here so older kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+// TCP_ULP and the kTLS ABI are defined in linux 4.13. We define them here so older kernels can compile.
+// See https://github.com/torvalds/linux/blob/v5.9/include/uapi/linux/tls.h
+#ifndef TCP_ULP
+#define TCP_ULP 31
+#endif
+
+#ifndef SOL_TLS
+#define SOL_TLS 282
+#endif
+
+#define NETTY_TLS_TX 1
+#define NETTY_TLS_SET_RECORD_TYPE 1
+#define NETTY_TLS_RECORD_TYPE_ALERT 21
+#define NETTY_TLS_CIPHER_AES_GCM_128 51
+#define NETTY_TLS_CIPHER_AES_GCM_256 52
+#define NETTY_TLS_IV_SIZE 8
+#define NETTY_TLS_SALT_SIZE 4
+#define NETTY_TLS_REC_SEQ_SIZE 8
+
+struct netty_tls_crypto_info {
+    uint16_t version;
+    uint16_t cipher_type;
+};
+
+struct netty_tls12_crypto_info_aes_gcm_128 {
+    struct netty_tls_crypto_info info;
+    unsigned char iv[NETTY_TLS_IV_SIZE];
+    unsigned char key[16];
+    unsigned char salt[NETTY_TLS_SALT_SIZE];
+    unsigned char rec_seq[NETTY_TLS_REC_SEQ_SIZE];
+};
+
+struct netty_tls12_crypto_info_aes_gcm_256 {
+    struct netty_tls_crypto_info info;
+    unsigned char iv[NETTY_TLS_IV_SIZE];
+    unsigned char key[32];
+    unsigned char salt[NETTY_TLS_SALT_SIZE];
+    unsigned char rec_seq[NETTY_TLS_REC_SEQ_SIZE];
+};
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -154,10 +238,26 @@ static void netty_epoll_linuxsocket_setIpRecvOrigDestAddr(JNIEnv* env, jclass cl
     netty_unix_socket_setOption(env, fd, IPPROTO_IP, IP_RECVORIGDSTADDR, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setUdpSegment(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_SEGMENT, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
 static void netty_epoll_linuxsocket_setSoBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
     netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setSoPreferBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_PREFER_BUSY_POLL, &optval, sizeof(optval));
+}
+
 static void netty_epoll_linuxsocket_joinGroup(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6, jbyteArray groupAddress, jbyteArray interfaceAddress, jint scopeId, jint interfaceIndex) {
     struct sockaddr_storage groupAddr;
     socklen_t groupAddrSize;
@@ -519,6 +619,30 @@ static jint netty_epoll_linuxsocket_isIpRecvOrigDestAddr(JNIEnv* env, jclass cla
      return optval;
 }
 
+static jint netty_epoll_linuxsocket_getUdpSegment(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_UDP, UDP_SEGMENT, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_linuxsocket_isUdpGro(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_linuxsocket_isZeroCopy(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
 static void netty_epoll_linuxsocket_getTcpInfo(JNIEnv* env, jclass clazz, jint fd, jlongArray array) {
      struct tcp_info tcp_info;
      if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_INFO, &tcp_info, sizeof(tcp_info)) == -1) {
@@ -578,6 +702,30 @@ static jint netty_epoll_linuxsocket_getSoBusyPoll(JNIEnv* env, jclass clazz, jin
     return optval;
 }
 
+static jint netty_epoll_linuxsocket_isSoPreferBusyPoll(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_PREFER_BUSY_POLL, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+static jint netty_epoll_linuxsocket_getSoIncomingCpu(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_INCOMING_CPU, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+static jint netty_epoll_linuxsocket_getSoIncomingNapiId(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_INCOMING_NAPI_ID, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 static jint netty_epoll_linuxsocket_getTcpDeferAccept(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_DEFER_ACCEPT, &optval, sizeof(optval)) == -1) {
@@ -658,6 +806,192 @@ static jlong netty_epoll_linuxsocket_sendFile(JNIEnv* env, jclass clazz, jint fd
 
     return res;
 }
+static jint netty_epoll_linuxsocket_sendAddressZeroCopy(JNIEnv* env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    do {
+        res = send(fd, (void*) (intptr_t) (address + pos), (size_t) (limit - pos), MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jlong netty_epoll_linuxsocket_writevAddressesZeroCopy(JNIEnv* env, jclass clazz, jint fd, jlong memoryAddress, jint length) {
+    struct msghdr m = { 0 };
+    m.msg_iov = (struct iovec*) (intptr_t) memoryAddress;
+    m.msg_iovlen = length;
+
+    ssize_t res;
+    int err;
+    do {
+        res = sendmsg(fd, &m, MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jlong) res;
+}
+
+// Reads the MSG_ZEROCOPY completion notifications from the error queue of the socket and stores the completed ranges
+// as [lo, hi] pairs into the given array. Returns the number of ranges or -errno if nothing could be read.
+static jint netty_epoll_linuxsocket_recvZeroCopyCompletions(JNIEnv* env, jclass clazz, jint fd, jintArray ranges) {
+    jint len = (*env)->GetArrayLength(env, ranges);
+    jint values[len];
+    jint count = 0;
+
+    while (count + 1 < len) {
+        // Use a union to ensure the control buffer is correctly aligned for struct cmsghdr.
+        union {
+            char buf[CMSG_SPACE(sizeof(struct sock_extended_err) + sizeof(struct sockaddr_storage))];
+            struct cmsghdr align;
+        } control;
+        struct msghdr m = { 0 };
+        m.msg_control = control.buf;
+        m.msg_controllen = sizeof(control.buf);
+
+        ssize_t res;
+        int err;
+        do {
+            res = recvmsg(fd, &m, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            if (count == 0) {
+                return -err;
+            }
+            break;
+        }
+
+        struct cmsghdr* cmsg;
+        for (cmsg = CMSG_FIRSTHDR(&m); cmsg != NULL; cmsg = CMSG_NXTHDR(&m, cmsg)) {
+            if ((cmsg->cmsg_level == SOL_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                    (cmsg->cmsg_level == SOL_IPV6 && cmsg->cmsg_type == IPV6_RECVERR)) {
+                struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cmsg);
+                if (serr->ee_origin == SO_EE_ORIGIN_ZEROCOPY && serr->ee_errno == 0) {
+                    values[count++] = (jint) serr->ee_info;
+                    values[count++] = (jint) serr->ee_data;
+                }
+                break;
+            }
+        }
+    }
+    (*env)->SetIntArrayRegion(env, ranges, 0, count, values);
+    return count / 2;
+}
+
+// Duplicates the given fd, so the socket stays open when the original fd is closed. Returns the new fd or -errno.
+static jint netty_epoll_linuxsocket_dup(JNIEnv* env, jclass clazz, jint fd) {
+    int res = fcntl(fd, F_DUPFD_CLOEXEC, 0);
+    if (res == -1) {
+        return -errno;
+    }
+    return res;
+}
+
+static int netty_epoll_linuxsocket_copyTlsBytes(JNIEnv* env, jbyteArray array, unsigned char* dst, jsize length) {
+    if ((*env)->GetArrayLength(env, array) != length) {
+        netty_unix_errors_throwIOException(env, "Invalid length of kTLS crypto material");
+        return -1;
+    }
+    (*env)->GetByteArrayRegion(env, array, 0, length, (jbyte*) dst);
+    return (*env)->ExceptionCheck(env) == JNI_TRUE ? -1 : 0;
+}
+
+static void netty_epoll_linuxsocket_setTlsTx(JNIEnv* env, jclass clazz, jint fd, jint version, jint cipherType,
+        jbyteArray key, jbyteArray salt, jbyteArray iv, jbyteArray recSeq) {
+    struct netty_tls12_crypto_info_aes_gcm_128 info128;
+    struct netty_tls12_crypto_info_aes_gcm_256 info256;
+    void* info;
+    socklen_t infoLen;
+    int err;
+
+    switch (cipherType) {
+    case NETTY_TLS_CIPHER_AES_GCM_128:
+        memset(&info128, 0, sizeof(info128));
+        info128.info.version = (uint16_t) version;
+        info128.info.cipher_type = (uint16_t) cipherType;
+        if (netty_epoll_linuxsocket_copyTlsBytes(env, key, info128.key, sizeof(info128.key)) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, salt, info128.salt, NETTY_TLS_SALT_SIZE) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, iv, info128.iv, NETTY_TLS_IV_SIZE) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, recSeq, info128.rec_seq, NETTY_TLS_REC_SEQ_SIZE) == -1) {
+            return;
+        }
+        info = &info128;
+        infoLen = sizeof(info128);
+        break;
+    case NETTY_TLS_CIPHER_AES_GCM_256:
+        memset(&info256, 0, sizeof(info256));
+        info256.info.version = (uint16_t) version;
+        info256.info.cipher_type = (uint16_t) cipherType;
+        if (netty_epoll_linuxsocket_copyTlsBytes(env, key, info256.key, sizeof(info256.key)) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, salt, info256.salt, NETTY_TLS_SALT_SIZE) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, iv, info256.iv, NETTY_TLS_IV_SIZE) == -1 ||
+            netty_epoll_linuxsocket_copyTlsBytes(env, recSeq, info256.rec_seq, NETTY_TLS_REC_SEQ_SIZE) == -1) {
+            return;
+        }
+        info = &info256;
+        infoLen = sizeof(info256);
+        break;
+    default:
+        netty_unix_errors_throwIOException(env, "Unsupported kTLS cipher");
+        return;
+    }
+
+    // Attaching the ULP does not change how data is written until TLS_TX was set, so it is safe to do it here.
+    if (setsockopt(fd, IPPROTO_TCP, TCP_ULP, "tls", sizeof("tls")) < 0 && errno != EEXIST) {
+        netty_unix_errors_throwIOExceptionErrorNo(env, "setsockopt(TCP_ULP) failed: ", errno);
+        return;
+    }
+    if (setsockopt(fd, SOL_TLS, NETTY_TLS_TX, info, infoLen) < 0) {
+        err = errno;
+        memset(info, 0, infoLen);
+        netty_unix_errors_throwIOExceptionErrorNo(env, "setsockopt(TLS_TX) failed: ", err);
+        return;
+    }
+    // Do not keep the key material on the stack.
+    memset(info, 0, infoLen);
+}
+
+static jint netty_epoll_linuxsocket_sendTlsAlert(JNIEnv* env, jclass clazz, jint fd, jbyte level, jbyte description) {
+    unsigned char alert[2] = { (unsigned char) level, (unsigned char) description };
+    struct iovec iov = { alert, sizeof(alert) };
+    union {
+        char buf[CMSG_SPACE(sizeof(unsigned char))];
+        struct cmsghdr align;
+    } control;
+    struct msghdr m = { 0 };
+    m.msg_iov = &iov;
+    m.msg_iovlen = 1;
+    m.msg_control = control.buf;
+    m.msg_controllen = sizeof(control.buf);
+
+    // Records that do not carry application data are sent by telling the kernel their type.
+    // See https://www.kernel.org/doc/html/latest/networking/tls.html#send-tls-control-messages
+    struct cmsghdr* cm = CMSG_FIRSTHDR(&m);
+    cm->cmsg_level = SOL_TLS;
+    cm->cmsg_type = NETTY_TLS_SET_RECORD_TYPE;
+    cm->cmsg_len = CMSG_LEN(sizeof(unsigned char));
+    *((unsigned char*) CMSG_DATA(cm)) = NETTY_TLS_RECORD_TYPE_ALERT;
+
+    ssize_t res;
+    int err;
+    do {
+        res = sendmsg(fd, &m, 0);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
@@ -675,6 +1009,10 @@ static const JNINativeMethod fixed_method_table[] = {
   { "setTcpNotSentLowAt", "(II)V", (void *) netty_epoll_linuxsocket_setTcpNotSentLowAt },
   { "isTcpCork", "(I)I", (void *) netty_epoll_linuxsocket_isTcpCork },
   { "getSoBusyPoll", "(I)I", (void *) netty_epoll_linuxsocket_getSoBusyPoll },
+  { "setSoPreferBusyPoll", "(II)V", (void *) netty_epoll_linuxsocket_setSoPreferBusyPoll },
+  { "isSoPreferBusyPoll", "(I)I", (void *) netty_epoll_linuxsocket_isSoPreferBusyPoll },
+  { "getSoIncomingNapiId", "(I)I", (void *) netty_epoll_linuxsocket_getSoIncomingNapiId },
+  { "getSoIncomingCpu", "(I)I", (void *) netty_epoll_linuxsocket_getSoIncomingCpu },
   { "getTcpDeferAccept", "(I)I", (void *) netty_epoll_linuxsocket_getTcpDeferAccept },
   { "getTcpNotSentLowAt", "(I)I", (void *) netty_epoll_linuxsocket_getTcpNotSentLowAt },
   { "isTcpQuickAck", "(I)I", (void *) netty_epoll_linuxsocket_isTcpQuickAck },
@@ -695,6 +1033,18 @@ static const JNINativeMethod fixed_method_table[] = {
   { "isIpFreeBind", "(I)I", (void *) netty_epoll_linuxsocket_isIpFreeBind },
   { "isIpTransparent", "(I)I", (void *) netty_epoll_linuxsocket_isIpTransparent },
   { "isIpRecvOrigDestAddr", "(I)I", (void *) netty_epoll_linuxsocket_isIpRecvOrigDestAddr },
+  { "setUdpSegment", "(II)V", (void *) netty_epoll_linuxsocket_setUdpSegment },
+  { "getUdpSegment", "(I)I", (void *) netty_epoll_linuxsocket_getUdpSegment },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_linuxsocket_setUdpGro },
+  { "isUdpGro", "(I)I", (void *) netty_epoll_linuxsocket_isUdpGro },
+  { "setZeroCopy", "(II)V", (void *) netty_epoll_linuxsocket_setZeroCopy },
+  { "isZeroCopy", "(I)I", (void *) netty_epoll_linuxsocket_isZeroCopy },
+  { "sendAddressZeroCopy", "(IJII)I", (void *) netty_epoll_linuxsocket_sendAddressZeroCopy },
+  { "writevAddressesZeroCopy", "(IJI)J", (void *) netty_epoll_linuxsocket_writevAddressesZeroCopy },
+  { "recvZeroCopyCompletions", "(I[I)I", (void *) netty_epoll_linuxsocket_recvZeroCopyCompletions },
+  { "dup", "(I)I", (void *) netty_epoll_linuxsocket_dup },
+  { "setTlsTx", "(III[B[B[B[B)V", (void *) netty_epoll_linuxsocket_setTlsTx },
+  { "sendTlsAlert", "(IBB)I", (void *) netty_epoll_linuxsocket_sendTlsAlert },
   { "getTcpInfo", "(I[J)V", (void *) netty_epoll_linuxsocket_getTcpInfo },
   { "setTcpMd5Sig", "(IZ[BI[B)V", (void *) netty_epoll_linuxsocket_setTcpMd5Sig },
   { "joinGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_joinGroup },
@@ -39,6 +39,7 @@
 // Needed to be able to use syscalls directly and so not depend on newer GLIBC versions
 #include <linux/net.h>
 #include <sys/syscall.h>
+#include <sched.h>
 
 #include "netty_epoll_linuxsocket.h"
 #include "netty_unix_buffer.h"
@@ -54,6 +55,20 @@
 #define TCP_FASTOPEN 23
 #endif
 
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif // SOL_UDP
+
+// UDP_SEGMENT is defined in linux 4.18. We define this here so older kernels can compile.
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif // UDP_SEGMENT
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif // UDP_GRO
+
 // optional
 extern int epoll_create1(int flags) __attribute__((weak));
 
@@ -98,6 +113,7 @@ static jfieldID packetScopeIdFieldId = NULL;
 static jfieldID packetPortFieldId = NULL;
 static jfieldID packetMemoryAddressFieldId = NULL;
 static jfieldID packetCountFieldId = NULL;
+static jfieldID packetSegmentSizeFieldId = NULL;
 
 // util methods
 static int getSysctlValue(const char * property, int* returnValue) {
@@ -308,6 +324,11 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
     struct sockaddr_storage addr[len];
+    // Space for the UDP_SEGMENT control message of each packet.
+    union {
+        char buf[CMSG_SPACE(sizeof(uint16_t))];
+        struct cmsghdr align;
+    } control[len];
     socklen_t addrSize;
     int i;
 
@@ -332,6 +353,19 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
         msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
+        if (segmentSize > 0) {
+            // Let the kernel (or the NIC) split the payload in datagrams of segmentSize bytes.
+            msg[i].msg_hdr.msg_control = control[i].buf;
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i].buf);
+
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -354,6 +388,12 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
     struct sockaddr_storage addr[len];
     int addrSize = sizeof(addr);
     memset(addr, 0, addrSize);
+    // Space for the control messages of each packet that may be enabled: UDP_GRO and IP_RECVORIGDSTADDR /
+    // IPV6_RECVORIGDSTADDR.
+    union {
+        char buf[CMSG_SPACE(sizeof(int)) + CMSG_SPACE(sizeof(struct sockaddr_in6))];
+        struct cmsghdr align;
+    } control[len];
 
     int i;
 
@@ -364,6 +404,9 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         msg[i].msg_hdr.msg_name = addr + i;
         msg[i].msg_hdr.msg_namelen = (socklen_t) addrSize;
+
+        msg[i].msg_hdr.msg_control = control[i].buf;
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i].buf);
     }
 
     ssize_t res;
@@ -385,6 +428,23 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
 
         (*env)->SetIntField(env, packet, packetCountFieldId, msg[i].msg_len);
 
+        jint segmentSize = 0;
+        if (msg[i].msg_hdr.msg_flags & MSG_CTRUNC) {
+            // Some control message did not fit, so we may have lost the UDP_GRO one and would not be able to split
+            // the payload correctly. Mark only this datagram, the others were received correctly.
+            segmentSize = -1;
+        } else {
+            // If the kernel coalesced multiple datagrams via UDP_GRO it tells us the size of the original datagrams.
+            struct cmsghdr* cm;
+            for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+                if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                    segmentSize = *((int*) CMSG_DATA(cm));
+                    break;
+                }
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSegmentSizeFieldId, segmentSize);
+
         struct sockaddr_storage* addr = (struct sockaddr_storage*) msg[i].msg_hdr.msg_name;
 
         if (addr->ss_family == AF_INET) {
@@ -448,6 +508,17 @@ static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass claz
     return JNI_TRUE;
 }
 
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int gsoSize = 512;
+    int res = setsockopt(fd, SOL_UDP, UDP_SEGMENT, &gsoSize, sizeof(gsoSize));
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -505,6 +576,24 @@ static jint netty_epoll_native_splice0(JNIEnv* env, jclass clazz, jint fd, jlong
     return (jint) res;
 }
 
+static jint netty_epoll_native_setCpuAffinity0(JNIEnv* env, jclass clazz, jint cpu) {
+    cpu_set_t set;
+    if (cpu < 0 || cpu >= CPU_SETSIZE) {
+        return -EINVAL;
+    }
+    CPU_ZERO(&set);
+    CPU_SET(cpu, &set);
+    // 0 means the calling thread.
+    if (sched_setaffinity(0, sizeof(set), &set) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
 static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     struct tcp_md5sig md5sig;
 
@@ -525,8 +614,10 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
   { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
@@ -548,7 +639,8 @@ static const JNINativeMethod fixed_method_table[] = {
   // "sendmmsg0" has a dynamic signature
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData },
-  { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 }
+  { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 },
+  { "setCpuAffinity0", "(I)I", (void *) netty_epoll_native_setCpuAffinity0 }
 };
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
@@ -664,6 +756,7 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetPortFieldId, "port", "I", done);
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetMemoryAddressFieldId, "memoryAddress", "J", done);
     NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetCountFieldId, "count", "I", done);
+    NETTY_GET_FIELD(env, nativeDatagramPacketCls, packetSegmentSizeFieldId, "segmentSize", "I", done);
 
     ret = NETTY_JNI_VERSION;
 done:
@@ -696,6 +789,7 @@ done:
         packetPortFieldId = NULL;
         packetMemoryAddressFieldId = NULL;
         packetCountFieldId = NULL;
+        packetSegmentSizeFieldId = NULL;
     }
     return ret;
 }
@@ -714,6 +808,7 @@ static void netty_epoll_native_JNI_OnUnLoad(JNIEnv* env) {
     packetPortFieldId = NULL;
     packetMemoryAddressFieldId = NULL;
     packetCountFieldId = NULL;
+    packetSegmentSizeFieldId = NULL;
 }
 
 // Invoked by the JVM when statically linked
@@ -523,7 +523,7 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
         /**
          * Called once a EPOLLOUT event is ready to be processed
          */
-        final void epollOutReady() {
+        void epollOutReady() {
             if (connectPromise != null) {
                 // pending connect which is now complete so handle it.
                 finishConnect();
@@ -77,6 +77,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private FileDescriptor pipeOut;
 
     private WritableByteChannel byteChannel;
+    private ZeroCopyTracker zeroCopyTracker;
 
     protected AbstractEpollStreamChannel(Channel parent, int fd) {
         this(parent, new LinuxSocket(fd));
@@ -257,6 +258,18 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
 
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
+            if (buf.hasMemoryAddress() && isZeroCopyWrite(buf, readableBytes)) {
+                int localWrittenBytes = socket.sendAddressZeroCopy(
+                        buf.memoryAddress(), buf.readerIndex(), buf.writerIndex());
+                if (localWrittenBytes > 0) {
+                    removeZeroCopyBytes(in, localWrittenBytes);
+                    return 1;
+                }
+                if (localWrittenBytes == 0) {
+                    return WRITE_STATUS_SNDBUF_FULL;
+                }
+                // The kernel was not able to pin the memory, fall back to a normal write.
+            }
             return doWriteBytes(in, buf);
         } else {
             ByteBuffer[] nioBuffers = buf.nioBuffers();
@@ -299,6 +312,19 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         final int cnt = array.count();
         assert cnt != 0;
 
+        if (isZeroCopyWrite(in.current(), expectedWrittenBytes)) {
+            final long localWrittenBytes = socket.writevAddressesZeroCopy(array.memoryAddress(0), cnt);
+            if (localWrittenBytes > 0) {
+                adjustMaxBytesPerGatheringWrite(expectedWrittenBytes, localWrittenBytes, array.maxBytes());
+                removeZeroCopyBytes(in, localWrittenBytes);
+                return 1;
+            }
+            if (localWrittenBytes == 0) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+            // The kernel was not able to pin the memory, fall back to a normal write.
+        }
+
         final long localWrittenBytes = socket.writevAddresses(array.memoryAddress(0), cnt);
         if (localWrittenBytes > 0) {
             adjustMaxBytesPerGatheringWrite(expectedWrittenBytes, localWrittenBytes, array.maxBytes());
@@ -308,6 +334,65 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return WRITE_STATUS_SNDBUF_FULL;
     }
 
+    /**
+     * Returns the minimum number of bytes a write must have to be done via {@code MSG_ZEROCOPY} or {@code -1} if
+     * {@code MSG_ZEROCOPY} should not be used at all.
+     */
+    int zeroCopyThreshold() {
+        return -1;
+    }
+
+    private boolean isZeroCopyWrite(Object current, long bytes) {
+        int threshold = zeroCopyThreshold();
+        if (threshold < 0) {
+            return false;
+        }
+        // Once a buffer was partially written via MSG_ZEROCOPY the rest of it must be written the same way, as the
+        // buffer is only released once all sends that reference it are completed.
+        return bytes >= threshold || zeroCopyTracker != null && zeroCopyTracker.isPartiallyWritten(current);
+    }
+
+    /**
+     * Removes the written bytes from the {@link ChannelOutboundBuffer} like
+     * {@link ChannelOutboundBuffer#removeBytes(long)} but keeps the fully written {@link ByteBuf}s and their
+     * {@link ChannelPromise}s until the kernel signals that the {@code MSG_ZEROCOPY} send completed.
+     */
+    private void removeZeroCopyBytes(ChannelOutboundBuffer in, long writtenBytes) {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        if (tracker == null) {
+            zeroCopyTracker = tracker = new ZeroCopyTracker();
+        }
+        int id = tracker.nextId();
+        for (;;) {
+            Object msg = in.current();
+            if (!(msg instanceof ByteBuf)) {
+                assert writtenBytes == 0;
+                break;
+            }
+
+            final ByteBuf buf = (ByteBuf) msg;
+            final int readerIndex = buf.readerIndex();
+            final int readableBytes = buf.writerIndex() - readerIndex;
+
+            if (readableBytes <= writtenBytes) {
+                if (writtenBytes != 0) {
+                    in.progress(readableBytes);
+                    writtenBytes -= readableBytes;
+                }
+                tracker.add(id, buf, in.detachCurrent());
+            } else { // readableBytes > writtenBytes
+                if (writtenBytes != 0) {
+                    buf.readerIndex(readerIndex + (int) writtenBytes);
+                    in.progress(writtenBytes);
+                    // The buffer stays in the ChannelOutboundBuffer, retain it so it is not released before the
+                    // kernel is done with the part that was written now.
+                    tracker.add(id, buf.retain(), null);
+                }
+                break;
+            }
+        }
+    }
+
     /**
      * Write multiple bytes via {@link ByteBuffer} array.
      * @param in the collection which contains objects to write.
@@ -667,6 +752,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     protected void doClose() throws Exception {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        zeroCopyTracker = null;
+        if (tracker != null && tracker.isEmpty()) {
+            // No sends are outstanding, so there is nothing to read from the error queue.
+            tracker = null;
+        }
+        boolean reaping = tracker != null && reapZeroCopySends(tracker);
         try {
             // Calling super.doClose() first so spliceTo(...) will fail on next call.
             super.doClose();
@@ -674,6 +766,40 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            if (tracker != null && !reaping) {
+                tracker.releaseAll(new ClosedChannelException());
+            }
+        }
+    }
+
+    /**
+     * Closing the socket does not stop the kernel from sending from the memory of outstanding {@code MSG_ZEROCOPY}
+     * sends, so keep a duplicate of the socket registered with the {@link EpollEventLoop} which releases the buffers
+     * once their completions are read. Returns {@code false} if this is not possible.
+     */
+    private boolean reapZeroCopySends(ZeroCopyTracker tracker) {
+        if (!isRegistered() || !eventLoop().inEventLoop()) {
+            // doClose() is executed by the GlobalEventExecutor if SO_LINGER is used.
+            return false;
+        }
+        try {
+            tracker.processCompletions(socket);
+            if (tracker.isEmpty()) {
+                return true;
+            }
+            LinuxSocket dup = socket.dup();
+            try {
+                // The duplicate keeps the connection open, so shut it down like closing the socket would.
+                socket.shutdown();
+                ((EpollEventLoop) eventLoop()).addZeroCopyReaper(dup, tracker);
+            } catch (IOException e) {
+                dup.close();
+                throw e;
+            }
+            return true;
+        } catch (IOException e) {
+            logger.debug("Unable to wait for the completion of MSG_ZEROCOPY sends of {}", this, e);
+            return false;
         }
     }
 
@@ -736,6 +862,21 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return new EpollRecvByteAllocatorStreamingHandle(handle);
         }
 
+        @Override
+        void epollOutReady() {
+            // The MSG_ZEROCOPY completion notifications are signaled via EPOLLERR, which also triggers this method.
+            if (zeroCopyTracker != null && !zeroCopyTracker.isEmpty()) {
+                try {
+                    zeroCopyTracker.processCompletions(socket);
+                } catch (IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    close(voidPromise());
+                    return;
+                }
+            }
+            super.epollOutReady();
+        }
+
         @Override
         void epollInReady() {
             final ChannelConfig config = config();
@@ -39,6 +39,11 @@ public final class EpollChannelOption<T> extends UnixChannelOption<T> {
             ChannelOption.valueOf(EpollChannelOption.class, "TCP_DEFER_ACCEPT");
     public static final ChannelOption<Boolean> TCP_QUICKACK = valueOf(EpollChannelOption.class, "TCP_QUICKACK");
     public static final ChannelOption<Integer> SO_BUSY_POLL = valueOf(EpollChannelOption.class, "SO_BUSY_POLL");
+    public static final ChannelOption<Boolean> SO_PREFER_BUSY_POLL =
+            valueOf(EpollChannelOption.class, "SO_PREFER_BUSY_POLL");
+    public static final ChannelOption<Boolean> SO_ZEROCOPY = valueOf(EpollChannelOption.class, "SO_ZEROCOPY");
+    public static final ChannelOption<Integer> ZEROCOPY_THRESHOLD =
+            valueOf(EpollChannelOption.class, "ZEROCOPY_THRESHOLD");
 
     public static final ChannelOption<EpollMode> EPOLL_MODE =
             ChannelOption.valueOf(EpollChannelOption.class, "EPOLL_MODE");
@@ -46,6 +51,10 @@ public final class EpollChannelOption<T> extends UnixChannelOption<T> {
     public static final ChannelOption<Map<InetAddress, byte[]>> TCP_MD5SIG = valueOf("TCP_MD5SIG");
 
     public static final ChannelOption<Integer> MAX_DATAGRAM_PAYLOAD_SIZE = valueOf("MAX_DATAGRAM_PAYLOAD_SIZE");
+    public static final ChannelOption<Integer> MAX_DATAGRAMS_PER_READ =
+            valueOf(EpollChannelOption.class, "MAX_DATAGRAMS_PER_READ");
+    public static final ChannelOption<Integer> UDP_SEGMENT = valueOf(EpollChannelOption.class, "UDP_SEGMENT");
+    public static final ChannelOption<Boolean> UDP_GRO = valueOf(EpollChannelOption.class, "UDP_GRO");
 
     @SuppressWarnings({ "unused", "deprecation" })
     private EpollChannelOption() {
@@ -57,6 +57,8 @@ import static io.netty.channel.epoll.LinuxSocket.newSocketDgram;
  */
 public final class EpollDatagramChannel extends AbstractEpollChannel implements DatagramChannel {
     private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    // The kernel may coalesce datagrams via UDP_GRO up to the maximum size of an IP packet.
+    private static final int MAX_GRO_PAYLOAD_SIZE = 64 * 1024;
     private static final String EXPECTED_TYPES =
             " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
             StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
@@ -295,8 +297,9 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+. We also need to use it
+                // for a single SegmentedDatagramPacket as the segment size is passed as control message.
+                if (Native.IS_SUPPORTING_SENDMMSG && (in.size() > 1 || msg instanceof SegmentedDatagramPacket)) {
                     NativeDatagramPacketArray array = cleanDatagramPacketArray();
                     array.add(in, isConnected());
                     int cnt = array.count();
@@ -401,6 +404,16 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!SegmentedDatagramPacket.isSupported()) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    packet.replace(newDirectBuffer(packet, content)) : msg;
+        }
         if (msg instanceof DatagramPacket) {
             DatagramPacket packet = (DatagramPacket) msg;
             ByteBuf content = packet.content();
@@ -462,7 +475,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         @Override
         void epollInReady() {
             assert eventLoop().inEventLoop();
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             if (shouldBreakEpollInReady(config)) {
                 clearEpollIn0();
                 return;
@@ -479,18 +492,35 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             try {
                 try {
                     boolean connected = isConnected();
+                    // We need recvmmsg to get the segment size of the coalesced datagrams.
+                    boolean gro = config.isUdpGro() && Native.IS_SUPPORTING_RECVMMSG;
                     do {
-                        ByteBuf byteBuf = allocHandle.allocate(allocator);
+                        final ByteBuf byteBuf;
+                        int datagramSize;
+                        if (gro) {
+                            // Each datagram may be coalesced with others, so every slot needs to be able to hold the
+                            // maximum coalesced payload and not only the configured datagram size.
+                            datagramSize = MAX_GRO_PAYLOAD_SIZE;
+                            byteBuf = allocator.ioBuffer(Math.max(allocHandle.guess(), datagramSize));
+                        } else {
+                            datagramSize = config.getMaxDatagramPayloadSize();
+                            byteBuf = allocHandle.allocate(allocator);
+                        }
                         final boolean read;
-                        int datagramSize = config().getMaxDatagramPayloadSize();
 
                         // Only try to use recvmmsg if its really supported by the running system.
                         int numDatagram = Native.IS_SUPPORTING_RECVMMSG ?
                                 datagramSize == 0 ? 1 : byteBuf.writableBytes() / datagramSize :
                                 0;
+                        int maxDatagramsPerRead = config.getMaxDatagramsPerRead();
+                        if (maxDatagramsPerRead > 0 && numDatagram > maxDatagramsPerRead) {
+                            numDatagram = maxDatagramsPerRead;
+                        }
 
                         try {
-                            if (numDatagram <= 1) {
+                            if (gro) {
+                                read = scatteringRead(allocHandle, byteBuf, datagramSize, numDatagram, true);
+                            } else if (numDatagram <= 1) {
                                 if (connected) {
                                     read = connectedRead(allocHandle, byteBuf, datagramSize);
                                 } else {
@@ -498,7 +528,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                                 }
                             } else {
                                 // Try to use scattering reads via recvmmsg(...) syscall.
-                                read = scatteringRead(allocHandle, byteBuf, datagramSize, numDatagram);
+                                read = scatteringRead(allocHandle, byteBuf, datagramSize, numDatagram, false);
                             }
                         } catch (NativeIoException e) {
                             if (connected) {
@@ -580,7 +610,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
     }
 
     private boolean scatteringRead(EpollRecvByteAllocatorHandle allocHandle,
-            ByteBuf byteBuf, int datagramSize, int numDatagram) throws IOException {
+            ByteBuf byteBuf, int datagramSize, int numDatagram, boolean gro) throws IOException {
         RecyclableArrayList bufferPackets = null;
         try {
             int offset = byteBuf.writerIndex();
@@ -601,13 +631,20 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 allocHandle.lastBytesRead(-1);
                 return false;
             }
-            int bytesReceived = received * datagramSize;
-            byteBuf.writerIndex(bytesReceived);
+            byteBuf.writerIndex(byteBuf.writerIndex() + received * datagramSize);
+            // Without GRO each slot is accounted as fully used, like for a single read with a maximum datagram size.
+            // With GRO the slots are sized for the maximum coalesced payload, so only count what was actually read.
+            int bytesReceived = gro ? 0 : received * datagramSize;
+            if (gro) {
+                for (int i = 0; i < received; i++) {
+                    bytesReceived += packets[i].count();
+                }
+            }
             InetSocketAddress local = localAddress();
-            if (received == 1) {
+            if (received == 1 && packets[0].segmentSize() == 0) {
                 // Single packet fast-path
                 DatagramPacket packet = packets[0].newDatagramPacket(byteBuf, local);
-                allocHandle.lastBytesRead(datagramSize);
+                allocHandle.lastBytesRead(bytesReceived);
                 allocHandle.incMessagesRead(1);
                 pipeline().fireChannelRead(packet);
                 byteBuf = null;
@@ -618,19 +655,32 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             // before we call fireChannelRead(...). This is because the user may call flush()
             // in a channelRead(...) method and so may re-use the NativeDatagramPacketArray again.
             bufferPackets = RecyclableArrayList.newInstance();
+            int truncated = 0;
             for (int i = 0; i < received; i++) {
-                DatagramPacket packet = packets[i].newDatagramPacket(byteBuf.readRetainedSlice(datagramSize), local);
-                bufferPackets.add(packet);
+                ByteBuf content = byteBuf.readRetainedSlice(datagramSize);
+                if (packets[i].isControlTruncated()) {
+                    // The datagram itself was received but we can not tell how to split it.
+                    content.release();
+                    truncated++;
+                    continue;
+                }
+                DatagramPacket packet = packets[i].newDatagramPacket(content, local);
+                addDatagramPacketToOut(packet, packets[i].segmentSize(), bufferPackets);
             }
 
             allocHandle.lastBytesRead(bytesReceived);
-            allocHandle.incMessagesRead(received);
+            allocHandle.incMessagesRead(bufferPackets.size());
 
-            for (int i = 0; i < received; i++) {
+            for (int i = 0; i < bufferPackets.size(); i++) {
                 pipeline().fireChannelRead(bufferPackets.set(i, Unpooled.EMPTY_BUFFER));
             }
             bufferPackets.recycle();
             bufferPackets = null;
+            if (truncated > 0) {
+                // Report the dropped datagrams only after the others were delivered.
+                throw new IOException("recvmmsg(...) truncated the control messages of " + truncated +
+                        " datagram(s), dropped them");
+            }
             return true;
         } finally {
             if (byteBuf != null) {
@@ -645,6 +695,28 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         }
     }
 
+    /**
+     * Adds the {@link DatagramPacket} to the list. If the kernel coalesced multiple datagrams via UDP_GRO the packet
+     * is split again into one {@link DatagramPacket} per datagram, all of them sharing the content of the packet.
+     */
+    private static void addDatagramPacketToOut(DatagramPacket packet, int segmentSize, RecyclableArrayList out) {
+        ByteBuf content = packet.content();
+        if (segmentSize <= 0 || content.readableBytes() <= segmentSize) {
+            out.add(packet);
+            return;
+        }
+        try {
+            InetSocketAddress recipient = packet.recipient();
+            InetSocketAddress sender = packet.sender();
+            while (content.isReadable()) {
+                ByteBuf segment = content.readRetainedSlice(Math.min(content.readableBytes(), segmentSize));
+                out.add(new DatagramPacket(segment, recipient, sender));
+            }
+        } finally {
+            packet.release();
+        }
+    }
+
     private boolean read(EpollRecvByteAllocatorHandle allocHandle, ByteBuf byteBuf, int maxDatagramPacketSize)
             throws IOException {
         try {
@@ -35,6 +35,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private boolean activeOnOpen;
     private volatile int maxDatagramSize;
+    private volatile int maxDatagramsPerRead;
+    private volatile boolean gro;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -51,7 +53,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
                 EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.IP_RECVORIGDSTADDR, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE);
+                EpollChannelOption.IP_RECVORIGDSTADDR, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE,
+                EpollChannelOption.MAX_DATAGRAMS_PER_READ, EpollChannelOption.UDP_SEGMENT, EpollChannelOption.UDP_GRO);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -102,6 +105,15 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
             return (T) Integer.valueOf(getMaxDatagramPayloadSize());
         }
+        if (option == EpollChannelOption.MAX_DATAGRAMS_PER_READ) {
+            return (T) Integer.valueOf(getMaxDatagramsPerRead());
+        }
+        if (option == EpollChannelOption.UDP_SEGMENT) {
+            return (T) Integer.valueOf(getUdpSegment());
+        }
+        if (option == EpollChannelOption.UDP_GRO) {
+            return (T) Boolean.valueOf(isUdpGro());
+        }
         return super.getOption(option);
     }
 
@@ -140,6 +152,12 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setIpRecvOrigDestAddr((Boolean) value);
         } else if (option == EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE) {
             setMaxDatagramPayloadSize((Integer) value);
+        } else if (option == EpollChannelOption.MAX_DATAGRAMS_PER_READ) {
+            setMaxDatagramsPerRead((Integer) value);
+        } else if (option == EpollChannelOption.UDP_SEGMENT) {
+            setUdpSegment((Integer) value);
+        } else if (option == EpollChannelOption.UDP_GRO) {
+            setUdpGro((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -526,4 +544,78 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     public int getMaxDatagramPayloadSize() {
         return maxDatagramSize;
     }
+
+    /**
+     * Set the maximum number of {@link io.netty.channel.socket.DatagramPacket}s that are read with one
+     * {@code recvmmsg} call. This is only used if {@link #setMaxDatagramPayloadSize(int)} was set to a value bigger
+     * than {@code 0}, in which case each {@link ByteBuf} returned by the used {@link RecvByteBufAllocator} is sliced
+     * into at most this many datagrams. Use {@code 0} to fill the whole buffer (up to {@code UIO_MAX_IOV} datagrams),
+     * which is also the default.
+     */
+    public EpollDatagramChannelConfig setMaxDatagramsPerRead(int maxDatagramsPerRead) {
+        this.maxDatagramsPerRead = ObjectUtil.checkPositiveOrZero(maxDatagramsPerRead, "maxDatagramsPerRead");
+        return this;
+    }
+
+    /**
+     * Get the maximum number of {@link io.netty.channel.socket.DatagramPacket}s that are read with one
+     * {@code recvmmsg} call, {@code 0} if only limited by the size of the buffer.
+     */
+    public int getMaxDatagramsPerRead() {
+        return maxDatagramsPerRead;
+    }
+
+    /**
+     * Returns the segment size which is used via <a href="https://lwn.net/Articles/752184/">UDP_SEGMENT</a> for all
+     * datagrams written by this channel, {@code 0} if disabled.
+     */
+    public int getUdpSegment() {
+        try {
+            return ((EpollDatagramChannel) channel).socket.getUdpSegment();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Set the segment size which is used via <a href="https://lwn.net/Articles/752184/">UDP_SEGMENT</a> for all
+     * datagrams written by this channel. The kernel (or the NIC if it supports it) will split every written
+     * datagram which is bigger than the segment size into multiple datagrams of this size, use {@code 0} to disable
+     * it. A {@link SegmentedDatagramPacket} can be used to specify the segment size per datagram instead.
+     */
+    public EpollDatagramChannelConfig setUdpSegment(int segmentSize) {
+        ObjectUtil.checkPositiveOrZero(segmentSize, "segmentSize");
+        try {
+            ((EpollDatagramChannel) channel).socket.setUdpSegment(segmentSize);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if <a href="https://lwn.net/Articles/768995/">UDP_GRO</a> is enabled, {@code false}
+     * otherwise.
+     */
+    public boolean isUdpGro() {
+        return gro;
+    }
+
+    /**
+     * If {@code true} is used <a href="https://lwn.net/Articles/768995/">UDP_GRO</a> is enabled, {@code false} for
+     * disable it. Default is disabled. When enabled the kernel may coalesce multiple received datagrams of the same
+     * flow into one buffer, these are split again into {@link io.netty.channel.socket.DatagramPacket}s which share
+     * the received buffer before they are passed through the pipeline. The used {@link RecvByteBufAllocator} must
+     * provide buffers which are big enough to hold the coalesced datagrams (up to 64kb) as these are truncated
+     * otherwise.
+     */
+    public EpollDatagramChannelConfig setUdpGro(boolean gro) {
+        try {
+            ((EpollDatagramChannel) channel).socket.setUdpGro(gro);
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+        this.gro = gro;
+        return this;
+    }
 }
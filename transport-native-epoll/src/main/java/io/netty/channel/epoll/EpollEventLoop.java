@@ -33,6 +33,7 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
@@ -42,7 +43,7 @@ import static java.lang.Math.min;
 /**
  * {@link EventLoop} which uses epoll under the covers. Only works on Linux!
  */
-class EpollEventLoop extends SingleThreadEventLoop {
+public class EpollEventLoop extends SingleThreadEventLoop {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollEventLoop.class);
 
     static {
@@ -55,6 +56,9 @@ class EpollEventLoop extends SingleThreadEventLoop {
     private final FileDescriptor eventFd;
     private final FileDescriptor timerFd;
     private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
+    // Duplicates of the sockets of closed channels, which are kept open until the kernel completed their
+    // MSG_ZEROCOPY sends.
+    private final IntObjectMap<ZeroCopyTracker> zeroCopyReapers = new IntObjectHashMap<ZeroCopyTracker>();
     private final boolean allowGrowing;
     private final EpollEventArray events;
 
@@ -81,6 +85,10 @@ class EpollEventLoop extends SingleThreadEventLoop {
     private boolean pendingWakeup;
     private volatile int ioRatio = 50;
 
+    // Only written by the EventLoop thread.
+    private volatile long busyPollHits;
+    private volatile long busyPollMisses;
+
     // See http://man7.org/linux/man-pages/man2/timerfd_create.2.html.
     private static final long MAX_SCHEDULED_TIMERFD_NS = 999999999;
 
@@ -184,6 +192,7 @@ class EpollEventLoop extends SingleThreadEventLoop {
         if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd.intValue(), 1L);
+            recordWakeup();
         }
     }
 
@@ -221,6 +230,44 @@ class EpollEventLoop extends SingleThreadEventLoop {
         Native.epollCtlMod(epollFd.intValue(), ch.socket.intValue(), ch.flags);
     }
 
+    /**
+     * Register the duplicate of the socket of a closed {@link AbstractEpollStreamChannel}, it is closed once all
+     * outstanding {@code MSG_ZEROCOPY} sends of the given {@link ZeroCopyTracker} were completed.
+     */
+    void addZeroCopyReaper(LinuxSocket socket, ZeroCopyTracker tracker) throws IOException {
+        assert inEventLoop();
+        int fd = socket.intValue();
+        // EPOLLERR is always reported. Use edge-triggered mode so the EPOLLHUP of the shut down socket is only
+        // reported once.
+        Native.epollCtlAdd(epollFd.intValue(), fd, Native.EPOLLET);
+        tracker.closedSocket(socket);
+        zeroCopyReapers.put(fd, tracker);
+    }
+
+    private void processZeroCopyCompletions(int fd, ZeroCopyTracker tracker) {
+        LinuxSocket socket = tracker.closedSocket();
+        try {
+            tracker.processCompletions(socket);
+            if (!tracker.isEmpty()) {
+                return;
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to read MSG_ZEROCOPY completions of a closed channel.", e);
+            tracker.releaseAll(e);
+        }
+        closeZeroCopyReaper(fd, socket);
+    }
+
+    private void closeZeroCopyReaper(int fd, LinuxSocket socket) {
+        zeroCopyReapers.remove(fd);
+        try {
+            // This also removes the fd from the epoll set.
+            socket.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close a socket.", e);
+        }
+    }
+
     /**
      * Deregister the given epoll from this {@link EventLoop}.
      */
@@ -276,6 +323,22 @@ class EpollEventLoop extends SingleThreadEventLoop {
         return channels.size();
     }
 
+    /**
+     * Returns the number of busy polls that returned ready events. Busy polling is used if the {@link SelectStrategy}
+     * returns {@link SelectStrategy#BUSY_WAIT}.
+     */
+    public long busyPollHits() {
+        return busyPollHits;
+    }
+
+    /**
+     * Returns the number of busy polls that did not return any ready events. Busy polling is used if the
+     * {@link SelectStrategy} returns {@link SelectStrategy#BUSY_WAIT}.
+     */
+    public long busyPollMisses() {
+        return busyPollMisses;
+    }
+
     private int epollWait(long deadlineNanos) throws IOException {
         if (deadlineNanos == NONE) {
             return Native.epollWait(epollFd, events, timerFd, Integer.MAX_VALUE, 0); // disarm timer
@@ -308,6 +371,8 @@ class EpollEventLoop extends SingleThreadEventLoop {
         long prevDeadlineNanos = NONE;
         for (;;) {
             try {
+                final boolean recordMetrics = metrics() != null;
+                final long iterationStartTime = recordMetrics ? System.nanoTime() : 0;
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
@@ -315,6 +380,11 @@ class EpollEventLoop extends SingleThreadEventLoop {
 
                     case SelectStrategy.BUSY_WAIT:
                         strategy = epollBusyWait();
+                        if (strategy > 0) {
+                            busyPollHits++;
+                        } else {
+                            busyPollMisses++;
+                        }
                         break;
 
                     case SelectStrategy.SELECT:
@@ -362,6 +432,8 @@ class EpollEventLoop extends SingleThreadEventLoop {
                     default:
                 }
 
+                final long selectEndTime = recordMetrics ? System.nanoTime() : 0;
+                long ioEndTime = selectEndTime;
                 final int ioRatio = this.ioRatio;
                 if (ioRatio == 100) {
                     try {
@@ -369,6 +441,9 @@ class EpollEventLoop extends SingleThreadEventLoop {
                             prevDeadlineNanos = NONE;
                         }
                     } finally {
+                        if (recordMetrics) {
+                            ioEndTime = System.nanoTime();
+                        }
                         // Ensure we always run tasks.
                         runAllTasks();
                     }
@@ -381,11 +456,15 @@ class EpollEventLoop extends SingleThreadEventLoop {
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
+                        ioEndTime = ioStartTime + ioTime;
                         runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 } else {
                     runAllTasks(0); // This will run the minimum number of tasks
                 }
+                if (recordMetrics) {
+                    recordIteration(iterationStartTime, selectEndTime, ioEndTime);
+                }
                 if (allowGrowing && strategy == events.length()) {
                     //increase the size of the array as we needed the whole space for the events
                     events.increase();
@@ -482,6 +561,11 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         unsafe.epollRdHupReady();
                     }
                 } else {
+                    ZeroCopyTracker tracker = zeroCopyReapers.get(fd);
+                    if (tracker != null) {
+                        processZeroCopyCompletions(fd, tracker);
+                        continue;
+                    }
                     // We received an event for an fd which we not use anymore. Remove it from the epoll_event set.
                     try {
                         Native.epollCtlDel(epollFd.intValue(), fd);
@@ -500,6 +584,19 @@ class EpollEventLoop extends SingleThreadEventLoop {
     @Override
     protected void cleanup() {
         try {
+            // The completions can not be read anymore once the EventLoop is gone, so release the buffers.
+            ZeroCopyTracker[] trackers = zeroCopyReapers.values().toArray(new ZeroCopyTracker[0]);
+            for (ZeroCopyTracker tracker : trackers) {
+                LinuxSocket socket = tracker.closedSocket();
+                try {
+                    tracker.processCompletions(socket);
+                } catch (IOException ignore) {
+                    // Release what is left below.
+                }
+                tracker.releaseAll(new ClosedChannelException());
+                closeZeroCopyReaper(socket.intValue(), socket);
+            }
+
             // Ensure any in-flight wakeup writes have been performed prior to closing eventFd.
             while (pendingWakeup) {
                 try {
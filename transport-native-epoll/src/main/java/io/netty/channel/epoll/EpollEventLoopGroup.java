@@ -15,16 +15,26 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultSelectStrategyFactory;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.EventLoopTaskQueueFactory;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.channel.SelectStrategyFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -38,6 +48,13 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         Epoll.ensureAvailability();
     }
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollEventLoopGroup.class);
+
+    private final ConcurrentMap<Integer, EventLoop> napiEventLoops = PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<Integer, EventLoop> cpuEventLoops = PlatformDependent.newConcurrentHashMap();
+    private volatile boolean napiAffinity;
+    private volatile boolean incomingCpuAffinity;
+
     /**
      * Create a new instance using the default number of threads and the default {@link ThreadFactory}.
      */
@@ -144,6 +161,144 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    /**
+     * Returns {@code true} if {@link EpollSocketChannel}s are registered to the {@link EventLoop} which handles the
+     * NIC RX queue they receive their packets from.
+     */
+    public boolean isNapiAffinity() {
+        return napiAffinity;
+    }
+
+    /**
+     * Set if {@link EpollSocketChannel}s should be registered to the {@link EventLoop} which handles the NIC RX queue
+     * they receive their packets from (see {@link EpollSocketChannel#incomingNapiId()}). The first
+     * {@link EventLoop} that is picked for a queue will be used for all following {@link EpollSocketChannel}s of the
+     * same queue. {@link Channel}s for which the queue is not known are registered as usual.
+     * <p>
+     * When used together with {@link EpollChannelOption#SO_BUSY_POLL}, {@link EpollChannelOption#SO_PREFER_BUSY_POLL}
+     * and a {@link SelectStrategyFactory} that busy waits, each {@link EventLoop} polls the queues it owns and not
+     * the ones of other {@link EventLoop}s. Use {@link EpollEventLoop#busyPollHits()} and
+     * {@link EpollEventLoop#busyPollMisses()} to tune it.
+     */
+    public void setNapiAffinity(boolean napiAffinity) {
+        this.napiAffinity = napiAffinity;
+    }
+
+    /**
+     * Pins the thread of each {@link EventLoop} of this group to a CPU, the n-th {@link EventLoop} is pinned to
+     * {@code cpus[n % cpus.length]}. The pinning is done by a task that is executed by each {@link EventLoop}, so this
+     * should be called before any {@link Channel} is registered.
+     *
+     * @see #setIncomingCpuAffinity(boolean)
+     */
+    public void setCpuAffinity(int... cpus) {
+        ObjectUtil.checkNotNull(cpus, "cpus");
+        if (cpus.length == 0) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+        int i = 0;
+        for (EventExecutor executor : this) {
+            final int cpu = ObjectUtil.checkPositiveOrZero(cpus[i++ % cpus.length], "cpu");
+            final EventLoop loop = (EventLoop) executor;
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Native.setCpuAffinity(cpu);
+                    } catch (IOException e) {
+                        logger.warn("Unable to pin {} to CPU {}", Thread.currentThread(), cpu, e);
+                    }
+                }
+            });
+            cpuEventLoops.putIfAbsent(cpu, loop);
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link EpollSocketChannel}s are registered to the {@link EventLoop} which is pinned to
+     * the CPU that processes their packets.
+     */
+    public boolean isIncomingCpuAffinity() {
+        return incomingCpuAffinity;
+    }
+
+    /**
+     * Set if {@link EpollSocketChannel}s should be registered to the {@link EventLoop} which was pinned via
+     * {@link #setCpuAffinity(int...)} to the CPU that processes their packets (see
+     * {@link EpollSocketChannel#incomingCpu()}). This is mostly useful for the child group of a server, as the CPU of
+     * an accepted {@link Channel} is known directly. It avoids that the packets of a {@link Channel} are processed by
+     * the kernel on a different CPU than the one the {@link EventLoop} runs on. {@link Channel}s whose CPU is not
+     * known or has no pinned {@link EventLoop} are registered as if this was not enabled.
+     * <p>
+     * This takes precedence over {@link #setNapiAffinity(boolean)}.
+     */
+    public void setIncomingCpuAffinity(boolean incomingCpuAffinity) {
+        this.incomingCpuAffinity = incomingCpuAffinity;
+    }
+
+    @Override
+    public ChannelFuture register(Channel channel) {
+        return eventLoopFor(channel).register(channel);
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return eventLoopFor(promise.channel()).register(promise);
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        return eventLoopFor(channel).register(channel, promise);
+    }
+
+    private EventLoop eventLoopFor(Channel channel) {
+        if (!(channel instanceof EpollSocketChannel) || !(napiAffinity || incomingCpuAffinity)) {
+            return next();
+        }
+        LinuxSocket socket = ((EpollSocketChannel) channel).socket;
+        if (incomingCpuAffinity) {
+            try {
+                EventLoop loop = cpuEventLoops.get(socket.getSoIncomingCpu());
+                if (loop != null) {
+                    return loop;
+                }
+            } catch (IOException e) {
+                // Not supported by the kernel, try the next option.
+            }
+        }
+        if (!napiAffinity) {
+            return next();
+        }
+        int napiId;
+        try {
+            napiId = socket.getSoIncomingNapiId();
+        } catch (IOException e) {
+            // Not supported by the kernel or the socket is not connected yet.
+            return next();
+        }
+        if (napiId <= 0) {
+            return next();
+        }
+        return napiEventLoop(napiId);
+    }
+
+    /**
+     * Returns the {@link EventLoop} for the NIC RX queue with the given NAPI id. The first call for a queue picks
+     * the {@link EventLoop} via {@link #next()}.
+     */
+    EventLoop napiEventLoop(int napiId) {
+        EventLoop loop = napiEventLoops.get(napiId);
+        if (loop == null) {
+            loop = next();
+            EventLoop old = napiEventLoops.putIfAbsent(napiId, loop);
+            if (old != null) {
+                loop = old;
+            }
+        }
+        return loop;
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
         EventLoopTaskQueueFactory queueFactory = args.length == 4 ? (EventLoopTaskQueueFactory) args[3] : null;
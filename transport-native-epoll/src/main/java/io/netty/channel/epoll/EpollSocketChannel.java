@@ -17,6 +17,9 @@ package io.netty.channel.epoll;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.socket.KernelTlsCloseNotify;
+import io.netty.channel.socket.KernelTlsTxOffload;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -30,6 +33,7 @@ import java.util.Map;
 import java.util.concurrent.Executor;
 
 import static io.netty.channel.epoll.LinuxSocket.newSocketStream;
+import static io.netty.channel.internal.ChannelUtils.WRITE_STATUS_SNDBUF_FULL;
 
 /**
  * {@link SocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
@@ -37,10 +41,17 @@ import static io.netty.channel.epoll.LinuxSocket.newSocketStream;
  */
 public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel {
 
+    // See https://tools.ietf.org/html/rfc5246#section-7.2
+    private static final byte TLS_ALERT_LEVEL_WARNING = 1;
+    private static final byte TLS_ALERT_CLOSE_NOTIFY = 0;
+
     private final EpollSocketChannelConfig config;
 
     private volatile Collection<InetAddress> tcpMd5SigAddresses = Collections.emptyList();
 
+    // Only accessed from the EventLoop.
+    private boolean kernelTlsTx;
+
     public EpollSocketChannel() {
         super(newSocketStream(), false);
         config = new EpollSocketChannelConfig(this);
@@ -85,6 +96,30 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    /**
+     * Returns the id of the NAPI instance (NIC RX queue) which received the last packet of this socket
+     * ({@code SO_INCOMING_NAPI_ID}) or {@code 0} if it is not known.
+     */
+    public int incomingNapiId() {
+        try {
+            return socket.getSoIncomingNapiId();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the CPU which processed the last packet of this socket ({@code SO_INCOMING_CPU}) or {@code -1} if it is
+     * not known.
+     */
+    public int incomingCpu() {
+        try {
+            return socket.getSoIncomingCpu();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
@@ -95,6 +130,51 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         return (InetSocketAddress) super.localAddress();
     }
 
+    @Override
+    int zeroCopyThreshold() {
+        // MSG_ZEROCOPY is not supported by the kernel TLS implementation.
+        return config.isZeroCopy() && !kernelTlsTx ? config.getZeroCopyThreshold() : -1;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof KernelTlsTxOffload || msg instanceof KernelTlsCloseNotify) {
+            return msg;
+        }
+        return super.filterOutboundMessage(msg);
+    }
+
+    @Override
+    protected int doWriteSingle(ChannelOutboundBuffer in) throws Exception {
+        Object msg = in.current();
+        if (msg instanceof KernelTlsTxOffload) {
+            // Everything that was written before was removed from the ChannelOutboundBuffer already and so is
+            // written to the socket, which means it is safe to switch the socket to kernel TLS now.
+            try {
+                socket.setTlsTx((KernelTlsTxOffload) msg);
+                kernelTlsTx = true;
+                in.remove();
+            } catch (IOException e) {
+                // Just fail the write and not close the Channel so the caller can fall back to encrypt the data
+                // itself.
+                in.remove(e);
+            }
+            return 0;
+        }
+        if (msg instanceof KernelTlsCloseNotify) {
+            if (!kernelTlsTx) {
+                in.remove(new IOException("TLS records are not encrypted by the kernel"));
+                return 0;
+            }
+            if (socket.sendTlsAlert(TLS_ALERT_LEVEL_WARNING, TLS_ALERT_CLOSE_NOTIFY) == 0) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+            in.remove();
+            return 1;
+        }
+        return super.doWriteSingle(in);
+    }
+
     @Override
     public EpollSocketChannelConfig config() {
         return config;
@@ -22,6 +22,7 @@ import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 
 import java.io.IOException;
@@ -38,7 +39,11 @@ import static io.netty.channel.ChannelOption.SO_SNDBUF;
 import static io.netty.channel.ChannelOption.TCP_NODELAY;
 
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
+    private static final int DEFAULT_ZEROCOPY_THRESHOLD = 10 * 1024;
+
     private volatile boolean allowHalfClosure;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = DEFAULT_ZEROCOPY_THRESHOLD;
 
     /**
      * Creates a new instance.
@@ -60,7 +65,9 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
                 EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL);
+                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.SO_PREFER_BUSY_POLL, EpollChannelOption.SO_ZEROCOPY,
+                EpollChannelOption.ZEROCOPY_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -120,6 +127,15 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.SO_BUSY_POLL) {
             return (T) Integer.valueOf(getSoBusyPoll());
         }
+        if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            return (T) Boolean.valueOf(isSoPreferBusyPoll());
+        }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
@@ -167,6 +183,12 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpFastOpenConnect((Boolean) value);
         } else if (option == EpollChannelOption.SO_BUSY_POLL) {
             setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.SO_PREFER_BUSY_POLL) {
+            setSoPreferBusyPoll((Boolean) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -259,6 +281,17 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Get the {@code SO_PREFER_BUSY_POLL} option on the socket. See {@code man 7 socket} for more details.
+     */
+    public boolean isSoPreferBusyPoll() {
+        try {
+            return ((EpollSocketChannel) channel).socket.isSoPreferBusyPoll();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     /**
      * Get the {@code TCP_NOTSENT_LOWAT} option on the socket. See {@code man 7 tcp} for more details.
      * @return value is a uint32_t
@@ -406,6 +439,62 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Set the {@code SO_PREFER_BUSY_POLL} option on the socket, which prefers busy polling over softirq processing
+     * of the NIC RX queue when {@code SO_BUSY_POLL} is used. Requires linux 5.11 or newer.
+     * See {@code man 7 socket} for more details.
+     */
+    public EpollSocketChannelConfig setSoPreferBusyPoll(boolean preferBusyPoll) {
+        try {
+            ((EpollSocketChannel) channel).socket.setSoPreferBusyPoll(preferBusyPoll);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">
+     * MSG_ZEROCOPY</a> is used for writes that are at least {@link #getZeroCopyThreshold()} bytes big.
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Set the {@code SO_ZEROCOPY} option on the socket and use
+     * <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">MSG_ZEROCOPY</a> for writes that
+     * are at least {@link #getZeroCopyThreshold()} bytes big. Buffers written this way are only released and their
+     * {@link io.netty.channel.ChannelPromise}s only notified once the kernel signals that it no longer uses the
+     * memory. Default is disabled.
+     */
+    public EpollSocketChannelConfig setZeroCopy(boolean zeroCopy) {
+        try {
+            ((EpollSocketChannel) channel).socket.setZeroCopy(zeroCopy);
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+        this.zeroCopy = zeroCopy;
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of bytes a write must have to be done via {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Set the minimum number of bytes a write must have to be done via {@code MSG_ZEROCOPY} if
+     * {@link #setZeroCopy(boolean)} is enabled. Smaller writes are copied into the kernel as pinning the pages and
+     * processing the completion notification is more expensive than the copy for these. Default is {@code 10240}.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = ObjectUtil.checkPositiveOrZero(zeroCopyThreshold, "zeroCopyThreshold");
+        return this;
+    }
+
     /**
      * Set the {@code TCP_NOTSENT_LOWAT} option on the socket. See {@code man 7 tcp} for more details.
      * @param tcpNotSentLowAt is a uint32_t
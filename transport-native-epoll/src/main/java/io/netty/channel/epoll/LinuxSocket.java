@@ -21,6 +21,7 @@ import io.netty.channel.unix.NativeInetAddress;
 import io.netty.channel.unix.PeerCredentials;
 import io.netty.channel.unix.Socket;
 import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.channel.socket.KernelTlsTxOffload;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SocketUtils;
 
@@ -32,6 +33,7 @@ import java.net.UnknownHostException;
 import java.util.Enumeration;
 
 import static io.netty.channel.unix.Errors.ioResult;
+import static io.netty.channel.unix.Errors.newIOException;
 
 /**
  * A socket which provides access Linux native methods.
@@ -40,6 +42,9 @@ final class LinuxSocket extends Socket {
     static final InetAddress INET6_ANY = unsafeInetAddrByName("::");
     private static final InetAddress INET_ANY = unsafeInetAddrByName("0.0.0.0");
     private static final long MAX_UINT32_T = 0xFFFFFFFFL;
+    // See https://github.com/torvalds/linux/blob/v5.9/include/uapi/linux/tls.h
+    private static final int TLS_CIPHER_AES_GCM_128 = 51;
+    private static final int TLS_CIPHER_AES_GCM_256 = 52;
 
     LinuxSocket(int fd) {
         super(fd);
@@ -168,6 +173,10 @@ final class LinuxSocket extends Socket {
         setSoBusyPoll(intValue(), loopMicros);
     }
 
+    void setSoPreferBusyPoll(boolean preferBusyPoll) throws IOException {
+        setSoPreferBusyPoll(intValue(), preferBusyPoll ? 1 : 0);
+    }
+
     void setTcpNotSentLowAt(long tcpNotSentLowAt) throws IOException {
         if (tcpNotSentLowAt < 0 || tcpNotSentLowAt > MAX_UINT32_T) {
             throw new IllegalArgumentException("tcpNotSentLowAt must be a uint32_t");
@@ -215,6 +224,46 @@ final class LinuxSocket extends Socket {
         setIpRecvOrigDestAddr(intValue(), enabled ? 1 : 0);
     }
 
+    void setUdpSegment(int segmentSize) throws IOException {
+        setUdpSegment(intValue(), segmentSize);
+    }
+
+    void setUdpGro(boolean enabled) throws IOException {
+        setUdpGro(intValue(), enabled ? 1 : 0);
+    }
+
+    void setZeroCopy(boolean enabled) throws IOException {
+        setZeroCopy(intValue(), enabled ? 1 : 0);
+    }
+
+    void setTlsTx(KernelTlsTxOffload offload) throws IOException {
+        final int cipherType;
+        switch (offload.cipher()) {
+            case AES_128_GCM:
+                cipherType = TLS_CIPHER_AES_GCM_128;
+                break;
+            case AES_256_GCM:
+                cipherType = TLS_CIPHER_AES_GCM_256;
+                break;
+            default:
+                throw new IOException("unsupported cipher: " + offload.cipher());
+        }
+        setTlsTx(intValue(), offload.version(), cipherType, offload.key(), offload.salt(), offload.iv(),
+                offload.recordSequence());
+    }
+
+    /**
+     * Send a TLS alert record, which is encrypted by the kernel as {@link #setTlsTx(KernelTlsTxOffload)} was called
+     * before. Returns the number of written bytes, which is {@code 0} if the socket buffer is full.
+     */
+    int sendTlsAlert(byte level, byte description) throws IOException {
+        int res = sendTlsAlert(intValue(), level, description);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("sendTlsAlert", res);
+    }
+
     int getTimeToLive() throws IOException {
         return getTimeToLive(intValue());
     }
@@ -236,6 +285,18 @@ final class LinuxSocket extends Socket {
         return getSoBusyPoll(intValue());
     }
 
+    boolean isSoPreferBusyPoll() throws IOException  {
+        return isSoPreferBusyPoll(intValue()) != 0;
+    }
+
+    int getSoIncomingNapiId() throws IOException  {
+        return getSoIncomingNapiId(intValue());
+    }
+
+    int getSoIncomingCpu() throws IOException  {
+        return getSoIncomingCpu(intValue());
+    }
+
     int getTcpDeferAccept() throws IOException {
         return getTcpDeferAccept(intValue());
     }
@@ -276,6 +337,76 @@ final class LinuxSocket extends Socket {
         return isIpRecvOrigDestAddr(intValue()) != 0;
     }
 
+    int getUdpSegment() throws IOException {
+        return getUdpSegment(intValue());
+    }
+
+    boolean isUdpGro() throws IOException {
+        return isUdpGro(intValue()) != 0;
+    }
+
+    boolean isZeroCopy() throws IOException {
+        return isZeroCopy(intValue()) != 0;
+    }
+
+    /**
+     * Write the given memory via {@code MSG_ZEROCOPY}. Returns the number of written bytes or {@code -1} if the
+     * kernel was not able to pin the memory ({@code ENOBUFS}), in which case the caller should fall back to a
+     * normal write.
+     */
+    int sendAddressZeroCopy(long address, int pos, int limit) throws IOException {
+        int res = sendAddressZeroCopy(intValue(), address, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("sendAddressZeroCopy", res);
+    }
+
+    /**
+     * Write the given {@code struct iovec} array via {@code MSG_ZEROCOPY}. Returns the number of written bytes or
+     * {@code -1} if the kernel was not able to pin the memory ({@code ENOBUFS}), in which case the caller should fall
+     * back to a normal write.
+     */
+    long writevAddressesZeroCopy(long memoryAddress, int length) throws IOException {
+        long res = writevAddressesZeroCopy(intValue(), memoryAddress, length);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("writevAddressesZeroCopy", (int) res);
+    }
+
+    /**
+     * Read the {@code MSG_ZEROCOPY} completion notifications from the error queue and store the completed id ranges
+     * as {@code [lo, hi]} pairs into the given array. Returns the number of ranges that were stored.
+     */
+    int recvZeroCopyCompletions(int[] ranges) throws IOException {
+        int res = recvZeroCopyCompletions(intValue(), ranges);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvZeroCopyCompletions", res);
+    }
+
+    /**
+     * Returns a {@link LinuxSocket} for a duplicate of the file descriptor, which keeps the socket open after this
+     * one was closed.
+     */
+    LinuxSocket dup() throws IOException {
+        int res = dup(intValue());
+        if (res < 0) {
+            throw newIOException("dup", res);
+        }
+        return new LinuxSocket(res);
+    }
+        return ioResult("waitZeroCopyCompletions", res) != 0;
+    }
+
     PeerCredentials getPeerCredentials() throws IOException {
         return getPeerCredentials(intValue());
     }
@@ -358,6 +489,9 @@ final class LinuxSocket extends Socket {
     private static native int isTcpQuickAck(int fd) throws IOException;
     private static native int isTcpCork(int fd) throws IOException;
     private static native int getSoBusyPoll(int fd) throws IOException;
+    private static native int isSoPreferBusyPoll(int fd) throws IOException;
+    private static native int getSoIncomingNapiId(int fd) throws IOException;
+    private static native int getSoIncomingCpu(int fd) throws IOException;
     private static native int getTcpNotSentLowAt(int fd) throws IOException;
     private static native int getTcpKeepIdle(int fd) throws IOException;
     private static native int getTcpKeepIntvl(int fd) throws IOException;
@@ -367,6 +501,13 @@ final class LinuxSocket extends Socket {
     private static native int isIpFreeBind(int fd) throws IOException;
     private static native int isIpTransparent(int fd) throws IOException;
     private static native int isIpRecvOrigDestAddr(int fd) throws IOException;
+    private static native int getUdpSegment(int fd) throws IOException;
+    private static native int isUdpGro(int fd) throws IOException;
+    private static native int isZeroCopy(int fd) throws IOException;
+    private static native int sendAddressZeroCopy(int fd, long address, int pos, int limit);
+    private static native long writevAddressesZeroCopy(int fd, long memoryAddress, int length);
+    private static native int recvZeroCopyCompletions(int fd, int[] ranges);
+    private static native int dup(int fd);
     private static native void getTcpInfo(int fd, long[] array) throws IOException;
     private static native PeerCredentials getPeerCredentials(int fd) throws IOException;
     private static native int isTcpFastOpenConnect(int fd) throws IOException;
@@ -375,6 +516,7 @@ final class LinuxSocket extends Socket {
     private static native void setTcpQuickAck(int fd, int quickAck) throws IOException;
     private static native void setTcpCork(int fd, int tcpCork) throws IOException;
     private static native void setSoBusyPoll(int fd, int loopMicros) throws IOException;
+    private static native void setSoPreferBusyPoll(int fd, int preferBusyPoll) throws IOException;
     private static native void setTcpNotSentLowAt(int fd, int tcpNotSentLowAt) throws IOException;
     private static native void setTcpFastOpen(int fd, int tcpFastopenBacklog) throws IOException;
     private static native void setTcpFastOpenConnect(int fd, int tcpFastOpenConnect) throws IOException;
@@ -385,6 +527,12 @@ final class LinuxSocket extends Socket {
     private static native void setIpFreeBind(int fd, int freeBind) throws IOException;
     private static native void setIpTransparent(int fd, int transparent) throws IOException;
     private static native void setIpRecvOrigDestAddr(int fd, int transparent) throws IOException;
+    private static native void setUdpSegment(int fd, int segmentSize) throws IOException;
+    private static native void setUdpGro(int fd, int gro) throws IOException;
+    private static native void setZeroCopy(int fd, int zeroCopy) throws IOException;
+    private static native void setTlsTx(int fd, int version, int cipherType, byte[] key, byte[] salt, byte[] iv,
+                                        byte[] recSeq) throws IOException;
+    private static native int sendTlsAlert(int fd, byte level, byte description);
     private static native void setTcpMd5Sig(
             int fd, boolean ipv6, byte[] address, int scopeId, byte[] key) throws IOException;
     private static native void setInterface(
@@ -55,10 +55,10 @@ final class NativeDatagramPacketArray {
     }
 
     boolean addWritable(ByteBuf buf, int index, int len) {
-        return add0(buf, index, len, null);
+        return add0(buf, index, len, 0, null);
     }
 
-    private boolean add0(ByteBuf buf, int index, int len, InetSocketAddress recipient) {
+    private boolean add0(ByteBuf buf, int index, int len, int segmentSize, InetSocketAddress recipient) {
         if (count == packets.length) {
             // We already filled up to UIO_MAX_IOV messages. This is the max allowed per
             // recvmmsg(...) / sendmmsg(...) call, we will try again later.
@@ -73,7 +73,7 @@ final class NativeDatagramPacketArray {
             return false;
         }
         NativeDatagramPacket p = packets[count];
-        p.init(iovArray.memoryAddress(offset), iovArray.count() - offset, recipient);
+        p.init(iovArray.memoryAddress(offset), iovArray.count() - offset, segmentSize, recipient);
 
         count++;
         return true;
@@ -115,11 +115,20 @@ final class NativeDatagramPacketArray {
             if (msg instanceof DatagramPacket) {
                 DatagramPacket packet = (DatagramPacket) msg;
                 ByteBuf buf = packet.content();
-                return add0(buf, buf.readerIndex(), buf.readableBytes(), packet.recipient());
+                int segmentSize = 0;
+                if (packet instanceof SegmentedDatagramPacket) {
+                    int seg = ((SegmentedDatagramPacket) packet).segmentSize();
+                    // We only need to tell the kernel that it need to split the packet if the segment size is
+                    // smaller then the actual packet content.
+                    if (buf.readableBytes() > seg) {
+                        segmentSize = seg;
+                    }
+                }
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), segmentSize, packet.recipient());
             }
             if (msg instanceof ByteBuf && connected) {
                 ByteBuf buf = (ByteBuf) msg;
-                return add0(buf, buf.readerIndex(), buf.readableBytes(), null);
+                return add0(buf, buf.readerIndex(), buf.readableBytes(), 0, null);
             }
             return false;
         }
@@ -140,10 +149,13 @@ final class NativeDatagramPacketArray {
         private int addrLen;
         private int scopeId;
         private int port;
+        // The UDP_SEGMENT size to use when writing or the UDP_GRO size that was used by the kernel when reading.
+        private int segmentSize;
 
-        private void init(long memoryAddress, int count, InetSocketAddress recipient) {
+        private void init(long memoryAddress, int count, int segmentSize, InetSocketAddress recipient) {
             this.memoryAddress = memoryAddress;
             this.count = count;
+            this.segmentSize = segmentSize;
 
             if (recipient == null) {
                 this.scopeId = 0;
@@ -163,7 +175,34 @@ final class NativeDatagramPacketArray {
             }
         }
 
+        /**
+         * Returns the size of the datagrams the kernel coalesced into this packet via UDP_GRO, or {@code 0} if no
+         * coalescing took place.
+         */
+        int segmentSize() {
+            return segmentSize;
+        }
+
+        /**
+         * Returns {@code true} if the control messages of this packet did not fit into the buffer when reading
+         * (MSG_CTRUNC), so it is unknown if the kernel coalesced datagrams into it.
+         */
+        boolean isControlTruncated() {
+            return segmentSize < 0;
+        }
+
+        /**
+         * Returns the number of bytes received into this packet.
+         */
+        int count() {
+            return count;
+        }
+
         DatagramPacket newDatagramPacket(ByteBuf buffer, InetSocketAddress localAddress) throws UnknownHostException {
+            return new DatagramPacket(buffer.writerIndex(buffer.readerIndex() + count), localAddress, sender());
+        }
+
+        InetSocketAddress sender() throws UnknownHostException {
             final InetAddress address;
             if (addrLen == ipv4Bytes.length) {
                 System.arraycopy(addr, 0, ipv4Bytes, 0, addrLen);
@@ -171,8 +210,7 @@ final class NativeDatagramPacketArray {
             } else {
                 address = Inet6Address.getByAddress(null, addr, scopeId);
             }
-            return new DatagramPacket(buffer.writerIndex(count),
-                    localAddress, new InetSocketAddress(address, port));
+            return new InetSocketAddress(address, port);
         }
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Allows to use <a href="https://lwn.net/Articles/752184/">GSO</a>
+ * if the underlying OS supports it. Before using this you should ensure your system support it.
+ * <p>
+ * The content is split into multiple datagrams of {@link #segmentSize()} bytes (the last one may be smaller) by the
+ * kernel or the NIC, which is a lot cheaper than writing each of these datagrams on its own.
+ */
+public final class SegmentedDatagramPacket extends DatagramPacket {
+
+    private static final int MAX_SEGMENT_SIZE = 0xFFFF;
+
+    private final int segmentSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the content of all segments.
+     * @param segmentSize   the segment size.
+     * @param recipient     the recipient.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize, InetSocketAddress recipient) {
+        super(data, recipient);
+        this.segmentSize = checkSegmentSize(segmentSize);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param data          the content of all segments.
+     * @param segmentSize   the segment size.
+     * @param recipient     the recipient.
+     * @param sender        the sender.
+     */
+    public SegmentedDatagramPacket(ByteBuf data, int segmentSize,
+                                   InetSocketAddress recipient, InetSocketAddress sender) {
+        super(data, recipient, sender);
+        this.segmentSize = checkSegmentSize(segmentSize);
+    }
+
+    /**
+     * Returns {@code true} if the underlying system supports GSO.
+     */
+    public static boolean isSupported() {
+        return Epoll.isAvailable() &&
+                // We only support it together with sendmmsg(...)
+                Native.IS_SUPPORTING_SENDMMSG && Native.IS_SUPPORTING_UDP_SEGMENT;
+    }
+
+    private static int checkSegmentSize(int segmentSize) {
+        // The kernel only accepts an uint16_t as UDP_SEGMENT size.
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException(
+                    "segmentSize: " + segmentSize + " (expected: 1-" + MAX_SEGMENT_SIZE + ')');
+        }
+        return segmentSize;
+    }
+
+    /**
+     * Return the size of each segment (the last segment can be smaller).
+     *
+     * @return size of segments.
+     */
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public SegmentedDatagramPacket copy() {
+        return new SegmentedDatagramPacket(content().copy(), segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket duplicate() {
+        return new SegmentedDatagramPacket(content().duplicate(), segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retainedDuplicate() {
+        return new SegmentedDatagramPacket(content().retainedDuplicate(), segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket replace(ByteBuf content) {
+        return new SegmentedDatagramPacket(content, segmentSize, recipient(), sender());
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public SegmentedDatagramPacket touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelPromise;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Keeps track of the {@link ByteBuf}s that were written via {@code MSG_ZEROCOPY} and so are still referenced by the
+ * kernel. Each successful {@code MSG_ZEROCOPY} send is assigned the next id of a 32-bit counter by the kernel, which
+ * later signals the completed ids via the error queue of the socket. Once all sends that referenced a buffer are
+ * completed the buffer is released and its {@link ChannelPromise} (if any) notified.
+ *
+ * This class is not thread-safe and must only be used from the {@link EpollEventLoop}.
+ */
+final class ZeroCopyTracker {
+    // Each range takes two slots (lo, hi).
+    private static final int MAX_RANGES_PER_READ = 32;
+
+    private final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<PendingWrite>();
+    private final int[] ranges = new int[MAX_RANGES_PER_READ * 2];
+
+    // Ranges that were completed out of order, stored as (lo, hi) pairs.
+    private int[] outOfOrderRanges = new int[8];
+    private int outOfOrderCount;
+
+    // The id the kernel will assign to the next successful MSG_ZEROCOPY send.
+    private int nextId;
+    // All ids before this one were completed.
+    private int completedId;
+
+    private LinuxSocket closedSocket;
+
+    /**
+     * Returns the id the kernel assigned to the {@code MSG_ZEROCOPY} send that was just done successfully.
+     */
+    int nextId() {
+        return nextId++;
+    }
+
+    /**
+     * Keep the given {@link ByteBuf} until the send with the given id was completed. The {@link ChannelPromise} may
+     * be {@code null} if the buffer is still part of the {@link io.netty.channel.ChannelOutboundBuffer}.
+     */
+    void add(int id, ByteBuf buf, ChannelPromise promise) {
+        pendingWrites.add(new PendingWrite(id, buf, promise));
+    }
+
+    /**
+     * Returns {@code true} if the given message was partially written via {@code MSG_ZEROCOPY} before, in
+     * which case the rest of it must also be written this way.
+     */
+    boolean isPartiallyWritten(Object buf) {
+        PendingWrite last = pendingWrites.peekLast();
+        return last != null && last.buf == buf && last.promise == null;
+    }
+
+    boolean isEmpty() {
+        return pendingWrites.isEmpty();
+    }
+
+    /**
+     * Read all completion notifications from the error queue of the given {@link LinuxSocket} and release the
+     * buffers that are not referenced by the kernel anymore.
+     */
+    void processCompletions(LinuxSocket socket) throws IOException {
+        for (;;) {
+            int count = socket.recvZeroCopyCompletions(ranges);
+            for (int i = 0; i < count; i++) {
+                complete(ranges[i * 2], ranges[i * 2 + 1]);
+            }
+            if (count < MAX_RANGES_PER_READ) {
+                break;
+            }
+        }
+        releaseCompleted();
+    }
+
+    private void complete(int lo, int hi) {
+        if (lo != completedId) {
+            // Notifications may arrive out of order, keep the range until all ids before it were completed.
+            if (outOfOrderCount == outOfOrderRanges.length) {
+                outOfOrderRanges = Arrays.copyOf(outOfOrderRanges, outOfOrderRanges.length << 1);
+            }
+            outOfOrderRanges[outOfOrderCount++] = lo;
+            outOfOrderRanges[outOfOrderCount++] = hi;
+            return;
+        }
+        completedId = hi + 1;
+
+        // Check if any of the out of order ranges can be merged now.
+        boolean merged;
+        do {
+            merged = false;
+            for (int i = 0; i < outOfOrderCount; i += 2) {
+                if (outOfOrderRanges[i] == completedId) {
+                    completedId = outOfOrderRanges[i + 1] + 1;
+                    outOfOrderCount -= 2;
+                    outOfOrderRanges[i] = outOfOrderRanges[outOfOrderCount];
+                    outOfOrderRanges[i + 1] = outOfOrderRanges[outOfOrderCount + 1];
+                    merged = true;
+                    break;
+                }
+            }
+        } while (merged);
+    }
+
+    private void releaseCompleted() {
+        for (;;) {
+            PendingWrite write = pendingWrites.peek();
+            // Use subtraction so we correctly handle the wrap-around of the 32-bit counter.
+            if (write == null || write.id - completedId >= 0) {
+                break;
+            }
+            pendingWrites.poll();
+            write.release();
+        }
+    }
+
+    /**
+     * Hand over the tracking to the given duplicate of the socket of the closed channel. The kernel may still send
+     * from the memory of the outstanding sends after the channel was closed, so the duplicate keeps the socket open
+     * until all completions were read from its error queue.
+     */
+    void closedSocket(LinuxSocket socket) {
+        closedSocket = socket;
+    }
+
+    /**
+     * Returns the socket the completions are read from once the channel was closed.
+     */
+    LinuxSocket closedSocket() {
+        return closedSocket;
+    }
+
+    /**
+     * Release all buffers and fail their {@link ChannelPromise}s with the given cause. This must only be used if the
+     * completion notifications can not be read anymore.
+     */
+    void releaseAll(Throwable cause) {
+        for (;;) {
+            PendingWrite write = pendingWrites.poll();
+            if (write == null) {
+                break;
+            }
+            write.buf.release();
+            if (write.promise != null) {
+                write.promise.tryFailure(cause);
+            }
+        }
+        outOfOrderCount = 0;
+    }
+
+    private static final class PendingWrite {
+        final int id;
+        final ByteBuf buf;
+        final ChannelPromise promise;
+
+        PendingWrite(int id, ByteBuf buf, ChannelPromise promise) {
+            this.id = id;
+            this.buf = buf;
+            this.promise = promise;
+        }
+
+        void release() {
+            buf.release();
+            if (promise != null) {
+                promise.trySuccess();
+            }
+        }
+    }
+}
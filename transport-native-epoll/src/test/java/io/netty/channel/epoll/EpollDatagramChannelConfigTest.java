@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class EpollDatagramChannelConfigTest {
@@ -29,4 +30,14 @@ public class EpollDatagramChannelConfigTest {
         assertTrue(channel.config().getOption(EpollChannelOption.IP_FREEBIND));
         channel.fd().close();
     }
+
+    @Test
+    public void testMaxDatagramsPerRead() throws Exception {
+        Epoll.ensureAvailability();
+        EpollDatagramChannel channel = new EpollDatagramChannel();
+        assertEquals(0, (int) channel.config().getOption(EpollChannelOption.MAX_DATAGRAMS_PER_READ));
+        assertTrue(channel.config().setOption(EpollChannelOption.MAX_DATAGRAMS_PER_READ, 8));
+        assertEquals(8, (int) channel.config().getOption(EpollChannelOption.MAX_DATAGRAMS_PER_READ));
+        channel.fd().close();
+    }
 }
@@ -21,10 +21,13 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.testsuite.transport.TestsuitePermutation;
 import io.netty.testsuite.transport.socket.AbstractDatagramTest;
+import io.netty.util.UncheckedBooleanSupplier;
 import io.netty.util.internal.PlatformDependent;
 import org.junit.Assume;
 import org.junit.BeforeClass;
@@ -33,6 +36,7 @@ import org.junit.Test;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -91,6 +95,107 @@ public class EpollDatagramScatteringReadTest extends AbstractDatagramTest  {
         testScatteringRead(sb, cb, true, false);
     }
 
+    @Test
+    public void testScatteringReadMaxDatagramsPerRead() throws Throwable {
+        run();
+    }
+
+    public void testScatteringReadMaxDatagramsPerRead(Bootstrap sb, Bootstrap cb) throws Throwable {
+        sb.option(EpollChannelOption.MAX_DATAGRAMS_PER_READ, 2);
+        testScatteringRead(sb, cb, false, false);
+    }
+
+    @Test
+    public void testScatteringReadLimitedByMaxDatagramsPerRead() throws Throwable {
+        run();
+    }
+
+    public void testScatteringReadLimitedByMaxDatagramsPerRead(Bootstrap sb, Bootstrap cb) throws Throwable {
+        int packetSize = 512;
+        int numPackets = 8;
+        final int maxDatagramsPerRead = 2;
+        final List<Integer> messagesPerRead = Collections.synchronizedList(new ArrayList<Integer>());
+
+        // The buffer could hold all packets, so without the limit a single recvmmsg call would read all of them.
+        sb.option(ChannelOption.RCVBUF_ALLOCATOR, new RecordingRecvByteBufAllocator(
+                new FixedRecvByteBufAllocator(packetSize * numPackets), messagesPerRead));
+        sb.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, packetSize);
+        sb.option(EpollChannelOption.MAX_DATAGRAMS_PER_READ, maxDatagramsPerRead);
+
+        Channel sc = null;
+        Channel cc = null;
+
+        try {
+            cb.handler(new SimpleChannelInboundHandler<Object>() {
+                @Override
+                public void channelRead0(ChannelHandlerContext ctx, Object msgs) {
+                    // Nothing will be sent.
+                }
+            });
+            cc = cb.bind(newSocketAddress()).sync().channel();
+
+            final AtomicReference<Throwable> errorRef = new AtomicReference<Throwable>();
+            final byte[] bytes = new byte[packetSize];
+            PlatformDependent.threadLocalRandom().nextBytes(bytes);
+
+            final CountDownLatch latch = new CountDownLatch(numPackets);
+            sb.handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                    assertEquals(bytes.length, msg.content().readableBytes());
+                    latch.countDown();
+                }
+
+                @Override
+                public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)  {
+                    errorRef.compareAndSet(null, cause);
+                }
+            });
+
+            sb.option(ChannelOption.AUTO_READ, false);
+            sc = sb.bind(newSocketAddress()).sync().channel();
+
+            InetSocketAddress addr = (InetSocketAddress) sc.localAddress();
+
+            List<ChannelFuture> futures = new ArrayList<ChannelFuture>(numPackets);
+            for (int i = 0; i < numPackets; i++) {
+                futures.add(cc.write(new DatagramPacket(cc.alloc().directBuffer().writeBytes(bytes), addr)));
+            }
+
+            cc.flush();
+
+            for (ChannelFuture f: futures) {
+                f.sync();
+            }
+
+            // All packets are queued in the socket now, so each recvmmsg call could read more than the limit.
+            sc.config().setAutoRead(true);
+
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                Throwable error = errorRef.get();
+                if (error != null) {
+                    throw error;
+                }
+                fail("Timeout while waiting for packets");
+            }
+
+            synchronized (messagesPerRead) {
+                assertTrue(messagesPerRead.size() >= numPackets / maxDatagramsPerRead);
+                for (int messages : messagesPerRead) {
+                    assertTrue("read " + messages + " datagrams at once", messages <= maxDatagramsPerRead);
+                }
+                assertTrue(messagesPerRead.contains(maxDatagramsPerRead));
+            }
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+        }
+    }
+
     private void testScatteringRead(Bootstrap sb, Bootstrap cb, boolean connected, boolean partial) throws Throwable {
         int packetSize = 512;
         int numPackets = 4;
@@ -273,4 +378,39 @@ public class EpollDatagramScatteringReadTest extends AbstractDatagramTest  {
             }
         }
     }
+
+    /**
+     * Records the number of messages of each read operation.
+     */
+    private static final class RecordingRecvByteBufAllocator implements RecvByteBufAllocator {
+        private final RecvByteBufAllocator allocator;
+        private final List<Integer> messagesPerRead;
+
+        RecordingRecvByteBufAllocator(RecvByteBufAllocator allocator, List<Integer> messagesPerRead) {
+            this.allocator = allocator;
+            this.messagesPerRead = messagesPerRead;
+        }
+
+        @Override
+        public Handle newHandle() {
+            return new RecordingHandle((ExtendedHandle) allocator.newHandle());
+        }
+
+        private final class RecordingHandle extends DelegatingHandle implements ExtendedHandle {
+            RecordingHandle(ExtendedHandle handle) {
+                super(handle);
+            }
+
+            @Override
+            public void incMessagesRead(int numMessages) {
+                messagesPerRead.add(numMessages);
+                super.incMessagesRead(numMessages);
+            }
+
+            @Override
+            public boolean continueReading(UncheckedBooleanSupplier maybeMoreDataSupplier) {
+                return ((ExtendedHandle) delegate()).continueReading(maybeMoreDataSupplier);
+            }
+        }
+    }
 }
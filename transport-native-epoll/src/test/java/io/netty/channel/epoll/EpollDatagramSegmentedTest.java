@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.AbstractDatagramTest;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EpollDatagramSegmentedTest extends AbstractDatagramTest {
+
+    @BeforeClass
+    public static void assumeUdpSegmentSupported() {
+        Assume.assumeTrue(SegmentedDatagramPacket.isSupported());
+    }
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> newFactories() {
+        return EpollSocketTestPermutation.INSTANCE.epollOnlyDatagram(internetProtocolFamily());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentSizeTooLarge() {
+        new SegmentedDatagramPacket(Unpooled.EMPTY_BUFFER, 0xFFFF + 1, new InetSocketAddress(0));
+    }
+
+    @Test
+    public void testSendSegmented() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmented(Bootstrap sb, Bootstrap cb) throws Throwable {
+        testSegmented(sb, cb, false, false);
+    }
+
+    @Test
+    public void testSendSegmentedWithGro() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmentedWithGro(Bootstrap sb, Bootstrap cb) throws Throwable {
+        testSegmented(sb, cb, true, false);
+    }
+
+    @Test
+    public void testSendSegmentedWithGroAndRecvOrigDestAddr() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmentedWithGroAndRecvOrigDestAddr(Bootstrap sb, Bootstrap cb) throws Throwable {
+        // The IP_RECVORIGDSTADDR control message must not push out the UDP_GRO one.
+        testSegmented(sb, cb, true, true);
+    }
+
+    private void testSegmented(Bootstrap sb, Bootstrap cb, boolean gro, boolean recvOrigDestAddr)
+            throws Throwable {
+        final int segmentSize = 512;
+        final int numSegments = 4;
+
+        sb.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(64 * 1024));
+        sb.option(EpollChannelOption.UDP_GRO, gro);
+        sb.option(EpollChannelOption.IP_RECVORIGDSTADDR, recvOrigDestAddr);
+
+        Channel sc = null;
+        Channel cc = null;
+
+        try {
+            cb.handler(new SimpleChannelInboundHandler<Object>() {
+                @Override
+                public void channelRead0(ChannelHandlerContext ctx, Object msgs) {
+                    // Nothing will be sent.
+                }
+            });
+            cc = cb.bind(newSocketAddress()).sync().channel();
+
+            final AtomicReference<Throwable> errorRef = new AtomicReference<Throwable>();
+            final byte[] bytes = new byte[segmentSize * numSegments];
+            PlatformDependent.threadLocalRandom().nextBytes(bytes);
+
+            final CountDownLatch latch = new CountDownLatch(numSegments);
+            sb.handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                private int received;
+
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                    ByteBuf content = msg.content();
+                    assertEquals(segmentSize, content.readableBytes());
+                    byte[] receivedBytes = new byte[segmentSize];
+                    content.readBytes(receivedBytes);
+                    byte[] expectedBytes = new byte[segmentSize];
+                    System.arraycopy(bytes, received++ * segmentSize, expectedBytes, 0, segmentSize);
+                    assertArrayEquals(expectedBytes, receivedBytes);
+                    latch.countDown();
+                }
+
+                @Override
+                public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                    errorRef.compareAndSet(null, cause);
+                }
+            });
+            sc = sb.bind(newSocketAddress()).sync().channel();
+
+            InetSocketAddress addr = (InetSocketAddress) sc.localAddress();
+            cc.writeAndFlush(new SegmentedDatagramPacket(
+                    cc.alloc().directBuffer().writeBytes(bytes), segmentSize, addr)).sync();
+
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                Throwable error = errorRef.get();
+                if (error != null) {
+                    throw error;
+                }
+                fail("Timeout while waiting for packets");
+            }
+            Throwable error = errorRef.get();
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+        }
+    }
+}
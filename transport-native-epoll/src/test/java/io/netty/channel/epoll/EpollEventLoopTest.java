@@ -15,28 +15,50 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.DefaultSelectStrategyFactory;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopMetrics;
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SelectStrategyFactory;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.unix.FileDescriptor;
 import io.netty.testsuite.transport.AbstractSingleThreadEventLoopTest;
+import io.netty.util.IntSupplier;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 public class EpollEventLoopTest extends AbstractSingleThreadEventLoopTest {
 
@@ -135,4 +157,215 @@ public class EpollEventLoopTest extends AbstractSingleThreadEventLoopTest {
             timerFd.close();
         }
     }
+
+    @Test(timeout = 10000)
+    public void testNapiAffinity() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(2);
+        group.setNapiAffinity(true);
+        assertTrue(group.isNapiAffinity());
+        EpollSocketChannel ch1 = new EpollSocketChannel();
+        EpollSocketChannel ch2 = new EpollSocketChannel();
+        try {
+            // Loopback connections have no NAPI id, so use made up ones for the NIC RX queues.
+            EventLoop loop1 = group.napiEventLoop(1);
+            EventLoop loop2 = group.napiEventLoop(2);
+            assertNotSame(loop1, loop2);
+            assertSame(loop1, group.napiEventLoop(1));
+            assertSame(loop2, group.napiEventLoop(2));
+
+            // Channels without a NAPI id are still distributed over all EventLoops.
+            group.register(ch1).syncUninterruptibly();
+            group.register(ch2).syncUninterruptibly();
+            assertNotSame(ch1.eventLoop(), ch2.eventLoop());
+        } finally {
+            ch1.close().syncUninterruptibly();
+            ch2.close().syncUninterruptibly();
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testBusyPollCounters() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1, new SelectStrategyFactory() {
+            @Override
+            public SelectStrategy newSelectStrategy() {
+                return new SelectStrategy() {
+                    @Override
+                    public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+                        return hasTasks ? selectSupplier.get() : SelectStrategy.BUSY_WAIT;
+                    }
+                };
+            }
+        });
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(EpollServerSocketChannel.class).childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    ReferenceCountUtil.release(msg);
+                    latch.countDown();
+                }
+            });
+            sc = sb.bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(group).channel(EpollSocketChannel.class).handler(new ChannelInboundHandlerAdapter());
+            cc = cb.connect(sc.localAddress()).syncUninterruptibly().channel();
+            cc.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1 })).syncUninterruptibly();
+            latch.await();
+
+            EpollEventLoop loop = (EpollEventLoop) group.next();
+            assertTrue(loop.busyPollHits() > 0);
+            assertTrue(loop.busyPollMisses() > 0);
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIncomingCpuAffinity() throws Exception {
+        // Only use CPUs we are allowed to run on, containers and cpusets often don't include all of them.
+        List<Integer> allowedCpus = parseCpuList(readCpusAllowedList("/proc/self/status"));
+        assumeTrue(allowedCpus.size() >= 2);
+        final int[] cpus = { allowedCpus.get(0), allowedCpus.get(1) };
+
+        EpollEventLoopGroup bossGroup = new EpollEventLoopGroup(1);
+        EpollEventLoopGroup childGroup = new EpollEventLoopGroup(2);
+        childGroup.setCpuAffinity(cpus);
+        childGroup.setIncomingCpuAffinity(true);
+        assertTrue(childGroup.isIncomingCpuAffinity());
+        // Pin the client to the CPU of the second EventLoop, so its packets are most likely processed there and the
+        // accepted Channel is not just registered to the first EventLoop via next().
+        EpollEventLoopGroup clientGroup = new EpollEventLoopGroup(1);
+        clientGroup.setCpuAffinity(cpus[1]);
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            final EventLoop[] loops = new EventLoop[cpus.length];
+            int i = 0;
+            for (EventExecutor executor : childGroup) {
+                loops[i] = (EventLoop) executor;
+                // Pinning failures are only logged.
+                assumeTrue(String.valueOf(cpus[i]).equals(cpusAllowedList(loops[i])));
+                i++;
+            }
+            assumeTrue(String.valueOf(cpus[1]).equals(cpusAllowedList(clientGroup.next())));
+
+            final AtomicReference<EpollSocketChannel> accepted = new AtomicReference<EpollSocketChannel>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(bossGroup, childGroup).channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelActive(ChannelHandlerContext ctx) {
+                    accepted.set((EpollSocketChannel) ctx.channel());
+                    latch.countDown();
+                }
+            });
+            sc = sb.bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(clientGroup).channel(EpollSocketChannel.class).handler(new ChannelInboundHandlerAdapter());
+            cc = cb.connect(sc.localAddress()).syncUninterruptibly().channel();
+            latch.await();
+
+            EpollSocketChannel child = accepted.get();
+            int cpu = child.incomingCpu();
+            // SO_INCOMING_CPU is only supported since linux 3.19 and the kernel may have processed the packets on
+            // some other CPU.
+            assumeTrue(cpu == cpus[0] || cpu == cpus[1]);
+            assertSame(loops[cpu == cpus[0] ? 0 : 1], child.eventLoop());
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            clientGroup.shutdownGracefully();
+            childGroup.shutdownGracefully();
+            bossGroup.shutdownGracefully();
+        }
+    }
+
+    private static String cpusAllowedList(EventLoop loop) {
+        return loop.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return readCpusAllowedList("/proc/thread-self/status");
+            }
+        }).syncUninterruptibly().getNow();
+    }
+
+    private static String readCpusAllowedList(String file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    return line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+            return "";
+        } finally {
+            reader.close();
+        }
+    }
+
+    // Parses a list like "0-3,6".
+    private static List<Integer> parseCpuList(String list) {
+        List<Integer> cpus = new ArrayList<Integer>();
+        for (String range : list.split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int idx = range.indexOf('-');
+            if (idx == -1) {
+                cpus.add(Integer.parseInt(range));
+            } else {
+                int last = Integer.parseInt(range.substring(idx + 1));
+                for (int cpu = Integer.parseInt(range.substring(0, idx)); cpu <= last; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        }
+        return cpus;
+    }
+
+    @Test(timeout = 10000)
+    public void testMetrics() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+        EpollEventLoop loop = (EpollEventLoop) group.next();
+        try {
+            EventLoopMetrics metrics = loop.enableMetrics();
+            Channel channel = new EpollServerSocketChannel();
+            loop.register(channel).syncUninterruptibly();
+            for (int i = 0; i < 10; i++) {
+                loop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP.
+                    }
+                }).syncUninterruptibly();
+            }
+            assertTrue(metrics.iterations() > 0);
+            assertTrue(metrics.iterationTime().totalCount() > 0);
+            assertTrue(metrics.taskQueueWaitTime().totalCount() > 0);
+            assertTrue(metrics.taskTimeNanos() > 0);
+            assertTrue(metrics.wakeups() > 0);
+            assertEquals(1, metrics.registeredChannels());
+            channel.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.KernelTlsTxOffload;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class EpollKernelTlsTest {
+
+    private static final Random random = new Random();
+    private static final byte[] data = new byte[1024 * 1024];
+
+    static {
+        random.nextBytes(data);
+    }
+
+    @Test(timeout = 30000)
+    public void testWriteOffload() throws Throwable {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(EpollServerSocketChannel.class).childHandler(new ChannelInboundHandlerAdapter());
+            sc = sb.bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(group).channel(EpollSocketChannel.class).handler(new ChannelInboundHandlerAdapter());
+            cc = cb.connect(sc.localAddress()).syncUninterruptibly().channel();
+
+            byte[] sequence = new byte[8];
+            ChannelFuture future = cc.writeAndFlush(new KernelTlsTxOffload(KernelTlsTxOffload.TLS_1_2,
+                    KernelTlsTxOffload.Cipher.AES_128_GCM, new byte[16], new byte[4], sequence, sequence)).await();
+            if (!future.isSuccess()) {
+                // The kernel does not support TLS, the Channel must still be usable.
+                assertThat(future.cause(), instanceOf(IOException.class));
+                assertTrue(cc.isActive());
+                cc.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1 })).syncUninterruptibly();
+            }
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testEcho() throws Throwable {
+        assumeTrue(OpenSsl.isAvailable());
+        SelfSignedCertificate ssc = new SelfSignedCertificate();
+        final SslContext serverCtx = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey())
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols("TLSv1.2")
+                .ciphers(Collections.singletonList("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"))
+                .build();
+        final SslContext clientCtx = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.JDK)
+                .protocols("TLSv1.2")
+                .build();
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(EpollServerSocketChannel.class).childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    SslHandler sslHandler = serverCtx.newHandler(ch.alloc());
+                    sslHandler.setKernelTlsEnabled(true);
+                    ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                            ctx.writeAndFlush(msg.retain());
+                        }
+                    });
+                }
+            });
+            sc = sb.bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+
+            final byte[] received = new byte[data.length];
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            Bootstrap cb = new Bootstrap();
+            cb.group(group).channel(EpollSocketChannel.class).handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(clientCtx.newHandler(ch.alloc()), new SimpleChannelInboundHandler<ByteBuf>() {
+                        private int count;
+
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                            int length = msg.readableBytes();
+                            msg.readBytes(received, count, length);
+                            count += length;
+                            if (count == received.length) {
+                                latch.countDown();
+                            }
+                        }
+
+                        @Override
+                        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                            error.compareAndSet(null, cause);
+                            latch.countDown();
+                        }
+                    });
+                }
+            });
+            cc = cb.connect(sc.localAddress()).syncUninterruptibly().channel();
+
+            // Write before and after the handshake completed.
+            for (int i = 0; i < data.length;) {
+                int length = Math.min(random.nextInt(1024 * 64), data.length - i);
+                cc.writeAndFlush(Unpooled.wrappedBuffer(data, i, length));
+                i += length;
+            }
+            latch.await();
+            if (error.get() != null) {
+                throw error.get();
+            }
+            assertArrayEquals(data, received);
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+            ReferenceCountUtil.release(serverCtx);
+            ReferenceCountUtil.release(clientCtx);
+            ssc.delete();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseNotifySentByKernel() throws Throwable {
+        assumeTrue(OpenSsl.isAvailable());
+        SelfSignedCertificate ssc = new SelfSignedCertificate();
+        final SslContext serverCtx = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey())
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols("TLSv1.2")
+                .ciphers(Collections.singletonList("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"))
+                .build();
+        final SslContext clientCtx = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.JDK)
+                .protocols("TLSv1.2")
+                .build();
+        final AtomicBoolean kernelTlsActive = new AtomicBoolean();
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(EpollServerSocketChannel.class).childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    final SslHandler sslHandler = serverCtx.newHandler(ch.alloc());
+                    sslHandler.setKernelTlsEnabled(true);
+                    ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                            // The offload is done at the latest when the first data is written.
+                            ctx.writeAndFlush(msg.retain()).addListener(new ChannelFutureListener() {
+                                @Override
+                                public void operationComplete(ChannelFuture future) {
+                                    kernelTlsActive.set(sslHandler.isKernelTlsActive());
+                                    future.channel().close();
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+            sc = sb.bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(group).channel(EpollSocketChannel.class).handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(clientCtx.newHandler(ch.alloc()), new SimpleChannelInboundHandler<ByteBuf>() {
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                            // Just discard the echo.
+                        }
+                    });
+                }
+            });
+            cc = cb.connect(sc.localAddress()).syncUninterruptibly().channel();
+            SslHandler clientSslHandler = cc.pipeline().get(SslHandler.class);
+            clientSslHandler.handshakeFuture().syncUninterruptibly();
+            cc.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1 }));
+
+            // The SSL close future is only completed successfully if the peer sent a close_notify.
+            Future<Channel> sslCloseFuture = clientSslHandler.sslCloseFuture().awaitUninterruptibly();
+            assumeTrue(kernelTlsActive.get());
+            if (!sslCloseFuture.isSuccess()) {
+                throw sslCloseFuture.cause();
+            }
+        } finally {
+            if (cc != null) {
+                cc.close().syncUninterruptibly();
+            }
+            if (sc != null) {
+                sc.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+            ReferenceCountUtil.release(serverCtx);
+            ReferenceCountUtil.release(clientCtx);
+            ssc.delete();
+        }
+    }
+}
@@ -134,6 +134,44 @@ public class EpollSocketChannelConfigTest {
         assertTrue(ch.config().isTcpQuickAck());
     }
 
+    @Test
+    public void testZeroCopy() {
+        try {
+            ch.config().setZeroCopy(true);
+        } catch (ChannelException e) {
+            // SO_ZEROCOPY is only supported since linux 4.14.
+            assumeNoException(e);
+        }
+        assertTrue(ch.config().isZeroCopy());
+        ch.config().setZeroCopy(false);
+        assertFalse(ch.config().isZeroCopy());
+    }
+
+    @Test
+    public void testSoPreferBusyPoll() {
+        try {
+            ch.config().setSoPreferBusyPoll(true);
+        } catch (ChannelException e) {
+            // SO_PREFER_BUSY_POLL is only supported since linux 5.11.
+            assumeNoException(e);
+        }
+        assertTrue(ch.config().isSoPreferBusyPoll());
+        ch.config().setSoPreferBusyPoll(false);
+        assertFalse(ch.config().isSoPreferBusyPoll());
+    }
+
+    @Test
+    public void testZeroCopyThreshold() {
+        ch.config().setZeroCopyThreshold(4096);
+        assertEquals(4096, ch.config().getZeroCopyThreshold());
+        try {
+            ch.config().setZeroCopyThreshold(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
     @Test
     public void testSetOptionWhenClosed() {
         ch.close().syncUninterruptibly();
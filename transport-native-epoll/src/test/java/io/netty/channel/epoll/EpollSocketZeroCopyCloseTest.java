@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+public class EpollSocketZeroCopyCloseTest {
+    private static final int WRITES = 4;
+    private static final int WRITE_SIZE = 32 * 1024;
+
+    private static EventLoopGroup GROUP;
+
+    @BeforeClass
+    public static void beforeClass() {
+        GROUP = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testCompletionsReadAfterClose() throws Throwable {
+        testBuffersReleasedOnClose(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testBuffersReleasedOnCloseWithSoLinger() throws Throwable {
+        // With SO_LINGER the socket is closed outside of the EventLoop, so the completions can not be reaped and the
+        // buffers must be released directly.
+        testBuffersReleasedOnClose(true);
+    }
+
+    private static void testBuffersReleasedOnClose(boolean linger) throws Throwable {
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        ByteBuf[] buffers = new ByteBuf[WRITES];
+        ChannelPromise[] promises = new ChannelPromise[WRITES];
+        final CountDownLatch received = new CountDownLatch(1);
+        try {
+            serverChannel = new ServerBootstrap().group(GROUP)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        private int bytes;
+
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            bytes += ((ByteBuf) msg).readableBytes();
+                            ReferenceCountUtil.release(msg);
+                            if (bytes == WRITES * WRITE_SIZE) {
+                                received.countDown();
+                            }
+                        }
+                    })
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).syncUninterruptibly().channel();
+
+            final EpollSocketChannel ch = (EpollSocketChannel) new Bootstrap().group(GROUP)
+                    .channel(EpollSocketChannel.class)
+                    // Make sure all the data can be written at once, so none of the writes is failed because it is
+                    // still in the ChannelOutboundBuffer on close.
+                    .option(ChannelOption.SO_SNDBUF, 1024 * 1024)
+                    .option(ChannelOption.SO_LINGER, linger ? 1 : -1)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+            clientChannel = ch;
+            try {
+                ch.config().setZeroCopy(true);
+            } catch (ChannelException e) {
+                // SO_ZEROCOPY is only supported since linux 4.14.
+                assumeNoException(e);
+            }
+            ch.config().setZeroCopyThreshold(0);
+
+            for (int i = 0; i < WRITES; i++) {
+                buffers[i] = Unpooled.directBuffer(WRITE_SIZE).writeZero(WRITE_SIZE);
+                promises[i] = ch.newPromise();
+            }
+            final ByteBuf[] writeBuffers = buffers;
+            final ChannelPromise[] writePromises = promises;
+            // Close directly after the data was written, before the kernel can signal that the sends completed.
+            ch.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < WRITES; i++) {
+                        ch.write(writeBuffers[i], writePromises[i]);
+                    }
+                    ch.flush();
+                    ch.close();
+                }
+            }).syncUninterruptibly();
+            ch.closeFuture().syncUninterruptibly();
+
+            for (int i = 0; i < WRITES; i++) {
+                if (linger) {
+                    // The promise may be failed if the completion was not read before the socket was closed.
+                    promises[i].awaitUninterruptibly();
+                } else {
+                    // The buffers are only released once the kernel signaled that the sends completed, which is
+                    // still read from the error queue after the channel was closed.
+                    promises[i].syncUninterruptibly();
+                }
+                assertEquals(0, buffers[i].refCnt());
+            }
+            if (!linger) {
+                assertTrue(received.await(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            for (ByteBuf buffer : buffers) {
+                if (buffer != null && buffer.refCnt() > 0) {
+                    buffer.release(buffer.refCnt());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <stdio.h>
+#include <string.h>
+#include <errno.h>
+#include <sys/eventfd.h>
+#include <sys/mman.h>
+#include <sys/types.h>
+#include <sys/utsname.h>
+#include <unistd.h>
+#include <dlfcn.h>
+// Needed to be able to use syscalls directly and so not depend on newer GLIBC versions
+#include <sys/syscall.h>
+
+#include "netty_io_uring.h"
+#include "netty_unix_buffer.h"
+#include "netty_unix_errors.h"
+#include "netty_unix_filedescriptor.h"
+#include "netty_unix_jni.h"
+#include "netty_unix_limits.h"
+#include "netty_unix_socket.h"
+#include "netty_unix_util.h"
+
+// The number of elements in the array returned by ioUringSetup(...). Must be kept in sync with RingBuffer.java.
+#define NETTY_IO_URING_SETUP_RESULT_LEN 20
+
+static int sys_io_uring_setup(unsigned int entries, struct netty_io_uring_params* p) {
+    return (int) syscall(__NR_io_uring_setup, entries, p);
+}
+
+static int sys_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags) {
+    return (int) syscall(__NR_io_uring_enter, fd, toSubmit, minComplete, flags, NULL, 0);
+}
+
+// JNI Registered Methods Begin
+static jlongArray netty_io_uring_native_ioUringSetup(JNIEnv* env, jclass clazz, jint entries) {
+    struct netty_io_uring_params p;
+    memset(&p, 0, sizeof(p));
+
+    int ringFd = sys_io_uring_setup((unsigned int) entries, &p);
+    if (ringFd < 0) {
+        netty_unix_errors_throwRuntimeExceptionErrorNo(env, "io_uring_setup() failed: ", errno);
+        return NULL;
+    }
+
+    size_t sqRingSize = p.sq_off.array + p.sq_entries * sizeof(uint32_t);
+    size_t cqRingSize = p.cq_off.cqes + p.cq_entries * sizeof(struct netty_io_uring_cqe);
+    if ((p.features & NETTY_IORING_FEAT_SINGLE_MMAP) != 0) {
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                        ringFd, NETTY_IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(ringFd);
+        netty_unix_errors_throwRuntimeExceptionErrorNo(env, "mmap() of the submission queue failed: ", err);
+        return NULL;
+    }
+
+    void* cqRing;
+    if ((p.features & NETTY_IORING_FEAT_SINGLE_MMAP) != 0) {
+        cqRing = sqRing;
+    } else {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(ringFd);
+            netty_unix_errors_throwRuntimeExceptionErrorNo(env, "mmap() of the completion queue failed: ", err);
+            return NULL;
+        }
+    }
+
+    size_t sqesSize = p.sq_entries * sizeof(struct netty_io_uring_sqe);
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        netty_unix_errors_throwRuntimeExceptionErrorNo(env, "mmap() of the submission queue entries failed: ", err);
+        return NULL;
+    }
+
+    // We never re-order submission queue entries, so we can fill the index array once and then
+    // only need to move the tail when submitting.
+    uint32_t* sqArray = (uint32_t*) ((char*) sqRing + p.sq_off.array);
+    uint32_t i;
+    for (i = 0; i < p.sq_entries; i++) {
+        sqArray[i] = i;
+    }
+
+    jlong result[NETTY_IO_URING_SETUP_RESULT_LEN] = {
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.head),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.tail),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.ring_mask),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.ring_entries),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.flags),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.dropped),
+        (jlong) (intptr_t) ((char*) sqRing + p.sq_off.array),
+        (jlong) (intptr_t) sqes,
+        (jlong) sqRingSize,
+        (jlong) (intptr_t) sqRing,
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.head),
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.tail),
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.ring_mask),
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.ring_entries),
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.overflow),
+        (jlong) (intptr_t) ((char*) cqRing + p.cq_off.cqes),
+        (jlong) cqRingSize,
+        (jlong) (intptr_t) cqRing,
+        (jlong) ringFd,
+        (jlong) p.features
+    };
+
+    jlongArray array = (*env)->NewLongArray(env, NETTY_IO_URING_SETUP_RESULT_LEN);
+    if (array == NULL) {
+        // We ran out of memory, release everything again.
+        munmap(sqes, sqesSize);
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return NULL;
+    }
+    (*env)->SetLongArrayRegion(env, array, 0, NETTY_IO_URING_SETUP_RESULT_LEN, result);
+    return array;
+}
+
+static jint netty_io_uring_native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                               jint minComplete, jint flags) {
+    int result = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete,
+                                    (unsigned int) flags);
+    if (result < 0) {
+        return -errno;
+    }
+    return result;
+}
+
+static void netty_io_uring_native_ioUringExit(JNIEnv* env, jclass clazz, jlong sqRing, jlong sqRingSize,
+                                              jlong cqRing, jlong cqRingSize, jlong sqes, jlong sqesSize,
+                                              jint ringFd) {
+    munmap((void*) (intptr_t) sqes, (size_t) sqesSize);
+    if (cqRing != sqRing) {
+        munmap((void*) (intptr_t) cqRing, (size_t) cqRingSize);
+    }
+    munmap((void*) (intptr_t) sqRing, (size_t) sqRingSize);
+    close(ringFd);
+}
+
+static jint netty_io_uring_native_eventFd(JNIEnv* env, jclass clazz) {
+    jint eventFD = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+
+    if (eventFD < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd() failed: ", errno);
+    }
+    return eventFD;
+}
+
+static void netty_io_uring_native_eventFdWrite(JNIEnv* env, jclass clazz, jint fd, jlong value) {
+    uint64_t val;
+
+    for (;;) {
+        jint ret = eventfd_write(fd, (eventfd_t) value);
+
+        if (ret < 0) {
+            // We need to read before we can write again, let's try to read and then write again and if this
+            // fails we will bail out.
+            //
+            // See http://man7.org/linux/man-pages/man2/eventfd.2.html.
+            if (errno == EAGAIN) {
+                if (eventfd_read(fd, &val) == 0 || errno == EAGAIN) {
+                    // Try again
+                    continue;
+                }
+                netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_read(...) failed: ", errno);
+            } else {
+                netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_write(...) failed: ", errno);
+            }
+        }
+        break;
+    }
+}
+
+static jstring netty_io_uring_native_kernelVersion(JNIEnv* env, jclass clazz) {
+    struct utsname name;
+
+    int res = uname(&name);
+    if (res == 0) {
+        return (*env)->NewStringUTF(env, name.release);
+    }
+    netty_unix_errors_throwRuntimeExceptionErrorNo(env, "uname() failed: ", errno);
+    return NULL;
+}
+
+static jint netty_io_uring_native_sizeofSqe(JNIEnv* env, jclass clazz) {
+    return sizeof(struct netty_io_uring_sqe);
+}
+
+static jint netty_io_uring_native_sizeofCqe(JNIEnv* env, jclass clazz) {
+    return sizeof(struct netty_io_uring_cqe);
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod statically_referenced_fixed_method_table[] = {
+  { "kernelVersion", "()Ljava/lang/String;", (void *) netty_io_uring_native_kernelVersion },
+  { "sizeofSqe", "()I", (void *) netty_io_uring_native_sizeofSqe },
+  { "sizeofCqe", "()I", (void *) netty_io_uring_native_sizeofCqe }
+};
+static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
+static const JNINativeMethod method_table[] = {
+  { "ioUringSetup", "(I)[J", (void *) netty_io_uring_native_ioUringSetup },
+  { "ioUringEnter0", "(IIII)I", (void *) netty_io_uring_native_ioUringEnter },
+  { "ioUringExit0", "(JJJJJJI)V", (void *) netty_io_uring_native_ioUringExit },
+  { "eventFd", "()I", (void *) netty_io_uring_native_eventFd },
+  { "eventFdWrite", "(IJ)V", (void *) netty_io_uring_native_eventFdWrite }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    int ret = JNI_ERR;
+    int limitsOnLoadCalled = 0;
+    int errorsOnLoadCalled = 0;
+    int filedescriptorOnLoadCalled = 0;
+    int socketOnLoadCalled = 0;
+    int bufferOnLoadCalled = 0;
+
+    // We must register the statically referenced methods first!
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/NativeStaticallyReferencedJniMethods",
+            statically_referenced_fixed_method_table,
+            statically_referenced_fixed_method_table_size) != 0) {
+        goto done;
+    }
+
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/Native",
+            method_table,
+            method_table_size) != 0) {
+        goto done;
+    }
+
+    // Load all c modules that we depend upon
+    if (netty_unix_limits_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    limitsOnLoadCalled = 1;
+
+    if (netty_unix_errors_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    errorsOnLoadCalled = 1;
+
+    if (netty_unix_filedescriptor_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    filedescriptorOnLoadCalled = 1;
+
+    if (netty_unix_socket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    socketOnLoadCalled = 1;
+
+    if (netty_unix_buffer_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto done;
+    }
+    bufferOnLoadCalled = 1;
+
+    ret = NETTY_JNI_VERSION;
+done:
+    if (ret == JNI_ERR) {
+        if (limitsOnLoadCalled == 1) {
+            netty_unix_limits_JNI_OnUnLoad(env);
+        }
+        if (errorsOnLoadCalled == 1) {
+            netty_unix_errors_JNI_OnUnLoad(env);
+        }
+        if (filedescriptorOnLoadCalled == 1) {
+            netty_unix_filedescriptor_JNI_OnUnLoad(env);
+        }
+        if (socketOnLoadCalled == 1) {
+            netty_unix_socket_JNI_OnUnLoad(env);
+        }
+        if (bufferOnLoadCalled == 1) {
+            netty_unix_buffer_JNI_OnUnLoad(env);
+        }
+    }
+    return ret;
+}
+
+static void netty_io_uring_native_JNI_OnUnLoad(JNIEnv* env) {
+    netty_unix_limits_JNI_OnUnLoad(env);
+    netty_unix_errors_JNI_OnUnLoad(env);
+    netty_unix_filedescriptor_JNI_OnUnLoad(env);
+    netty_unix_socket_JNI_OnUnLoad(env);
+    netty_unix_buffer_JNI_OnUnLoad(env);
+}
+
+// Invoked by the JVM when statically linked
+static jint JNI_OnLoad_netty_transport_native_io_uring0(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        return JNI_ERR;
+    }
+    char* packagePrefix = NULL;
+#ifndef NETTY_BUILD_STATIC
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) netty_io_uring_native_JNI_OnUnLoad, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    packagePrefix = netty_unix_util_parse_package_prefix(dlinfo.dli_fname, "netty_transport_native_io_uring", &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n", dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+#endif /* NETTY_BUILD_STATIC */
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    free(packagePrefix);
+    return ret;
+}
+
+static void JNI_OnUnload_netty_transport_native_io_uring0(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        // Something is wrong but nothing we can do about this :(
+        return;
+    }
+    netty_io_uring_native_JNI_OnUnLoad(env);
+}
+
+// We build with -fvisibility=hidden so ensure we mark everything that needs to be visible with JNIEXPORT
+// http://mail.openjdk.java.net/pipermail/core-libs-dev/2013-February/014549.html
+
+// Invoked by the JVM when statically linked
+JNIEXPORT jint JNI_OnLoad_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    return JNI_OnLoad_netty_transport_native_io_uring0(vm, reserved);
+}
+
+// Invoked by the JVM when statically linked
+JNIEXPORT void JNI_OnUnload_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    JNI_OnUnload_netty_transport_native_io_uring0(vm, reserved);
+}
+
+#ifndef NETTY_BUILD_STATIC
+JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    return JNI_OnLoad_netty_transport_native_io_uring0(vm, reserved);
+}
+
+JNIEXPORT void JNI_OnUnload(JavaVM* vm, void* reserved) {
+    JNI_OnUnload_netty_transport_native_io_uring0(vm, reserved);
+}
+#endif /* NETTY_BUILD_STATIC */
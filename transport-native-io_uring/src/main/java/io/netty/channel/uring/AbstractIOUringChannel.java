@@ -0,0 +1,728 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.UnixChannelUtil.computeRemoteAddr;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Base class for all channels of the io_uring transport.
+ * <p>
+ * Operations are never executed directly but queued on the {@link IOUringSubmissionQueue} of the
+ * {@link IOUringEventLoop} and completed once the kernel produced the matching completion. At most one operation of
+ * each kind is in flight at any time, which is tracked via the {@code *_SCHEDULED} bits. Because the kernel may still
+ * access the file descriptor and the memory of an operation until it completed, the file descriptor is only closed
+ * once all operations that were in flight when the channel was closed completed.
+ */
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+    static final int READ_SCHEDULED = 1;
+    static final int WRITE_SCHEDULED = 1 << 1;
+    static final int POLL_IN_SCHEDULED = 1 << 2;
+    static final int POLL_OUT_SCHEDULED = 1 << 3;
+    static final int CONNECT_SCHEDULED = 1 << 4;
+
+    final IOUringSocket socket;
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+    private long remoteAddressMemory;
+
+    private volatile SocketAddress local;
+    private volatile SocketAddress remote;
+
+    // The operations which are currently in flight.
+    int ioState;
+    // The op codes of the read and write which are in flight, needed to be able to cancel them.
+    byte readOp;
+    byte writeOp;
+    // True if the channel was deregistered while operations were still in flight.
+    private boolean removePending;
+
+    boolean inputClosedSeenErrorOnRead;
+    // We need our own flag as the file descriptor may stay open for a while after the channel was closed.
+    private volatile boolean open = true;
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(Channel parent, IOUringSocket fd, boolean active) {
+        super(parent);
+        this.socket = checkNotNull(fd, "fd");
+        this.active = active;
+        if (active) {
+            // Directly cache the remote and local addresses
+            // See https://github.com/netty/netty/issues/2359
+            this.local = fd.localAddress();
+            this.remote = fd.remoteAddress();
+        }
+    }
+
+    AbstractIOUringChannel(Channel parent, IOUringSocket fd, SocketAddress remote) {
+        super(parent);
+        this.socket = checkNotNull(fd, "fd");
+        this.active = true;
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        this.remote = remote;
+        this.local = fd.localAddress();
+    }
+
+    static boolean isSoErrorZero(IOUringSocket fd) {
+        try {
+            return fd.getSoError() == 0;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    @Override
+    public final FileDescriptor fd() {
+        return socket;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public abstract IOUringChannelConfig config();
+
+    final IOUringSubmissionQueue submissionQueue() {
+        return ((IOUringEventLoop) eventLoop()).submissionQueue();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        open = false;
+        try {
+            ChannelPromise promise = connectPromise;
+            if (promise != null) {
+                // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+                promise.tryFailure(new ClosedChannelException());
+                connectPromise = null;
+            }
+
+            ScheduledFuture<?> future = connectTimeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+                connectTimeoutFuture = null;
+            }
+
+            if (ioState != 0 && isRegistered()) {
+                // Shutdown the socket first so the operations which are in flight will not touch any memory anymore
+                // once the kernel gets to them, then cancel them.
+                try {
+                    socket.shutdown();
+                } catch (IOException ignore) {
+                    // Nothing we can do about it, the operations will be cancelled anyway.
+                } catch (NotYetConnectedException ignore) {
+                    // The socket may not be connected.
+                }
+                cancelOperations();
+            }
+        } finally {
+            if (ioState == 0) {
+                closeSocket();
+            }
+        }
+    }
+
+    private void cancelOperations() {
+        IOUringSubmissionQueue submissionQueue = submissionQueue();
+        int fd = socket.intValue();
+        if ((ioState & READ_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, UserData.encode(fd, readOp, (short) 0));
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, UserData.encode(fd, writeOp, (short) 0));
+        }
+        if ((ioState & POLL_IN_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, UserData.encode(fd, Native.IORING_OP_POLL_ADD, (short) Native.POLLIN));
+        }
+        if ((ioState & POLL_OUT_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, UserData.encode(fd, Native.IORING_OP_POLL_ADD, (short) Native.POLLOUT));
+        }
+        if ((ioState & CONNECT_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, UserData.encode(fd, Native.IORING_OP_CONNECT, (short) 0));
+        }
+    }
+
+    private void closeSocket() throws IOException {
+        try {
+            freeRemoteAddressMemory();
+            freeResources();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Release the native resources of this channel. Called once no more operations are in flight and before the
+     * file descriptor is closed.
+     */
+    void freeResources() {
+        // Noop by default
+    }
+
+    private void freeRemoteAddressMemory() {
+        if (remoteAddressMemory != 0) {
+            PlatformDependent.freeMemory(remoteAddressMemory);
+            remoteAddressMemory = 0;
+        }
+    }
+
+    void resetCachedAddresses() {
+        local = socket.localAddress();
+        remote = socket.remoteAddress();
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        removePending = false;
+        ((IOUringEventLoop) eventLoop()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        if (ioState == 0) {
+            ((IOUringEventLoop) eventLoop()).remove(this);
+        } else {
+            // We still need to receive the completions of the operations that are in flight, the channel will be
+            // removed once the last one was received.
+            if (isOpen()) {
+                cancelOperations();
+            }
+            removePending = true;
+        }
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        final AbstractUringUnsafe unsafe = (AbstractUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        unsafe.scheduleFirstRead();
+    }
+
+    final boolean isAllowHalfClosure() {
+        ChannelConfig config = config();
+        return config instanceof SocketChannelConfig &&
+                ((SocketChannelConfig) config).isAllowHalfClosure();
+    }
+
+    @Override
+    protected abstract AbstractUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.release(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractUringUnsafe extends AbstractUnsafe {
+        boolean readPending;
+        // True while a read completion is handled, read() calls will be picked up once it is done.
+        private boolean inReadComplete;
+
+        /**
+         * Called for every completion of an operation of this channel.
+         */
+        final void handle(int res, byte op, short data) {
+            try {
+                switch (op) {
+                    case Native.IORING_OP_READ:
+                    case Native.IORING_OP_ACCEPT:
+                    case Native.IORING_OP_RECVMSG:
+                        ioState &= ~READ_SCHEDULED;
+                        inReadComplete = true;
+                        try {
+                            readComplete(res);
+                        } finally {
+                            inReadComplete = false;
+                        }
+                        if (readPending) {
+                            // read() was called while the read loop was running but the loop ended, start a new one.
+                            scheduleFirstRead();
+                        }
+                        break;
+                    case Native.IORING_OP_WRITE:
+                    case Native.IORING_OP_WRITEV:
+                    case Native.IORING_OP_SENDMSG:
+                        ioState &= ~WRITE_SCHEDULED;
+                        writeComplete(res);
+                        break;
+                    case Native.IORING_OP_POLL_ADD:
+                        if (data == Native.POLLIN) {
+                            ioState &= ~POLL_IN_SCHEDULED;
+                            pollInComplete(res);
+                        } else {
+                            ioState &= ~POLL_OUT_SCHEDULED;
+                            pollOutComplete(res);
+                        }
+                        break;
+                    case Native.IORING_OP_CONNECT:
+                        ioState &= ~CONNECT_SCHEDULED;
+                        connectComplete(res);
+                        break;
+                    default:
+                        break;
+                }
+            } finally {
+                if (ioState == 0) {
+                    if (removePending) {
+                        removePending = false;
+                        ((IOUringEventLoop) eventLoop()).remove(AbstractIOUringChannel.this);
+                    }
+                    if (!isOpen() && socket.isOpen()) {
+                        try {
+                            closeSocket();
+                        } catch (IOException ignore) {
+                            // Nothing we can do about it.
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Start a new read loop if there is no read in flight.
+         */
+        final void scheduleFirstRead() {
+            if (inReadComplete || (ioState & (READ_SCHEDULED | POLL_IN_SCHEDULED)) != 0 || !isActive()) {
+                return;
+            }
+            recvBufAllocHandle().reset(config());
+            scheduleRead();
+        }
+
+        /**
+         * Queue the next read of the current read loop.
+         */
+        abstract void scheduleRead();
+
+        /**
+         * Called once the read which was queued by {@link #scheduleRead()} completed.
+         */
+        abstract void readComplete(int res);
+
+        /**
+         * Called once the write which was queued by {@link #doWrite(io.netty.channel.ChannelOutboundBuffer)}
+         * completed.
+         */
+        void writeComplete(int res) {
+            // Noop by default
+        }
+
+        /**
+         * Queue a poll for {@code POLLIN}, the read will be retried once it completed.
+         */
+        final void schedulePollIn() {
+            assert (ioState & POLL_IN_SCHEDULED) == 0;
+            ioState |= POLL_IN_SCHEDULED;
+            submissionQueue().addPoll(socket.intValue(), Native.POLLIN);
+        }
+
+        /**
+         * Queue a poll for {@code POLLOUT}, the pending flush or connect will be retried once it completed.
+         */
+        final void schedulePollOut() {
+            assert (ioState & POLL_OUT_SCHEDULED) == 0;
+            ioState |= POLL_OUT_SCHEDULED;
+            submissionQueue().addPoll(socket.intValue(), Native.POLLOUT);
+        }
+
+        private void pollInComplete(int res) {
+            if (isActive() && res != Native.ERRNO_ECANCELED_NEGATIVE) {
+                scheduleRead();
+            }
+        }
+
+        private void pollOutComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            } else if (!socket.isOutputShutdown()) {
+                // directly call super.flush0() to force a flush now
+                super.flush0();
+            }
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput(boolean rdHup) {
+            if (!socket.isInputShutdown()) {
+                if (isAllowHalfClosure()) {
+                    try {
+                        socket.shutdown(true, false);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            } else if (!rdHup) {
+                inputClosedSeenErrorOnRead = true;
+                pipeline().fireUserEventTriggered(ChannelInputShutdownReadComplete.INSTANCE);
+            }
+        }
+
+        private void fireEventAndClose(Object evt) {
+            pipeline().fireUserEventTriggered(evt);
+            close(voidPromise());
+        }
+
+        @Override
+        protected final void flush0() {
+            // Flush immediately only when there's no write in flight and we don't wait for the socket to become
+            // writable. Once this happened super.flush0() will be called.
+            if ((ioState & (WRITE_SCHEDULED | POLL_OUT_SCHEDULED)) == 0) {
+                super.flush0();
+            }
+        }
+
+        /**
+         * Flush the pending writes even if we did not wait for anything. Used once a write completed.
+         */
+        final void forceFlush() {
+            super.flush0();
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                doConnect(remoteAddress, localAddress);
+                connectPromise = promise;
+                requestedRemoteAddress = remoteAddress;
+
+                // Schedule connect timeout.
+                int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                if (connectTimeoutMillis > 0) {
+                    connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            ChannelPromise connectPromise = AbstractIOUringChannel.this.connectPromise;
+                            ConnectTimeoutException cause =
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                            if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                close(voidPromise());
+                            }
+                        }
+                    }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+
+                promise.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (future.isCancelled()) {
+                            if (connectTimeoutFuture != null) {
+                                connectTimeoutFuture.cancel(false);
+                            }
+                            connectPromise = null;
+                            close(voidPromise());
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void connectComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || connectPromise == null) {
+                // Closed or cancelled in the meantime, the promise has been notified already.
+                return;
+            }
+            if (res == 0) {
+                finishConnect();
+            } else if (res == Errors.ERRNO_EINPROGRESS_NEGATIVE || res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                // Wait until the socket becomes writable and then finish the connect.
+                schedulePollOut();
+            } else {
+                ConnectException cause = new ConnectException(Errors.newIOException("connect", res).getMessage());
+                fulfillConnectPromise(connectPromise, annotateConnectException(cause, requestedRemoteAddress));
+                cancelConnectTimeout();
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    cancelConnectTimeout();
+                }
+            }
+        }
+
+        private void cancelConnectTimeout() {
+            // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+            // See https://github.com/netty/netty/issues/1770
+            if (connectTimeoutFuture != null) {
+                connectTimeoutFuture.cancel(false);
+            }
+            connectPromise = null;
+            freeRemoteAddressMemory();
+        }
+
+        /**
+         * Finish the connect
+         */
+        private boolean doFinishConnect() throws Exception {
+            if (socket.finishConnect()) {
+                if (requestedRemoteAddress instanceof InetSocketAddress) {
+                    remote = computeRemoteAddr((InetSocketAddress) requestedRemoteAddress, socket.remoteAddress());
+                }
+                requestedRemoteAddress = null;
+                local = socket.localAddress();
+                return true;
+            }
+            schedulePollOut();
+            return false;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        if (local instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) local);
+        }
+        socket.bind(local);
+        this.local = socket.localAddress();
+    }
+
+    /**
+     * Queue the connect to the remote peer. The result is handled once the connect completed.
+     */
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            throw new UnsupportedOperationException("unsupported address type: " + remoteAddress);
+        }
+        InetSocketAddress remoteSocketAddr = (InetSocketAddress) remoteAddress;
+        checkResolvable(remoteSocketAddr);
+
+        if (remote != null) {
+            // Check if already connected before trying to connect. This is needed as connect(...) will not return -1
+            // and set errno to EISCONN if a previous connect(...) attempt was setting errno to EINPROGRESS and finished
+            // later.
+            throw new AlreadyConnectedException();
+        }
+
+        if (localAddress != null) {
+            socket.bind(localAddress);
+        }
+
+        // The kernel may read the address at any time until the connect completed so it must be kept alive until then.
+        if (remoteAddressMemory == 0) {
+            remoteAddressMemory = PlatformDependent.allocateMemory(SockaddrIn.SOCKADDR_IN6_SIZE);
+        }
+        int addressLength = SockaddrIn.write(socket.isIpv6(), remoteAddressMemory, remoteSocketAddr);
+        ioState |= CONNECT_SCHEDULED;
+        submissionQueue().addConnect(socket.intValue(), remoteAddressMemory, addressLength, (short) 0);
+
+        // We always need to set the localAddress even if not connected yet as the bind already took place.
+        //
+        // See https://github.com/netty/netty/issues/3463
+        local = socket.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+
+abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractIOUringStreamChannel.class);
+
+    AbstractIOUringStreamChannel(Channel parent, IOUringSocket fd, boolean active) {
+        super(parent, fd, active);
+    }
+
+    AbstractIOUringStreamChannel(Channel parent, IOUringSocket fd, SocketAddress remote) {
+        super(parent, fd, remote);
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected AbstractUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOUringStreamUnsafe unsafe = (IOUringStreamUnsafe) unsafe();
+        IOException writeFailure = unsafe.writeFailure;
+        if (writeFailure != null) {
+            // The last write failed, let the caller handle it.
+            unsafe.writeFailure = null;
+            throw writeFailure;
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            return;
+        }
+        for (;;) {
+            final int msgCount = in.size();
+            if (msgCount == 0) {
+                // Wrote all messages.
+                return;
+            }
+            ByteBuf buf = (ByteBuf) in.current();
+            if (msgCount == 1 && buf.hasMemoryAddress()) {
+                if (!buf.isReadable()) {
+                    in.remove();
+                    continue;
+                }
+                writeOp = Native.IORING_OP_WRITE;
+                ioState |= WRITE_SCHEDULED;
+                submissionQueue().addWrite(socket.intValue(), buf.memoryAddress(), buf.readerIndex(),
+                        buf.writerIndex(), (short) 0);
+                return;
+            }
+
+            IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+            loop.ensureIovArrayCapacity();
+            IovArray array = loop.iovArray();
+            int offset = array.count();
+            in.forEachFlushedMessage(array);
+            int count = array.count() - offset;
+            if (count == 0) {
+                // Only empty buffers, just remove these.
+                in.removeBytes(0);
+                continue;
+            }
+            writeOp = Native.IORING_OP_WRITEV;
+            ioState |= WRITE_SCHEDULED;
+            submissionQueue().addWritev(socket.intValue(), array.memoryAddress(offset), count, (short) 0);
+            return;
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf): buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected final void doShutdownOutput() throws Exception {
+        socket.shutdown(false, true);
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        if (!isOpen()) {
+            // The file descriptor may still be open as operations are in flight, but the channel is closed already.
+            promise.setFailure(new ClosedChannelException());
+            return;
+        }
+        try {
+            socket.shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return socket.isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return socket.isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return socket.isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+                }
+            });
+        }
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownInput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final ChannelFuture shutdownOutputFuture) throws Exception {
+                    shutdownOutputDone(shutdownOutputFuture, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture shutdownInputFuture) throws Exception {
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+                }
+            });
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture,
+                              ChannelFuture shutdownInputFuture,
+                              ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                logger.debug("Exception suppressed because a previous exception occurred.",
+                        shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    final class IOUringStreamUnsafe extends AbstractUringUnsafe {
+        // The buffer the read which is in flight reads into.
+        private ByteBuf readBuffer;
+        // The failure of the last write, rethrown on the next call of doWrite(...).
+        IOException writeFailure;
+
+        @Override
+        void scheduleRead() {
+            if ((ioState & (READ_SCHEDULED | POLL_IN_SCHEDULED)) != 0 || !isActive() ||
+                    socket.isInputShutdown() && (inputClosedSeenErrorOnRead || !isAllowHalfClosure())) {
+                return;
+            }
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = alloc().directBuffer(allocHandle.guess());
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+            readBuffer = byteBuf;
+            readOp = Native.IORING_OP_READ;
+            ioState |= READ_SCHEDULED;
+            submissionQueue().addRead(socket.intValue(), byteBuf.memoryAddress(), byteBuf.writerIndex(),
+                    byteBuf.capacity(), (short) 0);
+        }
+
+        @Override
+        void readComplete(int res) {
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            assert byteBuf != null;
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                // The channel was closed in the meantime, just drop the buffer.
+                byteBuf.release();
+                return;
+            }
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                // Nothing to read, wait until the socket becomes readable and try again.
+                byteBuf.release();
+                schedulePollIn();
+                return;
+            }
+
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res < 0) {
+                byteBuf.release();
+                handleReadException(pipeline, Errors.newIOException("read", res), allocHandle);
+                return;
+            }
+
+            allocHandle.lastBytesRead(res);
+            if (res == 0) {
+                // EOF, nothing left to read.
+                byteBuf.release();
+                readPending = false;
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                shutdownInput(false);
+                return;
+            }
+
+            byteBuf.writerIndex(byteBuf.writerIndex() + res);
+            allocHandle.incMessagesRead(1);
+            readPending = false;
+            pipeline.fireChannelRead(byteBuf);
+
+            if (allocHandle.continueReading()) {
+                // There may be more to read, continue with the current read loop.
+                scheduleRead();
+            } else {
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+            }
+        }
+
+        private void handleReadException(ChannelPipeline pipeline, Throwable cause,
+                                         RecvByteBufAllocator.Handle allocHandle) {
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            pipeline.fireExceptionCaught(cause);
+            if (cause instanceof IOException) {
+                shutdownInput(false);
+            }
+        }
+
+        @Override
+        void writeComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (res >= 0) {
+                outboundBuffer().removeBytes(res);
+            } else if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                // The socket is not writable, wait until it is and flush again.
+                schedulePollOut();
+                return;
+            } else {
+                writeFailure = Errors.newIOException("writev", res);
+            }
+            // Flush what is left, or handle the failure.
+            forceFlush();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of an io_uring instance. Completion queue entries are harvested in batches via
+ * {@link #process(IOUringCompletionQueueCallback)}.
+ */
+final class IOUringCompletionQueue {
+
+    // Offsets of the fields in the io_uring_cqe struct.
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+    private static final int CQE_FLAGS_FIELD = 12;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long kOverflowAddress;
+    private final long completionQueueArrayAddress;
+    private final int ringMask;
+    private int ringHead;
+
+    final int ringEntries;
+    final int ringSize;
+    final long ringAddress;
+    final int ringFd;
+
+    IOUringCompletionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress, long kRingEntriesAddress,
+                           long kOverflowAddress, long completionQueueArrayAddress, int ringSize, long ringAddress,
+                           int ringFd) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.kOverflowAddress = kOverflowAddress;
+        this.completionQueueArrayAddress = completionQueueArrayAddress;
+        this.ringSize = ringSize;
+        this.ringAddress = ringAddress;
+        this.ringFd = ringFd;
+
+        ringMask = PlatformDependent.getInt(kRingMaskAddress);
+        ringEntries = PlatformDependent.getInt(kRingEntriesAddress);
+        ringHead = PlatformDependent.getInt(kHeadAddress);
+    }
+
+    /**
+     * Returns {@code true} if there are completions which were not processed yet.
+     */
+    boolean hasCompletions() {
+        return ringHead != PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Returns the number of completions the kernel had to drop or buffer because the ring was full.
+     */
+    int overflow() {
+        return PlatformDependent.getIntVolatile(kOverflowAddress);
+    }
+
+    /**
+     * Harvest all completions that are ready and notify the given {@link IOUringCompletionQueueCallback} for each of
+     * them. Completions which are produced while the callback runs are processed as part of the same call.
+     *
+     * @return the number of processed completions.
+     */
+    int process(IOUringCompletionQueueCallback callback) {
+        int tail = PlatformDependent.getIntVolatile(kTailAddress);
+        int processed = 0;
+        while (ringHead != tail) {
+            long cqeAddress = completionQueueArrayAddress + (long) (ringHead & ringMask) * Native.SIZEOF_CQE;
+
+            long userData = PlatformDependent.getLong(cqeAddress + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqeAddress + CQE_RES_FIELD);
+            int flags = PlatformDependent.getInt(cqeAddress + CQE_FLAGS_FIELD);
+
+            // Release the slot before calling the callback so the kernel can re-use it even if the callback throws.
+            ringHead++;
+            PlatformDependent.putIntOrdered(kHeadAddress, ringHead);
+            processed++;
+
+            callback.handle(UserData.decodeFd(userData), res, flags,
+                    UserData.decodeOp(userData), UserData.decodeData(userData));
+
+            if (ringHead == tail) {
+                // Pick up completions that were produced in the meantime.
+                tail = PlatformDependent.getIntVolatile(kTailAddress);
+            }
+        }
+        return processed;
+    }
+}
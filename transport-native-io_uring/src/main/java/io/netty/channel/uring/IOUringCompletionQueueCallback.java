@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Callback that is notified for every completion queue entry that is harvested.
+ */
+interface IOUringCompletionQueueCallback {
+    /**
+     * Handle a completion.
+     *
+     * @param fd    the file descriptor the operation was submitted for.
+     * @param res   the result of the operation, negative values are {@code -errno}.
+     * @param flags the flags of the completion queue entry.
+     * @param op    the {@code IORING_OP_*} that completed.
+     * @param data  the extra data that was passed when the operation was submitted.
+     */
+    void handle(int fd, int res, int flags, byte op, short data);
+}
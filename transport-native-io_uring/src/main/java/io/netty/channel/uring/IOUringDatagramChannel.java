@@ -0,0 +1,399 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.Errors;
+import io.netty.util.UncheckedBooleanSupplier;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+
+/**
+ * {@link DatagramChannel} implementation that uses linux io_uring. Multicast is not supported (yet).
+ */
+public final class IOUringDatagramChannel extends AbstractIOUringChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    // Layout of the native memory used for each direction: msghdr | iovec | sockaddr_in6
+    private static final int MSG_MEMORY_SIZE = MsgHdr.MSGHDR_SIZE + MsgHdr.IOVEC_SIZE + SockaddrIn.SOCKADDR_IN6_SIZE;
+
+    private final IOUringDatagramChannelConfig config;
+    private volatile boolean connected;
+
+    // Native memory for the recvmsg and sendmsg which may be in flight, allocated once registered.
+    private long recvMemory;
+    private long sendMemory;
+
+    public IOUringDatagramChannel() {
+        super(null, IOUringSocket.newSocketDgram(), false);
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return isOpen() && (config.getActiveOnOpen() && isRegistered() || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public IOUringDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+                                   ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, NetworkInterface networkInterface,
+                                   InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, NetworkInterface networkInterface,
+                                   InetAddress source, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+                                    ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, NetworkInterface networkInterface,
+                                    InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, NetworkInterface networkInterface,
+                                    InetAddress source, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, NetworkInterface networkInterface,
+                               InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, NetworkInterface networkInterface,
+                               InetAddress sourceToBlock, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    private static ChannelFuture multicastNotSupported(ChannelPromise promise) {
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    protected AbstractUringUnsafe newUnsafe() {
+        return new IOUringDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        super.doRegister();
+        if (recvMemory == 0) {
+            recvMemory = PlatformDependent.allocateMemory(MSG_MEMORY_SIZE);
+            sendMemory = PlatformDependent.allocateMemory(MSG_MEMORY_SIZE);
+        }
+    }
+
+    @Override
+    void freeResources() {
+        if (recvMemory != 0) {
+            PlatformDependent.freeMemory(recvMemory);
+            PlatformDependent.freeMemory(sendMemory);
+            recvMemory = 0;
+            sendMemory = 0;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            return;
+        }
+        final Object msg = in.current();
+        if (msg == null) {
+            return;
+        }
+
+        final ByteBuf data;
+        final InetSocketAddress remoteAddress;
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<ByteBuf, InetSocketAddress> envelope =
+                    (AddressedEnvelope<ByteBuf, InetSocketAddress>) msg;
+            data = envelope.content();
+            remoteAddress = envelope.recipient();
+        } else {
+            data = (ByteBuf) msg;
+            remoteAddress = null;
+        }
+
+        long msgHdr = sendMemory;
+        long iov = msgHdr + MsgHdr.MSGHDR_SIZE;
+        long sockAddress = iov + MsgHdr.IOVEC_SIZE;
+        int sockAddressLength = 0;
+        if (remoteAddress != null) {
+            sockAddressLength = SockaddrIn.write(socket.isIpv6(), sockAddress, remoteAddress);
+        } else {
+            sockAddress = 0;
+        }
+        MsgHdr.write(msgHdr, sockAddress, sockAddressLength, iov,
+                data.memoryAddress() + data.readerIndex(), data.readableBytes());
+        writeOp = Native.IORING_OP_SENDMSG;
+        ioState |= WRITE_SCHEDULED;
+        submissionQueue().addSendmsg(socket.intValue(), msgHdr, (short) 0);
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return !content.hasMemoryAddress() ?
+                    new DatagramPacket(newDirectBuffer(packet, content), packet.recipient()) : msg;
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return !buf.hasMemoryAddress() ? newDirectBuffer(buf) : buf;
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (e.content() instanceof ByteBuf &&
+                (e.recipient() == null || e.recipient() instanceof InetSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                return !content.hasMemoryAddress() ?
+                        new DefaultAddressedEnvelope<ByteBuf, InetSocketAddress>(
+                            newDirectBuffer(e, content), (InetSocketAddress) e.recipient()) : e;
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        socket.disconnect();
+        connected = active = false;
+        resetCachedAddresses();
+    }
+
+    @Override
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        super.doConnect(remoteAddress, localAddress);
+        connected = true;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        super.doClose();
+        connected = false;
+    }
+
+    final class IOUringDatagramChannelUnsafe extends AbstractUringUnsafe {
+        // The buffer the recvmsg which is in flight reads into.
+        private ByteBuf readBuffer;
+
+        @Override
+        void scheduleRead() {
+            if ((ioState & (READ_SCHEDULED | POLL_IN_SCHEDULED)) != 0 || !isActive()) {
+                return;
+            }
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = alloc().directBuffer(allocHandle.guess());
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+            readBuffer = byteBuf;
+
+            long msgHdr = recvMemory;
+            long iov = msgHdr + MsgHdr.MSGHDR_SIZE;
+            long sockAddress = iov + MsgHdr.IOVEC_SIZE;
+            MsgHdr.write(msgHdr, sockAddress, SockaddrIn.SOCKADDR_IN6_SIZE, iov,
+                    byteBuf.memoryAddress() + byteBuf.writerIndex(), byteBuf.writableBytes());
+            readOp = Native.IORING_OP_RECVMSG;
+            ioState |= READ_SCHEDULED;
+            submissionQueue().addRecvmsg(socket.intValue(), msgHdr, (short) 0);
+        }
+
+        @Override
+        void readComplete(int res) {
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            assert byteBuf != null;
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                // The channel was closed in the meantime, just drop the buffer.
+                byteBuf.release();
+                return;
+            }
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                byteBuf.release();
+                schedulePollIn();
+                return;
+            }
+
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res < 0) {
+                byteBuf.release();
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(Errors.newIOException("recvmsg", res));
+                return;
+            }
+
+            byteBuf.writerIndex(byteBuf.writerIndex() + res);
+            allocHandle.lastBytesRead(res);
+            allocHandle.incMessagesRead(1);
+            readPending = false;
+            InetSocketAddress sender = SockaddrIn.read(recvMemory + MsgHdr.MSGHDR_SIZE + MsgHdr.IOVEC_SIZE);
+            pipeline.fireChannelRead(new DatagramPacket(byteBuf, IOUringDatagramChannel.this.localAddress(), sender));
+
+            // Datagrams are never partially read, so always continue while the handle allows it.
+            if (allocHandle instanceof RecvByteBufAllocator.ExtendedHandle ?
+                    ((RecvByteBufAllocator.ExtendedHandle) allocHandle)
+                            .continueReading(UncheckedBooleanSupplier.TRUE_SUPPLIER) :
+                    allocHandle.continueReading()) {
+                scheduleRead();
+            } else {
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+            }
+        }
+
+        @Override
+        void writeComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                schedulePollOut();
+                return;
+            }
+            if (res >= 0) {
+                in.remove();
+            } else {
+                // Continue on write error as a DatagramChannel can write to multiple remote peers
+                //
+                // See https://github.com/netty/netty/issues/2665
+                in.remove(Errors.newIOException("sendmsg", res));
+            }
+            forceFlush();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopTaskQueueFactory;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Limits;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ * <p>
+ * All I/O of the {@link AbstractIOUringChannel}s is queued as submission queue entries while the loop runs its
+ * completions and tasks. Everything that was queued during one iteration is handed to the kernel with a single
+ * {@code io_uring_enter(...)} call, which is also used to wait for new completions if there is nothing else to do.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements IOUringCompletionQueueCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        IOUring.ensureAvailability();
+    }
+
+    private static final long AWAKE = -1L;
+    private static final long NONE = Long.MAX_VALUE;
+
+    // The data used for the timeout which is used to wake up the loop for scheduled tasks.
+    private static final short TIMEOUT_DATA = 1;
+    // The data used for the timeout which is used to wait for pending wakeups during cleanup.
+    private static final short CLEANUP_TIMEOUT_DATA = 2;
+
+    private final RingBuffer ringBuffer;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private final FileDescriptor eventFd;
+    private final long eventFdReadBuffer;
+    private final IntObjectMap<AbstractIOUringChannel> channels =
+            new IntObjectHashMap<AbstractIOUringChannel>(4096);
+
+    // As all the kernels we support have IORING_FEAT_SUBMIT_STABLE we can share one IovArray between all channels
+    // and only need to clear it once everything was submitted.
+    private final IovArray iovArray = new IovArray();
+
+    // nextWakeupNanos is:
+    //    AWAKE            when EL is awake
+    //    NONE             when EL is waiting with no wakeup scheduled
+    //    other value T    when EL is waiting with wakeup scheduled at time T
+    private final AtomicLong nextWakeupNanos = new AtomicLong(AWAKE);
+    private boolean pendingWakeup;
+    private long prevDeadlineNanos = NONE;
+    private boolean cleanupTimeoutFired;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize,
+                     RejectedExecutionHandler rejectedExecutionHandler, EventLoopTaskQueueFactory queueFactory) {
+        super(parent, executor, false, newTaskQueue(queueFactory), newTaskQueue(queueFactory),
+                rejectedExecutionHandler);
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            this.ringBuffer = ringBuffer = Native.createRingBuffer(ringSize == 0 ? Native.DEFAULT_RING_SIZE : ringSize);
+            this.eventFd = eventFd = Native.newEventFd();
+            eventFdReadBuffer = PlatformDependent.allocateMemory(8);
+            success = true;
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    ringBuffer.close();
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+                iovArray.release();
+            }
+        }
+        submissionQueue = ringBuffer.ioUringSubmissionQueue();
+        completionQueue = ringBuffer.ioUringCompletionQueue();
+        // Always keep a read on the eventfd in flight so wakeup() will produce a completion.
+        addEventFdRead();
+    }
+
+    private static Queue<Runnable> newTaskQueue(
+            EventLoopTaskQueueFactory queueFactory) {
+        if (queueFactory == null) {
+            return newTaskQueue0(DEFAULT_MAX_PENDING_TASKS);
+        }
+        return queueFactory.newTaskQueue(DEFAULT_MAX_PENDING_TASKS);
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return newTaskQueue0(maxPendingTasks);
+    }
+
+    private static Queue<Runnable> newTaskQueue0(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                : PlatformDependent.<Runnable>newMpscQueue(maxPendingTasks);
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    /**
+     * Return the {@link IovArray} that can be used for writes in this {@link EventLoop}. The {@link IovArray} is
+     * only cleared after everything was submitted so callers need to use {@link IovArray#count()} as offset.
+     * {@link #ensureIovArrayCapacity()} must be called before.
+     */
+    IovArray iovArray() {
+        return iovArray;
+    }
+
+    /**
+     * Ensure the {@link IovArray} returned by {@link #iovArray()} has space for at least one more entry.
+     */
+    void ensureIovArrayCapacity() {
+        if (iovArray.count() == Limits.IOV_MAX || iovArray.size() >= iovArray.maxBytes()) {
+            submissionQueue.submit();
+            iovArray.clear();
+        }
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+            // write to the evfd which will then complete the pending read and so wake-up io_uring_enter(...)
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    @Override
+    protected boolean beforeScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    @Override
+    protected boolean afterScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop}.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        AbstractIOUringChannel old = channels.put(ch.socket.intValue(), ch);
+
+        // We either expect to have no Channel in the map with the same FD or that the FD of the old Channel is already
+        // closed.
+        assert old == null || !old.isOpen();
+    }
+
+    /**
+     * Deregister the given channel from this {@link EventLoop}. This must only be called once there are no more
+     * operations in flight for the channel.
+     */
+    void remove(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int fd = ch.socket.intValue();
+
+        AbstractIOUringChannel old = channels.remove(fd);
+        if (old != null && old != ch) {
+            // The Channel mapping was already replaced due FD reuse, put back the stored Channel.
+            channels.put(fd, old);
+
+            // If we found another Channel in the map that is mapped to the same FD the given Channel MUST be closed.
+            assert !ch.isOpen();
+        }
+    }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    private void addEventFdRead() {
+        submissionQueue.addRead(eventFd.intValue(), eventFdReadBuffer, 0, 8, (short) 0);
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            try {
+                if (hasTasks()) {
+                    submit();
+                } else {
+                    long curDeadlineNanos = nextScheduledTaskDeadlineNanos();
+                    if (curDeadlineNanos == -1L) {
+                        curDeadlineNanos = NONE; // nothing on the calendar
+                    }
+                    nextWakeupNanos.set(curDeadlineNanos);
+                    try {
+                        if (!hasTasks()) {
+                            if (curDeadlineNanos != prevDeadlineNanos) {
+                                updateTimeout(curDeadlineNanos);
+                            }
+                            submitAndWait();
+                        } else {
+                            submit();
+                        }
+                    } finally {
+                        // Try get() first to avoid much more expensive CAS in the case we
+                        // were woken via the wakeup() method (submitted task)
+                        if (nextWakeupNanos.get() == AWAKE || nextWakeupNanos.getAndSet(AWAKE) == AWAKE) {
+                            pendingWakeup = true;
+                        }
+                    }
+                }
+
+                try {
+                    completionQueue.process(this);
+                } finally {
+                    // Ensure we always run tasks.
+                    runAllTasks();
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+            // Always handle shutdown even if the loop processing threw an exception.
+            try {
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+        }
+    }
+
+    private void submit() {
+        submissionQueue.submit();
+        iovArray.clear();
+    }
+
+    private void submitAndWait() {
+        submissionQueue.submitAndWait();
+        iovArray.clear();
+    }
+
+    private void updateTimeout(long curDeadlineNanos) {
+        if (prevDeadlineNanos != NONE) {
+            submissionQueue.addTimeoutRemove(TIMEOUT_DATA);
+        }
+        if (curDeadlineNanos != NONE) {
+            submissionQueue.addTimeout(deadlineToDelayNanos(curDeadlineNanos), TIMEOUT_DATA);
+        }
+        prevDeadlineNanos = curDeadlineNanos;
+    }
+
+    @Override
+    public void handle(int fd, int res, int flags, byte op, short data) {
+        if (op == Native.IORING_OP_TIMEOUT) {
+            if (res == Native.ERRNO_ETIME_NEGATIVE) {
+                if (data == TIMEOUT_DATA) {
+                    prevDeadlineNanos = NONE;
+                } else if (data == CLEANUP_TIMEOUT_DATA) {
+                    cleanupTimeoutFired = true;
+                }
+            }
+        } else if (op == Native.IORING_OP_TIMEOUT_REMOVE || op == Native.IORING_OP_ASYNC_CANCEL) {
+            // Nothing to do, the cancelled operation will produce its own completion.
+        } else if (fd == eventFd.intValue()) {
+            pendingWakeup = false;
+            if (!isShutdown()) {
+                addEventFdRead();
+            }
+        } else {
+            AbstractIOUringChannel ch = channels.get(fd);
+            if (ch != null) {
+                ((AbstractIOUringChannel.AbstractUringUnsafe) ch.unsafe()).handle(res, op, data);
+            }
+        }
+    }
+
+    /**
+     * Visible only for testing!
+     */
+    void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        // Using the intermediate collection to prevent ConcurrentModificationException.
+        // In the `close()` method, the channel is deleted from `channels` map.
+        AbstractIOUringChannel[] localChannels = channels.values().toArray(new AbstractIOUringChannel[0]);
+
+        for (AbstractIOUringChannel ch: localChannels) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // Ensure any in-flight wakeup writes have been performed prior to closing eventFd.
+            while (pendingWakeup) {
+                cleanupTimeoutFired = false;
+                submissionQueue.addTimeout(1000000000L, CLEANUP_TIMEOUT_DATA);
+                submitAndWait();
+                completionQueue.process(this);
+                if (cleanupTimeoutFired && pendingWakeup) {
+                    // We timed-out so assume that the write we're expecting isn't coming
+                    break;
+                }
+            }
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+        } finally {
+            // Closing the ring will cancel all the operations that are still in flight.
+            ringBuffer.close();
+            iovArray.release();
+            PlatformDependent.freeMemory(eventFdReadBuffer);
+        }
+    }
+}
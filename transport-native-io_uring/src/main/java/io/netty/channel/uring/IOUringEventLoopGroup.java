@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopTaskQueueFactory;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link EventLoopGroup} which uses io_uring under the covers. Because of this
+ * it only works on linux.
+ */
+public final class IOUringEventLoopGroup extends MultithreadEventLoopGroup {
+    {
+        // Ensure JNI is initialized by the time this class is loaded.
+        IOUring.ensureAvailability();
+    }
+
+    /**
+     * Create a new instance using the default number of threads and the default {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and the default {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup(int nThreads) {
+        this(nThreads, (ThreadFactory) null);
+    }
+
+    /**
+     * Create a new instance using the default number of threads and the given {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup(ThreadFactory threadFactory) {
+        this(0, threadFactory);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and the given {@link ThreadFactory}.
+     */
+    public IOUringEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, 0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads, the given {@link ThreadFactory} and the given
+     * number of entries for the submission queue of each ring.
+     */
+    public IOUringEventLoopGroup(int nThreads, ThreadFactory threadFactory, int ringSize) {
+        super(nThreads, threadFactory, checkRingSize(ringSize), RejectedExecutionHandlers.reject());
+    }
+
+    public IOUringEventLoopGroup(int nThreads, Executor executor) {
+        this(nThreads, executor, 0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads, the given {@link Executor} and the given
+     * number of entries for the submission queue of each ring.
+     */
+    public IOUringEventLoopGroup(int nThreads, Executor executor, int ringSize) {
+        this(nThreads, executor, DefaultEventExecutorChooserFactory.INSTANCE, ringSize,
+                RejectedExecutionHandlers.reject());
+    }
+
+    public IOUringEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory,
+                                 int ringSize, RejectedExecutionHandler rejectedExecutionHandler) {
+        super(nThreads, executor, chooserFactory, checkRingSize(ringSize), rejectedExecutionHandler);
+    }
+
+    public IOUringEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory,
+                                 int ringSize, RejectedExecutionHandler rejectedExecutionHandler,
+                                 EventLoopTaskQueueFactory queueFactory) {
+        super(nThreads, executor, chooserFactory, checkRingSize(ringSize), rejectedExecutionHandler, queueFactory);
+    }
+
+    private static int checkRingSize(int ringSize) {
+        return ObjectUtil.checkPositiveOrZero(ringSize, "ringSize");
+    }
+
+    @Override
+    protected EventLoop newChild(Executor executor, Object... args) throws Exception {
+        EventLoopTaskQueueFactory queueFactory = args.length == 3 ? (EventLoopTaskQueueFactory) args[2] : null;
+        return new IOUringEventLoop(this, executor, (Integer) args[0],
+                (RejectedExecutionHandler) args[1], queueFactory);
+    }
+}
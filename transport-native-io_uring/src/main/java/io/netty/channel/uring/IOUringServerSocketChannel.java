@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Errors;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux io_uring. Accepted connections are
+ * {@link IOUringSocketChannel}s.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+
+    public IOUringServerSocketChannel() {
+        super(null, IOUringSocket.newSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        socket.listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    private final class IOUringServerSocketUnsafe extends AbstractUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() {
+            if ((ioState & (READ_SCHEDULED | POLL_IN_SCHEDULED)) != 0 || !isActive()) {
+                return;
+            }
+            readOp = Native.IORING_OP_ACCEPT;
+            ioState |= READ_SCHEDULED;
+            // We don't need the address of the peer as the accepted socket will look it up itself.
+            submissionQueue().addAccept(socket.intValue(), 0, 0, (short) 0);
+        }
+
+        @Override
+        void readComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                if (res >= 0) {
+                    // The channel was closed in the meantime, close the accepted socket again.
+                    try {
+                        new IOUringSocket(res).close();
+                    } catch (IOException ignore) {
+                        // Nothing we can do about it.
+                    }
+                }
+                return;
+            }
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                schedulePollIn();
+                return;
+            }
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res < 0) {
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(Errors.newIOException("accept", res));
+                return;
+            }
+
+            allocHandle.lastBytesRead(res);
+            allocHandle.incMessagesRead(1);
+            readPending = false;
+            try {
+                pipeline.fireChannelRead(new IOUringSocketChannel(IOUringServerSocketChannel.this,
+                        new IOUringSocket(res)));
+            } catch (Throwable t) {
+                pipeline.fireExceptionCaught(t);
+            }
+
+            if (allocHandle.continueReading()) {
+                scheduleRead();
+            } else {
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.Socket;
+
+/**
+ * A socket which is used by the io_uring transport.
+ */
+final class IOUringSocket extends Socket {
+
+    IOUringSocket(int fd) {
+        super(fd);
+    }
+
+    /**
+     * Returns {@code true} if this is an {@code AF_INET6} socket.
+     */
+    boolean isIpv6() {
+        return ipv6;
+    }
+
+    public static IOUringSocket newSocketStream() {
+        return new IOUringSocket(newSocketStream0());
+    }
+
+    public static IOUringSocket newSocketDgram() {
+        return new IOUringSocket(newSocketDgram0());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.channel.unix.Errors;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The submission queue of an io_uring instance. Operations are only queued by the {@code add*} methods and handed to
+ * the kernel in one batch when {@link #submit()} or {@link #submitAndWait()} is called.
+ */
+final class IOUringSubmissionQueue {
+
+    // Offsets of the fields in the io_uring_sqe struct.
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_RW_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+    private static final int SQE_PAD_FIELD = 40;
+
+    // The size of struct __kernel_timespec.
+    private static final int KERNEL_TIMESPEC_SIZE = 16;
+    private static final int KERNEL_TIMESPEC_TV_SEC_FIELD = 0;
+    private static final int KERNEL_TIMESPEC_TV_NSEC_FIELD = 8;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long kFlagsAddress;
+    private final long kDroppedAddress;
+    private final long kArrayAddress;
+    private final int ringMask;
+    private final long timeoutMemoryAddress;
+
+    private int head;
+    private int tail;
+
+    final long submissionQueueArrayAddress;
+    final int ringEntries;
+    final int ringSize;
+    final long ringAddress;
+    final int ringFd;
+
+    IOUringSubmissionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress, long kRingEntriesAddress,
+                           long kFlagsAddress, long kDroppedAddress, long kArrayAddress,
+                           long submissionQueueArrayAddress, int ringSize, long ringAddress, int ringFd) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.kFlagsAddress = kFlagsAddress;
+        this.kDroppedAddress = kDroppedAddress;
+        this.kArrayAddress = kArrayAddress;
+        this.submissionQueueArrayAddress = submissionQueueArrayAddress;
+        this.ringSize = ringSize;
+        this.ringAddress = ringAddress;
+        this.ringFd = ringFd;
+
+        ringMask = PlatformDependent.getInt(kRingMaskAddress);
+        ringEntries = PlatformDependent.getInt(kRingEntriesAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+
+        timeoutMemoryAddress = PlatformDependent.allocateMemory(KERNEL_TIMESPEC_SIZE);
+    }
+
+    private void enqueueSqe(byte op, int rwFlags, int fd, long address, int length, long offset, short data) {
+        if (tail - head == ringEntries) {
+            // The ring is full, hand what we have to the kernel to make room.
+            submit();
+        }
+        long sqe = submissionQueueArrayAddress + (long) (tail++ & ringMask) * Native.SIZEOF_SQE;
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) 0);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, (short) 0);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_RW_FLAGS_FIELD, rwFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, UserData.encode(fd, op, data));
+
+        // Clear buf_index, personality, splice_fd_in and the padding.
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD, 0);
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD + 8, 0);
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD + 16, 0);
+    }
+
+    void addRead(int fd, long bufferAddress, int pos, int limit, short data) {
+        enqueueSqe(Native.IORING_OP_READ, 0, fd, bufferAddress + pos, limit - pos, 0, data);
+    }
+
+    void addWrite(int fd, long bufferAddress, int pos, int limit, short data) {
+        enqueueSqe(Native.IORING_OP_WRITE, 0, fd, bufferAddress + pos, limit - pos, 0, data);
+    }
+
+    void addWritev(int fd, long iovecArrayAddress, int length, short data) {
+        enqueueSqe(Native.IORING_OP_WRITEV, 0, fd, iovecArrayAddress, length, 0, data);
+    }
+
+    void addAccept(int fd, long address, long addressLength, short data) {
+        enqueueSqe(Native.IORING_OP_ACCEPT, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, fd, address, 0,
+                addressLength, data);
+    }
+
+    void addConnect(int fd, long socketAddress, long socketAddressLength, short data) {
+        enqueueSqe(Native.IORING_OP_CONNECT, 0, fd, socketAddress, 0, socketAddressLength, data);
+    }
+
+    void addSendmsg(int fd, long msgHdr, short data) {
+        enqueueSqe(Native.IORING_OP_SENDMSG, 0, fd, msgHdr, 1, 0, data);
+    }
+
+    void addRecvmsg(int fd, long msgHdr, short data) {
+        enqueueSqe(Native.IORING_OP_RECVMSG, 0, fd, msgHdr, 1, 0, data);
+    }
+
+    /**
+     * Add a one-shot poll for the given mask. The mask is echoed back as the data of the completion.
+     */
+    void addPoll(int fd, int pollMask) {
+        enqueueSqe(Native.IORING_OP_POLL_ADD, pollMask, fd, 0, 0, 0, (short) pollMask);
+    }
+
+    /**
+     * Cancel the operation which was submitted with the given {@code user_data}.
+     */
+    void addCancel(int fd, long userDataToCancel) {
+        enqueueSqe(Native.IORING_OP_ASYNC_CANCEL, 0, fd, userDataToCancel, 0, 0, (short) 0);
+    }
+
+    /**
+     * Add a timeout that fires after the given amount of nanoseconds unless it is removed before.
+     */
+    void addTimeout(long nanoSeconds, short data) {
+        long seconds;
+        long nanos;
+        if (nanoSeconds <= 0) {
+            seconds = 0;
+            nanos = 0;
+        } else {
+            seconds = nanoSeconds / 1000000000L;
+            nanos = nanoSeconds % 1000000000L;
+        }
+        // The kernel copies the timespec when the entry is submitted so we can re-use the memory.
+        PlatformDependent.putLong(timeoutMemoryAddress + KERNEL_TIMESPEC_TV_SEC_FIELD, seconds);
+        PlatformDependent.putLong(timeoutMemoryAddress + KERNEL_TIMESPEC_TV_NSEC_FIELD, nanos);
+        enqueueSqe(Native.IORING_OP_TIMEOUT, 0, ringFd, timeoutMemoryAddress, 1, 0, data);
+    }
+
+    /**
+     * Remove a timeout which was added via {@link #addTimeout(long, short)} with the given data.
+     */
+    void addTimeoutRemove(short timeoutData) {
+        enqueueSqe(Native.IORING_OP_TIMEOUT_REMOVE, 0, ringFd,
+                UserData.encode(ringFd, Native.IORING_OP_TIMEOUT, timeoutData), 0, 0, (short) 0);
+    }
+
+    /**
+     * Returns the number of entries that were queued but not submitted yet.
+     */
+    int count() {
+        return tail - head;
+    }
+
+    /**
+     * Submit all queued entries without waiting for any completion.
+     *
+     * @return the number of submitted entries.
+     */
+    int submit() {
+        int submit = tail - head;
+        return submit > 0 ? submit(submit, 0, 0) : 0;
+    }
+
+    /**
+     * Submit all queued entries and wait until at least one completion is ready.
+     *
+     * @return the number of submitted entries.
+     */
+    int submitAndWait() {
+        return submit(tail - head, 1, Native.IORING_ENTER_GETEVENTS);
+    }
+
+    private int submit(int toSubmit, int minComplete, int flags) {
+        // Publish the new tail, the kernel will consume everything between its head and the tail.
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        int ret = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+
+        // Re-sync with the head of the kernel, as it may not have consumed everything.
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        if (ret < 0) {
+            if (ret == Native.ERRNO_EINTR_NEGATIVE || ret == Errors.ERRNO_EAGAIN_NEGATIVE ||
+                    ret == Native.ERRNO_EBUSY_NEGATIVE) {
+                // Either interrupted while waiting or the completion queue overflowed. In both cases we just
+                // process the completions that are ready and try again on the next call.
+                return 0;
+            }
+            throw new ChannelException(Errors.newIOException("io_uring_enter", ret));
+        }
+        return ret;
+    }
+
+    void release() {
+        PlatformDependent.freeMemory(timeoutMemoryAddress);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.Buffer;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Helper to fill a {@code struct msghdr} with a single {@code struct iovec} in native memory, as used by
+ * {@code IORING_OP_SENDMSG} and {@code IORING_OP_RECVMSG}.
+ */
+final class MsgHdr {
+    private static final int ADDRESS_SIZE = Buffer.addressSize();
+
+    // Offsets of the fields in struct msghdr, which only consists of pointers, size_t and ints.
+    private static final int MSG_NAME_OFFSET = 0;
+    private static final int MSG_NAMELEN_OFFSET = ADDRESS_SIZE;
+    private static final int MSG_IOV_OFFSET = 2 * ADDRESS_SIZE;
+    private static final int MSG_IOVLEN_OFFSET = 3 * ADDRESS_SIZE;
+    private static final int MSG_CONTROL_OFFSET = 4 * ADDRESS_SIZE;
+    private static final int MSG_CONTROLLEN_OFFSET = 5 * ADDRESS_SIZE;
+    private static final int MSG_FLAGS_OFFSET = 6 * ADDRESS_SIZE;
+
+    static final int MSGHDR_SIZE = 7 * ADDRESS_SIZE;
+    static final int IOVEC_SIZE = 2 * ADDRESS_SIZE;
+
+    /**
+     * Fill the {@code struct msghdr} at the given memory. The {@code struct iovec} is stored at {@code iovAddress}.
+     */
+    static void write(long memory, long sockAddress, int sockAddressLength, long iovAddress,
+                      long bufferAddress, int bufferLength) {
+        putAddress(iovAddress, bufferAddress);
+        putAddress(iovAddress + ADDRESS_SIZE, bufferLength);
+
+        putAddress(memory + MSG_NAME_OFFSET, sockAddress);
+        PlatformDependent.putInt(memory + MSG_NAMELEN_OFFSET, sockAddressLength);
+        putAddress(memory + MSG_IOV_OFFSET, iovAddress);
+        putAddress(memory + MSG_IOVLEN_OFFSET, 1);
+        putAddress(memory + MSG_CONTROL_OFFSET, 0);
+        putAddress(memory + MSG_CONTROLLEN_OFFSET, 0);
+        PlatformDependent.putInt(memory + MSG_FLAGS_OFFSET, 0);
+    }
+
+    private static void putAddress(long memory, long value) {
+        if (ADDRESS_SIZE == 8) {
+            PlatformDependent.putLong(memory, value);
+        } else {
+            PlatformDependent.putInt(memory, (int) value);
+        }
+    }
+
+    private MsgHdr() { }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+import java.util.Locale;
+
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.kernelVersion;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofCqe;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofSqe;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ * <p>Static members which call JNI methods must be defined in {@link NativeStaticallyReferencedJniMethods}.
+ */
+final class Native {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Native.class);
+
+    static {
+        Selector selector = null;
+        try {
+            // We call Selector.open() as this will under the hood cause IOUtil to be loaded.
+            // This is a workaround for a possible classloader deadlock that could happen otherwise:
+            //
+            // See https://github.com/netty/netty/issues/10187
+            selector = Selector.open();
+        } catch (IOException ignore) {
+            // Just ignore
+        }
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            sizeofSqe();
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        } finally {
+            try {
+                if (selector != null) {
+                    selector.close();
+                }
+            } catch (IOException ignore) {
+                // Just ignore
+            }
+        }
+        Socket.initialize();
+    }
+
+    static final int DEFAULT_RING_SIZE = Math.max(64, SystemPropertyUtil.getInt("io.netty.uring.ringSize", 4096));
+
+    static final String KERNEL_VERSION = kernelVersion();
+    static final int SIZEOF_SQE = sizeofSqe();
+    static final int SIZEOF_CQE = sizeofCqe();
+
+    // Operation codes as defined in include/uapi/linux/io_uring.h. These are part of the kernel ABI and so stable.
+    static final byte IORING_OP_WRITEV = 2;
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_SENDMSG = 9;
+    static final byte IORING_OP_RECVMSG = 10;
+    static final byte IORING_OP_TIMEOUT = 11;
+    static final byte IORING_OP_TIMEOUT_REMOVE = 12;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_CONNECT = 16;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_WRITE = 23;
+
+    static final int IORING_ENTER_GETEVENTS = 1;
+
+    static final int IORING_FEAT_NODROP = 1 << 1;
+    static final int IORING_FEAT_SUBMIT_STABLE = 1 << 2;
+    static final int IORING_FEAT_FAST_POLL = 1 << 5;
+
+    /**
+     * The features every ring must support to be usable by this transport.
+     */
+    static final int REQUIRED_FEATURES = IORING_FEAT_NODROP | IORING_FEAT_SUBMIT_STABLE | IORING_FEAT_FAST_POLL;
+
+    // See include/uapi/asm-generic/poll.h
+    static final int POLLIN = 0x1;
+    static final int POLLOUT = 0x4;
+    static final int POLLRDHUP = 0x2000;
+
+    // See include/linux/socket.h and include/uapi/asm-generic/fcntl.h
+    static final int SOCK_NONBLOCK = 04000;
+    static final int SOCK_CLOEXEC = 02000000;
+
+    // See include/uapi/asm-generic/errno-base.h and include/uapi/asm-generic/errno.h
+    static final int ERRNO_EINTR_NEGATIVE = -4;
+    static final int ERRNO_EBUSY_NEGATIVE = -16;
+    static final int ERRNO_ETIME_NEGATIVE = -62;
+    static final int ERRNO_ECANCELED_NEGATIVE = -125;
+
+    static RingBuffer createRingBuffer(int ringSize) {
+        long[] values = ioUringSetup(ringSize);
+        assert values.length == 20;
+        int features = (int) values[19];
+        int ringFd = (int) values[18];
+        IOUringSubmissionQueue submissionQueue = new IOUringSubmissionQueue(
+                values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7],
+                (int) values[8], values[9], ringFd);
+        IOUringCompletionQueue completionQueue = new IOUringCompletionQueue(
+                values[10], values[11], values[12], values[13], values[14], values[15], (int) values[16],
+                values[17], ringFd);
+        return new RingBuffer(submissionQueue, completionQueue, features);
+    }
+
+    static RingBuffer createRingBuffer() {
+        return createRingBuffer(DEFAULT_RING_SIZE);
+    }
+
+    static int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags) {
+        return ioUringEnter0(ringFd, toSubmit, minComplete, flags);
+    }
+
+    static void ioUringExit(long submissionQueueRingAddress, int submissionQueueRingSize,
+                            long completionQueueRingAddress, int completionQueueRingSize,
+                            long submissionQueueArrayAddress, int submissionQueueArraySize, int ringFd) {
+        ioUringExit0(submissionQueueRingAddress, submissionQueueRingSize,
+                completionQueueRingAddress, completionQueueRingSize,
+                submissionQueueArrayAddress, submissionQueueArraySize, ringFd);
+    }
+
+    static FileDescriptor newEventFd() {
+        return new FileDescriptor(eventFd());
+    }
+
+    private static native long[] ioUringSetup(int entries);
+    private static native int ioUringEnter0(int ringFd, int toSubmit, int minComplete, int flags);
+    private static native void ioUringExit0(long submissionQueueRingAddress, long submissionQueueRingSize,
+                                            long completionQueueRingAddress, long completionQueueRingSize,
+                                            long submissionQueueArrayAddress, long submissionQueueArraySize,
+                                            int ringFd);
+    private static native int eventFd();
+    static native void eventFdWrite(int fd, long value);
+
+    private static void loadNativeLibrary() {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        String staticLibName = "netty_transport_native_io_uring";
+        String sharedLibName = staticLibName + '_' + PlatformDependent.normalizedArch();
+        ClassLoader cl = PlatformDependent.getClassLoader(Native.class);
+        try {
+            NativeLibraryLoader.load(sharedLibName, cl);
+        } catch (UnsatisfiedLinkError e1) {
+            try {
+                NativeLibraryLoader.load(staticLibName, cl);
+                logger.debug("Failed to load {}", sharedLibName, e1);
+            } catch (UnsatisfiedLinkError e2) {
+                ThrowableUtil.addSuppressed(e1, e2);
+                throw e1;
+            }
+        }
+    }
+
+    private Native() {
+        // utility
+    }
+}
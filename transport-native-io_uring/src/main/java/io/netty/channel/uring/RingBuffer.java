@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * The submission and completion queue of one io_uring instance, as mapped into this process.
+ */
+final class RingBuffer {
+    private final IOUringSubmissionQueue ioUringSubmissionQueue;
+    private final IOUringCompletionQueue ioUringCompletionQueue;
+    private final int features;
+
+    RingBuffer(IOUringSubmissionQueue ioUringSubmissionQueue, IOUringCompletionQueue ioUringCompletionQueue,
+               int features) {
+        this.ioUringSubmissionQueue = ioUringSubmissionQueue;
+        this.ioUringCompletionQueue = ioUringCompletionQueue;
+        this.features = features;
+    }
+
+    int fd() {
+        return ioUringCompletionQueue.ringFd;
+    }
+
+    /**
+     * Returns the {@code IORING_FEAT_*} flags the kernel reported when the ring was created.
+     */
+    int features() {
+        return features;
+    }
+
+    IOUringSubmissionQueue ioUringSubmissionQueue() {
+        return ioUringSubmissionQueue;
+    }
+
+    IOUringCompletionQueue ioUringCompletionQueue() {
+        return ioUringCompletionQueue;
+    }
+
+    void close() {
+        ioUringSubmissionQueue.release();
+        Native.ioUringExit(
+                ioUringSubmissionQueue.ringAddress,
+                ioUringSubmissionQueue.ringSize,
+                ioUringCompletionQueue.ringAddress,
+                ioUringCompletionQueue.ringSize,
+                ioUringSubmissionQueue.submissionQueueArrayAddress,
+                ioUringSubmissionQueue.ringEntries * Native.SIZEOF_SQE,
+                ioUringCompletionQueue.ringFd);
+    }
+}
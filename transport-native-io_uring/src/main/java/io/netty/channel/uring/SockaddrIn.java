@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Helper to convert between {@link InetSocketAddress}es and {@code struct sockaddr_in} / {@code struct sockaddr_in6}
+ * in native memory, which is needed for operations that are executed by the kernel and not via a JNI call.
+ */
+final class SockaddrIn {
+    // See include/linux/socket.h
+    static final int AF_INET = 2;
+    static final int AF_INET6 = 10;
+
+    static final int IPV4_ADDRESS_LENGTH = 4;
+    static final int IPV6_ADDRESS_LENGTH = 16;
+
+    static final int SOCKADDR_IN_SIZE = 16;
+    static final int SOCKADDR_IN6_SIZE = 28;
+
+    // Offsets of the fields in struct sockaddr_in.
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_FAMILY = 0;
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_PORT = 2;
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_ADDR = 4;
+
+    // Offsets of the fields in struct sockaddr_in6.
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_FAMILY = 0;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_PORT = 2;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_ADDR = 8;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID = 24;
+
+    private static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff };
+
+    /**
+     * Write the given {@link InetSocketAddress} to the given memory and return the number of bytes written. If
+     * {@code ipv6} is {@code true} the memory must be able to hold at least {@link #SOCKADDR_IN6_SIZE} bytes and
+     * IPv4 addresses are written as IPv4-mapped IPv6 addresses.
+     */
+    static int write(boolean ipv6, long memory, InetSocketAddress address) {
+        InetAddress addr = address.getAddress();
+        byte[] bytes = addr.getAddress();
+        int port = address.getPort();
+        if (ipv6) {
+            PlatformDependent.setMemory(memory, SOCKADDR_IN6_SIZE, (byte) 0);
+            PlatformDependent.putShort(memory + SOCKADDR_IN6_OFFSETOF_SIN6_FAMILY, (short) AF_INET6);
+            writePort(memory + SOCKADDR_IN6_OFFSETOF_SIN6_PORT, port);
+            if (bytes.length == IPV4_ADDRESS_LENGTH) {
+                PlatformDependent.copyMemory(IPV4_MAPPED_IPV6_PREFIX, 0,
+                        memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR, IPV4_MAPPED_IPV6_PREFIX.length);
+                PlatformDependent.copyMemory(bytes, 0,
+                        memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR + IPV4_MAPPED_IPV6_PREFIX.length,
+                        IPV4_ADDRESS_LENGTH);
+            } else {
+                PlatformDependent.copyMemory(bytes, 0, memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR,
+                        IPV6_ADDRESS_LENGTH);
+                PlatformDependent.putInt(memory + SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID,
+                        ((Inet6Address) addr).getScopeId());
+            }
+            return SOCKADDR_IN6_SIZE;
+        }
+        if (bytes.length != IPV4_ADDRESS_LENGTH) {
+            throw new IllegalArgumentException("IPv6 address used on IPv4 socket: " + address);
+        }
+        PlatformDependent.setMemory(memory, SOCKADDR_IN_SIZE, (byte) 0);
+        PlatformDependent.putShort(memory + SOCKADDR_IN_OFFSETOF_SIN_FAMILY, (short) AF_INET);
+        writePort(memory + SOCKADDR_IN_OFFSETOF_SIN_PORT, port);
+        PlatformDependent.copyMemory(bytes, 0, memory + SOCKADDR_IN_OFFSETOF_SIN_ADDR, IPV4_ADDRESS_LENGTH);
+        return SOCKADDR_IN_SIZE;
+    }
+
+    /**
+     * Read the {@link InetSocketAddress} which is stored in the given memory.
+     */
+    static InetSocketAddress read(long memory) {
+        int family = PlatformDependent.getShort(memory) & 0xffff;
+        try {
+            if (family == AF_INET6) {
+                int port = readPort(memory + SOCKADDR_IN6_OFFSETOF_SIN6_PORT);
+                long addrMemory = memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR;
+                if (isIpv4Mapped(addrMemory)) {
+                    byte[] bytes = new byte[IPV4_ADDRESS_LENGTH];
+                    PlatformDependent.copyMemory(addrMemory + IPV4_MAPPED_IPV6_PREFIX.length, bytes, 0,
+                            IPV4_ADDRESS_LENGTH);
+                    return new InetSocketAddress(InetAddress.getByAddress(bytes), port);
+                }
+                byte[] bytes = new byte[IPV6_ADDRESS_LENGTH];
+                PlatformDependent.copyMemory(addrMemory, bytes, 0, IPV6_ADDRESS_LENGTH);
+                int scopeId = PlatformDependent.getInt(memory + SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID);
+                return new InetSocketAddress(Inet6Address.getByAddress(null, bytes, scopeId), port);
+            }
+            if (family == AF_INET) {
+                int port = readPort(memory + SOCKADDR_IN_OFFSETOF_SIN_PORT);
+                byte[] bytes = new byte[IPV4_ADDRESS_LENGTH];
+                PlatformDependent.copyMemory(memory + SOCKADDR_IN_OFFSETOF_SIN_ADDR, bytes, 0, IPV4_ADDRESS_LENGTH);
+                return new InetSocketAddress(InetAddress.getByAddress(bytes), port);
+            }
+        } catch (UnknownHostException e) {
+            // Should never happen as we only pass in addresses of a valid length.
+            throw new IllegalStateException(e);
+        }
+        throw new IllegalArgumentException("Unsupported address family: " + family);
+    }
+
+    private static boolean isIpv4Mapped(long addrMemory) {
+        for (int i = 0; i < IPV4_MAPPED_IPV6_PREFIX.length; i++) {
+            if (PlatformDependent.getByte(addrMemory + i) != IPV4_MAPPED_IPV6_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The port is stored in network byte order.
+    private static void writePort(long memory, int port) {
+        PlatformDependent.putByte(memory, (byte) (port >>> 8));
+        PlatformDependent.putByte(memory + 1, (byte) port);
+    }
+
+    private static int readPort(long memory) {
+        return (PlatformDependent.getByte(memory) & 0xff) << 8 | PlatformDependent.getByte(memory + 1) & 0xff;
+    }
+
+    private SockaddrIn() { }
+}
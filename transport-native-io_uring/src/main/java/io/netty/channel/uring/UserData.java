@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Encodes and decodes the {@code user_data} that is attached to every submission queue entry and echoed back in the
+ * matching completion queue entry.
+ * <p>
+ * The layout is {@code fd (32 bits) | op (16 bits) | data (16 bits)}.
+ */
+final class UserData {
+
+    static long encode(int fd, byte op, short data) {
+        return ((long) fd << 32) | ((op & 0xFFFFL) << 16) | (data & 0xFFFFL);
+    }
+
+    static int decodeFd(long userData) {
+        return (int) (userData >>> 32);
+    }
+
+    static byte decodeOp(long userData) {
+        return (byte) ((userData >>> 16) & 0xFF);
+    }
+
+    static short decodeData(long userData) {
+        return (short) (userData & 0xFFFF);
+    }
+
+    private UserData() { }
+}
@@ -146,6 +146,7 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             wakeup();
+            recordWakeup();
         }
     }
 
@@ -226,6 +227,8 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
     protected void run() {
         for (;;) {
             try {
+                final boolean recordMetrics = metrics() != null;
+                final long iterationStartTime = recordMetrics ? System.nanoTime() : 0;
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
@@ -272,6 +275,8 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
                     default:
                 }
 
+                final long selectEndTime = recordMetrics ? System.nanoTime() : 0;
+                long ioEndTime = selectEndTime;
                 final int ioRatio = this.ioRatio;
                 if (ioRatio == 100) {
                     try {
@@ -279,6 +284,9 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
                             processReady(strategy);
                         }
                     } finally {
+                        if (recordMetrics) {
+                            ioEndTime = System.nanoTime();
+                        }
                         runAllTasks();
                     }
                 } else {
@@ -290,9 +298,13 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
                         }
                     } finally {
                         final long ioTime = System.nanoTime() - ioStartTime;
+                        ioEndTime = ioStartTime + ioTime;
                         runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 }
+                if (recordMetrics) {
+                    recordIteration(iterationStartTime, selectEndTime, ioEndTime);
+                }
                 if (allowGrowing && strategy == eventList.capacity()) {
                     //increase the size of the array as we needed the whole space for the events
                     eventList.realloc(false);
@@ -288,6 +288,34 @@ public final class ChannelOutboundBuffer {
         return remove0(cause, true);
     }
 
+    /**
+     * Will remove the current message without releasing it and without notifying its {@link ChannelPromise}, and
+     * return the {@link ChannelPromise}. The caller takes over the ownership of the message and is responsible for
+     * releasing it and notifying the returned {@link ChannelPromise}. This is useful if the message is still in use
+     * after it was written, for example because the kernel still references its memory. If no flushed message
+     * exists at the time this method is called it will return {@code null}.
+     */
+    public ChannelPromise detachCurrent() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        ChannelPromise promise = e.promise;
+        int size = e.pendingSize;
+
+        removeEntry(e);
+
+        if (!e.cancelled) {
+            decrementPendingOutboundBytes(size, false, true);
+        }
+
+        // recycle the entry
+        e.recycle();
+
+        return promise;
+    }
+
     private boolean remove0(Throwable cause, boolean notifyWritability) {
         Entry e = flushedEntry;
         if (e == null) {
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Metrics of a {@link SingleThreadEventLoop}, which can be enabled via {@link SingleThreadEventLoop#enableMetrics()}.
+ * <p>
+ * All values are cumulative since the metrics were enabled. The values are updated without any allocation or
+ * locking, so reading them concurrently to the {@link EventLoop} only gives a best effort view which may not be
+ * consistent across the different values.
+ */
+@UnstableApi
+public final class EventLoopMetrics {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> FIRST_PENDING_TASK_NANOS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "firstPendingTaskNanos");
+
+    private final SingleThreadEventLoop eventLoop;
+    private final Histogram iterationTime = new Histogram();
+    private final Histogram taskQueueWaitTime = new Histogram();
+    private final LongCounter wakeups = PlatformDependent.newLongCounter();
+
+    // Only written by the EventLoop thread.
+    private volatile long iterations;
+    private volatile long selectTimeNanos;
+    private volatile long ioTimeNanos;
+    private volatile long taskTimeNanos;
+
+    private volatile long firstPendingTaskNanos = NONE;
+
+    EventLoopMetrics(SingleThreadEventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Returns the {@link EventLoop} of these metrics.
+     */
+    public EventLoop eventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * Returns the number of iterations of the {@link EventLoop}.
+     */
+    public long iterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the {@link Histogram} of the duration of an iteration of the {@link EventLoop}.
+     */
+    public Histogram iterationTime() {
+        return iterationTime;
+    }
+
+    /**
+     * Returns the {@link Histogram} of the time the oldest task waited in the task queue before the
+     * {@link EventLoop} started to run the tasks.
+     */
+    public Histogram taskQueueWaitTime() {
+        return taskQueueWaitTime;
+    }
+
+    /**
+     * Returns the time in nanoseconds the {@link EventLoop} spent waiting for I/O events, for example in
+     * {@code select} or {@code epoll_wait}.
+     */
+    public long selectTimeNanos() {
+        return selectTimeNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the {@link EventLoop} spent processing I/O events.
+     */
+    public long ioTimeNanos() {
+        return ioTimeNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the {@link EventLoop} spent running tasks.
+     */
+    public long taskTimeNanos() {
+        return taskTimeNanos;
+    }
+
+    /**
+     * Returns the number of times the {@link EventLoop} was woken up from waiting for I/O events to run a task.
+     */
+    public long wakeups() {
+        return wakeups.value();
+    }
+
+    /**
+     * Returns the number of pending tasks of the {@link EventLoop}.
+     *
+     * @see SingleThreadEventLoop#pendingTasks()
+     */
+    public int pendingTasks() {
+        return eventLoop.pendingTasks();
+    }
+
+    /**
+     * Returns the number of {@link Channel}s registered with the {@link EventLoop} or {@code -1} if not supported.
+     *
+     * @see SingleThreadEventLoop#registeredChannels()
+     */
+    public int registeredChannels() {
+        return eventLoop.registeredChannels();
+    }
+
+    void taskAdded() {
+        // Only the first task that is added after the task queue was drained needs to record the time, so most of the
+        // time this is just a volatile read.
+        if (firstPendingTaskNanos == NONE) {
+            tasksPending(System.nanoTime());
+        }
+    }
+
+    void tasksPending(long nanos) {
+        // Producers and the EventLoop only ever set the time if none is recorded yet, so an earlier time always wins.
+        FIRST_PENDING_TASK_NANOS_UPDATER.compareAndSet(this, NONE, nanos);
+    }
+
+    long beforeRunningTasks(long startNanos) {
+        long firstPendingNanos = firstPendingTaskNanos;
+        if (firstPendingNanos != NONE) {
+            taskQueueWaitTime.record(startNanos - firstPendingNanos);
+        }
+        return firstPendingNanos;
+    }
+
+    void afterRunningTasks(long startNanos, long endNanos, long firstPendingNanos) {
+        taskTimeNanos += endNanos - startNanos;
+        // Only clear the time that was recorded before, a time recorded by a producer in the meantime is kept. The
+        // caller records the end time if tasks are still pending after this.
+        FIRST_PENDING_TASK_NANOS_UPDATER.compareAndSet(this, firstPendingNanos, NONE);
+    }
+
+    void wakeup() {
+        wakeups.increment();
+    }
+
+    void iteration(long startNanos, long selectEndNanos, long ioEndNanos, long endNanos) {
+        iterations++;
+        selectTimeNanos += selectEndNanos - startNanos;
+        ioTimeNanos += ioEndNanos - selectEndNanos;
+        iterationTime.record(endNanos - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "EventLoopMetrics(iterations: " + iterations + ", selectTimeNanos: " + selectTimeNanos +
+                ", ioTimeNanos: " + ioTimeNanos + ", taskTimeNanos: " + taskTimeNanos +
+                ", wakeups: " + wakeups() + ')';
+    }
+
+    /**
+     * A histogram of durations with buckets of exponentially growing size. The first bucket contains all durations
+     * smaller than {@code 1024} nanoseconds, each following bucket has twice the upper bound of the previous one and
+     * the last bucket contains all durations of about one second or more.
+     */
+    public static final class Histogram {
+        private static final int MIN_SHIFT = 10;
+        private static final int BUCKETS = 22;
+
+        // Only written by the EventLoop thread.
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        Histogram() { }
+
+        void record(long nanos) {
+            int bucket = nanos < 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos >>> MIN_SHIFT), BUCKETS - 1);
+            counts.lazySet(bucket, counts.get(bucket) + 1);
+        }
+
+        /**
+         * Returns the number of buckets.
+         */
+        public int buckets() {
+            return BUCKETS;
+        }
+
+        /**
+         * Returns the exclusive upper bound in nanoseconds of the given bucket or {@link Long#MAX_VALUE} for the last
+         * bucket.
+         */
+        public long upperBoundNanos(int bucket) {
+            if (bucket < 0 || bucket >= BUCKETS) {
+                throw new IndexOutOfBoundsException("bucket: " + bucket + " (expected: 0-" + (BUCKETS - 1) + ')');
+            }
+            return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (MIN_SHIFT + bucket);
+        }
+
+        /**
+         * Returns the number of durations in the given bucket.
+         */
+        public long count(int bucket) {
+            return counts.get(bucket);
+        }
+
+        /**
+         * Returns the number of durations in all buckets.
+         */
+        public long totalCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+    }
+}
@@ -36,6 +36,7 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
             SystemPropertyUtil.getInt("io.netty.eventLoop.maxPendingTasks", Integer.MAX_VALUE));
 
     private final Queue<Runnable> tailTasks;
+    private volatile EventLoopMetrics metrics;
 
     protected SingleThreadEventLoop(EventLoopGroup parent, ThreadFactory threadFactory, boolean addTaskWakesUp) {
         this(parent, threadFactory, addTaskWakesUp, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject());
@@ -130,6 +131,117 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return tailTasks.remove(ObjectUtil.checkNotNull(task, "task"));
     }
 
+    /**
+     * Enables the collection of {@link EventLoopMetrics} for this {@link EventLoop} if not done yet and returns them.
+     */
+    @UnstableApi
+    public final EventLoopMetrics enableMetrics() {
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics == null) {
+            synchronized (this) {
+                metrics = this.metrics;
+                if (metrics == null) {
+                    this.metrics = metrics = new EventLoopMetrics(this);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the {@link EventLoopMetrics} of this {@link EventLoop} or {@code null} if they were not enabled via
+     * {@link #enableMetrics()}.
+     */
+    @UnstableApi
+    public final EventLoopMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Records an iteration of the {@link EventLoop} if {@link EventLoopMetrics} are enabled. The timestamps are
+     * obtained via {@link System#nanoTime()}: {@code startNanos} is the start of the iteration, {@code selectEndNanos}
+     * the time the {@link EventLoop} stopped waiting for I/O events and {@code ioEndNanos} the time it finished
+     * processing them. The time spent running tasks is recorded by this class.
+     */
+    @UnstableApi
+    protected final void recordIteration(long startNanos, long selectEndNanos, long ioEndNanos) {
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.iteration(startNanos, selectEndNanos, ioEndNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records that the {@link EventLoop} was woken up from waiting for I/O events if {@link EventLoopMetrics} are
+     * enabled.
+     */
+    @UnstableApi
+    protected final void recordWakeup() {
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.wakeup();
+        }
+    }
+
+    @Override
+    protected void addTask(Runnable task) {
+        super.addTask(task);
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.taskAdded();
+        }
+    }
+
+    @Override
+    protected int offerTasks(Runnable[] tasks) {
+        int added = super.offerTasks(tasks);
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics != null && added > 0) {
+            metrics.taskAdded();
+        }
+        return added;
+    }
+
+    @Override
+    protected boolean runAllTasks() {
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return super.runAllTasks();
+        }
+        long startNanos = System.nanoTime();
+        long firstPendingNanos = metrics.beforeRunningTasks(startNanos);
+        try {
+            return super.runAllTasks();
+        } finally {
+            afterRunningTasks(metrics, startNanos, firstPendingNanos);
+        }
+    }
+
+    @Override
+    protected boolean runAllTasks(long timeoutNanos) {
+        EventLoopMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return super.runAllTasks(timeoutNanos);
+        }
+        long startNanos = System.nanoTime();
+        long firstPendingNanos = metrics.beforeRunningTasks(startNanos);
+        try {
+            return super.runAllTasks(timeoutNanos);
+        } finally {
+            afterRunningTasks(metrics, startNanos, firstPendingNanos);
+        }
+    }
+
+    private void afterRunningTasks(EventLoopMetrics metrics, long startNanos, long firstPendingNanos) {
+        long endNanos = System.nanoTime();
+        metrics.afterRunningTasks(startNanos, endNanos, firstPendingNanos);
+        // Check for tasks only after the recorded time was cleared, so a task that is added concurrently is either
+        // seen here or records the time itself.
+        if (hasTasks()) {
+            metrics.tasksPending(endNanos);
+        }
+    }
+
     @Override
     protected void afterRunningAllTasks() {
         runAllTasksFrom(tailTasks);
@@ -436,6 +436,8 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         int selectCnt = 0;
         for (;;) {
             try {
+                final boolean recordMetrics = metrics() != null;
+                final long iterationStartTime = recordMetrics ? System.nanoTime() : 0;
                 int strategy;
                 try {
                     strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
@@ -473,6 +475,8 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                     continue;
                 }
 
+                final long selectEndTime = recordMetrics ? System.nanoTime() : 0;
+                long ioEndTime = selectEndTime;
                 selectCnt++;
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
@@ -484,6 +488,9 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                             processSelectedKeys();
                         }
                     } finally {
+                        if (recordMetrics) {
+                            ioEndTime = System.nanoTime();
+                        }
                         // Ensure we always run tasks.
                         ranTasks = runAllTasks();
                     }
@@ -494,11 +501,15 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
+                        ioEndTime = ioStartTime + ioTime;
                         ranTasks = runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 } else {
                     ranTasks = runAllTasks(0); // This will run the minimum number of tasks
                 }
+                if (recordMetrics) {
+                    recordIteration(iterationStartTime, selectEndTime, ioEndTime);
+                }
 
                 if (ranTasks || strategy > 0) {
                     if (selectCnt > MIN_PREMATURE_SELECTOR_RETURNS && logger.isDebugEnabled()) {
@@ -777,6 +788,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
             selector.wakeup();
+            recordWakeup();
         }
     }
 
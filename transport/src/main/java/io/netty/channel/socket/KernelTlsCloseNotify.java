@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket;
+
+import io.netty.channel.Channel;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Message which can be written to a {@link SocketChannel} after a {@link KernelTlsTxOffload} to let the kernel send a
+ * {@code close_notify} alert. Once the kernel encrypts the records the TLS implementation can not produce any records
+ * itself anymore, as their sequence numbers would not match.
+ * <p>
+ * The write will fail if the {@link Channel} does not offload the TLS record encryption to the kernel.
+ */
+@UnstableApi
+public final class KernelTlsCloseNotify {
+
+    public static final KernelTlsCloseNotify INSTANCE = new KernelTlsCloseNotify();
+
+    private KernelTlsCloseNotify() { }
+
+    @Override
+    public String toString() {
+        return "KernelTlsCloseNotify";
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket;
+
+import io.netty.channel.Channel;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Message which can be written to a {@link SocketChannel} to offload the TLS record encryption of all data that is
+ * written after it to the kernel (kTLS). All data that was written before this message is expected to be encrypted
+ * already and will be written to the socket as-is.
+ * <p>
+ * The write will fail if the {@link Channel} or the kernel does not support the offload, in which case the
+ * {@link Channel} is left untouched and the caller must continue to encrypt the data itself.
+ */
+@UnstableApi
+public final class KernelTlsTxOffload {
+
+    /**
+     * The protocol version of TLS 1.2 as encoded on the wire.
+     */
+    public static final int TLS_1_2 = 0x0303;
+
+    /**
+     * The AEAD ciphers which can be offloaded.
+     */
+    public enum Cipher {
+        AES_128_GCM(16),
+        AES_256_GCM(32);
+
+        private final int keyLength;
+
+        Cipher(int keyLength) {
+            this.keyLength = keyLength;
+        }
+
+        /**
+         * Returns the length of the key in bytes.
+         */
+        public int keyLength() {
+            return keyLength;
+        }
+    }
+
+    private static final int SALT_LENGTH = 4;
+    private static final int IV_LENGTH = 8;
+    private static final int RECORD_SEQUENCE_LENGTH = 8;
+
+    private final int version;
+    private final Cipher cipher;
+    private final byte[] key;
+    private final byte[] salt;
+    private final byte[] iv;
+    private final byte[] recordSequence;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param version           the TLS protocol version, like {@link #TLS_1_2}.
+     * @param cipher            the {@link Cipher} that was negotiated.
+     * @param key               the write key.
+     * @param salt              the implicit part of the nonce (the 4 byte write IV of the key block).
+     * @param iv                the explicit part of the nonce that is used for the next record.
+     * @param recordSequence    the sequence number of the next record.
+     */
+    public KernelTlsTxOffload(int version, Cipher cipher, byte[] key, byte[] salt, byte[] iv, byte[] recordSequence) {
+        this.version = version;
+        this.cipher = ObjectUtil.checkNotNull(cipher, "cipher");
+        this.key = checkLength(key, cipher.keyLength(), "key");
+        this.salt = checkLength(salt, SALT_LENGTH, "salt");
+        this.iv = checkLength(iv, IV_LENGTH, "iv");
+        this.recordSequence = checkLength(recordSequence, RECORD_SEQUENCE_LENGTH, "recordSequence");
+    }
+
+    private static byte[] checkLength(byte[] bytes, int length, String name) {
+        ObjectUtil.checkNotNull(bytes, name);
+        if (bytes.length != length) {
+            throw new IllegalArgumentException(name + ".length: " + bytes.length + " (expected: " + length + ')');
+        }
+        return bytes.clone();
+    }
+
+    /**
+     * Returns the TLS protocol version.
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Returns the {@link Cipher} that was negotiated.
+     */
+    public Cipher cipher() {
+        return cipher;
+    }
+
+    /**
+     * Returns the write key.
+     */
+    public byte[] key() {
+        return key.clone();
+    }
+
+    /**
+     * Returns the implicit part of the nonce.
+     */
+    public byte[] salt() {
+        return salt.clone();
+    }
+
+    /**
+     * Returns the explicit part of the nonce that is used for the next record.
+     */
+    public byte[] iv() {
+        return iv.clone();
+    }
+
+    /**
+     * Returns the sequence number of the next record.
+     */
+    public byte[] recordSequence() {
+        return recordSequence.clone();
+    }
+
+    @Override
+    public String toString() {
+        // Never include the key material.
+        return "KernelTlsTxOffload(version: " + version + ", cipher: " + cipher + ')';
+    }
+}
@@ -20,6 +20,7 @@ import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import org.junit.Test;
@@ -149,6 +150,29 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testDetachCurrent() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        assertNull(buffer.detachCurrent());
+
+        ByteBuf buf = directBuffer().writeBytes("buf1".getBytes(CharsetUtil.US_ASCII));
+        ChannelPromise promise = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        buffer.addFlush();
+        assertTrue(buffer.totalPendingWriteBytes() > 0);
+
+        assertSame(promise, buffer.detachCurrent());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+
+        // Neither the message was released nor the promise notified.
+        assertEquals(1, buf.refCnt());
+        assertFalse(promise.isDone());
+        buf.release();
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventLoopMetricsTest {
+
+    @Test
+    public void testHistogram() {
+        EventLoopMetrics.Histogram histogram = new EventLoopMetrics.Histogram();
+        histogram.record(-1);
+        histogram.record(0);
+        histogram.record(1023);
+        histogram.record(1024);
+        histogram.record(2047);
+        histogram.record(2048);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(3, histogram.count(0));
+        assertEquals(2, histogram.count(1));
+        assertEquals(1, histogram.count(2));
+        assertEquals(1, histogram.count(histogram.buckets() - 1));
+        assertEquals(7, histogram.totalCount());
+
+        assertEquals(1024, histogram.upperBoundNanos(0));
+        assertEquals(2048, histogram.upperBoundNanos(1));
+        assertEquals(Long.MAX_VALUE, histogram.upperBoundNanos(histogram.buckets() - 1));
+        // The bucket before the last one ends at about one second.
+        assertEquals(1L << 30, histogram.upperBoundNanos(histogram.buckets() - 2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUpperBoundOutOfRange() {
+        new EventLoopMetrics.Histogram().upperBoundNanos(-1);
+    }
+}
@@ -20,6 +20,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.DefaultSelectStrategyFactory;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopMetrics;
 import io.netty.channel.EventLoopTaskQueueFactory;
 import io.netty.channel.SelectStrategy;
 import io.netty.channel.SelectStrategyFactory;
@@ -337,4 +338,35 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testMetrics() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        final NioEventLoop loop = (NioEventLoop) group.next();
+        try {
+            assertNull(loop.metrics());
+            EventLoopMetrics metrics = loop.enableMetrics();
+            assertSame(metrics, loop.enableMetrics());
+            assertSame(metrics, loop.metrics());
+
+            Channel channel = new NioServerSocketChannel();
+            loop.register(channel).syncUninterruptibly();
+            for (int i = 0; i < 10; i++) {
+                loop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP.
+                    }
+                }).syncUninterruptibly();
+            }
+            assertTrue(metrics.iterations() > 0);
+            assertTrue(metrics.iterationTime().totalCount() > 0);
+            assertTrue(metrics.taskQueueWaitTime().totalCount() > 0);
+            assertTrue(metrics.taskTimeNanos() > 0);
+            assertTrue(metrics.wakeups() > 0);
+            assertEquals(1, metrics.registeredChannels());
+            channel.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
 }